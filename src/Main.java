@@ -1,7 +1,26 @@
+import model.Movie;
+import model.User;
+import service.BinaryCatalogStore;
+import service.BulkCatalogBuilder;
+import service.CatalogStore;
+import service.CsvCatalogStore;
+import service.CsvUserStore;
+import service.InMemoryCatalogStore;
+import service.InMemoryUserStore;
+import service.LogUserStore;
 import service.MovieManager;
+import service.RecommendationStore;
+import service.RecommendationStoreBuilder;
+import service.UserImportResult;
 import service.UserManager;
+import service.UserStore;
+import service.WatchEventStore;
 import service.RecommendationEngine;
 import ui.CommandLineInterface;
+import util.FileHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
 
 /**
  * Main class - Program entry point
@@ -9,25 +28,110 @@ import ui.CommandLineInterface;
  */
 public class Main {
     private static String MOVIE_FILE = "data/movies.csv";
+    private static String MOVIE_SNAPSHOT_FILE = "data/movies.snapshot";
+    private static String MOVIE_INDEX_FILE = "data/movies.index";
     private static String USER_FILE = "data/users.csv";
+    private static String BINARY_MOVIE_FILE = "data/movies.bin";
+    private static String BINARY_USER_FILE = "data/users.log";
+    private static String WATCH_EVENT_DIRECTORY = "data/events";
+    private static String HISTORY_SEGMENT_FILE = "data/history.segment";
+    private static String CHANGE_FEED_FILE = "data/users.changes";
+    private static String RECOMMENDATION_FILE = "data/users.recs";
+    private static String STORE_OPTION = "--store=";
+    private static String STORE_CSV = "csv";
+    private static String STORE_BINARY = "binary";
+    private static String STORE_MEMORY = "memory";
+    private static String SHARED_OPTION = "--shared";
+    private static String MAPPED_HISTORY_OPTION = "--mapped-history";
+    private static String BUILD_CATALOG_OPTION = "--build-catalog=";
+    private static String IMPORT_USERS_OPTION = "--import-users=";
+    private static String PRECOMPUTE_OPTION = "--precompute-recommendations";
+    private static long IMPORT_REPORT_MILLIS = 1000;
+    private static String BULK_WORK_DIRECTORY = "data/bulk";
+    private static int BULK_RUN_ROWS = 250000;
+    private static long GROUP_COMMIT_WINDOW_MS = 5;
+    private static int GROUP_COMMIT_MAX_MUTATIONS = 64;
+    private static long CHECKPOINT_LOG_BYTES = 4 * 1024 * 1024;
+    private static int CHECKPOINT_RECORDS = 1000;
+    private static long CHECKPOINT_IDLE_MS = 30000;
+    private static int HOT_USERS = 10000;
+    private static long WARM_USER_BYTES = 32 * 1024 * 1024;
+    private static int CHANGE_SEGMENT_RECORDS = 10000;
+    private static int CHANGE_SEGMENTS = 10;
+    private static int RECOMMENDATION_SLOT_MOVIES = 20;
 
+    /**
+     * Starts the system
+     * @param args optional --store=csv|binary|memory to select the storage backend (default csv),
+     *             --shared when other processes use the same CSV user file,
+     *             --mapped-history to keep watch histories off-heap,
+     *             --import-users=FILE to add the users of a username,password[,type] file and exit,
+     *             --precompute-recommendations to write the recommendations of every user and exit,
+     *             or --build-catalog=SOURCE to build the movie file and its bulk indexes from
+     *             a large movie CSV and exit
+     */
     public static void main(String[] args) {
+        String bulkSource = getOptionValue(args, BUILD_CATALOG_OPTION);
+        if (bulkSource != null) {
+            buildCatalog(bulkSource);
+            return;
+        }
         System.out.println("Initializing Movie Recommendation System...\n");
 
         try {
-            MovieManager movieManager = new MovieManager(MOVIE_FILE);
+            String backend = getStoreBackend(args);
+            MovieManager movieManager = new MovieManager(createCatalogStore(backend));
+            movieManager.enableSnapshot(MOVIE_SNAPSHOT_FILE);
+            movieManager.enableIndexSnapshot(MOVIE_INDEX_FILE);
             if (!movieManager.loadMovies()) {
                 System.out.println("Failed to load movies. Please check the movie file.");
                 return;
             }
+            movieManager.startWatching();
 
-            UserManager userManager = new UserManager(USER_FILE);
+            UserManager userManager = new UserManager(createUserStore(backend));
+            if (hasOption(args, SHARED_OPTION)) {
+                userManager.enableSharedMode();
+            }
+            if (hasOption(args, MAPPED_HISTORY_OPTION)) {
+                userManager.enableMappedHistory(HISTORY_SEGMENT_FILE);
+            }
+            userManager.enableJournal();
+            userManager.enableLazyLoading();
+            userManager.enableTiering(HOT_USERS, WARM_USER_BYTES);
             if (!userManager.loadUsers()) {
                 System.out.println("Failed to load users. Please check the user file.");
                 return;
             }
+            userManager.enableGroupCommit(GROUP_COMMIT_WINDOW_MS, GROUP_COMMIT_MAX_MUTATIONS);
+            userManager.enableCheckpointing(CHECKPOINT_LOG_BYTES, CHECKPOINT_RECORDS, CHECKPOINT_IDLE_MS);
+            if (!userManager.isSharedMode()) {
+                // The event dictionaries are owned by one process
+                userManager.setWatchEventStore(new WatchEventStore(WATCH_EVENT_DIRECTORY));
+                userManager.enableChangeFeed(CHANGE_FEED_FILE, CHANGE_SEGMENT_RECORDS, CHANGE_SEGMENTS);
+            }
+            String importPath = getOptionValue(args, IMPORT_USERS_OPTION);
+            if (importPath != null) {
+                importUsers(userManager, importPath);
+                movieManager.stopWatching();
+                userManager.close();
+                return;
+            }
 
             RecommendationEngine recommendationEngine = new RecommendationEngine(movieManager);
+            if (hasOption(args, PRECOMPUTE_OPTION)) {
+                precomputeRecommendations(recommendationEngine, userManager);
+                movieManager.stopWatching();
+                userManager.close();
+                return;
+            }
+            if (FileHandler.fileExists(RECOMMENDATION_FILE)) {
+                try {
+                    recommendationEngine.setRecommendationStore(new RecommendationStore(RECOMMENDATION_FILE));
+                } catch (IOException e) {
+                    System.out.println("Ignoring precomputed recommendations: " + e.getMessage());
+                }
+            }
 
             CommandLineInterface cli = new CommandLineInterface(
                 movieManager,
@@ -36,10 +140,149 @@ public class Main {
             );
 
             cli.start();
+            movieManager.stopWatching();
+            userManager.close();
 
         } catch (Exception e) {
             System.out.println("An unexpected error occurred: " + e.getMessage());
             e.printStackTrace();
         }
     }
+
+    /**
+     * Gets the storage backend selected on the command line
+     */
+    private static String getStoreBackend(String[] args) {
+        for (String arg : args) {
+            if (arg.startsWith(STORE_OPTION)) {
+                String backend = arg.substring(STORE_OPTION.length()).toLowerCase();
+                if (backend.equals(STORE_CSV) || backend.equals(STORE_BINARY) || backend.equals(STORE_MEMORY)) {
+                    return backend;
+                }
+                System.out.println("Unknown store '" + backend + "', using csv.");
+            }
+        }
+        return STORE_CSV;
+    }
+
+    /**
+     * Builds the movie file from a large movie CSV with bounded memory (see BulkCatalogBuilder)
+     */
+    private static void buildCatalog(String sourcePath) {
+        BulkCatalogBuilder builder = new BulkCatalogBuilder(BULK_WORK_DIRECTORY, BULK_RUN_ROWS);
+        long start = System.currentTimeMillis();
+        try {
+            int count = builder.build(sourcePath, MOVIE_FILE);
+            System.out.println("Built catalog of " + count + " movies in " + (System.currentTimeMillis() - start)
+                    + " ms (" + builder.getSpilledRuns() + " sorted runs).");
+        } catch (IOException e) {
+            System.out.println("Error building catalog: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Imports users in bulk, printing the progress at most once per IMPORT_REPORT_MILLIS
+     */
+    private static void importUsers(UserManager userManager, String importPath) {
+        long[] lastReport = {0};
+        UserImportResult result = userManager.importUsers(importPath, Runtime.getRuntime().availableProcessors(),
+                progress -> {
+                    if (progress.getElapsedMillis() - lastReport[0] >= IMPORT_REPORT_MILLIS) {
+                        lastReport[0] = progress.getElapsedMillis();
+                        System.out.println("Importing: " + progress);
+                    }
+                });
+        if (result == null) {
+            System.out.println("Import failed, no users were added.");
+            return;
+        }
+        System.out.println("Imported " + result);
+    }
+
+    /**
+     * Precomputes the recommendations of every user (see RecommendationStoreBuilder)
+     */
+    private static void precomputeRecommendations(RecommendationEngine engine, UserManager userManager) {
+        RecommendationStoreBuilder builder = new RecommendationStoreBuilder(engine, RECOMMENDATION_SLOT_MOVIES,
+                Runtime.getRuntime().availableProcessors());
+        long start = System.currentTimeMillis();
+        try {
+            int count = builder.build(userManager.getAllUsers(), RECOMMENDATION_FILE);
+            System.out.println("Precomputed recommendations of " + count + " users in "
+                    + (System.currentTimeMillis() - start) + " ms (" + builder.getEntries() + " entries).");
+        } catch (IOException e) {
+            System.out.println("Error precomputing recommendations: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the value of a command line option of the form name=value
+     * @return the value, or null if the option is not present
+     */
+    private static String getOptionValue(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.startsWith(option)) {
+                return arg.substring(option.length());
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Checks if a command line flag is present
+     */
+    private static boolean hasOption(String[] args, String option) {
+        for (String arg : args) {
+            if (arg.equals(option)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Creates the catalog store; binary and memory stores are seeded from the CSV file when empty
+     */
+    private static CatalogStore createCatalogStore(String backend) throws IOException {
+        CsvCatalogStore csvStore = new CsvCatalogStore(MOVIE_FILE);
+        CatalogStore store;
+        if (backend.equals(STORE_BINARY)) {
+            store = new BinaryCatalogStore(BINARY_MOVIE_FILE);
+            if (FileHandler.fileExists(BINARY_MOVIE_FILE)) {
+                return store;
+            }
+        } else if (backend.equals(STORE_MEMORY)) {
+            store = new InMemoryCatalogStore();
+        } else {
+            return csvStore;
+        }
+        ArrayList<Movie> seed = csvStore.loadAll();
+        if (seed != null) {
+            store.saveAll(seed);
+        }
+        return store;
+    }
+
+    /**
+     * Creates the user store; binary and memory stores are seeded from the CSV file when empty
+     */
+    private static UserStore createUserStore(String backend) throws IOException {
+        CsvUserStore csvStore = new CsvUserStore(USER_FILE);
+        UserStore store;
+        if (backend.equals(STORE_BINARY)) {
+            store = new LogUserStore(BINARY_USER_FILE);
+            if (FileHandler.fileExists(BINARY_USER_FILE)) {
+                return store;
+            }
+        } else if (backend.equals(STORE_MEMORY)) {
+            store = new InMemoryUserStore();
+        } else {
+            return csvStore;
+        }
+        ArrayList<User> seed = csvStore.loadAll();
+        if (seed != null) {
+            store.saveAll(seed);
+        }
+        return store;
+    }
 }
@@ -1,43 +1,100 @@
 package model;
 
+import java.time.DateTimeException;
+import java.time.LocalDate;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
 
 /**
  * History class
  * Records movie IDs and watch dates
+ * Every watch is kept, so rewatches are not lost: the events are stored in two parallel
+ * int arrays (movie index, epoch day) that grow by doubling, and each distinct movie has
+ * its watch count and latest event, found through an open-addressing table of movie
+ * indexes. Dates that are not in yyyy-MM-dd format are kept as strings.
+ * The CSV form lists every event as movieId@date, so a rewatched movie simply appears
+ * again; files written before rewatches were kept have one event per movie
  */
 public class History {
-    private HashMap<String, String> movieHistory;
-    private ArrayList<String> movieIds;
+    protected static int RAW_DATE = Integer.MIN_VALUE;
+    private static int INITIAL_CAPACITY = 4;
+    private static int[] NO_INTS = new int[0];
+    private static String[] NO_IDS = new String[0];
+
+    private String[] movieIds;
+    private int[] watchCounts;
+    private int[] lastEvents;
+    private int movieCount;
+    private int[] slots;
+    private int[] eventMovies;
+    private int[] eventDays;
+    private int eventCount;
+    private HashMap<Integer, String> rawDates;
 
     /**
      * Constructor
      */
     public History() {
-        this.movieHistory = new HashMap<>();
-        this.movieIds = new ArrayList<>();
+        reset();
     }
 
     /**
-     * Adds a movie to the watch history
+     * Records a watch of a movie; watching it again keeps the earlier watches
      * @param movieId the movie ID
      * @param watchDate the watch date (format: YYYY-MM-DD)
      */
     public void addMovie(String movieId, String watchDate) {
-        if (!movieHistory.containsKey(movieId)) {
-            movieIds.add(movieId);
+        int movie = indexOf(movieId);
+        if (movie < 0) {
+            movie = addMovieId(movieId);
+        }
+        if (eventCount == eventMovies.length) {
+            int grown = Math.max(INITIAL_CAPACITY, eventCount * 2);
+            eventMovies = Arrays.copyOf(eventMovies, grown);
+            eventDays = Arrays.copyOf(eventDays, grown);
         }
-        movieHistory.put(movieId, watchDate);
+        int day = parseDay(watchDate);
+        if (day == RAW_DATE) {
+            if (rawDates == null) {
+                rawDates = new HashMap<>();
+            }
+            rawDates.put(eventCount, watchDate);
+        }
+        eventMovies[eventCount] = movie;
+        eventDays[eventCount] = day;
+        watchCounts[movie]++;
+        lastEvents[movie] = eventCount;
+        eventCount++;
     }
 
     /**
      * Gets the watch date of a movie
      * @param movieId the movie ID
-     * @return the watch date, or null if not exists
+     * @return the date of the latest watch, or null if not exists
      */
     public String getWatchDate(String movieId) {
-        return movieHistory.get(movieId);
+        return lastWatched(movieId);
+    }
+
+    /**
+     * Gets the date of the latest recorded watch of a movie
+     * @param movieId the movie ID
+     * @return the watch date, or null if the movie was not watched
+     */
+    public String lastWatched(String movieId) {
+        int movie = indexOf(movieId);
+        return movie < 0 ? null : getEventDate(lastEvents[movie]);
+    }
+
+    /**
+     * Gets how often a movie was watched
+     * @param movieId the movie ID
+     * @return the number of watches, 0 if the movie was not watched
+     */
+    public int watchCount(String movieId) {
+        int movie = indexOf(movieId);
+        return movie < 0 ? 0 : watchCounts[movie];
     }
 
     /**
@@ -46,7 +103,7 @@ public class History {
      * @return true if exists, false otherwise
      */
     public boolean contains(String movieId) {
-        return movieHistory.containsKey(movieId);
+        return indexOf(movieId) >= 0;
     }
 
     /**
@@ -54,15 +111,46 @@ public class History {
      * @return the list of movie IDs
      */
     public ArrayList<String> getMovieIds() {
-        return new ArrayList<>(movieIds);
+        ArrayList<String> ids = new ArrayList<>(movieCount);
+        for (int i = 0; i < movieCount; i++) {
+            ids.add(movieIds[i]);
+        }
+        return ids;
     }
 
     /**
      * Gets the size of the watch history
-     * @return the number of history records
+     * @return the number of distinct movies watched
      */
     public int size() {
-        return movieHistory.size();
+        return movieCount;
+    }
+
+    /**
+     * Gets the number of watches, rewatches included
+     * @return the event count
+     */
+    public int getEventCount() {
+        return eventCount;
+    }
+
+    /**
+     * Gets the movie of a watch event
+     * @param event the event number (0 is the first watch recorded)
+     * @return the movie ID
+     */
+    public String getEventMovieId(int event) {
+        return movieIds[eventMovies[event]];
+    }
+
+    /**
+     * Gets the date of a watch event
+     * @param event the event number (0 is the first watch recorded)
+     * @return the watch date
+     */
+    public String getEventDate(int event) {
+        int day = eventDays[event];
+        return day == RAW_DATE ? rawDates.get(event) : formatDay(day);
     }
 
     /**
@@ -70,31 +158,32 @@ public class History {
      * @return true if empty, false otherwise
      */
     public boolean isEmpty() {
-        return movieHistory.isEmpty();
+        return movieCount == 0;
     }
 
     /**
      * Clears the watch history
      */
     public void clear() {
-        movieHistory.clear();
-        movieIds.clear();
+        reset();
     }
 
     /**
      * Converts the watch history to a CSV format string
-     * @return the CSV format string
+     * @return the CSV format string (one movieId@date entry per watch)
      */
     public String toCSV() {
-        if (movieIds.isEmpty()) {
+        if (eventCount == 0) {
             return "";
         }
-        ArrayList<String> entries = new ArrayList<>();
-        for (String movieId : movieIds) {
-            String date = movieHistory.get(movieId);
-            entries.add(movieId + "@" + date);
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < eventCount; i++) {
+            if (i > 0) {
+                csv.append(';');
+            }
+            csv.append(getEventMovieId(i)).append('@').append(getEventDate(i));
         }
-        return String.join(";", entries);
+        return csv.toString();
     }
 
     /**
@@ -102,8 +191,7 @@ public class History {
      * @param csvData the CSV format string
      */
     public void loadFromCSV(String csvData) {
-        movieHistory.clear();
-        movieIds.clear();
+        clear();
         if (csvData != null && !csvData.trim().isEmpty()) {
             String[] entries = csvData.split(";");
             for (String entry : entries) {
@@ -121,9 +209,130 @@ public class History {
 
     /**
      * Gets the complete watch history map
-     * @return the map of movie ID to watch date
+     * @return the map of movie ID to the date of its latest watch
      */
     public HashMap<String, String> getMovieHistory() {
-        return new HashMap<>(movieHistory);
+        HashMap<String, String> movieHistory = new HashMap<>();
+        for (int i = 0; i < movieCount; i++) {
+            movieHistory.put(movieIds[i], getEventDate(lastEvents[i]));
+        }
+        return movieHistory;
+    }
+
+    /**
+     * Parses a yyyy-MM-dd date to an epoch day
+     * @param watchDate the date
+     * @return the epoch day, or RAW_DATE if the date would not format back to the same string
+     */
+    protected static int parseDay(String watchDate) {
+        if (watchDate == null || watchDate.length() != 10 || watchDate.charAt(4) != '-'
+                || watchDate.charAt(7) != '-') {
+            return RAW_DATE;
+        }
+        int year = parseDigits(watchDate, 0, 4);
+        int month = parseDigits(watchDate, 5, 7);
+        int day = parseDigits(watchDate, 8, 10);
+        if (year < 0 || month < 0 || day < 0) {
+            return RAW_DATE;
+        }
+        try {
+            return (int) LocalDate.of(year, month, day).toEpochDay();
+        } catch (DateTimeException e) {
+            return RAW_DATE;
+        }
+    }
+
+    /**
+     * Formats an epoch day as yyyy-MM-dd
+     * @param epochDay the epoch day
+     * @return the date
+     */
+    protected static String formatDay(int epochDay) {
+        return LocalDate.ofEpochDay(epochDay).toString();
+    }
+
+    private static int parseDigits(String text, int from, int to) {
+        int value = 0;
+        for (int i = from; i < to; i++) {
+            char c = text.charAt(i);
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            value = value * 10 + (c - '0');
+        }
+        return value;
+    }
+
+    /**
+     * Empties the history; the arrays are only allocated by the first watch
+     * (subclasses that store the events elsewhere never allocate them)
+     */
+    private void reset() {
+        movieIds = NO_IDS;
+        watchCounts = NO_INTS;
+        lastEvents = NO_INTS;
+        slots = NO_INTS;
+        eventMovies = NO_INTS;
+        eventDays = NO_INTS;
+        movieCount = 0;
+        eventCount = 0;
+        rawDates = null;
+    }
+
+    /**
+     * Finds the index of a movie through the open-addressing table
+     * @return the movie index, or -1 if the movie was not watched
+     */
+    private int indexOf(String movieId) {
+        if (movieCount == 0) {
+            return -1;
+        }
+        int mask = slots.length - 1;
+        for (int slot = hash(movieId) & mask; slots[slot] != 0; slot = (slot + 1) & mask) {
+            int movie = slots[slot] - 1;
+            if (movieIds[movie].equals(movieId)) {
+                return movie;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Adds a distinct movie, growing the per-movie arrays and the table as needed
+     * @return the new movie index
+     */
+    private int addMovieId(String movieId) {
+        if (movieCount == movieIds.length) {
+            int grown = Math.max(INITIAL_CAPACITY, movieCount * 2);
+            movieIds = Arrays.copyOf(movieIds, grown);
+            watchCounts = Arrays.copyOf(watchCounts, grown);
+            lastEvents = Arrays.copyOf(lastEvents, grown);
+        }
+        int movie = movieCount++;
+        movieIds[movie] = movieId;
+        if (movieCount * 2 > slots.length) {
+            // Keeps the table at most half full
+            slots = new int[Math.max(INITIAL_CAPACITY * 2, slots.length * 2)];
+            for (int i = 0; i < movieCount; i++) {
+                insertSlot(i);
+            }
+        } else {
+            insertSlot(movie);
+        }
+        return movie;
+    }
+
+    private void insertSlot(int movie) {
+        int mask = slots.length - 1;
+        int slot = hash(movieIds[movie]) & mask;
+        while (slots[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        slots[slot] = movie + 1;
+    }
+
+    private static int hash(String movieId) {
+        int h = movieId.hashCode();
+        return h ^ (h >>> 16);
     }
 }
@@ -14,6 +14,8 @@ public class User {
     protected Watchlist watchlist;
     protected History history;
     protected String userType;
+    protected boolean dirty;
+    protected long version;
 
     /**
      * Constructor
@@ -39,6 +41,20 @@ public class User {
         this.userType = userType;
     }
 
+    /**
+     * Creates a user object of the given type
+     * @param username the username
+     * @param password the password
+     * @param userType the user type (anything other than premium gives a basic user)
+     * @return the user
+     */
+    public static User createByType(String username, String password, String userType) {
+        if (TYPE_PREMIUM.equals(userType)) {
+            return new PremiumUser(username, password);
+        }
+        return new BasicUser(username, password);
+    }
+
     public String getUsername() {
         return username;
     }
@@ -65,6 +81,7 @@ public class User {
 
     public void setPassword(String password) {
         this.password = password;
+        this.dirty = true;
     }
 
     public void setWatchlist(Watchlist watchlist) {
@@ -79,6 +96,54 @@ public class User {
         this.userType = userType;
     }
 
+    /**
+     * Checks if the user changed since it was last saved
+     * @return true if there are unsaved changes
+     */
+    public boolean isDirty() {
+        return dirty;
+    }
+
+    /**
+     * Marks the user as changed since it was last saved
+     */
+    public void markDirty() {
+        this.dirty = true;
+    }
+
+    /**
+     * Clears the unsaved-changes flag (called after the user has been saved)
+     */
+    public void clearDirty() {
+        this.dirty = false;
+    }
+
+    /**
+     * Gets the version of the stored record this object reflects (used by the shared user store)
+     * @return the version, 0 if the store does not track versions
+     */
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    /**
+     * Takes over the stored state of another copy of this user (password, type, watchlist,
+     * history and version), so references to this object stay current after a reload
+     * @param source the other copy, which must not be used afterwards
+     */
+    public void copyFrom(User source) {
+        this.password = source.password;
+        this.userType = source.userType;
+        this.watchlist = source.watchlist;
+        this.history = source.history;
+        this.version = source.version;
+        this.dirty = source.dirty;
+    }
+
     /**
      * Gets the maximum watchlist size
      * @return the maximum size
@@ -112,7 +177,11 @@ public class User {
         if (watchlist.size() >= getMaxWatchlistSize()) {
             return false;
         }
-        return watchlist.addMovie(movieId);
+        if (!watchlist.addMovie(movieId)) {
+            return false;
+        }
+        dirty = true;
+        return true;
     }
 
     /**
@@ -121,7 +190,11 @@ public class User {
      * @return true if removed successfully
      */
     public boolean removeFromWatchlist(String movieId) {
-        return watchlist.removeMovie(movieId);
+        if (!watchlist.removeMovie(movieId)) {
+            return false;
+        }
+        dirty = true;
+        return true;
     }
 
     /**
@@ -132,6 +205,7 @@ public class User {
     public void markAsWatched(String movieId, String watchDate) {
         watchlist.removeMovie(movieId);
         history.addMovie(movieId, watchDate);
+        dirty = true;
     }
 
     /**
@@ -0,0 +1,48 @@
+package service;
+
+import model.Movie;
+import util.FileHandler;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * BinaryCatalogStore class - Binary columnar catalog storage
+ * Keeps the catalog in the CatalogSnapshot format as the primary file, so every
+ * load is a single memory-mapped read without any text parsing
+ */
+public class BinaryCatalogStore implements CatalogStore {
+    private String filePath;
+
+    /**
+     * Constructor
+     * @param filePath the binary catalog file path
+     */
+    public BinaryCatalogStore(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Loads the catalog
+     * @return the movies in catalog order, or null if the file does not exist
+     * @throws IOException if the file cannot be read or is corrupt
+     */
+    @Override
+    public ArrayList<Movie> loadAll() throws IOException {
+        if (!FileHandler.fileExists(filePath)) {
+            return null;
+        }
+        return CatalogSnapshot.read(filePath);
+    }
+
+    @Override
+    public void saveAll(Collection<Movie> movies) throws IOException {
+        CatalogSnapshot.write(filePath, new ArrayList<>(movies));
+    }
+
+    @Override
+    public String getDescription() {
+        return "binary catalog " + filePath;
+    }
+}
@@ -0,0 +1,279 @@
+package service;
+
+import model.BasicUser;
+import model.History;
+import model.PremiumUser;
+import model.User;
+import util.FileHandler;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.TreeSet;
+
+/**
+ * BinaryUserCodec class - Compact binary user record format
+ * Movie IDs are replaced by dense integers from a sorted dictionary, watchlist and
+ * history references are delta-encoded as zigzag varints, and watch dates are stored
+ * as epoch-day varint deltas. Histories with dates that are not ISO dates keep their
+ * date strings so the conversion is always lossless
+ */
+public class BinaryUserCodec {
+    private static int MAGIC = 0x55535231;
+    private static int VERSION = 1;
+    private static int TYPE_BASIC_CODE = 0;
+    private static int TYPE_PREMIUM_CODE = 1;
+    private static int DATES_EPOCH_DAY = 0;
+    private static int DATES_TEXT = 1;
+
+    /**
+     * Encodes users to a stream
+     * @param users the users
+     * @param output the output stream
+     * @throws IOException if writing fails
+     */
+    public static void write(Collection<User> users, OutputStream output) throws IOException {
+        TreeSet<String> movieIds = new TreeSet<>();
+        for (User user : users) {
+            movieIds.addAll(user.getWatchlist().getMovieIds());
+            movieIds.addAll(user.getHistory().getMovieIds());
+        }
+        HashMap<String, Integer> codes = new HashMap<>();
+        DataOutputStream out = new DataOutputStream(output);
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        writeVarint(out, movieIds.size());
+        for (String movieId : movieIds) {
+            codes.put(movieId, codes.size());
+            writeString(out, movieId);
+        }
+
+        writeVarint(out, users.size());
+        for (User user : users) {
+            writeString(out, user.getUsername());
+            writeString(out, user.getPassword());
+            writeVarint(out, User.TYPE_PREMIUM.equals(user.getUserType()) ? TYPE_PREMIUM_CODE : TYPE_BASIC_CODE);
+
+            ArrayList<String> watchlist = user.getWatchlist().getMovieIds();
+            writeVarint(out, watchlist.size());
+            long previous = 0;
+            for (String movieId : watchlist) {
+                int code = codes.get(movieId);
+                writeVarint(out, zigzag(code - previous));
+                previous = code;
+            }
+
+            // One entry per watch event; rewatches repeat the movie and readers add them in order
+            History history = user.getHistory();
+            long[] days = toEpochDays(history);
+            writeVarint(out, history.getEventCount());
+            writeVarint(out, days != null ? DATES_EPOCH_DAY : DATES_TEXT);
+            previous = 0;
+            long previousDay = 0;
+            for (int i = 0; i < history.getEventCount(); i++) {
+                int code = codes.get(history.getEventMovieId(i));
+                writeVarint(out, zigzag(code - previous));
+                previous = code;
+                if (days != null) {
+                    writeVarint(out, zigzag(days[i] - previousDay));
+                    previousDay = days[i];
+                } else {
+                    writeString(out, history.getEventDate(i));
+                }
+            }
+        }
+        out.flush();
+    }
+
+    /**
+     * Decodes users from a stream
+     * @param input the input stream
+     * @return the users in stored order
+     * @throws IOException if reading fails or the data is not in this format
+     */
+    public static ArrayList<User> read(InputStream input) throws IOException {
+        DataInputStream in = new DataInputStream(input);
+        if (in.readInt() != MAGIC || in.readInt() != VERSION) {
+            throw new IOException("Not a binary user file");
+        }
+        String[] movieIds = new String[(int) readVarint(in)];
+        for (int i = 0; i < movieIds.length; i++) {
+            movieIds[i] = readString(in);
+        }
+
+        int count = (int) readVarint(in);
+        ArrayList<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            String username = readString(in);
+            String password = readString(in);
+            User user;
+            if (readVarint(in) == TYPE_PREMIUM_CODE) {
+                user = new PremiumUser(username, password);
+            } else {
+                user = new BasicUser(username, password);
+            }
+
+            int watchlistSize = (int) readVarint(in);
+            long code = 0;
+            for (int j = 0; j < watchlistSize; j++) {
+                code += unzigzag(readVarint(in));
+                user.getWatchlist().addMovie(movieIds[(int) code]);
+            }
+
+            int historySize = (int) readVarint(in);
+            boolean epochDays = readVarint(in) == DATES_EPOCH_DAY;
+            code = 0;
+            long day = 0;
+            for (int j = 0; j < historySize; j++) {
+                code += unzigzag(readVarint(in));
+                String date;
+                if (epochDays) {
+                    day += unzigzag(readVarint(in));
+                    date = LocalDate.ofEpochDay(day).toString();
+                } else {
+                    date = readString(in);
+                }
+                user.getHistory().addMovie(movieIds[(int) code], date);
+            }
+            users.add(user);
+        }
+        return users;
+    }
+
+    /**
+     * Converts a CSV user file to the binary format
+     * @param csvPath the CSV user file path
+     * @param binaryPath the binary output path
+     * @throws IOException if the CSV file cannot be loaded or the output cannot be written
+     */
+    public static void csvToBinary(String csvPath, String binaryPath) throws IOException {
+        UserManager manager = new UserManager(csvPath);
+        if (!manager.loadUsers()) {
+            throw new IOException("Cannot load users from " + csvPath);
+        }
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(binaryPath));
+        try {
+            write(manager.getAllUsers(), out);
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Converts a binary user file back to the CSV format
+     * @param binaryPath the binary user file path
+     * @param csvPath the CSV output path
+     * @throws IOException if reading or writing fails
+     */
+    public static void binaryToCSV(String binaryPath, String csvPath) throws IOException {
+        ArrayList<User> users = readFile(binaryPath);
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("username,password,usertype,watchlist,history");
+        for (User user : users) {
+            lines.add(user.toCSV());
+        }
+        FileHandler.writeCSV(csvPath, lines);
+    }
+
+    /**
+     * Reads all users from a binary user file
+     * @param binaryPath the binary user file path
+     * @return the users
+     * @throws IOException if reading fails
+     */
+    public static ArrayList<User> readFile(String binaryPath) throws IOException {
+        InputStream in = new BufferedInputStream(new FileInputStream(binaryPath));
+        try {
+            return read(in);
+        } finally {
+            in.close();
+        }
+    }
+
+    /**
+     * Converts the dates of a history's watch events to epoch days
+     * @return the epoch days in event order, or null if any date is not an ISO date
+     */
+    private static long[] toEpochDays(History history) {
+        long[] days = new long[history.getEventCount()];
+        try {
+            for (int i = 0; i < days.length; i++) {
+                days[i] = LocalDate.parse(history.getEventDate(i)).toEpochDay();
+            }
+        } catch (DateTimeParseException | NullPointerException e) {
+            return null;
+        }
+        return days;
+    }
+
+    /**
+     * Writes an unsigned LEB128 varint
+     * @param out the output
+     * @param value the non-negative value
+     * @throws IOException if writing fails
+     */
+    public static void writeVarint(DataOutputStream out, long value) throws IOException {
+        while ((value & ~0x7FL) != 0) {
+            out.writeByte((int) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.writeByte((int) value);
+    }
+
+    /**
+     * Reads an unsigned LEB128 varint
+     * @param in the input
+     * @return the value
+     * @throws IOException if reading fails or the varint is malformed
+     */
+    public static long readVarint(DataInputStream in) throws IOException {
+        long value = 0;
+        for (int shift = 0; shift < 64; shift += 7) {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated varint");
+            }
+            value |= (long) (b & 0x7F) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw new IOException("Malformed varint");
+    }
+
+    /**
+     * Maps signed values to unsigned ones so small negative deltas stay small
+     */
+    public static long zigzag(long value) {
+        return (value << 1) ^ (value >> 63);
+    }
+
+    public static long unzigzag(long value) {
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    private static void writeString(DataOutputStream out, String value) throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        writeVarint(out, bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(DataInputStream in) throws IOException {
+        byte[] bytes = new byte[(int) readVarint(in)];
+        in.readFully(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
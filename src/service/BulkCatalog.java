@@ -0,0 +1,269 @@
+package service;
+
+import model.Movie;
+import util.CSVScanner;
+
+import java.io.BufferedReader;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+
+/**
+ * BulkCatalog class - Read access to a catalog written by BulkCatalogBuilder
+ * The catalog file is the movie CSV sorted by movie ID. Rows are fetched with positional
+ * reads and the index files are memory-mapped, so lookups need neither the catalog nor
+ * its indexes on the heap. Positions are row numbers in ID order.
+ * Index layouts:
+ * - path.ids: magic, version, then the byte offset of every row followed by the file length
+ * - path.genre, path.year, path.rating: magic, version, row count, then (long key, int position)
+ *   entries sorted by key and position. Genre keys are codes from path.genres (one genre
+ *   per line); rating keys sort the highest rating first (see ratingKey)
+ */
+public class BulkCatalog {
+    static String IDS_EXTENSION = ".ids";
+    static String GENRE_INDEX_EXTENSION = ".genre";
+    static String YEAR_INDEX_EXTENSION = ".year";
+    static String RATING_INDEX_EXTENSION = ".rating";
+    static String GENRES_EXTENSION = ".genres";
+    static int IDS_MAGIC = 0x4D424944;
+    static int INDEX_MAGIC = 0x4D424958;
+    static int VERSION = 1;
+    static int IDS_HEADER_SIZE = 8;
+    static int INDEX_HEADER_SIZE = 12;
+    static int ENTRY_BYTES = 12;
+
+    private String catalogPath;
+    private RandomAccessFile catalog;
+    private ByteBuffer ids;
+    private ByteBuffer genreIndex;
+    private ByteBuffer yearIndex;
+    private ByteBuffer ratingIndex;
+    private ArrayList<String> genres;
+    private int movieCount;
+
+    /**
+     * Constructor - opens a built catalog and maps its indexes
+     * @param catalogPath the catalog file path
+     * @throws IOException if a file is missing, corrupt or does not match the catalog file
+     */
+    public BulkCatalog(String catalogPath) throws IOException {
+        this.catalogPath = catalogPath;
+        ids = CSVScanner.map(catalogPath + IDS_EXTENSION);
+        if (ids.limit() < IDS_HEADER_SIZE + 8 || ids.getInt(0) != IDS_MAGIC || ids.getInt(4) != VERSION
+                || (ids.limit() - IDS_HEADER_SIZE) % 8 != 0) {
+            throw new IOException("Not a bulk catalog ID index: " + catalogPath + IDS_EXTENSION);
+        }
+        movieCount = (ids.limit() - IDS_HEADER_SIZE) / 8 - 1;
+        genreIndex = mapIndex(catalogPath + GENRE_INDEX_EXTENSION);
+        yearIndex = mapIndex(catalogPath + YEAR_INDEX_EXTENSION);
+        ratingIndex = mapIndex(catalogPath + RATING_INDEX_EXTENSION);
+        genres = readGenres(catalogPath + GENRES_EXTENSION);
+        catalog = new RandomAccessFile(catalogPath, "r");
+        if (catalog.length() != ids.getLong(IDS_HEADER_SIZE + movieCount * 8)) {
+            catalog.close();
+            throw new IOException("Bulk catalog indexes do not match " + catalogPath);
+        }
+    }
+
+    /**
+     * Gets the sort key of a rating in the rating index: higher ratings get smaller keys
+     * @param rating the rating
+     * @return the key
+     */
+    static long ratingKey(double rating) {
+        long bits = Double.doubleToLongBits(rating);
+        // Flipping the magnitude bits of negative values makes the bits sort like the doubles
+        return ~(bits ^ ((bits >> 63) & Long.MAX_VALUE));
+    }
+
+    public int getMovieCount() {
+        return movieCount;
+    }
+
+    /**
+     * Gets the movie at a position
+     * @param position the position (0 is the lowest ID)
+     * @return the movie, or null if the position is out of range
+     * @throws IOException if the row cannot be read
+     */
+    public Movie getMovie(int position) throws IOException {
+        if (position < 0 || position >= movieCount) {
+            return null;
+        }
+        CSVScanner row = readRow(position);
+        if (!row.nextRow() || row.getFieldCount() < 5) {
+            throw new IOException("Corrupt bulk catalog row " + position + " in " + catalogPath);
+        }
+        return new Movie(row.getString(0), row.getString(1), row.getString(2), row.getInt(3), row.getDouble(4));
+    }
+
+    /**
+     * Finds a movie by ID with a binary search over the rows
+     * @param id the movie ID
+     * @return the movie, or null if not found
+     * @throws IOException if a row cannot be read
+     */
+    public Movie getMovie(String id) throws IOException {
+        int low = 0;
+        int high = movieCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            Movie movie = getMovie(mid);
+            int order = movie.getId().compareTo(id);
+            if (order < 0) {
+                low = mid + 1;
+            } else if (order > 0) {
+                high = mid - 1;
+            } else {
+                return movie;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets the movies at several positions
+     * @param positions the positions
+     * @return the movies in the same order
+     * @throws IOException if a row cannot be read
+     */
+    public ArrayList<Movie> getMovies(int[] positions) throws IOException {
+        ArrayList<Movie> movies = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            movies.add(getMovie(position));
+        }
+        return movies;
+    }
+
+    /**
+     * Gets the positions of the movies of a genre (case-insensitive)
+     * @param genre the genre
+     * @return the positions in ID order, empty if no movie has the genre
+     */
+    public int[] getGenrePositions(String genre) {
+        for (int code = 0; code < genres.size(); code++) {
+            if (genres.get(code).equalsIgnoreCase(genre)) {
+                return readPositions(genreIndex, lowerBound(genreIndex, code), lowerBound(genreIndex, code + 1L));
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Gets the positions of the movies released in a range of years
+     * @param fromYear the first year
+     * @param toYear the last year
+     * @return the positions ordered by year, then ID
+     */
+    public int[] getYearPositions(int fromYear, int toYear) {
+        if (fromYear > toYear) {
+            return new int[0];
+        }
+        return readPositions(yearIndex, lowerBound(yearIndex, fromYear), lowerBound(yearIndex, toYear + 1L));
+    }
+
+    /**
+     * Gets the positions of the movies rated at least minRating
+     * @param minRating the minimum rating
+     * @return the positions, highest rated first (ties in ID order)
+     */
+    public int[] getPositionsByMinRating(double minRating) {
+        long key = ratingKey(minRating);
+        int end = key == Long.MAX_VALUE ? movieCount : lowerBound(ratingIndex, key + 1);
+        return readPositions(ratingIndex, 0, end);
+    }
+
+    /**
+     * Gets the position of the movie with the given rating rank
+     * @param rank the rank (0 is the highest rated)
+     * @return the position
+     */
+    public int getRatingOrderPosition(int rank) {
+        return ratingIndex.getInt(INDEX_HEADER_SIZE + rank * ENTRY_BYTES + 8);
+    }
+
+    /**
+     * Gets the distinct genres (case-insensitive) in the order of their first movie by ID
+     * @return the genres
+     */
+    public ArrayList<String> getGenres() {
+        return new ArrayList<>(genres);
+    }
+
+    /**
+     * Closes the catalog file; the mappings stay valid until collected
+     * @throws IOException if the file cannot be closed
+     */
+    public void close() throws IOException {
+        catalog.close();
+    }
+
+    private CSVScanner readRow(int position) throws IOException {
+        long start = ids.getLong(IDS_HEADER_SIZE + position * 8);
+        long end = ids.getLong(IDS_HEADER_SIZE + (position + 1) * 8);
+        ByteBuffer row = ByteBuffer.allocate((int) (end - start));
+        FileChannel channel = catalog.getChannel();
+        while (row.hasRemaining()) {
+            if (channel.read(row, start + row.position()) < 0) {
+                throw new IOException("Truncated bulk catalog: " + catalogPath);
+            }
+        }
+        row.flip();
+        return new CSVScanner(row);
+    }
+
+    private ByteBuffer mapIndex(String indexPath) throws IOException {
+        ByteBuffer index = CSVScanner.map(indexPath);
+        if (index.limit() < INDEX_HEADER_SIZE || index.getInt(0) != INDEX_MAGIC || index.getInt(4) != VERSION
+                || index.getInt(8) != movieCount || index.limit() != INDEX_HEADER_SIZE + movieCount * ENTRY_BYTES) {
+            throw new IOException("Bulk catalog index does not match the catalog: " + indexPath);
+        }
+        return index;
+    }
+
+    /**
+     * Finds the first entry whose key is at least key
+     * @return the entry number (movieCount if every key is smaller)
+     */
+    private int lowerBound(ByteBuffer index, long key) {
+        int low = 0;
+        int high = movieCount;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (index.getLong(INDEX_HEADER_SIZE + mid * ENTRY_BYTES) < key) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        return low;
+    }
+
+    private static int[] readPositions(ByteBuffer index, int start, int end) {
+        int[] positions = new int[Math.max(0, end - start)];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = index.getInt(INDEX_HEADER_SIZE + (start + i) * ENTRY_BYTES + 8);
+        }
+        return positions;
+    }
+
+    private static ArrayList<String> readGenres(String path) throws IOException {
+        ArrayList<String> genres = new ArrayList<>();
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(path),
+                StandardCharsets.UTF_8));
+        try {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                genres.add(line);
+            }
+        } finally {
+            reader.close();
+        }
+        return genres;
+    }
+}
@@ -0,0 +1,577 @@
+package service;
+
+import model.Movie;
+import util.FileHandler;
+import util.LineOffsetIndex;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * BulkCatalogBuilder class - Offline builder for catalogs larger than the heap
+ * Streams a movie CSV and sorts it by movie ID with an external merge sort: sorted runs of
+ * at most runRows movies are spilled to the work directory and merged k ways (in several
+ * passes when there are more than MAX_MERGE_RUNS runs). The merge writes the catalog file
+ * in ID order and feeds the genre, year and rating keys of every row to their own external
+ * sorts, which then write the index files read by BulkCatalog. Memory stays bounded by
+ * runRows and the merge fan-in whatever the size of the source.
+ * Duplicate IDs keep their first row in the source, like MovieManager.reloadMovies.
+ * Titles containing line breaks are not supported
+ */
+public class BulkCatalogBuilder {
+    private static int MAX_MERGE_RUNS = 64;
+
+    private String workDirectory;
+    private int runRows;
+    private int nextRun;
+    private int spilledRuns;
+    private int mergePasses;
+
+    /**
+     * Constructor
+     * @param workDirectory the directory for the temporary sorted runs
+     * @param runRows the number of rows sorted in memory before a run is spilled
+     */
+    public BulkCatalogBuilder(String workDirectory, int runRows) {
+        this.workDirectory = workDirectory;
+        this.runRows = Math.max(1, runRows);
+    }
+
+    /**
+     * Builds a catalog and its indexes from a movie CSV (compressed sources are read on the fly)
+     * Every output file is replaced atomically
+     * @param sourcePath the movie CSV to import (header line, then id,title,genre,year,rating rows)
+     * @param catalogPath the catalog file to write
+     * @return the number of movies in the catalog
+     * @throws IOException if reading or writing fails
+     */
+    public int build(String sourcePath, String catalogPath) throws IOException {
+        new File(workDirectory).mkdirs();
+        ArrayList<File> runs = spillMovieRuns(sourcePath);
+        KeySorter genres = new KeySorter();
+        KeySorter years = new KeySorter();
+        KeySorter ratings = new KeySorter();
+        ArrayList<String> genreNames = new ArrayList<>();
+        int count;
+        try {
+            runs = reduceRuns(runs, MovieRun::new);
+            count = writeCatalog(runs, catalogPath, genres, years, ratings, genreNames);
+            genres.writeIndex(catalogPath + BulkCatalog.GENRE_INDEX_EXTENSION, count);
+            years.writeIndex(catalogPath + BulkCatalog.YEAR_INDEX_EXTENSION, count);
+            ratings.writeIndex(catalogPath + BulkCatalog.RATING_INDEX_EXTENSION, count);
+        } finally {
+            deleteRuns(runs);
+            genres.deleteRuns();
+            years.deleteRuns();
+            ratings.deleteRuns();
+        }
+        writeGenres(catalogPath + BulkCatalog.GENRES_EXTENSION, genreNames);
+        return count;
+    }
+
+    /**
+     * Gets the number of sorted runs spilled by the last builds
+     * @return the run count (movie and key runs)
+     */
+    public int getSpilledRuns() {
+        return spilledRuns;
+    }
+
+    /**
+     * Gets the number of intermediate merge passes needed because of the merge fan-in
+     * @return the pass count
+     */
+    public int getMergePasses() {
+        return mergePasses;
+    }
+
+    /**
+     * Reads the source and spills it as runs sorted by ID
+     */
+    private ArrayList<File> spillMovieRuns(String sourcePath) throws IOException {
+        ArrayList<File> runs = new ArrayList<>();
+        ArrayList<MovieRun.Row> rows = new ArrayList<>();
+        BufferedReader reader = openSource(sourcePath);
+        try {
+            String line = reader.readLine();
+            long sequence = 0;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = FileHandler.parseCSVLine(line);
+                if (fields.length < 5) {
+                    continue;
+                }
+                try {
+                    Movie movie = new Movie(fields[0].trim(), fields[1].trim(), fields[2].trim(),
+                            Integer.parseInt(fields[3].trim()), Double.parseDouble(fields[4].trim()));
+                    rows.add(new MovieRun.Row(sequence++, movie));
+                } catch (NumberFormatException e) {
+                    System.out.println("Error parsing line: " + line);
+                    continue;
+                }
+                if (rows.size() >= runRows) {
+                    runs.add(writeMovieRun(rows));
+                    rows.clear();
+                }
+            }
+            if (!rows.isEmpty()) {
+                runs.add(writeMovieRun(rows));
+            }
+        } catch (IOException e) {
+            deleteRuns(runs);
+            throw e;
+        } finally {
+            reader.close();
+        }
+        return runs;
+    }
+
+    private File writeMovieRun(ArrayList<MovieRun.Row> rows) throws IOException {
+        // The sort is stable, so rows with the same ID stay in source order
+        rows.sort((a, b) -> a.movie.getId().compareTo(b.movie.getId()));
+        File run = newRun();
+        DataOutputStream out = openRunWriter(run);
+        try {
+            out.writeInt(rows.size());
+            for (MovieRun.Row row : rows) {
+                MovieRun.write(out, row.sequence, row.movie);
+            }
+        } finally {
+            out.close();
+        }
+        return run;
+    }
+
+    /**
+     * Merges the movie runs into the catalog file and its ID index, keeping the first
+     * row of each ID and feeding the secondary keys of every written row to the sorters
+     * @return the number of rows written
+     */
+    private int writeCatalog(ArrayList<File> runs, String catalogPath, KeySorter genres, KeySorter years,
+                             KeySorter ratings, ArrayList<String> genreNames) throws IOException {
+        String idsPath = catalogPath + BulkCatalog.IDS_EXTENSION;
+        File catalogTemp = new File(catalogPath + ".tmp");
+        File idsTemp = new File(idsPath + ".tmp");
+        HashMap<String, Integer> genreCodes = new HashMap<>();
+        PriorityQueue<RunReader> queue = openRuns(runs, MovieRun::new);
+        BufferedOutputStream catalog = new BufferedOutputStream(new FileOutputStream(catalogTemp),
+                FileHandler.BUFFER_SIZE);
+        DataOutputStream ids = openRunWriter(idsTemp);
+        int position = 0;
+        try {
+            byte[] header = (CsvCatalogStore.MOVIE_FILE_HEADER + "\n").getBytes(StandardCharsets.UTF_8);
+            catalog.write(header);
+            long offset = header.length;
+            ids.writeInt(BulkCatalog.IDS_MAGIC);
+            ids.writeInt(BulkCatalog.VERSION);
+            String lastId = null;
+            while (!queue.isEmpty()) {
+                MovieRun run = (MovieRun) queue.poll();
+                Movie movie = run.movie;
+                if (!movie.getId().equals(lastId)) {
+                    lastId = movie.getId();
+                    byte[] line = (CsvCatalogStore.toCSVLine(movie) + "\n").getBytes(StandardCharsets.UTF_8);
+                    catalog.write(line);
+                    ids.writeLong(offset);
+                    offset += line.length;
+
+                    // Genres are grouped case-insensitively under the first spelling seen
+                    String genreKey = movie.getGenre().toLowerCase();
+                    Integer genreCode = genreCodes.get(genreKey);
+                    if (genreCode == null) {
+                        genreCode = genreNames.size();
+                        genreCodes.put(genreKey, genreCode);
+                        genreNames.add(movie.getGenre());
+                    }
+                    genres.add(genreCode, position);
+                    years.add(movie.getYear(), position);
+                    ratings.add(BulkCatalog.ratingKey(movie.getRating()), position);
+                    position++;
+                }
+                advance(queue, run);
+            }
+            ids.writeLong(offset);
+        } catch (IOException e) {
+            catalog.close();
+            ids.close();
+            catalogTemp.delete();
+            idsTemp.delete();
+            throw e;
+        } finally {
+            closeRuns(queue);
+        }
+        catalog.close();
+        ids.close();
+        replace(catalogTemp, catalogPath);
+        replace(idsTemp, idsPath);
+        LineOffsetIndex.delete(catalogPath);
+        return position;
+    }
+
+    private static void writeGenres(String path, ArrayList<String> genreNames) throws IOException {
+        File tempFile = new File(path + ".tmp");
+        BufferedOutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+            for (String genre : genreNames) {
+                out.write((genre + "\n").getBytes(StandardCharsets.UTF_8));
+            }
+        } finally {
+            out.close();
+        }
+        replace(tempFile, path);
+    }
+
+    /**
+     * Merges groups of runs until at most MAX_MERGE_RUNS remain, so the final merge
+     * keeps a bounded number of files open
+     */
+    private ArrayList<File> reduceRuns(ArrayList<File> runs, RunOpener opener) throws IOException {
+        while (runs.size() > MAX_MERGE_RUNS) {
+            ArrayList<File> merged = new ArrayList<>();
+            for (int i = 0; i < runs.size(); i += MAX_MERGE_RUNS) {
+                List<File> group = runs.subList(i, Math.min(runs.size(), i + MAX_MERGE_RUNS));
+                if (group.size() == 1) {
+                    merged.add(group.get(0));
+                    continue;
+                }
+                File run = newRun();
+                merged.add(run);
+                PriorityQueue<RunReader> queue = openRuns(group, opener);
+                DataOutputStream out = openRunWriter(run);
+                try {
+                    int records = 0;
+                    for (RunReader reader : queue) {
+                        records += reader.remaining + 1;
+                    }
+                    out.writeInt(records);
+                    while (!queue.isEmpty()) {
+                        RunReader reader = queue.poll();
+                        reader.writeCurrent(out);
+                        advance(queue, reader);
+                    }
+                } catch (IOException e) {
+                    deleteRuns(merged);
+                    throw e;
+                } finally {
+                    out.close();
+                    closeRuns(queue);
+                }
+                deleteRuns(group);
+            }
+            runs = merged;
+            mergePasses++;
+        }
+        return runs;
+    }
+
+    private static PriorityQueue<RunReader> openRuns(List<File> runs, RunOpener opener) throws IOException {
+        PriorityQueue<RunReader> queue = new PriorityQueue<>(Math.max(1, runs.size()));
+        try {
+            for (File run : runs) {
+                advance(queue, opener.open(run));
+            }
+        } catch (IOException e) {
+            closeRuns(queue);
+            throw e;
+        }
+        return queue;
+    }
+
+    /**
+     * Moves a run to its next record and puts it back in the queue, or closes it at its end
+     */
+    private static void advance(PriorityQueue<RunReader> queue, RunReader reader) throws IOException {
+        if (reader.advance()) {
+            queue.add(reader);
+        } else {
+            reader.close();
+        }
+    }
+
+    private static void closeRuns(PriorityQueue<RunReader> queue) throws IOException {
+        while (!queue.isEmpty()) {
+            queue.poll().close();
+        }
+    }
+
+    private static void deleteRuns(List<File> runs) {
+        for (File run : runs) {
+            run.delete();
+        }
+    }
+
+    private File newRun() {
+        spilledRuns++;
+        return new File(workDirectory, "run-" + (nextRun++) + ".tmp");
+    }
+
+    private static DataOutputStream openRunWriter(File run) throws IOException {
+        return new DataOutputStream(new BufferedOutputStream(new FileOutputStream(run), FileHandler.BUFFER_SIZE));
+    }
+
+    private static BufferedReader openSource(String sourcePath) throws IOException {
+        InputStream in = new FileInputStream(sourcePath);
+        if (FileHandler.isCompressed(sourcePath)) {
+            in = new GZIPInputStream(in, FileHandler.BUFFER_SIZE);
+        }
+        return new BufferedReader(new InputStreamReader(in, StandardCharsets.UTF_8), FileHandler.BUFFER_SIZE);
+    }
+
+    private static void replace(File tempFile, String path) throws IOException {
+        Files.move(tempFile.toPath(), new File(path).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * External sort of (key, position) entries for one secondary index
+     */
+    private class KeySorter {
+        private long[] keys = new long[Math.min(runRows, 1024)];
+        private int[] positions = new int[keys.length];
+        private int count;
+        private ArrayList<File> runs = new ArrayList<>();
+
+        void add(long key, int position) throws IOException {
+            if (count == keys.length) {
+                if (count >= runRows) {
+                    spill();
+                } else {
+                    int grown = (int) Math.min(runRows, count * 2L);
+                    keys = Arrays.copyOf(keys, grown);
+                    positions = Arrays.copyOf(positions, grown);
+                }
+            }
+            keys[count] = key;
+            positions[count] = position;
+            count++;
+        }
+
+        /**
+         * Sorts the buffered entries and writes them as a run
+         * Keys are replaced by their rank among the distinct keys so that (rank, position)
+         * packs into one long and the run sorts as a primitive array
+         */
+        void spill() throws IOException {
+            long[] distinct = Arrays.copyOf(keys, count);
+            Arrays.sort(distinct);
+            int distinctCount = 0;
+            for (int i = 0; i < count; i++) {
+                if (i == 0 || distinct[i] != distinct[distinctCount - 1]) {
+                    distinct[distinctCount++] = distinct[i];
+                }
+            }
+            long[] packed = new long[count];
+            for (int i = 0; i < count; i++) {
+                long rank = Arrays.binarySearch(distinct, 0, distinctCount, keys[i]);
+                packed[i] = (rank << 32) | positions[i];
+            }
+            Arrays.sort(packed);
+
+            File run = newRun();
+            runs.add(run);
+            DataOutputStream out = openRunWriter(run);
+            try {
+                out.writeInt(count);
+                for (long entry : packed) {
+                    out.writeLong(distinct[(int) (entry >>> 32)]);
+                    out.writeInt((int) entry);
+                }
+            } finally {
+                out.close();
+            }
+            count = 0;
+        }
+
+        /**
+         * Merges the runs into an index file
+         * @param indexPath the index file path
+         * @param rowCount the number of catalog rows (one entry each)
+         */
+        void writeIndex(String indexPath, int rowCount) throws IOException {
+            if (count > 0) {
+                spill();
+            }
+            runs = reduceRuns(runs, KeyRun::new);
+            File tempFile = new File(indexPath + ".tmp");
+            PriorityQueue<RunReader> queue = openRuns(runs, KeyRun::new);
+            DataOutputStream out = openRunWriter(tempFile);
+            try {
+                out.writeInt(BulkCatalog.INDEX_MAGIC);
+                out.writeInt(BulkCatalog.VERSION);
+                out.writeInt(rowCount);
+                while (!queue.isEmpty()) {
+                    RunReader reader = queue.poll();
+                    reader.writeCurrent(out);
+                    advance(queue, reader);
+                }
+            } catch (IOException e) {
+                out.close();
+                tempFile.delete();
+                throw e;
+            } finally {
+                closeRuns(queue);
+            }
+            out.close();
+            replace(tempFile, indexPath);
+        }
+
+        void deleteRuns() {
+            BulkCatalogBuilder.deleteRuns(runs);
+        }
+    }
+
+    private interface RunOpener {
+        RunReader open(File run) throws IOException;
+    }
+
+    /**
+     * Sequential reader of a run file: a record count followed by the sorted records
+     */
+    private abstract static class RunReader implements Comparable<RunReader> {
+        protected DataInputStream in;
+        protected int remaining;
+
+        RunReader(File run) throws IOException {
+            in = new DataInputStream(new BufferedInputStream(new FileInputStream(run), FileHandler.BUFFER_SIZE));
+            try {
+                remaining = in.readInt();
+            } catch (IOException e) {
+                in.close();
+                throw e;
+            }
+        }
+
+        /**
+         * Reads the next record
+         * @return false at the end of the run
+         */
+        boolean advance() throws IOException {
+            if (remaining == 0) {
+                return false;
+            }
+            remaining--;
+            read();
+            return true;
+        }
+
+        void close() throws IOException {
+            in.close();
+        }
+
+        abstract void read() throws IOException;
+
+        abstract void writeCurrent(DataOutputStream out) throws IOException;
+    }
+
+    /**
+     * Run of movies ordered by ID, then source order
+     */
+    private static class MovieRun extends RunReader {
+        private long sequence;
+        private Movie movie;
+
+        MovieRun(File run) throws IOException {
+            super(run);
+        }
+
+        @Override
+        void read() throws IOException {
+            sequence = in.readLong();
+            movie = new Movie(readString(in), readString(in), readString(in), in.readInt(), in.readDouble());
+        }
+
+        @Override
+        void writeCurrent(DataOutputStream out) throws IOException {
+            write(out, sequence, movie);
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            MovieRun run = (MovieRun) other;
+            int order = movie.getId().compareTo(run.movie.getId());
+            return order != 0 ? order : Long.compare(sequence, run.sequence);
+        }
+
+        static void write(DataOutputStream out, long sequence, Movie movie) throws IOException {
+            out.writeLong(sequence);
+            writeString(out, movie.getId());
+            writeString(out, movie.getTitle());
+            writeString(out, movie.getGenre());
+            out.writeInt(movie.getYear());
+            out.writeDouble(movie.getRating());
+        }
+
+        private static void writeString(DataOutputStream out, String value) throws IOException {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        private static String readString(DataInputStream in) throws IOException {
+            byte[] bytes = new byte[in.readInt()];
+            in.readFully(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        /**
+         * A movie waiting in memory for the next run, with its row number in the source
+         */
+        static class Row {
+            long sequence;
+            Movie movie;
+
+            Row(long sequence, Movie movie) {
+                this.sequence = sequence;
+                this.movie = movie;
+            }
+        }
+    }
+
+    /**
+     * Run of (key, position) entries ordered by key, then position
+     */
+    private static class KeyRun extends RunReader {
+        private long key;
+        private int position;
+
+        KeyRun(File run) throws IOException {
+            super(run);
+        }
+
+        @Override
+        void read() throws IOException {
+            key = in.readLong();
+            position = in.readInt();
+        }
+
+        @Override
+        void writeCurrent(DataOutputStream out) throws IOException {
+            out.writeLong(key);
+            out.writeInt(position);
+        }
+
+        @Override
+        public int compareTo(RunReader other) {
+            KeyRun run = (KeyRun) other;
+            int order = Long.compare(key, run.key);
+            return order != 0 ? order : Integer.compare(position, run.position);
+        }
+    }
+}
@@ -0,0 +1,420 @@
+package service;
+
+import model.Movie;
+import util.CSVScanner;
+import util.FileHandler;
+import util.FileStamp;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * CatalogIndex class - Secondary indexes over the catalog order of the movies
+ * Holds the rating order, the movie positions per genre and a trigram index of the
+ * lowercased titles. The indexes live in one flat buffer that is both the in-memory
+ * form and the file format, so a saved index is used straight from a memory mapping
+ * without decoding it. The file records the size, modification time and CRC32 of the
+ * source CSV and is only used while they still match.
+ * Layout: header, rating order (positions), genre table and names, genre postings,
+ * sorted trigram keys, trigram posting offsets, trigram postings
+ */
+public class CatalogIndex {
+    private static int MAGIC = 0x4D434958;
+    private static int VERSION = 1;
+    private static int HEADER_SIZE = 44;
+
+    private ByteBuffer buffer;
+    private int movieCount;
+    private int genreCount;
+    private int trigramCount;
+    private int ratingStart;
+    private int genreTableStart;
+    private int genreNamesStart;
+    private int genrePostingsStart;
+    private int trigramKeysStart;
+    private int trigramOffsetsStart;
+    private int trigramPostingsStart;
+
+    /**
+     * Wraps an index buffer (built or mapped) and locates its sections
+     */
+    private CatalogIndex(ByteBuffer buffer) throws IOException {
+        this.buffer = buffer;
+        if (buffer.limit() < HEADER_SIZE || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a catalog index");
+        }
+        movieCount = buffer.getInt(32);
+        genreCount = buffer.getInt(36);
+        trigramCount = buffer.getInt(40);
+        ratingStart = HEADER_SIZE;
+        genreTableStart = ratingStart + movieCount * 4;
+        genreNamesStart = genreTableStart + (genreCount + 1) * 8;
+        if (genreNamesStart > buffer.limit()) {
+            throw new IOException("Truncated catalog index");
+        }
+        genrePostingsStart = genreNamesStart + buffer.getInt(genreTableStart + genreCount * 8);
+        trigramKeysStart = genrePostingsStart + movieCount * 4;
+        trigramOffsetsStart = trigramKeysStart + trigramCount * 8;
+        trigramPostingsStart = trigramOffsetsStart + (trigramCount + 1) * 4;
+        if (trigramPostingsStart > buffer.limit()
+                || trigramPostingsStart + buffer.getInt(trigramOffsetsStart + trigramCount * 4) * 4 != buffer.limit()) {
+            throw new IOException("Truncated catalog index");
+        }
+    }
+
+    /**
+     * Builds the indexes of a catalog that is not tied to a source file
+     * @param movies the movies in catalog order
+     * @return the index
+     */
+    public static CatalogIndex build(ArrayList<Movie> movies) {
+        return build(movies, 0, 0, 0);
+    }
+
+    /**
+     * Builds the indexes of a catalog loaded from a CSV file
+     * @param movies the movies in catalog order
+     * @param source the stamp of the CSV file, taken before the movies were parsed from it
+     * @return the index
+     */
+    public static CatalogIndex build(ArrayList<Movie> movies, FileStamp source) {
+        return build(movies, source.getSize(), source.getLastModified(), source.getChecksum());
+    }
+
+    private static CatalogIndex build(ArrayList<Movie> movies, long sourceSize, long sourceModified,
+                                      long sourceChecksum) {
+        int count = movies.size();
+
+        // Rating order, highest first; the sort is stable so ties keep catalog order
+        Integer[] ratingOrder = new Integer[count];
+        for (int i = 0; i < count; i++) {
+            ratingOrder[i] = i;
+        }
+        Arrays.sort(ratingOrder, (a, b) -> Double.compare(movies.get(b).getRating(), movies.get(a).getRating()));
+
+        // Genres are grouped case-insensitively under the first spelling seen
+        LinkedHashMap<String, ArrayList<Integer>> genrePositions = new LinkedHashMap<>();
+        HashMap<String, String> genreNames = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            String genre = movies.get(i).getGenre();
+            String key = genre.toLowerCase();
+            if (!genrePositions.containsKey(key)) {
+                genrePositions.put(key, new ArrayList<Integer>());
+                genreNames.put(key, genre);
+            }
+            genrePositions.get(key).add(i);
+        }
+
+        HashMap<Long, ArrayList<Integer>> trigramPositions = new HashMap<>();
+        for (int i = 0; i < count; i++) {
+            for (long trigram : trigrams(movies.get(i).getTitle().toLowerCase())) {
+                ArrayList<Integer> positions = trigramPositions.get(trigram);
+                if (positions == null) {
+                    positions = new ArrayList<>();
+                    trigramPositions.put(trigram, positions);
+                }
+                positions.add(i);
+            }
+        }
+        ArrayList<Long> trigramKeys = new ArrayList<>(trigramPositions.keySet());
+        Collections.sort(trigramKeys);
+
+        ArrayList<byte[]> names = new ArrayList<>();
+        int namesLength = 0;
+        for (String key : genrePositions.keySet()) {
+            byte[] name = genreNames.get(key).getBytes(StandardCharsets.UTF_8);
+            names.add(name);
+            namesLength += name.length;
+        }
+        int postingsLength = 0;
+        for (ArrayList<Integer> positions : trigramPositions.values()) {
+            postingsLength += positions.size();
+        }
+
+        int genreCount = genrePositions.size();
+        int size = HEADER_SIZE + count * 4 + (genreCount + 1) * 8 + namesLength + count * 4
+                + trigramKeys.size() * 8 + (trigramKeys.size() + 1) * 4 + postingsLength * 4;
+        ByteBuffer buffer = ByteBuffer.allocate(size);
+        buffer.putInt(MAGIC);
+        buffer.putInt(VERSION);
+        buffer.putLong(sourceSize);
+        buffer.putLong(sourceModified);
+        buffer.putLong(sourceChecksum);
+        buffer.putInt(count);
+        buffer.putInt(genreCount);
+        buffer.putInt(trigramKeys.size());
+        for (Integer position : ratingOrder) {
+            buffer.putInt(position);
+        }
+
+        int nameOffset = 0;
+        int postingOffset = 0;
+        int g = 0;
+        for (ArrayList<Integer> positions : genrePositions.values()) {
+            buffer.putInt(nameOffset);
+            buffer.putInt(postingOffset);
+            nameOffset += names.get(g++).length;
+            postingOffset += positions.size();
+        }
+        buffer.putInt(nameOffset);
+        buffer.putInt(postingOffset);
+        for (byte[] name : names) {
+            buffer.put(name);
+        }
+        for (ArrayList<Integer> positions : genrePositions.values()) {
+            for (int position : positions) {
+                buffer.putInt(position);
+            }
+        }
+
+        for (long key : trigramKeys) {
+            buffer.putLong(key);
+        }
+        postingOffset = 0;
+        for (long key : trigramKeys) {
+            buffer.putInt(postingOffset);
+            postingOffset += trigramPositions.get(key).size();
+        }
+        buffer.putInt(postingOffset);
+        for (long key : trigramKeys) {
+            for (int position : trigramPositions.get(key)) {
+                buffer.putInt(position);
+            }
+        }
+        buffer.flip();
+
+        try {
+            return new CatalogIndex(buffer);
+        } catch (IOException e) {
+            throw new IllegalStateException("Built an invalid catalog index", e);
+        }
+    }
+
+    /**
+     * Loads a saved index with a memory mapping if it still matches its source file
+     * Size and modification time are compared first; when only the time differs the
+     * source content checksum decides, and a matching index takes the new time so later
+     * loads skip the checksum
+     * @param indexPath the index file path
+     * @param sourcePath the CSV source file path
+     * @param movieCount the number of movies in the loaded catalog
+     * @return the index, or null if it is missing, stale or corrupt
+     */
+    public static CatalogIndex loadIfFresh(String indexPath, String sourcePath, int movieCount) {
+        if (!FileHandler.fileExists(indexPath) || !FileHandler.fileExists(sourcePath)) {
+            return null;
+        }
+        try {
+            CatalogIndex index = new CatalogIndex(CSVScanner.map(indexPath));
+            File source = new File(sourcePath);
+            if (index.movieCount != movieCount || index.buffer.getLong(8) != source.length()) {
+                return null;
+            }
+            long lastModified = source.lastModified();
+            if (index.buffer.getLong(16) == lastModified) {
+                return index;
+            }
+            if (index.buffer.getLong(24) != FileHandler.checksum(sourcePath)) {
+                return null;
+            }
+            updateSourceTime(indexPath, lastModified);
+            return index;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Rewrites the source modification time in an index header
+     * A failure only means the next load hashes the source again
+     */
+    private static void updateSourceTime(String indexPath, long lastModified) {
+        try {
+            RandomAccessFile file = new RandomAccessFile(indexPath, "rw");
+            try {
+                file.seek(16);
+                file.writeLong(lastModified);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error updating catalog index: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes the index (atomically replacing any previous index file)
+     * @param indexPath the index file path
+     * @throws IOException if writing fails
+     */
+    public void write(String indexPath) throws IOException {
+        File tempFile = new File(indexPath + ".tmp");
+        RandomAccessFile out = new RandomAccessFile(tempFile, "rw");
+        try {
+            out.setLength(0);
+            FileChannel channel = out.getChannel();
+            ByteBuffer data = buffer.duplicate();
+            data.position(0);
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+        Files.move(tempFile.toPath(), new File(indexPath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    public int getMovieCount() {
+        return movieCount;
+    }
+
+    /**
+     * Gets the catalog position of the movie with the given rating rank
+     * @param rank the rank (0 is the highest rated)
+     * @return the catalog position
+     */
+    public int getRatingOrderPosition(int rank) {
+        return buffer.getInt(ratingStart + rank * 4);
+    }
+
+    /**
+     * Gets the positions of the movies of a genre (case-insensitive), in catalog order
+     * @param genre the genre
+     * @return the positions, empty if no movie has the genre
+     */
+    public int[] getGenrePositions(String genre) {
+        for (int g = 0; g < genreCount; g++) {
+            if (getGenreName(g).equalsIgnoreCase(genre)) {
+                int start = buffer.getInt(genreTableStart + g * 8 + 4);
+                int end = buffer.getInt(genreTableStart + (g + 1) * 8 + 4);
+                return readPositions(genrePostingsStart, start, end);
+            }
+        }
+        return new int[0];
+    }
+
+    /**
+     * Gets the distinct genres in order of first appearance
+     * @return the genres
+     */
+    public ArrayList<String> getGenres() {
+        ArrayList<String> genres = new ArrayList<>(genreCount);
+        for (int g = 0; g < genreCount; g++) {
+            genres.add(getGenreName(g));
+        }
+        return genres;
+    }
+
+    /**
+     * Gets the positions of the movies whose lowercased title may contain a keyword:
+     * those having every trigram of the keyword (callers still check the match)
+     * @param lowerKeyword the lowercased keyword
+     * @return the candidate positions in catalog order, or null if the keyword is shorter than a trigram
+     */
+    public int[] getTitleCandidates(String lowerKeyword) {
+        if (lowerKeyword.length() < 3) {
+            return null;
+        }
+        int[] candidates = null;
+        for (long trigram : trigrams(lowerKeyword)) {
+            int slot = findTrigram(trigram);
+            if (slot < 0) {
+                return new int[0];
+            }
+            int[] positions = readPositions(trigramPostingsStart,
+                    buffer.getInt(trigramOffsetsStart + slot * 4), buffer.getInt(trigramOffsetsStart + (slot + 1) * 4));
+            candidates = candidates == null ? positions : intersect(candidates, positions);
+            if (candidates.length == 0) {
+                break;
+            }
+        }
+        return candidates;
+    }
+
+    private String getGenreName(int g) {
+        int start = buffer.getInt(genreTableStart + g * 8);
+        int end = buffer.getInt(genreTableStart + (g + 1) * 8);
+        byte[] bytes = new byte[end - start];
+        for (int i = 0; i < bytes.length; i++) {
+            bytes[i] = buffer.get(genreNamesStart + start + i);
+        }
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Binary search over the sorted trigram keys
+     */
+    private int findTrigram(long trigram) {
+        int low = 0;
+        int high = trigramCount - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            long key = buffer.getLong(trigramKeysStart + mid * 8);
+            if (key < trigram) {
+                low = mid + 1;
+            } else if (key > trigram) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        return -1;
+    }
+
+    private int[] readPositions(int sectionStart, int start, int end) {
+        int[] positions = new int[end - start];
+        for (int i = 0; i < positions.length; i++) {
+            positions[i] = buffer.getInt(sectionStart + (start + i) * 4);
+        }
+        return positions;
+    }
+
+    /**
+     * Intersects two ascending position lists
+     */
+    private static int[] intersect(int[] a, int[] b) {
+        int[] result = new int[Math.min(a.length, b.length)];
+        int count = 0;
+        int i = 0;
+        int j = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] < b[j]) {
+                i++;
+            } else if (a[i] > b[j]) {
+                j++;
+            } else {
+                result[count++] = a[i];
+                i++;
+                j++;
+            }
+        }
+        return Arrays.copyOf(result, count);
+    }
+
+    /**
+     * Gets the distinct trigrams of a string, each packed as three 16-bit chars
+     */
+    private static HashSet<Long> trigrams(String text) {
+        HashSet<Long> trigrams = new HashSet<>();
+        for (int i = 0; i + 3 <= text.length(); i++) {
+            trigrams.add(((long) text.charAt(i) << 32) | ((long) text.charAt(i + 1) << 16) | text.charAt(i + 2));
+        }
+        return trigrams;
+    }
+}
@@ -0,0 +1,268 @@
+package service;
+
+import model.Movie;
+import util.CSVScanner;
+import util.FileHandler;
+import util.FileStamp;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * CatalogSnapshot class - Binary columnar snapshot of the movie catalog
+ * Layout: header (magic, version, source size/mtime/CRC32, row count, genre dictionary)
+ * followed by one block per column: id, title, genre code, year, rating, type, duration.
+ * The snapshot is read back with a single memory-mapped read
+ */
+public class CatalogSnapshot {
+    private static int MAGIC = 0x4D435331;
+    private static int VERSION = 1;
+    private static byte TYPE_FEATURE_CODE = 0;
+    private static byte TYPE_SHORT_CODE = 1;
+
+    /**
+     * Writes a snapshot of the given movies (atomically replacing any previous snapshot)
+     * @param snapshotPath the snapshot file path
+     * @param source the stamp of the CSV file, taken before the movies were parsed from it
+     * @param movies the movies in catalog order
+     * @throws IOException if writing fails
+     */
+    public static void write(String snapshotPath, FileStamp source, ArrayList<Movie> movies) throws IOException {
+        write(snapshotPath, source.getSize(), source.getLastModified(), source.getChecksum(), movies);
+    }
+
+    /**
+     * Writes a standalone snapshot that is not tied to a CSV source file
+     * (used as the primary catalog file by BinaryCatalogStore)
+     * @param snapshotPath the snapshot file path
+     * @param movies the movies in catalog order
+     * @throws IOException if writing fails
+     */
+    public static void write(String snapshotPath, ArrayList<Movie> movies) throws IOException {
+        write(snapshotPath, 0, 0, 0, movies);
+    }
+
+    private static void write(String snapshotPath, long sourceSize, long sourceModified, long sourceChecksum,
+                              ArrayList<Movie> movies) throws IOException {
+        ArrayList<String> genres = new ArrayList<>();
+        HashMap<String, Integer> genreCodes = new HashMap<>();
+        for (Movie movie : movies) {
+            if (!genreCodes.containsKey(movie.getGenre())) {
+                genreCodes.put(movie.getGenre(), genres.size());
+                genres.add(movie.getGenre());
+            }
+        }
+
+        File tempFile = new File(snapshotPath + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(sourceSize);
+            out.writeLong(sourceModified);
+            out.writeLong(sourceChecksum);
+            out.writeInt(movies.size());
+
+            out.writeInt(genres.size());
+            for (String genre : genres) {
+                writeBytes(out, genre.getBytes(StandardCharsets.UTF_8));
+            }
+
+            writeStringColumn(out, movies, true);
+            writeStringColumn(out, movies, false);
+            for (Movie movie : movies) {
+                out.writeInt(genreCodes.get(movie.getGenre()));
+            }
+            for (Movie movie : movies) {
+                out.writeInt(movie.getYear());
+            }
+            for (Movie movie : movies) {
+                out.writeDouble(movie.getRating());
+            }
+            for (Movie movie : movies) {
+                out.writeByte(Movie.TYPE_SHORT.equals(movie.getMovieType()) ? TYPE_SHORT_CODE : TYPE_FEATURE_CODE);
+            }
+            for (Movie movie : movies) {
+                out.writeInt(movie.getDuration());
+            }
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+
+        Files.move(tempFile.toPath(), new File(snapshotPath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Checks if a snapshot still matches its source file
+     * Size and modification time are compared first; when only the time differs
+     * the source content checksum decides (e.g. the file was touched but not changed),
+     * and a matching snapshot takes the new time so later checks skip the checksum
+     * @param snapshotPath the snapshot file path
+     * @param sourcePath the CSV source file path
+     * @return true if the snapshot can be used instead of the source
+     */
+    public static boolean isFresh(String snapshotPath, String sourcePath) {
+        if (!FileHandler.fileExists(snapshotPath) || !FileHandler.fileExists(sourcePath)) {
+            return false;
+        }
+        try {
+            ByteBuffer buffer = CSVScanner.map(snapshotPath);
+            if (buffer.limit() < 36 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+                return false;
+            }
+            File source = new File(sourcePath);
+            if (buffer.getLong(8) != source.length()) {
+                return false;
+            }
+            long lastModified = source.lastModified();
+            if (buffer.getLong(16) == lastModified) {
+                return true;
+            }
+            if (buffer.getLong(24) != FileHandler.checksum(sourcePath)) {
+                return false;
+            }
+            updateSourceTime(snapshotPath, lastModified);
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Rewrites the source modification time in a snapshot header
+     * A failure only means the next check hashes the source again
+     */
+    private static void updateSourceTime(String snapshotPath, long lastModified) {
+        try {
+            RandomAccessFile file = new RandomAccessFile(snapshotPath, "rw");
+            try {
+                file.seek(16);
+                file.writeLong(lastModified);
+            } finally {
+                file.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error updating catalog snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Reads the stamp of the source file content a snapshot was written from
+     * @param snapshotPath the snapshot file path
+     * @return the source stamp
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public static FileStamp readSourceStamp(String snapshotPath) throws IOException {
+        ByteBuffer buffer = CSVScanner.map(snapshotPath);
+        if (buffer.limit() < 36 || buffer.getInt(0) != MAGIC || buffer.getInt(4) != VERSION) {
+            throw new IOException("Not a catalog snapshot: " + snapshotPath);
+        }
+        return new FileStamp(buffer.getLong(8), buffer.getLong(16), buffer.getLong(24));
+    }
+
+    /**
+     * Reads all movies from a snapshot
+     * @param snapshotPath the snapshot file path
+     * @return the movies in catalog order
+     * @throws IOException if the snapshot cannot be read or is corrupt
+     */
+    public static ArrayList<Movie> read(String snapshotPath) throws IOException {
+        ByteBuffer buffer = CSVScanner.map(snapshotPath);
+        try {
+            if (buffer.getInt() != MAGIC || buffer.getInt() != VERSION) {
+                throw new IOException("Not a catalog snapshot: " + snapshotPath);
+            }
+            buffer.position(32);
+            int count = buffer.getInt();
+
+            String[] genres = new String[buffer.getInt()];
+            for (int i = 0; i < genres.length; i++) {
+                genres[i] = readString(buffer, buffer.getInt());
+            }
+
+            String[] ids = readStringColumn(buffer, count);
+            String[] titles = readStringColumn(buffer, count);
+            int genreStart = buffer.position();
+            int yearStart = genreStart + count * 4;
+            int ratingStart = yearStart + count * 4;
+            int typeStart = ratingStart + count * 8;
+            int durationStart = typeStart + count;
+
+            ArrayList<Movie> movies = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String type = buffer.get(typeStart + i) == TYPE_SHORT_CODE ? Movie.TYPE_SHORT : Movie.TYPE_FEATURE;
+                movies.add(new Movie(ids[i], titles[i],
+                        genres[buffer.getInt(genreStart + i * 4)],
+                        buffer.getInt(yearStart + i * 4),
+                        buffer.getDouble(ratingStart + i * 8),
+                        type,
+                        buffer.getInt(durationStart + i * 4)));
+            }
+            return movies;
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt catalog snapshot: " + snapshotPath);
+        }
+    }
+
+    /**
+     * Writes a string column: offsets (count + 1 ints) followed by the UTF-8 bytes
+     */
+    private static void writeStringColumn(DataOutputStream out, ArrayList<Movie> movies, boolean ids)
+            throws IOException {
+        ArrayList<byte[]> values = new ArrayList<>(movies.size());
+        int offset = 0;
+        out.writeInt(offset);
+        for (Movie movie : movies) {
+            byte[] bytes = (ids ? movie.getId() : movie.getTitle()).getBytes(StandardCharsets.UTF_8);
+            values.add(bytes);
+            offset += bytes.length;
+            out.writeInt(offset);
+        }
+        for (byte[] bytes : values) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Reads a string column written by writeStringColumn
+     */
+    private static String[] readStringColumn(ByteBuffer buffer, int count) {
+        int offsetsStart = buffer.position();
+        int dataStart = offsetsStart + (count + 1) * 4;
+        String[] values = new String[count];
+        for (int i = 0; i < count; i++) {
+            int start = buffer.getInt(offsetsStart + i * 4);
+            int end = buffer.getInt(offsetsStart + (i + 1) * 4);
+            byte[] bytes = new byte[end - start];
+            buffer.get(dataStart + start, bytes);
+            values[i] = new String(bytes, StandardCharsets.UTF_8);
+        }
+        buffer.position(dataStart + buffer.getInt(offsetsStart + count * 4));
+        return values;
+    }
+
+    private static void writeBytes(DataOutputStream out, byte[] bytes) throws IOException {
+        out.writeInt(bytes.length);
+        out.write(bytes);
+    }
+
+    private static String readString(ByteBuffer buffer, int length) {
+        byte[] bytes = new byte[length];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
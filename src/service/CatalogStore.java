@@ -0,0 +1,34 @@
+package service;
+
+import model.Movie;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * CatalogStore interface - Storage backend for the movie catalog
+ * MovieManager loads the whole catalog through a store at startup
+ */
+public interface CatalogStore {
+
+    /**
+     * Loads the whole catalog
+     * @return the movies in catalog order, or null if the store holds no catalog yet
+     * @throws IOException if reading fails
+     */
+    ArrayList<Movie> loadAll() throws IOException;
+
+    /**
+     * Replaces the stored catalog
+     * @param movies the movies in catalog order
+     * @throws IOException if writing fails
+     */
+    void saveAll(Collection<Movie> movies) throws IOException;
+
+    /**
+     * Gets a short description of the backend (for log messages)
+     * @return the description
+     */
+    String getDescription();
+}
@@ -0,0 +1,273 @@
+package service;
+
+import util.FileHandler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+
+/**
+ * ChangeFeed class - Versioned on-disk feed of user mutations
+ * Every mutation gets the next version and is appended as "version,op,username,args"
+ * to the newest segment file (path.N, N = the first version in it). A new segment is
+ * started every segmentRecords changes and only the newest maxSegments are kept, so
+ * the feed covers a bounded window of recent versions; readers that fall behind it
+ * must start again from a full copy of the user file
+ */
+public class ChangeFeed {
+    private String basePath;
+    private int segmentRecords;
+    private int maxSegments;
+    private long version;
+    private long activeSegment;
+    private int activeRecords;
+    private ArrayList<String> pending;
+
+    /**
+     * Constructor - finds the current version from the newest segment
+     * A torn final record (from a crash during a write) is cut off
+     * @param basePath the segment path prefix
+     * @param segmentRecords the number of changes per segment
+     * @param maxSegments the number of segments kept (at least 1)
+     * @throws IOException if the segments cannot be read
+     */
+    public ChangeFeed(String basePath, int segmentRecords, int maxSegments) throws IOException {
+        this.basePath = basePath;
+        this.segmentRecords = Math.max(1, segmentRecords);
+        this.maxSegments = Math.max(1, maxSegments);
+        this.pending = new ArrayList<>();
+        ArrayList<Long> segments = getSegments();
+        if (segments.isEmpty()) {
+            return;
+        }
+        activeSegment = segments.get(segments.size() - 1);
+        String path = getSegmentPath(activeSegment);
+        truncateTornRecord(path);
+        version = activeSegment - 1;
+        FileHandler.forEachLine(path, (lineNumber, line) -> {
+            long recordVersion = parseVersion(line);
+            if (recordVersion > 0) {
+                version = recordVersion;
+                activeRecords++;
+            }
+            return true;
+        });
+    }
+
+    /**
+     * Appends a change
+     * @param op the operation code
+     * @param username the username
+     * @param args the operation arguments
+     * @return the version of the change
+     * @throws IOException if writing fails
+     */
+    public synchronized long append(String op, String username, String... args) throws IOException {
+        long assigned = buffer(op, username, args);
+        writePending();
+        return assigned;
+    }
+
+    /**
+     * Assigns the next version to a change and keeps it in memory until writePending()
+     * (group commit: readers only see changes once they are durable)
+     * @param op the operation code
+     * @param username the username
+     * @param args the operation arguments
+     * @return the version of the change
+     */
+    public synchronized long buffer(String op, String username, String... args) {
+        version++;
+        pending.add(version + "," + UserJournal.buildRecord(op, username, args));
+        return version;
+    }
+
+    /**
+     * Writes the buffered changes, starting new segments and dropping old ones as needed
+     * Changes stay buffered if the write fails
+     * @return the number of changes written
+     * @throws IOException if writing fails
+     */
+    public synchronized int writePending() throws IOException {
+        int written = 0;
+        try {
+            while (written < pending.size()) {
+                if (activeSegment == 0 || activeRecords >= segmentRecords) {
+                    activeSegment = parseVersion(pending.get(written));
+                    activeRecords = 0;
+                    pruneSegments();
+                }
+                int count = Math.min(pending.size() - written, segmentRecords - activeRecords);
+                BufferedWriter writer = new BufferedWriter(new FileWriter(getSegmentPath(activeSegment), true));
+                try {
+                    for (int i = written; i < written + count; i++) {
+                        writer.write(pending.get(i));
+                        writer.newLine();
+                    }
+                } finally {
+                    writer.close();
+                }
+                activeRecords += count;
+                written += count;
+            }
+        } finally {
+            // Only the changes not written yet stay buffered
+            pending = new ArrayList<>(pending.subList(written, pending.size()));
+        }
+        return written;
+    }
+
+    /**
+     * Streams the durable changes newer than a version, oldest first
+     * @param sinceVersion the last version the reader has seen (0 for everything retained)
+     * @param visitor the visitor receiving each change
+     * @return the number of changes visited, or -1 if changes after sinceVersion are no longer
+     *         retained (the reader must copy the user file and continue from getVersion())
+     * @throws IOException if a segment cannot be read
+     */
+    public long changesSince(long sinceVersion, ChangeVisitor visitor) throws IOException {
+        ArrayList<Long> segments;
+        long durable;
+        synchronized (this) {
+            segments = getSegments();
+            durable = version - pending.size();
+            if (sinceVersion >= durable) {
+                return 0;
+            }
+            long oldest = segments.isEmpty() ? durable + 1 : segments.get(0);
+            if (sinceVersion < oldest - 1) {
+                return -1;
+            }
+        }
+        long[] visited = new long[1];
+        boolean[] stopped = new boolean[1];
+        for (int i = 0; i < segments.size() && !stopped[0]; i++) {
+            if (i + 1 < segments.size() && segments.get(i + 1) <= sinceVersion + 1) {
+                continue;
+            }
+            String path = getSegmentPath(segments.get(i));
+            if (!FileHandler.fileExists(path)) {
+                // Dropped by the retention limit while this reader was behind
+                return -1;
+            }
+            FileHandler.forEachLine(path, (lineNumber, line) -> {
+                long recordVersion = parseVersion(line);
+                if (recordVersion <= sinceVersion) {
+                    return true;
+                }
+                if (recordVersion > durable) {
+                    stopped[0] = true;
+                    return false;
+                }
+                String[] fields = FileHandler.parseCSVLine(line);
+                if (fields.length < 3) {
+                    return true;
+                }
+                visited[0]++;
+                if (!visitor.visitChange(recordVersion, fields[1], fields[2],
+                        Arrays.copyOfRange(fields, 3, fields.length))) {
+                    stopped[0] = true;
+                    return false;
+                }
+                return true;
+            });
+        }
+        return visited[0];
+    }
+
+    /**
+     * Gets the version of the latest change (including buffered ones)
+     * @return the version, 0 if there has been no change
+     */
+    public synchronized long getVersion() {
+        return version;
+    }
+
+    /**
+     * Gets the oldest version still retained on disk
+     * @return the version, or getVersion() + 1 if nothing is retained
+     */
+    public synchronized long getOldestVersion() {
+        ArrayList<Long> segments = getSegments();
+        return segments.isEmpty() ? version + 1 : segments.get(0);
+    }
+
+    /**
+     * Gets the first versions of the segments on disk, oldest first
+     * @return the segment numbers
+     */
+    public synchronized ArrayList<Long> getSegments() {
+        ArrayList<Long> segments = new ArrayList<>();
+        File base = new File(basePath).getAbsoluteFile();
+        String prefix = base.getName() + ".";
+        String[] names = base.getParentFile().list();
+        if (names == null) {
+            return segments;
+        }
+        for (String name : names) {
+            if (name.startsWith(prefix)) {
+                try {
+                    segments.add(Long.parseLong(name.substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    public String getSegmentPath(long segment) {
+        return basePath + "." + segment;
+    }
+
+    /**
+     * Deletes the oldest segments so that, with the new active one, at most maxSegments remain
+     */
+    private void pruneSegments() throws IOException {
+        ArrayList<Long> segments = getSegments();
+        segments.remove(Long.valueOf(activeSegment));
+        for (int i = 0; i < segments.size() - (maxSegments - 1); i++) {
+            File old = new File(getSegmentPath(segments.get(i)));
+            if (!old.delete()) {
+                throw new IOException("Cannot delete change feed segment: " + old.getPath());
+            }
+        }
+    }
+
+    private static void truncateTornRecord(String path) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "rw");
+        try {
+            long end = file.length();
+            while (end > 0) {
+                file.seek(end - 1);
+                if (file.read() == '\n') {
+                    break;
+                }
+                end--;
+            }
+            if (end != file.length()) {
+                file.setLength(end);
+            }
+        } finally {
+            file.close();
+        }
+    }
+
+    private static long parseVersion(String record) {
+        int comma = record.indexOf(',');
+        if (comma <= 0) {
+            return -1;
+        }
+        try {
+            return Long.parseLong(record.substring(0, comma));
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+}
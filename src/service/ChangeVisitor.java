@@ -0,0 +1,18 @@
+package service;
+
+/**
+ * ChangeVisitor interface - Callback for streaming the user change feed
+ * Receives one mutation at a time in version order
+ */
+public interface ChangeVisitor {
+
+    /**
+     * Visits one change
+     * @param version the version the change produced
+     * @param op the operation code (the UserJournal OP_ constants)
+     * @param username the user the change applies to
+     * @param args the operation arguments (for OP_PUT the remaining fields of the user's CSV line)
+     * @return true to continue, false to stop early
+     */
+    boolean visitChange(long version, String op, String username, String[] args);
+}
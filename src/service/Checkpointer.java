@@ -0,0 +1,191 @@
+package service;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * Checkpointer class - Background checkpoint scheduler
+ * Runs a checkpoint (snapshot of the users plus removal of the folded journal) when the
+ * journal grows past a size or record count, or after the users have been idle for a while,
+ * and keeps metrics on how long checkpoints take
+ */
+public class Checkpointer {
+    private static long MAX_POLL_MILLIS = 100;
+
+    private BooleanSupplier checkpointAction;
+    private UserJournal journal;
+    private long maxLogBytes;
+    private int maxRecords;
+    private long idleMillis;
+    private long lastMutationTime;
+    private boolean running;
+    private Thread worker;
+    private Object checkpointMutex;
+
+    private int checkpointCount;
+    private int failedCount;
+    private long lastDurationMillis;
+    private long maxDurationMillis;
+    private long totalDurationMillis;
+
+    /**
+     * Constructor
+     * @param checkpointAction the action writing a checkpoint, returning true on success
+     * @param journal the journal whose growth triggers checkpoints
+     * @param maxLogBytes the active journal size that triggers a checkpoint
+     * @param maxRecords the number of journal records that triggers a checkpoint
+     * @param idleMillis the time without mutations after which a non-empty journal is checkpointed
+     */
+    public Checkpointer(BooleanSupplier checkpointAction, UserJournal journal,
+                        long maxLogBytes, int maxRecords, long idleMillis) {
+        this.checkpointAction = checkpointAction;
+        this.journal = journal;
+        this.maxLogBytes = Math.max(1, maxLogBytes);
+        this.maxRecords = Math.max(1, maxRecords);
+        this.idleMillis = Math.max(1, idleMillis);
+        this.lastMutationTime = System.currentTimeMillis();
+        this.checkpointMutex = new Object();
+    }
+
+    /**
+     * Starts the background checkpoint thread
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        worker = new Thread(this::runWorker, "user-checkpoint");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * Stops the background checkpoint thread, waiting for a running checkpoint to finish
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = worker;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Records that a mutation was made (resets the idle timer)
+     */
+    public synchronized void markMutation() {
+        lastMutationTime = System.currentTimeMillis();
+        if (getLogRecords() >= maxRecords) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Checks whether any checkpoint trigger has fired
+     * @return true if a checkpoint is due
+     */
+    public synchronized boolean isCheckpointDue() {
+        int records = getLogRecords();
+        if (records == 0) {
+            return false;
+        }
+        return records >= maxRecords
+                || journal.getSizeBytes() >= maxLogBytes
+                || System.currentTimeMillis() - lastMutationTime >= idleMillis;
+    }
+
+    /**
+     * Runs a checkpoint now and records its duration
+     * @return true if the checkpoint succeeded
+     */
+    public boolean checkpoint() {
+        synchronized (checkpointMutex) {
+            long start = System.nanoTime();
+            boolean success = checkpointAction.getAsBoolean();
+            long duration = (System.nanoTime() - start) / 1000000;
+            synchronized (this) {
+                if (success) {
+                    checkpointCount++;
+                    lastDurationMillis = duration;
+                    maxDurationMillis = Math.max(maxDurationMillis, duration);
+                    totalDurationMillis += duration;
+                } else {
+                    failedCount++;
+                }
+            }
+            return success;
+        }
+    }
+
+    private int getLogRecords() {
+        return journal.getRecordCount() + journal.getPendingCount();
+    }
+
+    public synchronized int getCheckpointCount() {
+        return checkpointCount;
+    }
+
+    public synchronized int getFailedCount() {
+        return failedCount;
+    }
+
+    public synchronized long getLastDurationMillis() {
+        return lastDurationMillis;
+    }
+
+    public synchronized long getMaxDurationMillis() {
+        return maxDurationMillis;
+    }
+
+    /**
+     * Gets the average duration of successful checkpoints
+     * @return the average in milliseconds, 0 if none has run
+     */
+    public synchronized long getAverageDurationMillis() {
+        return checkpointCount == 0 ? 0 : totalDurationMillis / checkpointCount;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Worker loop: polls the triggers (and wakes early when the record trigger fires)
+     */
+    private void runWorker() {
+        long pollMillis = Math.min(MAX_POLL_MILLIS, idleMillis);
+        while (true) {
+            synchronized (this) {
+                try {
+                    if (running && !isCheckpointDue()) {
+                        wait(pollMillis);
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!running) {
+                    return;
+                }
+                if (!isCheckpointDue()) {
+                    continue;
+                }
+            }
+            if (!checkpoint()) {
+                try {
+                    Thread.sleep(pollMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
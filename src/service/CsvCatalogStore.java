@@ -0,0 +1,179 @@
+package service;
+
+import model.Movie;
+import util.CSVScanner;
+import util.FileHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * CsvCatalogStore class - CSV catalog storage (the default backend)
+ * The file is scanned in place through a memory mapping (compressed files are
+ * decompressed into memory first); only the kept string fields are materialized
+ * and numbers are parsed straight from the mapped bytes.
+ * Files larger than PARALLEL_LOAD_THRESHOLD are parsed in parallel on all cores
+ */
+public class CsvCatalogStore implements CatalogStore {
+    public static String MOVIE_FILE_HEADER = "id,title,genre,year,rating";
+    private static int PARALLEL_LOAD_THRESHOLD = 8 * 1024 * 1024;
+
+    private String filePath;
+
+    /**
+     * Constructor
+     * @param filePath the movie CSV file path
+     */
+    public CsvCatalogStore(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Loads the catalog, in parallel if the file is large
+     * @return the movies in file order, or null if the file is empty
+     * @throws IOException if the file cannot be read
+     */
+    @Override
+    public ArrayList<Movie> loadAll() throws IOException {
+        ByteBuffer buffer = FileHandler.readBuffer(filePath);
+        int parallelism = 1;
+        if (buffer.limit() >= PARALLEL_LOAD_THRESHOLD) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        return parse(buffer, parallelism);
+    }
+
+    /**
+     * Loads the catalog using the given number of threads
+     * The file is split into chunks at row boundaries, the chunks are parsed on a
+     * ForkJoinPool, and the results are merged in file order into a pre-sized list
+     * @param parallelism the number of parsing threads
+     * @return the movies in file order, or null if the file is empty
+     * @throws IOException if the file cannot be read
+     */
+    public ArrayList<Movie> loadAll(int parallelism) throws IOException {
+        return parse(FileHandler.readBuffer(filePath), Math.max(1, parallelism));
+    }
+
+    /**
+     * Rewrites the CSV file (titles are quoted when they contain commas, quotes or line breaks)
+     * @param movies the movies in catalog order
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void saveAll(Collection<Movie> movies) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(MOVIE_FILE_HEADER);
+        for (Movie movie : movies) {
+            lines.add(toCSVLine(movie));
+        }
+        FileHandler.writeCSV(filePath, lines);
+    }
+
+    /**
+     * Formats a movie as a line of the movie file (the title is quoted when it contains commas,
+     * quotes or line breaks)
+     * @param movie the movie
+     * @return the line without a line terminator
+     */
+    public static String toCSVLine(Movie movie) {
+        String title = movie.getTitle();
+        if (title.indexOf(',') >= 0 || title.indexOf('"') >= 0 || title.indexOf('\n') >= 0
+                || title.indexOf('\r') >= 0) {
+            title = "\"" + title.replace("\"", "\"\"") + "\"";
+        }
+        return movie.getId() + "," + title + "," + movie.getGenre() + ","
+                + movie.getYear() + "," + movie.getRating();
+    }
+
+    @Override
+    public String getDescription() {
+        return "CSV file " + filePath;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Parses a mapped movie file
+     */
+    private static ArrayList<Movie> parse(ByteBuffer buffer, int parallelism) throws IOException {
+        CSVScanner header = new CSVScanner(buffer);
+        if (!header.nextRow()) {
+            return null;
+        }
+        int dataStart = header.getPosition();
+        int dataEnd = buffer.limit();
+
+        ArrayList<ArrayList<Movie>> chunks = new ArrayList<>();
+        if (parallelism <= 1) {
+            chunks.add(parseChunk(buffer, dataStart, dataEnd));
+        } else {
+            // More chunks than threads so uneven chunks still balance out
+            int[] bounds = CSVScanner.splitAtLineBoundaries(buffer, dataStart, dataEnd, parallelism * 4);
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ArrayList<ForkJoinTask<ArrayList<Movie>>> tasks = new ArrayList<>();
+                for (int i = 0; i < bounds.length - 1; i++) {
+                    int chunkStart = bounds[i];
+                    int chunkEnd = bounds[i + 1];
+                    tasks.add(pool.submit(() -> parseChunk(buffer, chunkStart, chunkEnd)));
+                }
+                for (ForkJoinTask<ArrayList<Movie>> task : tasks) {
+                    chunks.add(task.get());
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while loading movies");
+            } catch (ExecutionException e) {
+                throw new IOException("Error parsing movies: " + e.getCause().getMessage());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        if (chunks.size() == 1) {
+            return chunks.get(0);
+        }
+
+        int total = 0;
+        for (ArrayList<Movie> chunk : chunks) {
+            total += chunk.size();
+        }
+        ArrayList<Movie> movies = new ArrayList<>(total);
+        for (ArrayList<Movie> chunk : chunks) {
+            movies.addAll(chunk);
+        }
+        return movies;
+    }
+
+    /**
+     * Parses the movie rows in [start, end) of the mapped file
+     * @return the movies in file order
+     */
+    private static ArrayList<Movie> parseChunk(ByteBuffer buffer, int start, int end) {
+        ArrayList<Movie> result = new ArrayList<>();
+        CSVScanner scanner = new CSVScanner(buffer, start, end);
+        while (scanner.nextRow()) {
+            if (scanner.getFieldCount() >= 5) {
+                try {
+                    String id = scanner.getString(0);
+                    String title = scanner.getString(1);
+                    String genre = scanner.getString(2);
+                    int year = scanner.getInt(3);
+                    double rating = scanner.getDouble(4);
+
+                    result.add(new Movie(id, title, genre, year, rating));
+                } catch (NumberFormatException e) {
+                    System.out.println("Error parsing line: " + scanner.getRowText());
+                }
+            }
+        }
+        return result;
+    }
+}
@@ -0,0 +1,317 @@
+package service;
+
+import model.BasicUser;
+import model.User;
+import util.FileHandler;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * CsvUserStore class - CSV user storage (the default backend)
+ * One user per line: username,password,usertype,watchlist,history. The old format
+ * without the user type column is still read. Single-user writes rewrite the file,
+ * which is why UserManager adds its journal, sharding and lazy loading on top of this store
+ */
+public class CsvUserStore implements UserStore {
+    public static String USER_FILE_HEADER = "username,password,usertype,watchlist,history";
+    private static int PARALLEL_SAVE_THRESHOLD = 20000;
+    private static int USERS_PER_CHUNK = 2048;
+
+    private String filePath;
+
+    /**
+     * Constructor
+     * @param filePath the user CSV file path
+     */
+    public CsvUserStore(String filePath) {
+        this.filePath = filePath;
+    }
+
+    /**
+     * Loads all users from the CSV file
+     * @return the users, or null if the file does not exist or is empty
+     * @throws IOException if reading fails
+     */
+    @Override
+    public ArrayList<User> loadAll() throws IOException {
+        if (!FileHandler.fileExists(filePath)) {
+            return null;
+        }
+        return readUsers(filePath);
+    }
+
+    /**
+     * Rewrites the CSV file with all users, serializing in parallel if there are many
+     * @param users all users
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void saveAll(Collection<User> users) throws IOException {
+        int parallelism = 1;
+        if (users.size() >= PARALLEL_SAVE_THRESHOLD) {
+            parallelism = Runtime.getRuntime().availableProcessors();
+        }
+        saveAll(users, parallelism);
+    }
+
+    /**
+     * Rewrites the CSV file with all users using the given number of threads
+     * The users are split into chunks that are serialized on a ForkJoinPool into one
+     * direct buffer each; the buffers are written in order with a gathering write to a
+     * temporary file that replaces the user file atomically. Compressed files are
+     * written through the streaming writer instead
+     * @param users all users
+     * @param parallelism the number of serializing threads
+     * @throws IOException if writing fails
+     */
+    public void saveAll(Collection<User> users, int parallelism) throws IOException {
+        if (FileHandler.isCompressed(filePath)) {
+            ArrayList<String> lines = new ArrayList<String>();
+            lines.add(USER_FILE_HEADER);
+            for (User user : users) {
+                lines.add(user.toCSV());
+            }
+            FileHandler.writeCSV(filePath, lines);
+            return;
+        }
+        ArrayList<User> ordered = new ArrayList<>(users);
+        // Small chunks keep the buffers cache-friendly and still balance out across threads
+        int chunkCount = Math.max(1, (ordered.size() + USERS_PER_CHUNK - 1) / USERS_PER_CHUNK);
+        ByteBuffer[] buffers = new ByteBuffer[chunkCount + 1];
+        buffers[0] = ByteBuffer.wrap((USER_FILE_HEADER + "\n").getBytes(StandardCharsets.UTF_8));
+        if (parallelism <= 1 || chunkCount == 1) {
+            for (int i = 0; i < chunkCount; i++) {
+                buffers[i + 1] = serializeChunk(ordered, i * USERS_PER_CHUNK,
+                        Math.min(ordered.size(), (i + 1) * USERS_PER_CHUNK));
+            }
+        } else {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            try {
+                ArrayList<ForkJoinTask<ByteBuffer>> tasks = new ArrayList<>();
+                for (int i = 0; i < chunkCount; i++) {
+                    int chunkStart = i * USERS_PER_CHUNK;
+                    int chunkEnd = Math.min(ordered.size(), chunkStart + USERS_PER_CHUNK);
+                    tasks.add(pool.submit(() -> serializeChunk(ordered, chunkStart, chunkEnd)));
+                }
+                for (int i = 0; i < chunkCount; i++) {
+                    buffers[i + 1] = tasks.get(i).get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while saving users");
+            } catch (ExecutionException e) {
+                throw new IOException("Error serializing users: " + e.getCause().getMessage());
+            } finally {
+                pool.shutdown();
+            }
+        }
+        FileHandler.writeBuffers(filePath, buffers);
+    }
+
+    /**
+     * Serializes a range of users into one direct buffer of UTF-8 lines
+     */
+    private static ByteBuffer serializeChunk(ArrayList<User> users, int start, int end) {
+        byte[] bytes = new byte[Math.max(64, (end - start) * 64)];
+        int length = 0;
+        for (int i = start; i < end; i++) {
+            byte[] line = users.get(i).toCSV().getBytes(StandardCharsets.UTF_8);
+            if (length + line.length + 1 > bytes.length) {
+                bytes = Arrays.copyOf(bytes, Math.max(bytes.length * 2, length + line.length + 1));
+            }
+            System.arraycopy(line, 0, bytes, length, line.length);
+            length += line.length;
+            bytes[length++] = '\n';
+        }
+        ByteBuffer direct = ByteBuffer.allocateDirect(length);
+        direct.put(bytes, 0, length);
+        direct.flip();
+        return direct;
+    }
+
+    /**
+     * Replaces (or appends) one user's line by streaming the file into a new copy
+     * @param user the user
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void saveUser(User user) throws IOException {
+        rewriteUser(user.getUsername(), user.toCSV());
+    }
+
+    /**
+     * Removes one user's line by streaming the file into a new copy
+     * @param username the username
+     * @throws IOException if writing fails
+     */
+    @Override
+    public void deleteUser(String username) throws IOException {
+        rewriteUser(username, null);
+    }
+
+    @Override
+    public String getDescription() {
+        return "CSV file " + filePath;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Streams the file into a temporary copy with one user's line replaced, appended or
+     * dropped (old-format lines are converted), then swaps the copy in atomically
+     * @param username the username
+     * @param newLine the new line, or null to delete the user
+     */
+    private void rewriteUser(String username, String newLine) throws IOException {
+        if (!FileHandler.fileExists(filePath)) {
+            saveAll(new ArrayList<User>());
+        }
+        File tempFile = new File(filePath + ".tmp");
+        BufferedWriter writer = FileHandler.openWriter(tempFile.getPath(), false, FileHandler.isCompressed(filePath));
+        boolean[] state = new boolean[3];
+        try {
+            IOException[] writeException = new IOException[1];
+            // state[0]: header seen, state[1]: header contains the user type, state[2]: user written
+            FileHandler.forEachLine(filePath, (lineNumber, line) -> {
+                try {
+                    if (!state[0]) {
+                        state[0] = true;
+                        state[1] = line.contains("usertype");
+                        writer.write(USER_FILE_HEADER);
+                        writer.newLine();
+                        return true;
+                    }
+                    if (line.trim().isEmpty()) {
+                        return true;
+                    }
+                    User user = parseUser(FileHandler.parseCSVLine(line), 0, state[1]);
+                    if (user == null) {
+                        return true;
+                    }
+                    if (user.getUsername().equals(username)) {
+                        if (newLine != null && !state[2]) {
+                            writer.write(newLine);
+                            writer.newLine();
+                            state[2] = true;
+                        }
+                        return true;
+                    }
+                    writer.write(state[1] ? line : user.toCSV());
+                    writer.newLine();
+                    return true;
+                } catch (IOException e) {
+                    writeException[0] = e;
+                    return false;
+                }
+            });
+            if (writeException[0] != null) {
+                throw writeException[0];
+            }
+            if (!state[0]) {
+                writer.write(USER_FILE_HEADER);
+                writer.newLine();
+            }
+            if (newLine != null && !state[2]) {
+                writer.write(newLine);
+                writer.newLine();
+            }
+        } catch (IOException e) {
+            writer.close();
+            tempFile.delete();
+            throw e;
+        }
+        writer.close();
+        Files.move(tempFile.toPath(), new File(filePath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Reads and parses all users from one user file
+     * @param filePath the user file path
+     * @return the list of users, or null if the file is empty
+     * @throws IOException if reading fails
+     */
+    public static ArrayList<User> readUsers(String filePath) throws IOException {
+        ArrayList<User> loaded = new ArrayList<>();
+        boolean[] headerState = new boolean[2];
+
+        // headerState[0]: header seen, headerState[1]: header contains the user type
+        FileHandler.forEachLine(filePath, (lineNumber, line) -> {
+            if (!headerState[0]) {
+                headerState[0] = true;
+                headerState[1] = line.contains("usertype");
+                return true;
+            }
+            if (line.trim().isEmpty()) {
+                return true;
+            }
+
+            String[] fields = FileHandler.parseCSVLine(line);
+            User user = parseUser(fields, 0, headerState[1]);
+
+            if (user != null) {
+                loaded.add(user);
+            }
+            return true;
+        });
+
+        if (!headerState[0]) {
+            return null;
+        }
+        return loaded;
+    }
+
+    /**
+     * Parses a user record
+     * @param fields the CSV fields
+     * @param start the index of the username field
+     * @param isNewFormat true if the record contains the user type column
+     * @return the User object, or null if there are not enough fields
+     */
+    public static User parseUser(String[] fields, int start, boolean isNewFormat) {
+        User user = null;
+        String watchlistData;
+        String historyData;
+
+        if (isNewFormat && fields.length - start >= 5) {
+            String username = fields[start].trim();
+            String password = fields[start + 1].trim();
+            String userType = fields[start + 2].trim();
+            watchlistData = fields[start + 3].trim();
+            historyData = fields[start + 4].trim();
+
+            user = User.createByType(username, password, userType);
+        } else if (fields.length - start >= 4) {
+            String username = fields[start].trim();
+            String password = fields[start + 1].trim();
+            watchlistData = fields[start + 2].trim();
+            historyData = fields[start + 3].trim();
+
+            user = new BasicUser(username, password);
+        } else {
+            return null;
+        }
+
+        if (!watchlistData.isEmpty()) {
+            user.getWatchlist().loadFromCSV(watchlistData);
+        }
+        if (!historyData.isEmpty()) {
+            user.getHistory().loadFromCSV(historyData);
+        }
+        return user;
+    }
+}
@@ -68,7 +68,7 @@ public class GenreBasedStrategy extends RecommendationStrategy {
         }
 
         if (genreCounts.isEmpty()) {
-            return engine.getTopRatedMovies(topN, user);
+            return engine.getTopRatedMovies(topN, user, movieManager);
         }
 
         String favoriteGenre = null;
@@ -105,7 +105,7 @@ public class GenreBasedStrategy extends RecommendationStrategy {
 
         if (recommendations.size() < topN) {
             ArrayList<Movie> additionalMovies = engine.getTopRatedMovies(
-                topN - recommendations.size(), user
+                topN - recommendations.size(), user, movieManager
             );
             for (int i = 0; i < additionalMovies.size(); i++) {
                 Movie movie = additionalMovies.get(i);
@@ -0,0 +1,184 @@
+package service;
+
+import java.util.function.BooleanSupplier;
+
+/**
+ * GroupCommitter class - Background group-commit flusher
+ * Coalesces all mutations made within a time window (or until a mutation count is reached)
+ * into a single flush, and lets callers wait for their mutations to become durable
+ */
+public class GroupCommitter {
+    private BooleanSupplier flushAction;
+    private long windowMillis;
+    private int maxMutations;
+    private long requestedSeq;
+    private long durableSeq;
+    private boolean running;
+    private Object flushMutex;
+    private Thread flusher;
+    private Thread shutdownHook;
+
+    /**
+     * Constructor
+     * @param flushAction the action writing all pending mutations, returning true on success
+     * @param windowMillis the maximum time a mutation waits before being flushed
+     * @param maxMutations the number of pending mutations that triggers an early flush
+     */
+    public GroupCommitter(BooleanSupplier flushAction, long windowMillis, int maxMutations) {
+        this.flushAction = flushAction;
+        this.windowMillis = Math.max(1, windowMillis);
+        this.maxMutations = Math.max(1, maxMutations);
+        this.requestedSeq = 0;
+        this.durableSeq = 0;
+        this.flushMutex = new Object();
+    }
+
+    /**
+     * Starts the background flusher and registers a shutdown hook flushing pending mutations
+     */
+    public synchronized void start() {
+        if (running) {
+            return;
+        }
+        running = true;
+        flusher = new Thread(this::runFlusher, "user-group-commit");
+        flusher.setDaemon(true);
+        flusher.start();
+        shutdownHook = new Thread(this::flush, "user-group-commit-shutdown");
+        Runtime.getRuntime().addShutdownHook(shutdownHook);
+    }
+
+    /**
+     * Flushes pending mutations and stops the background flusher
+     */
+    public void stop() {
+        Thread thread;
+        synchronized (this) {
+            if (!running) {
+                return;
+            }
+            running = false;
+            thread = flusher;
+            notifyAll();
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+        try {
+            Runtime.getRuntime().removeShutdownHook(shutdownHook);
+        } catch (IllegalStateException e) {
+            // JVM is already shutting down, the hook runs anyway
+        }
+    }
+
+    /**
+     * Records that a mutation is waiting to be flushed
+     */
+    public synchronized void markDirty() {
+        requestedSeq++;
+        long pending = requestedSeq - durableSeq;
+        // Wake the flusher to open a new window, or to flush early once the batch is full
+        if (pending == 1 || pending >= maxMutations) {
+            notifyAll();
+        }
+    }
+
+    /**
+     * Synchronously writes all pending mutations
+     * @return true if everything marked dirty before the call is durable
+     */
+    public boolean flush() {
+        synchronized (flushMutex) {
+            long target;
+            synchronized (this) {
+                target = requestedSeq;
+                if (durableSeq >= target) {
+                    return true;
+                }
+            }
+            if (!flushAction.getAsBoolean()) {
+                return false;
+            }
+            synchronized (this) {
+                if (target > durableSeq) {
+                    durableSeq = target;
+                }
+                notifyAll();
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Waits until every mutation marked dirty before the call has been flushed
+     * by the background flusher (flushes directly if the flusher is not running)
+     * @return true if durable, false if interrupted
+     */
+    public boolean awaitDurable() {
+        synchronized (this) {
+            long target = requestedSeq;
+            while (running && durableSeq < target) {
+                try {
+                    wait(windowMillis);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+            if (durableSeq >= target) {
+                return true;
+            }
+        }
+        return flush();
+    }
+
+    /**
+     * Gets the number of mutations not yet flushed
+     * @return the pending mutation count
+     */
+    public synchronized long getPendingCount() {
+        return requestedSeq - durableSeq;
+    }
+
+    public synchronized boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Flusher loop: waits for the first dirty mutation, then for the rest of the window
+     * (or until enough mutations arrive), and writes them all in one flush
+     */
+    private void runFlusher() {
+        while (true) {
+            synchronized (this) {
+                try {
+                    while (running && requestedSeq == durableSeq) {
+                        wait();
+                    }
+                    long deadline = System.currentTimeMillis() + windowMillis;
+                    long remaining = windowMillis;
+                    while (running && remaining > 0 && requestedSeq - durableSeq < maxMutations) {
+                        wait(remaining);
+                        remaining = deadline - System.currentTimeMillis();
+                    }
+                } catch (InterruptedException e) {
+                    return;
+                }
+                if (!running) {
+                    return;
+                }
+            }
+            if (!flush()) {
+                // Keep the mutations pending and retry after another window
+                try {
+                    Thread.sleep(windowMillis);
+                } catch (InterruptedException e) {
+                    return;
+                }
+            }
+        }
+    }
+}
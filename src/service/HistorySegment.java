@@ -0,0 +1,211 @@
+package service;
+
+import model.History;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * HistorySegment class - Memory-mapped file holding the watch histories of many users
+ * Every watch event is a fixed-width record (movie code, epoch day) of 8 bytes, and each
+ * MappedHistory owns one extent of consecutive records. Extents have power-of-two sizes;
+ * a full extent moves to one twice as large and the old one is reused by later
+ * histories. Movie IDs are dictionary-encoded in memory. The file is scratch space that
+ * is recreated when the segment is opened: the user file stays the durable copy
+ */
+public class HistorySegment {
+    private static int RECORD_BYTES = 8;
+    private static int INITIAL_RECORDS = 1 << 16;
+    private static int MAX_RECORDS = Integer.MAX_VALUE / RECORD_BYTES;
+
+    private String filePath;
+    private RandomAccessFile file;
+    private MappedByteBuffer buffer;
+    private int capacity;
+    private int used;
+    private HashMap<String, Integer> movieCodes;
+    private ArrayList<String> movieIds;
+    private ArrayList<ArrayList<Integer>> freeExtents;
+
+    /**
+     * Constructor - creates (or empties) the segment file and maps it
+     * @param filePath the segment file path
+     * @throws IOException if the file cannot be created or mapped
+     */
+    public HistorySegment(String filePath) throws IOException {
+        this.filePath = filePath;
+        this.movieCodes = new HashMap<>();
+        this.movieIds = new ArrayList<>();
+        this.freeExtents = new ArrayList<>();
+        this.file = new RandomAccessFile(filePath, "rw");
+        file.setLength(0);
+        remap(INITIAL_RECORDS);
+    }
+
+    /**
+     * Creates an empty history stored in this segment
+     * @return the history
+     */
+    public MappedHistory createHistory() {
+        return new MappedHistory(this);
+    }
+
+    /**
+     * Creates a history stored in this segment with the same watch events as another history
+     * @param history the history to copy
+     * @return the copy
+     */
+    public MappedHistory copyOf(History history) {
+        MappedHistory copy = new MappedHistory(this);
+        for (int i = 0; i < history.getEventCount(); i++) {
+            copy.addMovie(history.getEventMovieId(i), history.getEventDate(i));
+        }
+        return copy;
+    }
+
+    /**
+     * Allocates an extent, reusing a released one of the same size if possible
+     * @param records the extent size in records (a power of two)
+     * @return the index of the first record
+     */
+    synchronized int allocate(int records) {
+        int sizeClass = Integer.numberOfTrailingZeros(records);
+        if (sizeClass < freeExtents.size() && !freeExtents.get(sizeClass).isEmpty()) {
+            ArrayList<Integer> free = freeExtents.get(sizeClass);
+            return free.remove(free.size() - 1);
+        }
+        if ((long) used + records > MAX_RECORDS) {
+            throw new IllegalStateException("History segment is full: " + filePath);
+        }
+        if (used + records > capacity) {
+            long grown = Math.max((long) capacity * 2, (long) used + records);
+            try {
+                remap((int) Math.min(grown, MAX_RECORDS));
+            } catch (IOException e) {
+                throw new IllegalStateException("Cannot grow history segment: " + e.getMessage());
+            }
+        }
+        int start = used;
+        used += records;
+        return start;
+    }
+
+    /**
+     * Releases an extent for reuse
+     * @param start the index of the first record
+     * @param records the extent size in records (a power of two)
+     */
+    synchronized void release(int start, int records) {
+        int sizeClass = Integer.numberOfTrailingZeros(records);
+        while (freeExtents.size() <= sizeClass) {
+            freeExtents.add(new ArrayList<Integer>());
+        }
+        freeExtents.get(sizeClass).add(start);
+    }
+
+    /**
+     * Copies records to another extent
+     */
+    synchronized void copy(int from, int to, int records) {
+        for (int i = 0; i < records; i++) {
+            buffer.putLong((to + i) * RECORD_BYTES, buffer.getLong((from + i) * RECORD_BYTES));
+        }
+    }
+
+    synchronized void write(int record, int movieCode, int epochDay) {
+        int position = record * RECORD_BYTES;
+        buffer.putInt(position, movieCode);
+        buffer.putInt(position + 4, epochDay);
+    }
+
+    synchronized int readMovieCode(int record) {
+        return buffer.getInt(record * RECORD_BYTES);
+    }
+
+    synchronized int readEpochDay(int record) {
+        return buffer.getInt(record * RECORD_BYTES + 4);
+    }
+
+    /**
+     * Finds a movie code among consecutive records
+     * @return the offset of the record from start, or -1 if not found
+     */
+    synchronized int find(int start, int records, int movieCode) {
+        for (int i = 0; i < records; i++) {
+            if (buffer.getInt((start + i) * RECORD_BYTES) == movieCode) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * Gets the code of a movie ID, adding it to the dictionary if needed
+     */
+    synchronized int encodeMovie(String movieId) {
+        Integer code = movieCodes.get(movieId);
+        if (code == null) {
+            code = movieIds.size();
+            movieCodes.put(movieId, code);
+            movieIds.add(movieId);
+        }
+        return code;
+    }
+
+    /**
+     * Gets the code of a movie ID without adding it
+     * @return the code, or -1 if no history contains the movie
+     */
+    synchronized int lookupMovie(String movieId) {
+        Integer code = movieCodes.get(movieId);
+        return code == null ? -1 : code;
+    }
+
+    synchronized String decodeMovie(int movieCode) {
+        return movieIds.get(movieCode);
+    }
+
+    /**
+     * Gets the number of records handed out as extents, including released ones
+     * @return the allocated record count
+     */
+    public synchronized int getAllocatedRecords() {
+        return used;
+    }
+
+    /**
+     * Gets the size of the mapped file
+     * @return the size in bytes
+     */
+    public synchronized long getMappedBytes() {
+        return (long) capacity * RECORD_BYTES;
+    }
+
+    public String getFilePath() {
+        return filePath;
+    }
+
+    /**
+     * Closes and deletes the segment file; histories stored in it must not be used afterwards
+     * @throws IOException if the file cannot be closed
+     */
+    public synchronized void close() throws IOException {
+        file.close();
+        buffer = null;
+        new File(filePath).delete();
+    }
+
+    /**
+     * Grows the file and maps it again (the old mapping stays valid until collected)
+     */
+    private void remap(int records) throws IOException {
+        file.setLength((long) records * RECORD_BYTES);
+        buffer = file.getChannel().map(FileChannel.MapMode.READ_WRITE, 0, (long) records * RECORD_BYTES);
+        capacity = records;
+    }
+}
@@ -0,0 +1,55 @@
+package service;
+
+import model.Movie;
+
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * InMemoryCatalogStore class - Volatile catalog storage (for benchmarks and tests)
+ * Stores copies of the movies so later changes to loaded Movie objects do not affect it
+ */
+public class InMemoryCatalogStore implements CatalogStore {
+    private ArrayList<Movie> movies;
+
+    /**
+     * Constructor - creates an empty store
+     */
+    public InMemoryCatalogStore() {
+        this.movies = null;
+    }
+
+    /**
+     * Loads copies of the stored movies
+     * @return the movies in catalog order, or null if nothing has been saved yet
+     */
+    @Override
+    public synchronized ArrayList<Movie> loadAll() {
+        if (movies == null) {
+            return null;
+        }
+        ArrayList<Movie> copies = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            copies.add(copy(movie));
+        }
+        return copies;
+    }
+
+    @Override
+    public synchronized void saveAll(Collection<Movie> movies) {
+        this.movies = new ArrayList<>(movies.size());
+        for (Movie movie : movies) {
+            this.movies.add(copy(movie));
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "memory";
+    }
+
+    private static Movie copy(Movie movie) {
+        return new Movie(movie.getId(), movie.getTitle(), movie.getGenre(), movie.getYear(),
+                movie.getRating(), movie.getMovieType(), movie.getDuration());
+    }
+}
@@ -0,0 +1,68 @@
+package service;
+
+import model.User;
+import util.FileHandler;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+
+/**
+ * InMemoryUserStore class - Volatile user storage (for benchmarks and tests)
+ * Users are kept as serialized CSV records so stored data is a copy that later changes
+ * to the in-memory User objects do not affect, like with the persistent stores
+ */
+public class InMemoryUserStore implements UserStore {
+    private LinkedHashMap<String, String> records;
+
+    /**
+     * Constructor - creates an empty store
+     */
+    public InMemoryUserStore() {
+        this.records = null;
+    }
+
+    /**
+     * Loads all stored users
+     * @return the users, or null if nothing has been saved yet
+     */
+    @Override
+    public synchronized ArrayList<User> loadAll() {
+        if (records == null) {
+            return null;
+        }
+        ArrayList<User> users = new ArrayList<>(records.size());
+        for (String record : records.values()) {
+            users.add(CsvUserStore.parseUser(FileHandler.parseCSVLine(record), 0, true));
+        }
+        return users;
+    }
+
+    @Override
+    public synchronized void saveAll(Collection<User> users) {
+        records = new LinkedHashMap<>();
+        for (User user : users) {
+            records.put(user.getUsername(), user.toCSV());
+        }
+    }
+
+    @Override
+    public synchronized void saveUser(User user) {
+        if (records == null) {
+            records = new LinkedHashMap<>();
+        }
+        records.put(user.getUsername(), user.toCSV());
+    }
+
+    @Override
+    public synchronized void deleteUser(String username) {
+        if (records != null) {
+            records.remove(username);
+        }
+    }
+
+    @Override
+    public String getDescription() {
+        return "memory";
+    }
+}
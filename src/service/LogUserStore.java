@@ -0,0 +1,236 @@
+package service;
+
+import model.User;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+
+/**
+ * LogUserStore class - Binary log-structured user storage
+ * Every change appends one record (the user encoded with BinaryUserCodec, or a delete
+ * tombstone), so a single-user write costs O(record). Loading replays the log with the
+ * last record per user winning, and a torn final record is ignored. The log is
+ * compacted to one record per user once obsolete records outnumber the live ones
+ */
+public class LogUserStore implements UserStore {
+    private static int MAGIC = 0x554C4F47;
+    private static int RECORD_PUT = 1;
+    private static int RECORD_DELETE = 2;
+    private static int MIN_COMPACTION_RECORDS = 1000;
+
+    private String filePath;
+    private HashSet<String> liveUsers;
+    private int recordCount;
+    private boolean scanned;
+
+    /**
+     * Constructor
+     * @param filePath the log file path
+     */
+    public LogUserStore(String filePath) {
+        this.filePath = filePath;
+        this.liveUsers = new HashSet<>();
+    }
+
+    /**
+     * Replays the log
+     * @return the live users in first-write order, or null if the log does not exist
+     * @throws IOException if reading fails or the file is not a user log
+     */
+    @Override
+    public synchronized ArrayList<User> loadAll() throws IOException {
+        if (!new File(filePath).isFile()) {
+            return null;
+        }
+        LinkedHashMap<String, User> loaded = new LinkedHashMap<>();
+        int records = 0;
+        long validLength = 4;
+        boolean torn = false;
+        DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(filePath)));
+        try {
+            if (in.readInt() != MAGIC) {
+                throw new IOException("Not a user log: " + filePath);
+            }
+            while (true) {
+                int type = in.read();
+                if (type < 0) {
+                    break;
+                }
+                byte[] payload;
+                try {
+                    payload = new byte[(int) BinaryUserCodec.readVarint(in)];
+                    in.readFully(payload);
+                } catch (EOFException e) {
+                    torn = true;
+                    break;
+                }
+                if (type == RECORD_PUT) {
+                    for (User user : BinaryUserCodec.read(new ByteArrayInputStream(payload))) {
+                        loaded.put(user.getUsername(), user);
+                    }
+                } else if (type == RECORD_DELETE) {
+                    loaded.remove(new String(payload, StandardCharsets.UTF_8));
+                } else {
+                    throw new IOException("Corrupt user log record in " + filePath);
+                }
+                records++;
+                validLength += 1 + varintLength(payload.length) + payload.length;
+            }
+        } finally {
+            in.close();
+        }
+        if (torn) {
+            // Cut the torn record off so later appends follow the last complete record
+            System.out.println("Discarding torn record at the end of " + filePath);
+            RandomAccessFile file = new RandomAccessFile(filePath, "rw");
+            try {
+                file.setLength(validLength);
+            } finally {
+                file.close();
+            }
+        }
+        liveUsers = new HashSet<>(loaded.keySet());
+        recordCount = records;
+        scanned = true;
+        return new ArrayList<>(loaded.values());
+    }
+
+    /**
+     * Writes a compacted log holding one record per user and swaps it in atomically
+     * @param users all users
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void saveAll(Collection<User> users) throws IOException {
+        File tempFile = new File(filePath + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile)));
+        HashSet<String> written = new HashSet<>();
+        try {
+            out.writeInt(MAGIC);
+            for (User user : users) {
+                writeRecord(out, RECORD_PUT, encode(user));
+                written.add(user.getUsername());
+            }
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+        Files.move(tempFile.toPath(), new File(filePath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        liveUsers = written;
+        recordCount = written.size();
+        scanned = true;
+    }
+
+    /**
+     * Appends the user's current state
+     * @param user the user
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void saveUser(User user) throws IOException {
+        append(RECORD_PUT, encode(user));
+        liveUsers.add(user.getUsername());
+    }
+
+    /**
+     * Appends a delete tombstone
+     * @param username the username
+     * @throws IOException if writing fails
+     */
+    @Override
+    public synchronized void deleteUser(String username) throws IOException {
+        append(RECORD_DELETE, username.getBytes(StandardCharsets.UTF_8));
+        liveUsers.remove(username);
+    }
+
+    @Override
+    public String getDescription() {
+        return "binary log " + filePath;
+    }
+
+    /**
+     * Gets the number of records in the log (live and obsolete)
+     * @return the record count
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    /**
+     * Rewrites the log with only the latest record per user
+     * @throws IOException if reading or writing fails
+     */
+    public synchronized void compact() throws IOException {
+        ArrayList<User> users = loadAll();
+        if (users != null) {
+            saveAll(users);
+        }
+    }
+
+    /**
+     * Appends one record, creating the log if needed, and compacts when it is mostly obsolete records
+     */
+    private void append(int type, byte[] payload) throws IOException {
+        if (!scanned && new File(filePath).isFile()) {
+            // Learn the live user count so compaction can be scheduled
+            loadAll();
+        }
+        boolean exists = new File(filePath).length() > 0;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(filePath, exists)));
+        try {
+            if (!exists) {
+                out.writeInt(MAGIC);
+            }
+            writeRecord(out, type, payload);
+        } finally {
+            out.close();
+        }
+        recordCount++;
+        scanned = true;
+        if (recordCount - liveUsers.size() > Math.max(MIN_COMPACTION_RECORDS, liveUsers.size())) {
+            compact();
+        }
+    }
+
+    private static void writeRecord(DataOutputStream out, int type, byte[] payload) throws IOException {
+        out.writeByte(type);
+        BinaryUserCodec.writeVarint(out, payload.length);
+        out.write(payload);
+    }
+
+    private static int varintLength(long value) {
+        int length = 1;
+        while ((value & ~0x7FL) != 0) {
+            value >>>= 7;
+            length++;
+        }
+        return length;
+    }
+
+    private static byte[] encode(User user) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        BinaryUserCodec.write(Collections.singletonList(user), bytes);
+        return bytes.toByteArray();
+    }
+}
@@ -0,0 +1,201 @@
+package service;
+
+import model.History;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+
+/**
+ * MappedHistory class - Watch history stored off-heap in a HistorySegment
+ * Same behaviour as History, but every watch event lives in one extent of the segment
+ * as a (movie code, epoch day) record in addition order, so a history costs a few fields
+ * on the heap however many movies it holds. Lookups, watch counts and the latest watch
+ * scan the extent. Dates that are not in yyyy-MM-dd format are kept as strings on the heap
+ */
+public class MappedHistory extends History {
+    private static int FIRST_EXTENT = 4;
+
+    private HistorySegment segment;
+    private int start;
+    private int capacity;
+    private int length;
+    private int movieCount;
+    private HashMap<Integer, String> rawDates;
+
+    /**
+     * Constructor (see HistorySegment.createHistory)
+     * @param segment the segment holding the entries
+     */
+    MappedHistory(HistorySegment segment) {
+        this.segment = segment;
+        this.start = -1;
+    }
+
+    @Override
+    public void addMovie(String movieId, String watchDate) {
+        int movieCode = segment.encodeMovie(movieId);
+        int epochDay = parseDay(watchDate);
+        if (length == 0 || segment.find(start, length, movieCode) < 0) {
+            movieCount++;
+        }
+        ensureCapacity(length + 1);
+        int offset = length++;
+        segment.write(start + offset, movieCode, epochDay);
+        if (epochDay == RAW_DATE) {
+            if (rawDates == null) {
+                rawDates = new HashMap<>();
+            }
+            rawDates.put(offset, watchDate);
+        }
+    }
+
+    @Override
+    public String getWatchDate(String movieId) {
+        return lastWatched(movieId);
+    }
+
+    @Override
+    public String lastWatched(String movieId) {
+        int movieCode = lookup(movieId);
+        for (int i = length - 1; i >= 0 && movieCode >= 0; i--) {
+            if (segment.readMovieCode(start + i) == movieCode) {
+                return getEventDate(i);
+            }
+        }
+        return null;
+    }
+
+    @Override
+    public int watchCount(String movieId) {
+        int movieCode = lookup(movieId);
+        int count = 0;
+        for (int i = 0; i < length && movieCode >= 0; i++) {
+            if (segment.readMovieCode(start + i) == movieCode) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public boolean contains(String movieId) {
+        return indexOf(movieId) >= 0;
+    }
+
+    @Override
+    public ArrayList<String> getMovieIds() {
+        ArrayList<String> movieIds = new ArrayList<>(movieCount);
+        HashSet<Integer> seen = new HashSet<>();
+        for (int i = 0; i < length; i++) {
+            int movieCode = segment.readMovieCode(start + i);
+            if (seen.add(movieCode)) {
+                movieIds.add(segment.decodeMovie(movieCode));
+            }
+        }
+        return movieIds;
+    }
+
+    @Override
+    public int size() {
+        return movieCount;
+    }
+
+    @Override
+    public int getEventCount() {
+        return length;
+    }
+
+    @Override
+    public String getEventMovieId(int event) {
+        return segment.decodeMovie(segment.readMovieCode(start + event));
+    }
+
+    @Override
+    public String getEventDate(int event) {
+        int epochDay = segment.readEpochDay(start + event);
+        return epochDay == RAW_DATE ? rawDates.get(event) : formatDay(epochDay);
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    @Override
+    public void clear() {
+        length = 0;
+        movieCount = 0;
+        rawDates = null;
+    }
+
+    @Override
+    public String toCSV() {
+        StringBuilder csv = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            if (i > 0) {
+                csv.append(';');
+            }
+            csv.append(getEventMovieId(i)).append('@').append(getEventDate(i));
+        }
+        return csv.toString();
+    }
+
+    @Override
+    public void loadFromCSV(String csvData) {
+        clear();
+        // The base class parses the entries and adds them through addMovie
+        super.loadFromCSV(csvData);
+    }
+
+    @Override
+    public HashMap<String, String> getMovieHistory() {
+        HashMap<String, String> movieHistory = new HashMap<>();
+        for (int i = 0; i < length; i++) {
+            // Later watches overwrite earlier ones, leaving the latest date of each movie
+            movieHistory.put(getEventMovieId(i), getEventDate(i));
+        }
+        return movieHistory;
+    }
+
+    /**
+     * Gets the segment holding the entries
+     * @return the segment
+     */
+    public HistorySegment getSegment() {
+        return segment;
+    }
+
+    private int indexOf(String movieId) {
+        int movieCode = lookup(movieId);
+        return movieCode < 0 ? -1 : segment.find(start, length, movieCode);
+    }
+
+    /**
+     * Gets the code of a movie ID
+     * @return the code, or -1 if the history is empty or no history contains the movie
+     */
+    private int lookup(String movieId) {
+        return length == 0 ? -1 : segment.lookupMovie(movieId);
+    }
+
+    /**
+     * Moves the entries to a larger extent when the current one is full
+     */
+    private void ensureCapacity(int records) {
+        if (records <= capacity) {
+            return;
+        }
+        int grown = Math.max(FIRST_EXTENT, capacity * 2);
+        while (grown < records) {
+            grown *= 2;
+        }
+        int moved = segment.allocate(grown);
+        if (capacity > 0) {
+            segment.copy(start, moved, length);
+            segment.release(start, capacity);
+        }
+        start = moved;
+        capacity = grown;
+    }
+}
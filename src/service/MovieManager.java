@@ -2,83 +2,486 @@ package service;
 
 import model.Movie;
 import util.FileHandler;
+import util.FileStamp;
 
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.concurrent.TimeUnit;
 
 /**
  * MovieManager class - Movie manager
  * Manages loading, searching, and retrieval of all movie data
+ * The catalog is held as an immutable version that is replaced as a whole, so readers
+ * never block and a reload only becomes visible once it is complete
  */
 public class MovieManager {
-    private HashMap<String, Movie> movies;
-    private ArrayList<Movie> movieList;
+    private static long RELOAD_DEBOUNCE_MILLIS = 200;
+
+    private volatile Catalog catalog;
+    private CatalogStore store;
     private String movieFilePath;
+    private String snapshotPath;
+    private String indexPath;
+    private boolean pinned;
+    private WatchService watchService;
+    private Thread watcher;
+    private int reloadCount;
 
     /**
-     * Constructor
+     * Constructor - uses the CSV catalog store
      * @param movieFilePath the movie CSV file path
      */
     public MovieManager(String movieFilePath) {
-        this.movieFilePath = movieFilePath;
-        this.movies = new HashMap<String, Movie>();
-        this.movieList = new ArrayList<Movie>();
+        this(new CsvCatalogStore(movieFilePath));
     }
 
     /**
-     * Loads all movie data from CSV file
+     * Constructor
+     * The catalog snapshot only applies to the CSV store
+     * @param store the storage backend
+     */
+    public MovieManager(CatalogStore store) {
+        this.store = store;
+        if (store instanceof CsvCatalogStore) {
+            this.movieFilePath = ((CsvCatalogStore) store).getFilePath();
+        }
+        this.catalog = new Catalog(new HashMap<String, Movie>(), new ArrayList<Movie>(), 0);
+    }
+
+    /**
+     * Constructor for a read-only view pinned to one catalog version
+     */
+    private MovieManager(Catalog catalog) {
+        this.catalog = catalog;
+        this.pinned = true;
+    }
+
+    /**
+     * Loads all movie data from the store
+     * CSV files are scanned in place through a memory mapping and parsed in parallel
+     * when large (see CsvCatalogStore); a fresh catalog snapshot is used instead when enabled
      * @return true if loaded successfully, false otherwise
      */
-    public boolean loadMovies() {
+    public synchronized boolean loadMovies() {
+        if (pinned) {
+            return false;
+        }
+        if (loadFromSnapshot()) {
+            return true;
+        }
         try {
-            ArrayList<String> lines = FileHandler.readCSV(movieFilePath);
+            FileStamp source = takeSourceStamp();
+            return addLoadedMovies(store.loadAll(), source);
+
+        } catch (IOException e) {
+            System.out.println("Error loading movies: " + e.getMessage());
+            return false;
+        }
+    }
 
-            if (lines.isEmpty()) {
-                System.out.println("Movie file is empty.");
-                return false;
+    /**
+     * Loads all movie data using the given number of threads
+     * The file is split into chunks at row boundaries, the chunks are parsed on a
+     * ForkJoinPool, and the results are merged in file order into pre-sized collections.
+     * Stores other than CSV ignore the parallelism
+     * @param parallelism the number of parsing threads
+     * @return true if loaded successfully, false otherwise
+     */
+    public synchronized boolean loadMoviesParallel(int parallelism) {
+        if (pinned) {
+            return false;
+        }
+        if (loadFromSnapshot()) {
+            return true;
+        }
+        try {
+            FileStamp source = takeSourceStamp();
+            if (store instanceof CsvCatalogStore) {
+                return addLoadedMovies(((CsvCatalogStore) store).loadAll(parallelism), source);
             }
+            return addLoadedMovies(store.loadAll(), source);
+        } catch (IOException e) {
+            System.out.println("Error loading movies: " + e.getMessage());
+            return false;
+        }
+    }
 
-            for (int i = 1; i < lines.size(); i++) {
-                String line = lines.get(i);
-                if (line.trim().isEmpty()) {
-                    continue;
-                }
+    /**
+     * Adds loaded movies to the pre-sized collections and refreshes the snapshot
+     * @param loaded the movies, or null if the store was empty
+     * @param source the stamp of the movie file taken before it was parsed (or null)
+     * @return true if movies were loaded
+     */
+    private boolean addLoadedMovies(ArrayList<Movie> loaded, FileStamp source) {
+        if (loaded == null) {
+            System.out.println("No movies found in " + store.getDescription() + ".");
+            return false;
+        }
+        publishAppended(loaded);
+
+        System.out.println("Loaded " + catalog.movies.size() + " movies.");
+        saveSnapshot(source);
+        prepareIndex(catalog, source);
+        return true;
+    }
 
-                String[] fields = FileHandler.parseCSVLine(line);
-                if (fields.length >= 5) {
-                    try {
-                        String id = fields[0].trim();
-                        String title = fields[1].trim();
-                        String genre = fields[2].trim();
-                        int year = Integer.parseInt(fields[3].trim());
-                        double rating = Double.parseDouble(fields[4].trim());
-
-                        Movie movie = new Movie(id, title, genre, year, rating);
-                        movies.put(id, movie);
-                        movieList.add(movie);
-                    } catch (NumberFormatException e) {
-                        System.out.println("Error parsing line: " + line);
+    /**
+     * Writes the current catalog to the store
+     * @return true if saved successfully, false otherwise
+     */
+    public boolean saveMovies() {
+        if (pinned) {
+            return false;
+        }
+        try {
+            store.saveAll(catalog.movieList);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error saving movies: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Enables the binary catalog snapshot: after a CSV load the catalog is written to
+     * snapshotPath, and later loads read the snapshot while it still matches the CSV file
+     * @param snapshotPath the snapshot file path
+     */
+    public void enableSnapshot(String snapshotPath) {
+        if (movieFilePath == null) {
+            return;
+        }
+        this.snapshotPath = snapshotPath;
+    }
+
+    /**
+     * Loads the catalog from the snapshot if it is enabled and fresh
+     * @return true if loaded from the snapshot
+     */
+    private boolean loadFromSnapshot() {
+        if (snapshotPath == null || !CatalogSnapshot.isFresh(snapshotPath, movieFilePath)) {
+            return false;
+        }
+        try {
+            FileStamp source = CatalogSnapshot.readSourceStamp(snapshotPath);
+            ArrayList<Movie> snapshot = CatalogSnapshot.read(snapshotPath);
+            publishAppended(snapshot);
+            System.out.println("Loaded " + catalog.movies.size() + " movies from snapshot.");
+            prepareIndex(catalog, source);
+            return true;
+        } catch (IOException e) {
+            System.out.println("Ignoring catalog snapshot: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Writes the catalog snapshot if it is enabled (failures only disable the fast path)
+     * @param source the stamp of the movie content the catalog was loaded from (null if unknown)
+     */
+    private void saveSnapshot(FileStamp source) {
+        if (snapshotPath == null || source == null) {
+            return;
+        }
+        try {
+            CatalogSnapshot.write(snapshotPath, source, catalog.movieList);
+        } catch (IOException e) {
+            System.out.println("Error writing catalog snapshot: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Publishes a new catalog version with movies appended to the current one
+     * @param loaded the movies to append
+     */
+    private void publishAppended(ArrayList<Movie> loaded) {
+        Catalog current = catalog;
+        HashMap<String, Movie> movies = new HashMap<String, Movie>(
+                (int) ((current.movies.size() + loaded.size()) / 0.75f) + 1);
+        movies.putAll(current.movies);
+        ArrayList<Movie> movieList = new ArrayList<Movie>(current.movieList.size() + loaded.size());
+        movieList.addAll(current.movieList);
+        for (Movie movie : loaded) {
+            movies.put(movie.getId(), movie);
+            movieList.add(movie);
+        }
+        catalog = new Catalog(movies, movieList, current.version + 1);
+    }
+
+    /**
+     * Reloads the catalog from the store and applies only the difference
+     * The new catalog is compared with the live one by movie ID; inserted and updated
+     * movies are put into a copy of the ID map, deleted ones are removed, and unchanged
+     * Movie objects are reused. The result is published as a new version in one step,
+     * so readers (and views from pinVersion()) keep using the old version until then
+     * @return the number of inserted, updated and deleted movies, or -1 if the reload failed
+     *         or found no movies (the current catalog is kept)
+     */
+    public synchronized int reloadMovies() {
+        if (pinned) {
+            return -1;
+        }
+        ArrayList<Movie> loaded;
+        FileStamp source;
+        try {
+            source = takeSourceStamp();
+            loaded = store.loadAll();
+        } catch (IOException e) {
+            System.out.println("Error reloading movies: " + e.getMessage());
+            return -1;
+        }
+        if (loaded == null || loaded.isEmpty()) {
+            // An empty file is more likely truncated or half-written than a deliberately emptied catalog
+            System.out.println("No movies found in " + store.getDescription() + ", keeping the current catalog.");
+            return -1;
+        }
+
+        Catalog current = catalog;
+        HashMap<String, Movie> movies = new HashMap<String, Movie>(current.movies);
+        ArrayList<Movie> movieList = new ArrayList<Movie>(loaded.size());
+        HashMap<String, Movie> seen = new HashMap<String, Movie>((int) (loaded.size() / 0.75f) + 1);
+        int inserted = 0;
+        int updated = 0;
+        for (Movie movie : loaded) {
+            if (seen.containsKey(movie.getId())) {
+                continue;
+            }
+            Movie old = current.movies.get(movie.getId());
+            if (old == null) {
+                inserted++;
+                movies.put(movie.getId(), movie);
+            } else if (!sameContent(old, movie)) {
+                updated++;
+                movies.put(movie.getId(), movie);
+            } else {
+                movie = old;
+            }
+            seen.put(movie.getId(), movie);
+            movieList.add(movie);
+        }
+        int deleted = 0;
+        for (String movieId : current.movies.keySet()) {
+            if (!seen.containsKey(movieId)) {
+                movies.remove(movieId);
+                deleted++;
+            }
+        }
+
+        int changes = inserted + updated + deleted;
+        if (changes == 0 && movieList.size() == current.movieList.size()) {
+            return 0;
+        }
+        Catalog next = new Catalog(movies, movieList, current.version + 1);
+        // Indexes are built before publishing so the first query on the new version does not wait
+        if (indexPath != null) {
+            saveIndex(next, source);
+        } else {
+            next.setIndex(CatalogIndex.build(movieList));
+        }
+        catalog = next;
+        reloadCount++;
+        System.out.println("Reloaded movies: " + inserted + " added, " + updated + " updated, "
+                + deleted + " removed (catalog version " + catalog.version + ").");
+        saveSnapshot(source);
+        return changes;
+    }
+
+    /**
+     * Checks if two versions of a movie have the same content
+     */
+    private static boolean sameContent(Movie a, Movie b) {
+        return a.getClass() == b.getClass()
+                && a.getTitle().equals(b.getTitle())
+                && a.getGenre().equals(b.getGenre())
+                && a.getYear() == b.getYear()
+                && a.getRating() == b.getRating()
+                && a.getMovieType().equals(b.getMovieType())
+                && a.getDuration() == b.getDuration();
+    }
+
+    /**
+     * Gets a read-only view of the current catalog version that later reloads do not change
+     * (used so one recommendation request sees a single version throughout)
+     * @return the pinned view
+     */
+    public MovieManager pinVersion() {
+        return pinned ? this : new MovieManager(catalog);
+    }
+
+    /**
+     * Starts watching the movie file and reloads it when it changes
+     * Bursts of file events (e.g. an editor writing in several steps) are collapsed by
+     * waiting until the file has been quiet for a short time. Applies to the CSV store only
+     * @return true if watching started
+     */
+    public synchronized boolean startWatching() {
+        if (movieFilePath == null || pinned || watcher != null) {
+            return false;
+        }
+        Path file = new File(movieFilePath).getAbsoluteFile().toPath();
+        try {
+            watchService = FileSystems.getDefault().newWatchService();
+            file.getParent().register(watchService, StandardWatchEventKinds.ENTRY_CREATE,
+                    StandardWatchEventKinds.ENTRY_MODIFY);
+        } catch (IOException e) {
+            System.out.println("Cannot watch " + movieFilePath + ": " + e.getMessage());
+            return false;
+        }
+        WatchService service = watchService;
+        watcher = new Thread(() -> runWatcher(service, file.getFileName()), "catalog-watcher");
+        watcher.setDaemon(true);
+        watcher.start();
+        return true;
+    }
+
+    /**
+     * Stops watching the movie file
+     */
+    public void stopWatching() {
+        Thread thread;
+        synchronized (this) {
+            if (watcher == null) {
+                return;
+            }
+            thread = watcher;
+            watcher = null;
+            try {
+                watchService.close();
+            } catch (IOException e) {
+                System.out.println("Error closing file watcher: " + e.getMessage());
+            }
+        }
+        try {
+            thread.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * Gets the number of reloads that changed the catalog
+     * @return the reload count
+     */
+    public synchronized int getReloadCount() {
+        return reloadCount;
+    }
+
+    /**
+     * Watcher loop: waits for events on the movie file, then for a quiet period, then reloads
+     */
+    private void runWatcher(WatchService service, Path fileName) {
+        try {
+            while (true) {
+                WatchKey key = service.take();
+                boolean changed = takeEvents(key, fileName);
+                // Collapse the rest of the burst
+                while (changed) {
+                    key = service.poll(RELOAD_DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS);
+                    if (key == null) {
+                        break;
                     }
+                    takeEvents(key, fileName);
+                }
+                if (changed) {
+                    reloadMovies();
                 }
             }
+        } catch (InterruptedException | ClosedWatchServiceException e) {
+            // Stopped
+        }
+    }
+
+    /**
+     * Drains a watch key
+     * @return true if any event concerned the movie file
+     */
+    private static boolean takeEvents(WatchKey key, Path fileName) {
+        boolean changed = false;
+        for (WatchEvent<?> event : key.pollEvents()) {
+            if (fileName.equals(event.context())) {
+                changed = true;
+            }
+        }
+        key.reset();
+        return changed;
+    }
 
-            System.out.println("Loaded " + movies.size() + " movies.");
-            return true;
+    /**
+     * Enables the persisted index file: the catalog indexes (rating order, genre lists,
+     * title trigrams) are saved to indexPath with a checksum of the movie file, and
+     * later starts map the saved indexes instead of building them while the file matches.
+     * Applies to the CSV store only
+     * @param indexPath the index file path
+     */
+    public void enableIndexSnapshot(String indexPath) {
+        if (movieFilePath == null) {
+            return;
+        }
+        this.indexPath = indexPath;
+    }
 
+    /**
+     * Gives a freshly loaded catalog its indexes: the saved ones if they match the movie
+     * file, otherwise new ones that are then saved (no-op unless the index file is enabled)
+     * @param source the stamp of the movie content the catalog was loaded from
+     */
+    private void prepareIndex(Catalog loaded, FileStamp source) {
+        if (indexPath == null) {
+            return;
+        }
+        CatalogIndex index = CatalogIndex.loadIfFresh(indexPath, movieFilePath, loaded.movieList.size());
+        if (index != null) {
+            loaded.setIndex(index);
+            return;
+        }
+        saveIndex(loaded, source);
+    }
+
+    /**
+     * Writes the index file for a catalog if it is enabled (failures only disable the fast path)
+     * @param source the stamp of the movie content the catalog was loaded from (null if unknown)
+     */
+    private void saveIndex(Catalog saved, FileStamp source) {
+        if (indexPath == null || source == null) {
+            return;
+        }
+        try {
+            CatalogIndex index = CatalogIndex.build(saved.movieList, source);
+            saved.setIndex(index);
+            index.write(indexPath);
         } catch (IOException e) {
-            System.out.println("Error loading movies: " + e.getMessage());
-            return false;
+            System.out.println("Error writing catalog index: " + e.getMessage());
         }
     }
 
+    /**
+     * Takes the stamp of the movie file before it is parsed, for the files derived from it
+     * @return the stamp, or null if no derived file is enabled
+     * @throws IOException if the movie file cannot be read for its checksum
+     */
+    private FileStamp takeSourceStamp() throws IOException {
+        if ((snapshotPath == null && indexPath == null) || !FileHandler.fileExists(movieFilePath)) {
+            return null;
+        }
+        return FileStamp.of(movieFilePath);
+    }
+
     /**
      * Gets a movie by ID
      * @param movieId the movie ID
      * @return the Movie object, or null if not exists
      */
     public Movie getMovieById(String movieId) {
-        return movies.get(movieId);
+        return catalog.movies.get(movieId);
     }
 
     /**
@@ -86,7 +489,7 @@ public class MovieManager {
      * @return the list of all movies
      */
     public ArrayList<Movie> getAllMovies() {
-        return new ArrayList<Movie>(movieList);
+        return new ArrayList<Movie>(catalog.movieList);
     }
 
     /**
@@ -95,24 +498,37 @@ public class MovieManager {
      * @return the list of movies matching the genre
      */
     public ArrayList<Movie> getMoviesByGenre(String genre) {
-        ArrayList<Movie> result = new ArrayList<>();
-        for (Movie movie : movies.values()) {
-            if (movie.getGenre().equalsIgnoreCase(genre)) {
-                result.add(movie);
-            }
+        Catalog current = catalog;
+        int[] positions = current.getIndex().getGenrePositions(genre);
+        ArrayList<Movie> result = new ArrayList<>(positions.length);
+        for (int position : positions) {
+            result.add(current.movieList.get(position));
         }
         return result;
     }
 
     /**
      * Searches movies by title (fuzzy match)
+     * Keywords of three or more characters only check the titles that the trigram index
+     * returns; shorter ones check every title
      * @param keyword the keyword
-     * @return the list of matching movies
+     * @return the list of matching movies, in catalog order
      */
     public ArrayList<Movie> searchMoviesByTitle(String keyword) {
+        Catalog current = catalog;
         ArrayList<Movie> result = new ArrayList<>();
         String lowerKeyword = keyword.toLowerCase();
-        for (Movie movie : movies.values()) {
+        int[] candidates = current.getIndex().getTitleCandidates(lowerKeyword);
+        if (candidates == null) {
+            for (Movie movie : current.movieList) {
+                if (movie.getTitle().toLowerCase().contains(lowerKeyword)) {
+                    result.add(movie);
+                }
+            }
+            return result;
+        }
+        for (int position : candidates) {
+            Movie movie = current.movieList.get(position);
             if (movie.getTitle().toLowerCase().contains(lowerKeyword)) {
                 result.add(movie);
             }
@@ -128,7 +544,7 @@ public class MovieManager {
      */
     public ArrayList<Movie> getMoviesByYearRange(int startYear, int endYear) {
         ArrayList<Movie> result = new ArrayList<>();
-        for (Movie movie : movies.values()) {
+        for (Movie movie : catalog.movies.values()) {
             int year = movie.getYear();
             if (year >= startYear && year <= endYear) {
                 result.add(movie);
@@ -140,14 +556,32 @@ public class MovieManager {
     /**
      * Gets movies with rating above the specified value
      * @param minRating the minimum rating
-     * @return the list of matching movies
+     * @return the list of matching movies, highest rated first
      */
     public ArrayList<Movie> getMoviesByMinRating(double minRating) {
+        Catalog current = catalog;
+        CatalogIndex index = current.getIndex();
         ArrayList<Movie> result = new ArrayList<>();
-        for (Movie movie : movies.values()) {
-            if (movie.getRating() >= minRating) {
-                result.add(movie);
+        for (int rank = 0; rank < index.getMovieCount(); rank++) {
+            Movie movie = current.movieList.get(index.getRatingOrderPosition(rank));
+            if (movie.getRating() < minRating) {
+                break;
             }
+            result.add(movie);
+        }
+        return result;
+    }
+
+    /**
+     * Gets all movies sorted by rating, highest first (movies with equal ratings keep catalog order)
+     * @return the sorted list of all movies
+     */
+    public ArrayList<Movie> getMoviesByRating() {
+        Catalog current = catalog;
+        CatalogIndex index = current.getIndex();
+        ArrayList<Movie> result = new ArrayList<>(index.getMovieCount());
+        for (int rank = 0; rank < index.getMovieCount(); rank++) {
+            result.add(current.movieList.get(index.getRatingOrderPosition(rank)));
         }
         return result;
     }
@@ -159,8 +593,9 @@ public class MovieManager {
      */
     public ArrayList<Movie> getMoviesByIds(ArrayList<String> movieIds) {
         ArrayList<Movie> result = new ArrayList<>();
+        HashMap<String, Movie> movies = catalog.movies;
         for (String id : movieIds) {
-            Movie movie = getMovieById(id);
+            Movie movie = movies.get(id);
             if (movie != null) {
                 result.add(movie);
             }
@@ -170,17 +605,10 @@ public class MovieManager {
 
     /**
      * Gets all distinct movie genres
-     * @return the list of genres
+     * @return the list of genres (compared case-insensitively), in order of first appearance
      */
     public ArrayList<String> getAllGenres() {
-        ArrayList<String> genres = new ArrayList<>();
-        for (Movie movie : movies.values()) {
-            String genre = movie.getGenre();
-            if (!genres.contains(genre)) {
-                genres.add(genre);
-            }
-        }
-        return genres;
+        return catalog.getIndex().getGenres();
     }
 
     /**
@@ -189,7 +617,7 @@ public class MovieManager {
      * @return true if exists, false otherwise
      */
     public boolean movieExists(String movieId) {
-        return movies.containsKey(movieId);
+        return catalog.movies.containsKey(movieId);
     }
 
     /**
@@ -197,6 +625,43 @@ public class MovieManager {
      * @return the movie count
      */
     public int getMovieCount() {
-        return movies.size();
+        return catalog.movies.size();
+    }
+
+    /**
+     * Gets the version of the current catalog (incremented by every load or reload that changes it)
+     * @return the catalog version
+     */
+    public long getCatalogVersion() {
+        return catalog.version;
+    }
+
+    /**
+     * One immutable version of the catalog
+     * A new version shares the Movie objects that did not change with the previous one.
+     * Its secondary indexes are loaded or built when it is published, or on first use
+     */
+    private static class Catalog {
+        private HashMap<String, Movie> movies;
+        private ArrayList<Movie> movieList;
+        private long version;
+        private CatalogIndex index;
+
+        private Catalog(HashMap<String, Movie> movies, ArrayList<Movie> movieList, long version) {
+            this.movies = movies;
+            this.movieList = movieList;
+            this.version = version;
+        }
+
+        private synchronized CatalogIndex getIndex() {
+            if (index == null) {
+                index = CatalogIndex.build(movieList);
+            }
+            return index;
+        }
+
+        private synchronized void setIndex(CatalogIndex index) {
+            this.index = index;
+        }
     }
 }
@@ -33,6 +33,6 @@ public class RatingBasedStrategy extends RecommendationStrategy {
 
     @Override
     public ArrayList<Movie> recommend(User user, MovieManager movieManager, int topN) {
-        return engine.getTopRatedMovies(topN, user);
+        return engine.getTopRatedMovies(topN, user, movieManager);
     }
 }
@@ -3,15 +3,22 @@ package service;
 import model.Movie;
 import model.User;
 import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.concurrent.atomic.AtomicLong;
 
 /**
  * RecommendationEngine class - Recommendation engine
- * Supports multiple recommendation strategies with runtime switching
+ * Supports multiple recommendation strategies with runtime switching.
+ * With a RecommendationStore set, recommendations are answered from the precomputed
+ * entries and only computed live when an entry is missing or stale
  */
 public class RecommendationEngine {
     private MovieManager movieManager;
     private ArrayList<RecommendationStrategy> strategies;
     private RecommendationStrategy currentStrategy;
+    private RecommendationStore store;
+    private AtomicLong storeHits;
+    private AtomicLong storeMisses;
 
     /**
      * Constructor
@@ -20,6 +27,8 @@ public class RecommendationEngine {
     public RecommendationEngine(MovieManager movieManager) {
         this.movieManager = movieManager;
         this.strategies = new ArrayList<RecommendationStrategy>();
+        this.storeHits = new AtomicLong();
+        this.storeMisses = new AtomicLong();
         initializeStrategies();
     }
 
@@ -94,13 +103,21 @@ public class RecommendationEngine {
 
     /**
      * Recommends movies using current strategy
+     * The strategy works on the catalog version current when the request starts, even if
+     * the catalog is reloaded meanwhile
      * @param user the user object
      * @param topN the number of recommended movies
      * @return the list of recommended movies
      */
     public ArrayList<Movie> getRecommendations(User user, int topN) {
+        RecommendationStrategy strategy = currentStrategy;
         int maxN = Math.min(topN, user.getMaxRecommendations());
-        return currentStrategy.recommend(user, movieManager, maxN);
+        MovieManager catalog = movieManager.pinVersion();
+        ArrayList<Movie> stored = getStoredRecommendations(user, maxN, strategies.indexOf(strategy), catalog);
+        if (stored != null) {
+            return stored;
+        }
+        return strategy.recommend(user, catalog, maxN);
     }
 
     /**
@@ -112,39 +129,115 @@ public class RecommendationEngine {
      */
     public ArrayList<Movie> getRecommendations(User user, int topN, int strategyIndex) {
         if (strategyIndex >= 0 && strategyIndex < strategies.size()) {
-            RecommendationStrategy strategy = strategies.get(strategyIndex);
             int maxN = Math.min(topN, user.getMaxRecommendations());
-            return strategy.recommend(user, movieManager, maxN);
+            MovieManager catalog = movieManager.pinVersion();
+            ArrayList<Movie> stored = getStoredRecommendations(user, maxN, strategyIndex, catalog);
+            if (stored != null) {
+                return stored;
+            }
+            return strategies.get(strategyIndex).recommend(user, catalog, maxN);
         }
         return getRecommendations(user, topN);
     }
 
+    /**
+     * Computes recommendations with a strategy, never using the precomputed store
+     * (used by RecommendationStoreBuilder)
+     * @param user the user object
+     * @param topN the number of recommendations
+     * @param strategyIndex the strategy index
+     * @return the list of recommended movies, or null if the index is out of range
+     */
+    public ArrayList<Movie> computeRecommendations(User user, int topN, int strategyIndex) {
+        if (strategyIndex < 0 || strategyIndex >= strategies.size()) {
+            return null;
+        }
+        return strategies.get(strategyIndex).recommend(user, movieManager.pinVersion(), topN);
+    }
+
+    /**
+     * Sets the store of precomputed recommendations
+     * @param store the store, or null to always compute live
+     */
+    public void setRecommendationStore(RecommendationStore store) {
+        this.store = store;
+    }
+
+    public RecommendationStore getRecommendationStore() {
+        return store;
+    }
+
+    /**
+     * Gets how many requests were answered from the precomputed store
+     * @return the hit count
+     */
+    public long getStoreHits() {
+        return storeHits.get();
+    }
+
+    /**
+     * Gets how many requests fell back to live computation while a store was set
+     * @return the miss count
+     */
+    public long getStoreMisses() {
+        return storeMisses.get();
+    }
+
+    /**
+     * Answers a request from the precomputed store
+     * The entry is not used if it is missing or stale, if a movie is no longer in the
+     * catalog, or if a movie was added to the watchlist since it was computed
+     * @return the movies, or null to compute live
+     */
+    private ArrayList<Movie> getStoredRecommendations(User user, int maxN, int strategyIndex, MovieManager catalog) {
+        RecommendationStore current = store;
+        if (current == null) {
+            return null;
+        }
+        ArrayList<String> movieIds = current.getMovieIds(user.getUsername(), strategyIndex, user.getHistory(), maxN);
+        if (movieIds == null) {
+            storeMisses.incrementAndGet();
+            return null;
+        }
+        ArrayList<Movie> movies = new ArrayList<Movie>(movieIds.size());
+        for (String movieId : movieIds) {
+            Movie movie = catalog.getMovieById(movieId);
+            if (movie == null || user.getWatchlist().contains(movieId)) {
+                storeMisses.incrementAndGet();
+                return null;
+            }
+            movies.add(movie);
+        }
+        storeHits.incrementAndGet();
+        return movies;
+    }
+
     /**
      * Gets top rated movies
      */
     public ArrayList<Movie> getTopRatedMovies(int count, User user) {
-        ArrayList<Movie> allMovies = movieManager.getAllMovies();
+        return getTopRatedMovies(count, user, movieManager);
+    }
+
+    /**
+     * Gets top rated movies from the given catalog (e.g. the version a strategy was given)
+     * Walks the catalog's rating index and stops once enough unseen movies are found
+     */
+    public ArrayList<Movie> getTopRatedMovies(int count, User user, MovieManager movieManager) {
+        ArrayList<Movie> ratedMovies = movieManager.getMoviesByRating();
 
-        ArrayList<String> excludeIds = new ArrayList<String>();
+        HashSet<String> excludeIds = new HashSet<String>();
         excludeIds.addAll(user.getHistory().getMovieIds());
         excludeIds.addAll(user.getWatchlist().getMovieIds());
 
-        ArrayList<Movie> filteredMovies = new ArrayList<Movie>();
-        for (int i = 0; i < allMovies.size(); i++) {
-            Movie movie = allMovies.get(i);
+        ArrayList<Movie> result = new ArrayList<Movie>();
+        for (int i = 0; i < ratedMovies.size() && result.size() < count; i++) {
+            Movie movie = ratedMovies.get(i);
             if (!excludeIds.contains(movie.getId())) {
-                filteredMovies.add(movie);
+                result.add(movie);
             }
         }
 
-        sortMoviesByRating(filteredMovies);
-
-        ArrayList<Movie> result = new ArrayList<Movie>();
-        int limit = Math.min(count, filteredMovies.size());
-        for (int i = 0; i < limit; i++) {
-            result.add(filteredMovies.get(i));
-        }
-
         return result;
     }
 
@@ -0,0 +1,151 @@
+package service;
+
+import model.History;
+import util.CSVScanner;
+import util.FileHandler;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * RecommendationStore class - Read access to recommendations precomputed by RecommendationStoreBuilder
+ * The slot file is memory-mapped and holds one fixed-size slot per user and strategy, so
+ * an entry is found by arithmetic on the dense user ID (the user's line in path.users)
+ * without touching the rest of the file. Movie IDs are codes into path.movies.
+ * Each slot records a stamp of the history it was computed from; an entry whose stamp
+ * does not match the user's current history is stale and is not served.
+ * Slot file layout: magic, version, user count, strategy count, movies per slot,
+ * movie count, build time (millis), then per user and strategy:
+ * history stamp (long), movie count (-1 if empty), the limit it was computed with,
+ * and the movie codes
+ */
+public class RecommendationStore {
+    static String USERS_EXTENSION = ".users";
+    static String MOVIES_EXTENSION = ".movies";
+    static int MAGIC = 0x4D524543;
+    static int VERSION = 1;
+    static int HEADER_SIZE = 32;
+    static int SLOT_HEADER_SIZE = 16;
+    static int EMPTY_SLOT = -1;
+
+    private ByteBuffer slots;
+    private HashMap<String, Integer> userIds;
+    private String[] movieIds;
+    private int strategyCount;
+    private int slotMovies;
+    private int slotBytes;
+    private long builtAt;
+
+    /**
+     * Constructor - maps a precomputed store and loads its dictionaries
+     * @param path the slot file path
+     * @throws IOException if a file is missing, corrupt or does not match the slot file
+     */
+    public RecommendationStore(String path) throws IOException {
+        slots = CSVScanner.map(path);
+        if (slots.limit() < HEADER_SIZE || slots.getInt(0) != MAGIC || slots.getInt(4) != VERSION) {
+            throw new IOException("Not a recommendation store: " + path);
+        }
+        int userCount = slots.getInt(8);
+        strategyCount = slots.getInt(12);
+        slotMovies = slots.getInt(16);
+        int movieCount = slots.getInt(20);
+        builtAt = slots.getLong(24);
+        slotBytes = SLOT_HEADER_SIZE + slotMovies * 4;
+        if (userCount < 0 || strategyCount < 0 || slotMovies < 0
+                || slots.limit() != HEADER_SIZE + (long) userCount * strategyCount * slotBytes) {
+            throw new IOException("Truncated recommendation store: " + path);
+        }
+
+        ArrayList<String> usernames = FileHandler.readCSV(path + USERS_EXTENSION);
+        ArrayList<String> movies = FileHandler.readCSV(path + MOVIES_EXTENSION);
+        if (usernames.size() != userCount || movies.size() != movieCount) {
+            throw new IOException("Recommendation store dictionaries do not match " + path);
+        }
+        userIds = new HashMap<>(userCount * 2);
+        for (int i = 0; i < usernames.size(); i++) {
+            userIds.put(usernames.get(i), i);
+        }
+        movieIds = movies.toArray(new String[0]);
+    }
+
+    /**
+     * Gets the stamp of a history: its event count and a hash of its latest event.
+     * Histories only grow, so any watch recorded since the stamp was taken changes it
+     * @param history the history
+     * @return the stamp (0 for an empty history)
+     */
+    public static long historyStamp(History history) {
+        int events = history.getEventCount();
+        if (events == 0) {
+            return 0;
+        }
+        int last = events - 1;
+        int latest = (history.getEventMovieId(last) + "@" + history.getEventDate(last)).hashCode();
+        return ((long) events << 32) | (latest & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Gets the dense ID of a user
+     * @param username the username
+     * @return the user ID, or -1 if the user was not in the precomputed set
+     */
+    public int getUserId(String username) {
+        Integer userId = userIds.get(username);
+        return userId == null ? -1 : userId;
+    }
+
+    /**
+     * Gets the precomputed recommendations of a user
+     * @param username the username
+     * @param strategyIndex the strategy index (as in RecommendationEngine)
+     * @param history the user's current history, to detect stale entries
+     * @param topN the number of recommendations wanted
+     * @return the movie IDs (at most topN), or null if the entry is missing, stale or was
+     *         computed with a smaller limit than topN
+     */
+    public ArrayList<String> getMovieIds(String username, int strategyIndex, History history, int topN) {
+        int userId = getUserId(username);
+        if (userId < 0 || strategyIndex < 0 || strategyIndex >= strategyCount) {
+            return null;
+        }
+        int slot = HEADER_SIZE + (userId * strategyCount + strategyIndex) * slotBytes;
+        int count = slots.getInt(slot + 8);
+        if (count == EMPTY_SLOT || slots.getLong(slot) != historyStamp(history)) {
+            return null;
+        }
+        // A full list may have been cut short by its limit; a shorter one holds every result
+        int limit = slots.getInt(slot + 12);
+        if (topN > count && count == limit) {
+            return null;
+        }
+        int size = Math.min(topN, count);
+        ArrayList<String> ids = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ids.add(movieIds[slots.getInt(slot + SLOT_HEADER_SIZE + i * 4)]);
+        }
+        return ids;
+    }
+
+    public int getUserCount() {
+        return userIds.size();
+    }
+
+    public int getStrategyCount() {
+        return strategyCount;
+    }
+
+    public int getSlotMovies() {
+        return slotMovies;
+    }
+
+    /**
+     * Gets when the store was built
+     * @return the build time in milliseconds since the epoch
+     */
+    public long getBuiltAt() {
+        return builtAt;
+    }
+}
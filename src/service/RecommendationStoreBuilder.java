@@ -0,0 +1,237 @@
+package service;
+
+import model.Movie;
+import model.User;
+import util.FileHandler;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * RecommendationStoreBuilder class - Offline job that precomputes recommendations
+ * Computes the top movies of every user for every strategy of the engine and writes
+ * them in the fixed-slot layout read by RecommendationStore. Users are processed in
+ * batches, each computed in parallel and then written in order, so only one batch of
+ * results is on the heap. Dense user IDs are the order of the given users.
+ * Every output file is replaced atomically
+ */
+public class RecommendationStoreBuilder {
+    private static int BATCH_USERS = 1024;
+
+    private RecommendationEngine engine;
+    private int slotMovies;
+    private int parallelism;
+    private int entries;
+
+    /**
+     * Constructor
+     * @param engine the engine whose strategies are precomputed
+     * @param slotMovies the most movies stored per user and strategy
+     * @param parallelism the number of computing threads
+     */
+    public RecommendationStoreBuilder(RecommendationEngine engine, int slotMovies, int parallelism) {
+        this.engine = engine;
+        this.slotMovies = slotMovies;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * Precomputes the recommendations of users and writes the store
+     * @param users the users (their order gives the dense user IDs)
+     * @param path the slot file path
+     * @return the number of users written
+     * @throws IOException if computing or writing fails
+     */
+    public int build(Collection<User> users, String path) throws IOException {
+        int strategyCount = engine.getAvailableStrategies().size();
+        HashMap<String, Integer> movieCodes = new HashMap<>();
+        ArrayList<String> movieIds = new ArrayList<>();
+        ArrayList<String> usernames = new ArrayList<>(users.size());
+        entries = 0;
+
+        File slotTemp = new File(path + ".tmp");
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(slotTemp),
+                FileHandler.BUFFER_SIZE));
+        try {
+            out.writeInt(RecommendationStore.MAGIC);
+            out.writeInt(RecommendationStore.VERSION);
+            out.writeInt(users.size());
+            out.writeInt(strategyCount);
+            out.writeInt(slotMovies);
+            // Patched once the movie dictionary is complete
+            out.writeInt(0);
+            out.writeLong(System.currentTimeMillis());
+
+            ArrayList<User> batch = new ArrayList<>(BATCH_USERS);
+            for (User user : users) {
+                batch.add(user);
+                if (batch.size() == BATCH_USERS) {
+                    writeBatch(out, computeBatch(batch, strategyCount, pool), movieCodes, movieIds, usernames);
+                    batch.clear();
+                }
+            }
+            if (!batch.isEmpty()) {
+                writeBatch(out, computeBatch(batch, strategyCount, pool), movieCodes, movieIds, usernames);
+            }
+            out.close();
+        } catch (IOException e) {
+            out.close();
+            slotTemp.delete();
+            throw e;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        RandomAccessFile file = new RandomAccessFile(slotTemp, "rw");
+        try {
+            file.seek(20);
+            file.writeInt(movieIds.size());
+        } finally {
+            file.close();
+        }
+        writeLines(path + RecommendationStore.USERS_EXTENSION, usernames);
+        writeLines(path + RecommendationStore.MOVIES_EXTENSION, movieIds);
+        replace(slotTemp, path);
+        return usernames.size();
+    }
+
+    /**
+     * Gets the number of non-empty slots written by the last build
+     * @return the entry count
+     */
+    public int getEntries() {
+        return entries;
+    }
+
+    /**
+     * Computes the recommendations of a batch, in parallel when a pool is given
+     * @return per user and strategy, the movies recommended
+     */
+    private Batch computeBatch(ArrayList<User> batch, int strategyCount, ForkJoinPool pool) throws IOException {
+        Batch results = new Batch(batch, strategyCount);
+        if (pool == null) {
+            results.compute(0, batch.size());
+            return results;
+        }
+        // More chunks than threads so uneven chunks still balance out
+        int chunks = pool.getParallelism() * 4;
+        ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+        for (int i = 0; i < chunks; i++) {
+            int from = (int) ((long) batch.size() * i / chunks);
+            int to = (int) ((long) batch.size() * (i + 1) / chunks);
+            tasks.add(pool.submit(() -> results.compute(from, to)));
+        }
+        try {
+            for (ForkJoinTask<?> task : tasks) {
+                task.get();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while precomputing recommendations");
+        } catch (ExecutionException e) {
+            throw new IOException("Error precomputing recommendations: " + e.getCause().getMessage());
+        }
+        return results;
+    }
+
+    private void writeBatch(DataOutputStream out, Batch batch, HashMap<String, Integer> movieCodes,
+                            ArrayList<String> movieIds, ArrayList<String> usernames) throws IOException {
+        for (int i = 0; i < batch.users.size(); i++) {
+            usernames.add(batch.users.get(i).getUsername());
+            for (int strategy = 0; strategy < batch.strategyCount; strategy++) {
+                ArrayList<Movie> movies = batch.movies.get(i).get(strategy);
+                out.writeLong(batch.stamps[i]);
+                if (movies == null) {
+                    out.writeInt(RecommendationStore.EMPTY_SLOT);
+                    out.writeInt(0);
+                } else {
+                    out.writeInt(Math.min(movies.size(), batch.limits[i]));
+                    out.writeInt(batch.limits[i]);
+                    entries++;
+                }
+                for (int j = 0; j < slotMovies; j++) {
+                    if (movies == null || j >= Math.min(movies.size(), batch.limits[i])) {
+                        out.writeInt(0);
+                        continue;
+                    }
+                    String movieId = movies.get(j).getId();
+                    Integer code = movieCodes.get(movieId);
+                    if (code == null) {
+                        code = movieIds.size();
+                        movieCodes.put(movieId, code);
+                        movieIds.add(movieId);
+                    }
+                    out.writeInt(code);
+                }
+            }
+        }
+    }
+
+    private static void writeLines(String path, ArrayList<String> lines) throws IOException {
+        File tempFile = new File(path + ".tmp");
+        try {
+            FileHandler.writeCSV(tempFile.getPath(), lines);
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        replace(tempFile, path);
+    }
+
+    private static void replace(File tempFile, String path) throws IOException {
+        Files.move(tempFile.toPath(), new File(path).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * The results of one batch of users
+     */
+    private class Batch {
+        ArrayList<User> users;
+        int strategyCount;
+        long[] stamps;
+        int[] limits;
+        ArrayList<ArrayList<ArrayList<Movie>>> movies;
+
+        Batch(ArrayList<User> users, int strategyCount) {
+            this.users = new ArrayList<>(users);
+            this.strategyCount = strategyCount;
+            this.stamps = new long[users.size()];
+            this.limits = new int[users.size()];
+            // One slot per user, filled by whichever thread computes that user
+            this.movies = new ArrayList<>(users.size());
+            for (int i = 0; i < users.size(); i++) {
+                movies.add(null);
+            }
+        }
+
+        void compute(int from, int to) {
+            for (int i = from; i < to; i++) {
+                User user = users.get(i);
+                // The stamp is taken first, so a watch recorded meanwhile makes the entry stale
+                stamps[i] = RecommendationStore.historyStamp(user.getHistory());
+                limits[i] = Math.min(slotMovies, user.getMaxRecommendations());
+                ArrayList<ArrayList<Movie>> byStrategy = new ArrayList<>(strategyCount);
+                for (int strategy = 0; strategy < strategyCount; strategy++) {
+                    byStrategy.add(engine.computeRecommendations(user, limits[i], strategy));
+                }
+                movies.set(i, byStrategy);
+            }
+        }
+    }
+}
@@ -0,0 +1,180 @@
+package service;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.channels.FileLock;
+import java.util.HashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * SharedStoreLock class - Exclusive lock shared by every process using one user store
+ * Wraps an OS file lock on a small lock file. FileChannel locks are held per JVM, so
+ * managers in the same JVM are serialized by an in-process lock first, and the lock is
+ * reentrant for the thread holding it. The lock file also stores the store generation,
+ * which is bumped whenever the user file is rewritten and the journal restarted
+ */
+public class SharedStoreLock {
+    private static HashMap<String, ReentrantLock> processLocks = new HashMap<>();
+
+    private String lockFilePath;
+    private ReentrantLock processLock;
+    private RandomAccessFile file;
+    private FileLock fileLock;
+    private int acquireCount;
+    private long waitNanos;
+
+    /**
+     * Constructor
+     * @param lockFilePath the lock file path (created on first use)
+     */
+    public SharedStoreLock(String lockFilePath) {
+        this.lockFilePath = lockFilePath;
+        this.processLock = getProcessLock(lockFilePath);
+    }
+
+    /**
+     * Gets the in-process lock of a lock file, one per canonical path
+     */
+    private static synchronized ReentrantLock getProcessLock(String lockFilePath) {
+        String key;
+        try {
+            key = new File(lockFilePath).getCanonicalPath();
+        } catch (IOException e) {
+            key = new File(lockFilePath).getAbsolutePath();
+        }
+        ReentrantLock lock = processLocks.get(key);
+        if (lock == null) {
+            lock = new ReentrantLock();
+            processLocks.put(key, lock);
+        }
+        return lock;
+    }
+
+    /**
+     * Acquires the lock, blocking until no other process or manager holds it
+     * @throws IOException if the lock file cannot be opened or locked
+     */
+    public void lock() throws IOException {
+        long start = System.nanoTime();
+        processLock.lock();
+        if (processLock.getHoldCount() > 1) {
+            return;
+        }
+        try {
+            file = new RandomAccessFile(lockFilePath, "rw");
+            fileLock = file.getChannel().lock();
+        } catch (IOException e) {
+            closeFile();
+            processLock.unlock();
+            throw e;
+        }
+        acquireCount++;
+        waitNanos += System.nanoTime() - start;
+    }
+
+    /**
+     * Releases the lock (the file lock is released when the outermost hold ends)
+     */
+    public void unlock() {
+        if (processLock.getHoldCount() == 1) {
+            closeFile();
+        }
+        processLock.unlock();
+    }
+
+    /**
+     * Checks if the current thread holds the lock
+     * @return true if held
+     */
+    public boolean isHeldByCurrentThread() {
+        return processLock.isHeldByCurrentThread();
+    }
+
+    /**
+     * Reads the store generation without taking the lock
+     * Only suitable for checking whether anything changed: a generation being written
+     * meanwhile may read as the old one or as garbage, which callers treat as a change
+     * @return the generation, 0 if none has been written
+     * @throws IOException if reading fails
+     */
+    public long peekGeneration() throws IOException {
+        File lockFile = new File(lockFilePath);
+        if (lockFile.length() < 8) {
+            return 0;
+        }
+        RandomAccessFile peek = new RandomAccessFile(lockFile, "r");
+        try {
+            return peek.readLong();
+        } finally {
+            peek.close();
+        }
+    }
+
+    /**
+     * Reads the store generation (the lock must be held)
+     * @return the generation, 0 if none has been written
+     * @throws IOException if reading fails
+     */
+    public long readGeneration() throws IOException {
+        checkHeld();
+        if (file.length() < 8) {
+            return 0;
+        }
+        file.seek(0);
+        return file.readLong();
+    }
+
+    /**
+     * Writes the store generation (the lock must be held)
+     * @param generation the new generation
+     * @throws IOException if writing fails
+     */
+    public void writeGeneration(long generation) throws IOException {
+        checkHeld();
+        file.seek(0);
+        file.writeLong(generation);
+        file.getChannel().force(false);
+    }
+
+    /**
+     * Gets the number of times the file lock was acquired
+     * @return the acquire count
+     */
+    public int getAcquireCount() {
+        return acquireCount;
+    }
+
+    /**
+     * Gets the total time spent waiting for the lock
+     * @return the wait time in milliseconds
+     */
+    public long getWaitMillis() {
+        return waitNanos / 1000000;
+    }
+
+    public String getLockFilePath() {
+        return lockFilePath;
+    }
+
+    private void checkHeld() throws IOException {
+        if (!processLock.isHeldByCurrentThread() || file == null) {
+            throw new IOException("Shared store lock is not held: " + lockFilePath);
+        }
+    }
+
+    private void closeFile() {
+        try {
+            if (fileLock != null) {
+                fileLock.release();
+            }
+            if (file != null) {
+                file.close();
+            }
+        } catch (IOException e) {
+            System.out.println("Error releasing lock " + lockFilePath + ": " + e.getMessage());
+        }
+        fileLock = null;
+        file = null;
+    }
+}
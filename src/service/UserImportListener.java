@@ -0,0 +1,14 @@
+package service;
+
+/**
+ * UserImportListener interface - Callback for the progress of a bulk user import
+ * Called from the importing thread after every batch
+ */
+public interface UserImportListener {
+
+    /**
+     * Reports the progress so far
+     * @param progress the counters of the running import
+     */
+    void importProgress(UserImportResult progress);
+}
@@ -0,0 +1,62 @@
+package service;
+
+/**
+ * UserImportResult class - Counters of a bulk user import (see UserManager.importUsers)
+ */
+public class UserImportResult {
+    long rowsRead;
+    long imported;
+    long duplicates;
+    long invalid;
+    long elapsedMillis;
+
+    /**
+     * Gets the number of user rows read from the input (header and blank lines excluded)
+     * @return the row count
+     */
+    public long getRowsRead() {
+        return rowsRead;
+    }
+
+    /**
+     * Gets the number of users added
+     * @return the user count
+     */
+    public long getImported() {
+        return imported;
+    }
+
+    /**
+     * Gets the number of rows skipped because the username already existed or appeared earlier in the input
+     * @return the row count
+     */
+    public long getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * Gets the number of rows skipped because of a missing field, a too short username or an invalid password
+     * @return the row count
+     */
+    public long getInvalid() {
+        return invalid;
+    }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    /**
+     * Gets the throughput of the import
+     * @return the rows read per second
+     */
+    public double getRowsPerSecond() {
+        return rowsRead * 1000.0 / Math.max(1, elapsedMillis);
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%d rows: %d imported, %d duplicates, %d invalid in %d ms (%.0f rows/s)",
+                rowsRead, imported, duplicates, invalid, elapsedMillis, getRowsPerSecond());
+    }
+}
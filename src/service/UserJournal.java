@@ -0,0 +1,321 @@
+package service;
+
+import util.FileHandler;
+import util.LineVisitor;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Collections;
+
+/**
+ * UserJournal class - Append-only journal of user mutations
+ * Each mutation is written as one CSV record so a change costs O(record) instead of
+ * rewriting the whole user file; records are replayed on load and folded into a snapshot.
+ * The active journal can be sealed into a numbered segment so a checkpoint can fold
+ * it while new records go to a fresh active journal.
+ * A watch record also carries the position of its event in the user's history, so
+ * replaying it onto a snapshot that already has the event does not add it twice
+ */
+public class UserJournal {
+    public static String OP_PUT = "PUT";
+    public static String OP_WATCHLIST_ADD = "WADD";
+    public static String OP_WATCHLIST_REMOVE = "WREMOVE";
+    public static String OP_WATCHED = "WATCHED";
+    public static String OP_PASSWORD = "PASSWORD";
+    public static String OP_TYPE = "TYPE";
+    public static String OP_DELETE = "DELETE";
+
+    private String journalFilePath;
+    private int recordCount;
+    private ArrayList<String> pending;
+
+    /**
+     * Constructor
+     * @param journalFilePath the journal file path
+     */
+    public UserJournal(String journalFilePath) {
+        this.journalFilePath = journalFilePath;
+        this.recordCount = 0;
+        this.pending = new ArrayList<>();
+    }
+
+    /**
+     * Builds a journal record
+     * @param op the operation code
+     * @param username the username the record applies to
+     * @param args the operation arguments
+     * @return the record line
+     */
+    public static String buildRecord(String op, String username, String... args) {
+        StringBuilder record = new StringBuilder();
+        record.append(op).append(",").append(username);
+        for (String arg : args) {
+            record.append(",").append(arg);
+        }
+        return record.toString();
+    }
+
+    /**
+     * Appends a record to the end of the journal
+     * @param record the record line
+     * @throws IOException if writing fails
+     */
+    public synchronized void append(String record) throws IOException {
+        ArrayList<String> records = new ArrayList<>();
+        records.add(record);
+        writeRecords(records);
+    }
+
+    /**
+     * Buffers a record in memory until the next writePending() call (group commit)
+     * @param record the record line
+     */
+    public synchronized void buffer(String record) {
+        pending.add(record);
+    }
+
+    /**
+     * Writes all buffered records with a single append
+     * Records stay buffered if the write fails
+     * @return the number of records written
+     * @throws IOException if writing fails
+     */
+    public synchronized int writePending() throws IOException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        writeRecords(pending);
+        int written = pending.size();
+        pending = new ArrayList<>();
+        return written;
+    }
+
+    /**
+     * Removes and returns all buffered records (e.g. because a snapshot already contains them)
+     * @return the buffered records
+     */
+    public synchronized ArrayList<String> takePending() {
+        ArrayList<String> taken = pending;
+        pending = new ArrayList<>();
+        return taken;
+    }
+
+    /**
+     * Puts records back in front of the buffer (e.g. after a failed snapshot)
+     * @param records the records to restore
+     */
+    public synchronized void restorePending(ArrayList<String> records) {
+        records.addAll(pending);
+        pending = records;
+    }
+
+    /**
+     * Gets the number of buffered records not yet written
+     * @return the pending record count
+     */
+    public synchronized int getPendingCount() {
+        return pending.size();
+    }
+
+    /**
+     * Appends records to the journal file in one write
+     */
+    private void writeRecords(ArrayList<String> records) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(journalFilePath, true));
+        try {
+            for (String record : records) {
+                writer.write(record);
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+        recordCount += records.size();
+    }
+
+    /**
+     * Seals the active journal into the next numbered segment; later records start a new active journal
+     * @return the number of the newest sealed segment (including earlier ones), 0 if there is none
+     * @throws IOException if the journal cannot be renamed
+     */
+    public synchronized int rotate() throws IOException {
+        ArrayList<Integer> segments = getSegmentNumbers();
+        int newest = segments.isEmpty() ? 0 : segments.get(segments.size() - 1);
+        File active = new File(journalFilePath);
+        if (active.length() > 0) {
+            newest++;
+            Files.move(active.toPath(), new File(getSegmentPath(newest)).toPath(), StandardCopyOption.ATOMIC_MOVE);
+        }
+        recordCount = 0;
+        return newest;
+    }
+
+    /**
+     * Deletes sealed segments up to a segment number (after a checkpoint has folded them)
+     * @param newest the number of the newest segment to delete
+     * @throws IOException if a segment cannot be deleted
+     */
+    public synchronized void deleteSegments(int newest) throws IOException {
+        for (int segment : getSegmentNumbers()) {
+            if (segment <= newest && !new File(getSegmentPath(segment)).delete()) {
+                throw new IOException("Cannot delete journal segment: " + getSegmentPath(segment));
+            }
+        }
+    }
+
+    /**
+     * Gets the numbers of the sealed segments on disk, oldest first
+     * @return the segment numbers
+     */
+    public synchronized ArrayList<Integer> getSegmentNumbers() {
+        ArrayList<Integer> segments = new ArrayList<>();
+        File journalFile = new File(journalFilePath).getAbsoluteFile();
+        String prefix = journalFile.getName() + ".";
+        String[] names = journalFile.getParentFile().list();
+        if (names == null) {
+            return segments;
+        }
+        for (String name : names) {
+            if (name.startsWith(prefix)) {
+                try {
+                    segments.add(Integer.parseInt(name.substring(prefix.length())));
+                } catch (NumberFormatException e) {
+                    // Not a segment (e.g. a temporary file)
+                }
+            }
+        }
+        Collections.sort(segments);
+        return segments;
+    }
+
+    /**
+     * Gets the path of a sealed segment
+     * @param segment the segment number
+     * @return the segment path
+     */
+    public String getSegmentPath(int segment) {
+        return journalFilePath + "." + String.format("%06d", segment);
+    }
+
+    /**
+     * Gets the size of the active journal
+     * @return the size in bytes
+     */
+    public long getSizeBytes() {
+        return new File(journalFilePath).length();
+    }
+
+    /**
+     * Reads all records currently in the journal
+     * Also resets the record count to the number of records found
+     * @return the list of records, empty if the journal does not exist
+     * @throws IOException if reading fails
+     */
+    public synchronized ArrayList<String> readRecords() throws IOException {
+        if (!FileHandler.fileExists(journalFilePath)) {
+            recordCount = 0;
+            return new ArrayList<>();
+        }
+        ArrayList<String> records = FileHandler.readCSV(journalFilePath);
+        recordCount = records.size();
+        return records;
+    }
+
+    /**
+     * Streams all records currently in the journal, sealed segments first
+     * Also resets the record count to the number of records found
+     * @param visitor the visitor receiving each record
+     * @return the number of records visited
+     * @throws IOException if reading fails
+     */
+    public synchronized int forEachRecord(LineVisitor visitor) throws IOException {
+        recordCount = 0;
+        ArrayList<String> paths = new ArrayList<>();
+        for (int segment : getSegmentNumbers()) {
+            paths.add(getSegmentPath(segment));
+        }
+        paths.add(journalFilePath);
+        for (String path : paths) {
+            if (!FileHandler.fileExists(path)) {
+                continue;
+            }
+            FileHandler.forEachLine(path, (lineNumber, record) -> {
+                recordCount++;
+                return visitor.visitLine(lineNumber, record);
+            });
+        }
+        return recordCount;
+    }
+
+    /**
+     * Streams the complete records appended to the active journal after a byte offset
+     * (used in shared mode to pick up only the records other processes wrote).
+     * The visited records are added to the record count
+     * @param offset the offset of the first unread byte
+     * @param visitor the visitor receiving each record
+     * @return the offset just past the last complete record
+     * @throws IOException if reading fails
+     */
+    public synchronized long forEachRecordFrom(long offset, LineVisitor visitor) throws IOException {
+        File file = new File(journalFilePath);
+        long length = file.length();
+        if (length <= offset) {
+            return length;
+        }
+        byte[] tail = new byte[(int) (length - offset)];
+        RandomAccessFile in = new RandomAccessFile(file, "r");
+        try {
+            in.seek(offset);
+            in.readFully(tail);
+        } finally {
+            in.close();
+        }
+
+        int lineStart = 0;
+        int lineNumber = 0;
+        for (int p = 0; p < tail.length; p++) {
+            if (tail[p] != '\n') {
+                continue;
+            }
+            int lineEnd = p > lineStart && tail[p - 1] == '\r' ? p - 1 : p;
+            String record = new String(tail, lineStart, lineEnd - lineStart);
+            lineStart = p + 1;
+            recordCount++;
+            if (!visitor.visitLine(lineNumber++, record)) {
+                break;
+            }
+        }
+        return offset + lineStart;
+    }
+
+    /**
+     * Discards all records, including sealed segments (called after they have been folded into a snapshot)
+     * @throws IOException if the journal cannot be deleted
+     */
+    public synchronized void truncate() throws IOException {
+        File file = new File(journalFilePath);
+        if (file.exists() && !file.delete()) {
+            throw new IOException("Cannot truncate journal: " + journalFilePath);
+        }
+        deleteSegments(Integer.MAX_VALUE);
+        recordCount = 0;
+    }
+
+    /**
+     * Gets the number of records written since the last snapshot
+     * @return the record count
+     */
+    public synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    public String getJournalFilePath() {
+        return journalFilePath;
+    }
+}
@@ -1,14 +1,31 @@
 package service;
 
 import model.User;
-import model.BasicUser;
-import model.PremiumUser;
 import util.FileHandler;
 import util.PasswordUtils;
 
+import java.io.BufferedOutputStream;
+import java.io.BufferedReader;
+import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.Future;
 
 /**
  * UserManager class - User manager
@@ -16,120 +33,1362 @@ import java.util.HashMap;
  * Supports user subclassing and password upgrades
  */
 public class UserManager {
+    private static int DEFAULT_COMPACTION_THRESHOLD = 1000;
+    private static int IMPORT_BATCH_ROWS = 8192;
+    private static String IMPORT_HEADER = "username";
+
     private HashMap<String, User> users;
+    private UserStore store;
     private String userFilePath;
+    private UserJournal journal;
+    private int compactionThreshold;
+    private GroupCommitter groupCommitter;
+    private int shardCount;
+    private ArrayList<HashSet<String>> shardMembers;
+    private boolean[] dirtyShards;
+    private UserOffsetIndex lazyIndex;
+    private Checkpointer checkpointer;
+    private long snapshotGeneration;
+    private long lastRecoveryMillis;
+    private SharedStoreLock sharedLock;
+    private long sharedGeneration;
+    private int sharedRecordCount;
+    private long journalOffset;
+    private HistorySegment historySegment;
+    private UserTiers tiers;
+    private HashMap<String, Long> savedOffsets;
+    private HashSet<String> changedDuringCheckpoint;
+    private ChangeFeed changeFeed;
+    private WatchEventStore watchEventStore;
+
+    /**
+     * Constructor - uses the CSV user store
+     * @param userFilePath the user CSV file path
+     */
+    public UserManager(String userFilePath) {
+        this(new CsvUserStore(userFilePath));
+    }
+
+    /**
+     * Constructor
+     * The journal, sharding, lazy loading and checkpointing only apply to the CSV store;
+     * other stores persist each change through UserStore.saveUser/deleteUser
+     * @param store the storage backend
+     */
+    public UserManager(UserStore store) {
+        this.store = store;
+        if (store instanceof CsvUserStore) {
+            this.userFilePath = ((CsvUserStore) store).getFilePath();
+        }
+        this.users = new HashMap<>();
+    }
+
+    /**
+     * Loads all user data from CSV file
+     * Compatible with old format (4 fields) and new format (5 fields)
+     * In sharded mode the shard files are loaded in parallel; if none exist yet the
+     * single user file is loaded and split into shards on the next save.
+     * In lazy mode only a username to offset index is built (compressed user files,
+     * which cannot be seeked into, are always loaded eagerly)
+     * @return true if loaded successfully, false otherwise
+     */
+    public synchronized boolean loadUsers() {
+        if (sharedLock != null) {
+            return loadShared();
+        }
+        long start = System.nanoTime();
+        try {
+            if (userFilePath == null) {
+                ArrayList<User> loaded = store.loadAll();
+                if (loaded == null) {
+                    System.out.println("No users stored in " + store.getDescription());
+                    return false;
+                }
+                for (User user : loaded) {
+                    cacheUser(user);
+                }
+            } else if (shardCount > 0 && anyShardExists()) {
+                loadShards();
+            } else if (lazyIndex != null && shardCount == 0 && !FileHandler.isCompressed(userFilePath)) {
+                if (tiers != null) {
+                    tiers.clear();
+                    savedOffsets.clear();
+                }
+                if (!FileHandler.fileExists(userFilePath)) {
+                    System.out.println("User file does not exist: " + userFilePath);
+                    return false;
+                }
+                if (!lazyIndex.build()) {
+                    System.out.println("User file is empty.");
+                    return false;
+                }
+            } else {
+                if (!FileHandler.fileExists(userFilePath)) {
+                    System.out.println("User file does not exist: " + userFilePath);
+                    return false;
+                }
+
+                ArrayList<User> loaded = CsvUserStore.readUsers(userFilePath);
+                if (loaded == null) {
+                    System.out.println("User file is empty.");
+                    return false;
+                }
+                for (User user : loaded) {
+                    if (shardCount > 0) {
+                        putUser(user);
+                    } else {
+                        cacheUser(user);
+                    }
+                }
+            }
+
+            if (journal != null) {
+                replayJournal();
+            }
+
+            lastRecoveryMillis = (System.nanoTime() - start) / 1000000;
+            System.out.println("Loaded " + getUserCount() + " users.");
+            return true;
+
+        } catch (IOException e) {
+            System.out.println("Error loading users: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads all shard files in parallel
+     * @throws IOException if any shard cannot be read
+     */
+    private void loadShards() throws IOException {
+        ExecutorService pool = Executors.newFixedThreadPool(
+                Math.min(shardCount, Runtime.getRuntime().availableProcessors()));
+        try {
+            ArrayList<Future<ArrayList<User>>> results = new ArrayList<>();
+            for (int i = 0; i < shardCount; i++) {
+                String shardPath = getShardFilePath(i);
+                results.add(pool.submit(() -> {
+                    if (!FileHandler.fileExists(shardPath)) {
+                        return new ArrayList<User>();
+                    }
+                    ArrayList<User> loaded = CsvUserStore.readUsers(shardPath);
+                    return loaded == null ? new ArrayList<User>() : loaded;
+                }));
+            }
+            for (int i = 0; i < shardCount; i++) {
+                for (User user : results.get(i).get()) {
+                    cacheUser(user);
+                    shardMembers.get(shardOf(user.getUsername())).add(user.getUsername());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while loading user shards");
+        } catch (ExecutionException e) {
+            throw new IOException("Error loading user shard: " + e.getCause().getMessage());
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    /**
+     * Enables sharded storage: users are hashed into shardCount files next to the
+     * user file (users-00.csv ...), and saves only rewrite shards holding changed users.
+     * Must be called before loadUsers()
+     * @param shardCount the number of shard files
+     */
+    public synchronized void enableSharding(int shardCount) {
+        if (userFilePath == null || sharedLock != null) {
+            return;
+        }
+        this.shardCount = Math.max(1, shardCount);
+        this.shardMembers = new ArrayList<>();
+        for (int i = 0; i < this.shardCount; i++) {
+            shardMembers.add(new HashSet<String>());
+        }
+        this.dirtyShards = new boolean[this.shardCount];
+    }
+
+    /**
+     * Gets the file path of a shard
+     * @param shard the shard index
+     * @return the shard file path
+     */
+    public String getShardFilePath(int shard) {
+        String base = userFilePath;
+        if (base.endsWith(".csv")) {
+            base = base.substring(0, base.length() - 4);
+        }
+        return base + String.format("-%02d.csv", shard);
+    }
+
+    /**
+     * Gets the shard a username is stored in
+     */
+    private int shardOf(String username) {
+        return (username.hashCode() & 0x7fffffff) % shardCount;
+    }
+
+    /**
+     * Checks if any shard file exists
+     */
+    private boolean anyShardExists() {
+        for (int i = 0; i < shardCount; i++) {
+            if (FileHandler.fileExists(getShardFilePath(i))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Enables lazy loading: loadUsers() only indexes the offset of every user, and a
+     * user's record is parsed on first access (getUser, login, ...) and then cached.
+     * Applies to the single-file layout; must be called before loadUsers()
+     */
+    public synchronized void enableLazyLoading() {
+        if (userFilePath == null || sharedLock != null) {
+            return;
+        }
+        this.lazyIndex = new UserOffsetIndex(userFilePath);
+    }
+
+    /**
+     * Enables hot/warm/cold tiering on top of lazy loading: at most maxHotUsers users are
+     * kept as objects (least recently used are demoted), demoted users are kept as their
+     * serialized CSV line up to maxWarmBytes, and beyond that only their offset in the user
+     * file is kept and they are read back on the next access.
+     * Must be called after enableLazyLoading() and before loadUsers()
+     * @param maxHotUsers the number of users kept as objects (at least 1)
+     * @param maxWarmBytes the heap budget of the serialized warm users in bytes
+     */
+    public synchronized void enableTiering(int maxHotUsers, long maxWarmBytes) {
+        if (lazyIndex == null || tiers != null) {
+            return;
+        }
+        tiers = new UserTiers(Math.max(1, maxHotUsers), maxWarmBytes);
+        savedOffsets = new HashMap<>();
+        LinkedHashMap<String, User> ordered = new LinkedHashMap<>(16, 0.75f, true);
+        ordered.putAll(users);
+        users = ordered;
+    }
+
+    /**
+     * Gets the tier budgets and hit/miss/eviction counters
+     * @return the tiers, or null if tiering is not enabled
+     */
+    public synchronized UserTiers getTiers() {
+        return tiers;
+    }
+
+    /**
+     * Enables off-heap histories: the watch history of every loaded or registered user
+     * is kept in a memory-mapped HistorySegment instead of heap collections.
+     * The segment file is scratch space recreated here; must be called before loadUsers()
+     * @param segmentPath the segment file path
+     */
+    public synchronized void enableMappedHistory(String segmentPath) {
+        if (historySegment != null) {
+            return;
+        }
+        try {
+            historySegment = new HistorySegment(segmentPath);
+        } catch (IOException e) {
+            System.out.println("Error creating history segment: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the segment holding the users' histories
+     * @return the segment, or null if off-heap histories are not enabled
+     */
+    public synchronized HistorySegment getHistorySegment() {
+        return historySegment;
+    }
+
+    /**
+     * Gets the number of users whose records have been parsed
+     * @return the hydrated user count
+     */
+    public synchronized int getHydratedUserCount() {
+        return users.size();
+    }
+
+    /**
+     * Finds a user, hydrating it from the user file if it has not been accessed yet
+     * @param username the username
+     * @return the User object, or null if not exists
+     */
+    private User findUser(String username) {
+        User user = users.get(username);
+        if (user != null || lazyIndex == null || !lazyIndex.contains(username)) {
+            if (user != null && tiers != null) {
+                tiers.recordHotHit();
+            }
+            return user;
+        }
+        Long offset = lazyIndex.getOffset(username);
+        user = readIndexedUser(username, true);
+        if (user != null) {
+            lazyIndex.remove(username);
+            cacheUser(user);
+            if (tiers != null) {
+                savedOffsets.put(username, offset);
+                enforceHotBudget(username);
+            }
+        }
+        return user;
+    }
+
+    /**
+     * Parses an indexed (warm or cold) user without caching it
+     * @param promote true if the user is about to become hot (takes it out of the warm tier and counts the access)
+     */
+    private User readIndexedUser(String username, boolean promote) {
+        try {
+            String warmLine = null;
+            if (tiers != null) {
+                warmLine = promote ? tiers.takeWarm(username) : tiers.peekWarm(username);
+            }
+            if (warmLine != null) {
+                if (promote) {
+                    tiers.recordWarmHit();
+                }
+                return CsvUserStore.parseUser(FileHandler.parseCSVLine(warmLine), 0, true);
+            }
+            if (tiers != null && promote) {
+                tiers.recordColdMiss();
+            }
+            String line = lazyIndex.readLine(username);
+            return CsvUserStore.parseUser(FileHandler.parseCSVLine(line), 0, lazyIndex.isNewFormat());
+        } catch (IOException e) {
+            System.out.println("Error loading user " + username + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Demotes the least recently used hot users to the warm tier until the hot budget is met
+     * Only users whose current state is in the user file can leave the hot tier; users
+     * changed since the last save or checkpoint stay until that state has been written
+     * @param requested the user being accessed, which stays hot (or null)
+     */
+    private void enforceHotBudget(String requested) {
+        if (users.size() <= tiers.getMaxHotUsers() || changedDuringCheckpoint != null) {
+            return;
+        }
+        Iterator<User> eldest = users.values().iterator();
+        while (users.size() > tiers.getMaxHotUsers() && eldest.hasNext()) {
+            User user = eldest.next();
+            if (user.getUsername().equals(requested) || !savedOffsets.containsKey(user.getUsername())) {
+                continue;
+            }
+            long offset = savedOffsets.remove(user.getUsername());
+            eldest.remove();
+            lazyIndex.put(user.getUsername(), offset);
+            tiers.putWarm(user.getUsername(), user.toCSV());
+        }
+    }
+
+    /**
+     * Makes a user object the caller still holds hot again if it was demoted in the meantime
+     */
+    private void adoptUser(User user) {
+        if (tiers == null || users.get(user.getUsername()) == user || !lazyIndex.contains(user.getUsername())) {
+            return;
+        }
+        lazyIndex.remove(user.getUsername());
+        tiers.remove(user.getUsername());
+        cacheUser(user);
+    }
+
+    /**
+     * Records that a user changed after its line was last written to the user file
+     */
+    private void invalidateSaved(String username) {
+        if (tiers == null) {
+            return;
+        }
+        savedOffsets.remove(username);
+        if (changedDuringCheckpoint != null) {
+            changedDuringCheckpoint.add(username);
+        }
+    }
+
+    /**
+     * Checks if a user exists without hydrating it
+     */
+    private boolean hasUser(String username) {
+        return users.containsKey(username) || (lazyIndex != null && lazyIndex.contains(username));
+    }
+
+    /**
+     * Hydrates every user that has not been accessed yet
+     */
+    private void hydrateAll() {
+        if (lazyIndex == null) {
+            return;
+        }
+        for (String username : new ArrayList<>(lazyIndex.usernames())) {
+            findUser(username);
+        }
+    }
+
+    /**
+     * Adds or replaces a user, marking its shard as changed
+     */
+    private void putUser(User user) {
+        cacheUser(user);
+        invalidateSaved(user.getUsername());
+        if (lazyIndex != null) {
+            lazyIndex.remove(user.getUsername());
+        }
+        if (tiers != null) {
+            tiers.remove(user.getUsername());
+        }
+        if (shardCount > 0) {
+            int shard = shardOf(user.getUsername());
+            shardMembers.get(shard).add(user.getUsername());
+            dirtyShards[shard] = true;
+        }
+    }
+
+    /**
+     * Puts a user into the in-memory map, moving its history into the history segment if enabled
+     */
+    private void cacheUser(User user) {
+        if (historySegment != null && !(user.getHistory() instanceof MappedHistory
+                && ((MappedHistory) user.getHistory()).getSegment() == historySegment)) {
+            user.setHistory(historySegment.copyOf(user.getHistory()));
+        }
+        users.put(user.getUsername(), user);
+    }
+
+    /**
+     * Removes a user, marking its shard as changed
+     */
+    private void removeUser(String username) {
+        users.remove(username);
+        invalidateSaved(username);
+        if (lazyIndex != null) {
+            lazyIndex.remove(username);
+        }
+        if (tiers != null) {
+            tiers.remove(username);
+        }
+        if (shardCount > 0) {
+            int shard = shardOf(username);
+            shardMembers.get(shard).remove(username);
+            dirtyShards[shard] = true;
+        }
+    }
+
+    /**
+     * Rewrites only the shards containing added, removed or dirty users
+     * @throws IOException if writing fails
+     */
+    private void saveDirtyShards() throws IOException {
+        for (User user : users.values()) {
+            if (user.isDirty()) {
+                dirtyShards[shardOf(user.getUsername())] = true;
+            }
+        }
+        for (int shard = 0; shard < shardCount; shard++) {
+            if (!dirtyShards[shard]) {
+                continue;
+            }
+            ArrayList<String> lines = new ArrayList<String>();
+            lines.add(CsvUserStore.USER_FILE_HEADER);
+            for (String username : shardMembers.get(shard)) {
+                lines.add(users.get(username).toCSV());
+            }
+            FileHandler.writeCSV(getShardFilePath(shard), lines);
+            for (String username : shardMembers.get(shard)) {
+                users.get(username).clearDirty();
+            }
+            dirtyShards[shard] = false;
+        }
+    }
+
+    /**
+     * Replays journal records on top of the loaded snapshot
+     * Records that cannot be parsed (e.g. a torn final write) are skipped
+     * @throws IOException if the journal cannot be read
+     */
+    private void replayJournal() throws IOException {
+        int replayed = journal.forEachRecord((lineNumber, record) -> {
+            if (record.trim().isEmpty()) {
+                return true;
+            }
+            String[] fields = FileHandler.parseCSVLine(record);
+            if (!applyRecord(fields)) {
+                System.out.println("Skipping invalid journal record: " + record);
+            } else if (sharedLock != null) {
+                stampVersion(fields[1].trim());
+            }
+            return true;
+        });
+        if (replayed > 0) {
+            System.out.println("Replayed " + replayed + " journal records.");
+        }
+    }
+
+    /**
+     * Applies a single journal record to the in-memory users
+     * @param fields the record fields (operation, username, arguments)
+     * @return true if the record was valid
+     */
+    private boolean applyRecord(String[] fields) {
+        if (fields.length < 2) {
+            return false;
+        }
+        String op = fields[0].trim();
+        String username = fields[1].trim();
+
+        if (UserJournal.OP_PUT.equals(op)) {
+            User user = CsvUserStore.parseUser(fields, 1, true);
+            if (user == null) {
+                return false;
+            }
+            putUser(user);
+            return true;
+        }
+        if (UserJournal.OP_DELETE.equals(op)) {
+            removeUser(username);
+            return true;
+        }
+
+        User user = findUser(username);
+        if (user == null) {
+            return false;
+        }
+        if (UserJournal.OP_WATCHLIST_ADD.equals(op) && fields.length >= 3) {
+            user.getWatchlist().addMovie(fields[2].trim());
+        } else if (UserJournal.OP_WATCHLIST_REMOVE.equals(op) && fields.length >= 3) {
+            user.getWatchlist().removeMovie(fields[2].trim());
+        } else if (UserJournal.OP_WATCHED.equals(op) && fields.length >= 4) {
+            // A watch adds an event rather than setting a value, so the record carries the
+            // position of its event and is skipped if the history already reaches past it
+            // (e.g. segments replayed onto a snapshot that already contains them)
+            int position = fields.length >= 5 ? parsePosition(fields[4]) : user.getHistory().getEventCount();
+            if (position < 0) {
+                return false;
+            }
+            if (position >= user.getHistory().getEventCount()) {
+                user.markAsWatched(fields[2].trim(), fields[3].trim());
+            }
+        } else if (UserJournal.OP_PASSWORD.equals(op) && fields.length >= 3) {
+            user.setPassword(fields[2].trim());
+        } else if (UserJournal.OP_TYPE.equals(op) && fields.length >= 3) {
+            putUser(convertUserType(user, fields[2].trim()));
+        } else {
+            return false;
+        }
+        if (shardCount > 0) {
+            // The change is only in the journal until the user's shard is rewritten
+            dirtyShards[shardOf(username)] = true;
+        }
+        invalidateSaved(username);
+        return true;
+    }
+
+    /**
+     * Parses the event position of a watch record
+     * @return the position, or -1 if it is not a number
+     */
+    private static int parsePosition(String field) {
+        try {
+            return Integer.parseInt(field.trim());
+        } catch (NumberFormatException e) {
+            return -1;
+        }
+    }
+
+    /**
+     * Persists a single mutation
+     * Appends a journal record when journaling is enabled (folding the journal into
+     * a snapshot once it grows past the compaction threshold), otherwise rewrites the user file.
+     * In group-commit mode the mutation is only marked dirty and written by the background flusher
+     * @param op the operation code
+     * @param username the username
+     * @param args the operation arguments
+     * @return true if persisted successfully, false otherwise
+     */
+    private boolean persist(String op, String username, String... args) {
+        invalidateSaved(username);
+        if (sharedLock != null) {
+            return persistShared(op, username, null, UserJournal.buildRecord(op, username, args));
+        }
+        if (groupCommitter != null) {
+            if (journal != null) {
+                journal.buffer(UserJournal.buildRecord(op, username, args));
+            }
+            if (changeFeed != null) {
+                // Published by the flusher once the mutation is durable
+                changeFeed.buffer(op, username, args);
+            }
+            groupCommitter.markDirty();
+            markMutation();
+            return true;
+        }
+        if (userFilePath == null) {
+            return recordChange(persistToStore(username), op, username, args);
+        }
+        if (journal == null) {
+            return recordChange(saveUsers(), op, username, args);
+        }
+        try {
+            journal.append(UserJournal.buildRecord(op, username, args));
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
+            return false;
+        }
+        markMutation();
+        recordChange(true, op, username, args);
+        if (checkpointer == null && journal.getRecordCount() >= compactionThreshold) {
+            return saveUsers();
+        }
+        return true;
+    }
+
+    /**
+     * Appends a persisted mutation to the change feed (if enabled)
+     * @param persisted whether the mutation was persisted
+     * @return persisted
+     */
+    private boolean recordChange(boolean persisted, String op, String username, String... args) {
+        if (persisted && changeFeed != null) {
+            try {
+                changeFeed.append(op, username, args);
+            } catch (IOException e) {
+                System.out.println("Error writing change feed: " + e.getMessage());
+            }
+        }
+        return persisted;
+    }
+
+    /**
+     * Publishes the changes buffered in group-commit mode once they are durable
+     */
+    private void publishPendingChanges() {
+        if (changeFeed == null) {
+            return;
+        }
+        try {
+            changeFeed.writePending();
+        } catch (IOException e) {
+            System.out.println("Error writing change feed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Writes one user's current state (or its removal) through a non-CSV store
+     * @param username the username
+     * @return true if persisted successfully, false otherwise
+     */
+    private boolean persistToStore(String username) {
+        try {
+            User user = users.get(username);
+            if (user == null) {
+                store.deleteUser(username);
+            } else {
+                store.saveUser(user);
+                user.clearDirty();
+            }
+            return true;
+        } catch (IOException e) {
+            System.out.println("Error saving user: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Tells the background checkpointer (if any) that a mutation was made
+     */
+    private void markMutation() {
+        if (checkpointer != null) {
+            checkpointer.markMutation();
+        }
+    }
+
+    /**
+     * Persists a user's full record
+     * The user's CSV line already starts with the username, so the rest of the line
+     * forms the arguments of the record
+     * @param user the user
+     * @return true if persisted successfully, false otherwise
+     */
+    private boolean persistUser(User user) {
+        if (sharedLock != null) {
+            return persistShared(UserJournal.OP_PUT, user.getUsername(), user,
+                    UserJournal.buildRecord(UserJournal.OP_PUT, user.toCSV()));
+        }
+        if (userFilePath == null && groupCommitter == null) {
+            return persistToStore(user.getUsername());
+        }
+        String fields = user.toCSV().substring(user.getUsername().length() + 1);
+        return persist(UserJournal.OP_PUT, user.getUsername(), fields);
+    }
+
+    /**
+     * Enables the append-only mutation journal (stored next to the user file)
+     * Must be called before loadUsers() so pending records are replayed
+     * @param compactionThreshold the number of records after which the journal is folded into a snapshot
+     */
+    public synchronized void enableJournal(int compactionThreshold) {
+        if (userFilePath == null) {
+            return;
+        }
+        this.journal = new UserJournal(userFilePath + ".journal");
+        this.compactionThreshold = Math.max(1, compactionThreshold);
+    }
+
+    /**
+     * Enables the mutation journal with the default compaction threshold
+     */
+    public void enableJournal() {
+        enableJournal(DEFAULT_COMPACTION_THRESHOLD);
+    }
+
+    /**
+     * Checks if the mutation journal is enabled
+     * @return true if enabled
+     */
+    public boolean isJournalEnabled() {
+        return journal != null;
+    }
+
+    /**
+     * Enables shared mode, for several processes using the same user file
+     * Every access takes a short exclusive file lock (the user file path plus ".lock"),
+     * applies only the journal records other processes appended since the last access, and
+     * writes a change as one journal record, so processes merge their changes instead of
+     * queueing behind full rewrites. Each user carries a version (User.getVersion()); a
+     * full-record update made from an outdated copy, or a change to a user another process
+     * replaced or deleted, is rejected. Enables the journal; sharding, lazy loading, group
+     * commit and background checkpointing are not used in shared mode.
+     * Must be called before loadUsers()
+     */
+    public synchronized void enableSharedMode() {
+        if (userFilePath == null || sharedLock != null) {
+            return;
+        }
+        if (shardCount > 0 || lazyIndex != null || groupCommitter != null || checkpointer != null) {
+            System.out.println("Shared mode needs a single user file without group commit or checkpointing.");
+            return;
+        }
+        if (journal == null) {
+            enableJournal();
+        }
+        sharedLock = new SharedStoreLock(userFilePath + ".lock");
+    }
+
+    /**
+     * Checks if shared mode is enabled
+     * @return true if enabled
+     */
+    public boolean isSharedMode() {
+        return sharedLock != null;
+    }
+
+    /**
+     * Gets the lock shared with the other processes (for its metrics)
+     * @return the lock, or null if shared mode is not enabled
+     */
+    public SharedStoreLock getSharedLock() {
+        return sharedLock;
+    }
+
+    /**
+     * Applies the changes other processes made since the last access (shared mode only;
+     * every public user operation already does this first)
+     * @return true if any user changed
+     */
+    public synchronized boolean refresh() {
+        if (sharedLock == null) {
+            return false;
+        }
+        try {
+            sharedLock.lock();
+            try {
+                return !catchUp().isEmpty();
+            } finally {
+                sharedLock.unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("Error refreshing users: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Loads the users in shared mode, holding the lock so no process changes the files meanwhile
+     * @return true if loaded successfully, false otherwise
+     */
+    private boolean loadShared() {
+        long start = System.nanoTime();
+        try {
+            sharedLock.lock();
+            try {
+                if (!FileHandler.fileExists(userFilePath)) {
+                    System.out.println("User file does not exist: " + userFilePath);
+                    return false;
+                }
+                if (!reloadShared(sharedLock.readGeneration())) {
+                    System.out.println("User file is empty.");
+                    return false;
+                }
+            } finally {
+                sharedLock.unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("Error loading users: " + e.getMessage());
+            return false;
+        }
+        lastRecoveryMillis = (System.nanoTime() - start) / 1000000;
+        System.out.println("Loaded " + getUserCount() + " users.");
+        return true;
+    }
+
+    /**
+     * Rebuilds all users from the user file and the whole journal (shared mode, lock held)
+     * User objects callers may still hold are updated in place rather than replaced, unless
+     * another process changed the user's type (then the new object takes its place, as when
+     * a type change record is applied)
+     * @param generation the store generation the files belong to
+     * @return true if the user file had a header
+     * @throws IOException if reading fails
+     */
+    private boolean reloadShared(long generation) throws IOException {
+        HashMap<String, User> previous = new HashMap<>(users);
+        users.clear();
+        sharedGeneration = generation;
+        sharedRecordCount = 0;
+        ArrayList<User> loaded = FileHandler.fileExists(userFilePath) ? CsvUserStore.readUsers(userFilePath) : null;
+        if (loaded != null) {
+            for (User user : loaded) {
+                user.setVersion(generation << 32);
+                cacheUser(user);
+            }
+        }
+        replayJournal();
+        journalOffset = journal.getSizeBytes();
+        for (Map.Entry<String, User> entry : users.entrySet()) {
+            User held = previous.get(entry.getKey());
+            if (held != null && held != entry.getValue() && held.getClass() == entry.getValue().getClass()) {
+                held.copyFrom(entry.getValue());
+                entry.setValue(held);
+            }
+        }
+        return loaded != null;
+    }
+
+    /**
+     * Applies the journal records appended since the last access (shared mode, lock held)
+     * If another process rewrote the user file in the meantime, everything is reloaded
+     * @return the usernames that changed (every user after a reload)
+     * @throws IOException if reading fails
+     */
+    private HashSet<String> catchUp() throws IOException {
+        HashSet<String> changed = new HashSet<>();
+        long generation = sharedLock.readGeneration();
+        if (generation != sharedGeneration || journal.getSizeBytes() < journalOffset) {
+            changed.addAll(users.keySet());
+            reloadShared(generation);
+            changed.addAll(users.keySet());
+            return changed;
+        }
+        journalOffset = journal.forEachRecordFrom(journalOffset, (lineNumber, record) -> {
+            if (record.trim().isEmpty()) {
+                return true;
+            }
+            String[] fields = FileHandler.parseCSVLine(record);
+            if (applyRecord(fields)) {
+                String username = fields[1].trim();
+                stampVersion(username);
+                changed.add(username);
+            } else {
+                System.out.println("Skipping invalid journal record: " + record);
+            }
+            return true;
+        });
+        return changed;
+    }
+
+    /**
+     * Gives a user the next version: the store generation in the high bits and the number
+     * of the journal record that changed it in the low bits, so every process computes the
+     * same versions and they only grow
+     */
+    private void stampVersion(String username) {
+        sharedRecordCount++;
+        User user = users.get(username);
+        if (user != null) {
+            user.setVersion((sharedGeneration << 32) | sharedRecordCount);
+        }
+    }
+
+    /**
+     * Persists a mutation in shared mode
+     * Under the lock, the records of other processes are applied first. A field change is
+     * then applied again on top so this process ends up in journal order (records set
+     * values, so applying one twice is harmless); it is rejected if the user is gone.
+     * A watch is only applied here, at the next position of the merged history, so every
+     * process records it at the same position.
+     * A full record is rejected if another process replaced or deleted the user, and is
+     * rebuilt from the merged user if it only received field changes
+     * @param op the operation code
+     * @param username the username
+     * @param localUser the user a full record was built from, null for field changes
+     * @param record the journal record
+     * @return true if persisted successfully, false on a conflict or error
+     */
+    private boolean persistShared(String op, String username, User localUser, String record) {
+        try {
+            sharedLock.lock();
+            try {
+                HashSet<String> changed = catchUp();
+                if (localUser != null) {
+                    if (changed.contains(username)) {
+                        User current = users.get(username);
+                        if (current != localUser) {
+                            System.out.println("User " + username + " was changed by another process.");
+                            return false;
+                        }
+                        record = UserJournal.buildRecord(UserJournal.OP_PUT, current.toCSV());
+                    }
+                } else {
+                    String[] fields = FileHandler.parseCSVLine(record);
+                    User current = users.get(username);
+                    if (UserJournal.OP_WATCHED.equals(op) && current != null) {
+                        // Positioned after the watches of other processes applied above
+                        fields[4] = String.valueOf(current.getHistory().getEventCount());
+                        record = UserJournal.buildRecord(op, username, fields[2], fields[3], fields[4]);
+                    }
+                    if (!applyRecord(fields)) {
+                        System.out.println("User " + username + " was deleted by another process.");
+                        return false;
+                    }
+                }
+                journal.append(record);
+                journalOffset = journal.getSizeBytes();
+                stampVersion(username);
+                if (journal.getRecordCount() >= compactionThreshold) {
+                    return saveShared();
+                }
+                return true;
+            } finally {
+                sharedLock.unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Saves the user file in shared mode: applies the records of other processes, writes
+     * the snapshot and starts a new store generation, which makes the other processes
+     * reload instead of reading a journal that no longer exists
+     * @return true if saved successfully, false otherwise
+     */
+    private boolean saveShared() {
+        try {
+            sharedLock.lock();
+            try {
+                catchUp();
+                saveUserFile();
+                long generation = sharedGeneration + 1;
+                // Published before the journal is removed, so a crash in between only causes a reload
+                sharedLock.writeGeneration(generation);
+                journal.truncate();
+                sharedGeneration = generation;
+                sharedRecordCount = 0;
+                journalOffset = 0;
+                snapshotGeneration++;
+                for (User user : users.values()) {
+                    user.setVersion(generation << 32);
+                }
+                return true;
+            } finally {
+                sharedLock.unlock();
+            }
+        } catch (IOException e) {
+            System.out.println("Error saving users: " + e.getMessage());
+            return false;
+        }
+    }
 
     /**
-     * Constructor
-     * @param userFilePath the user CSV file path
+     * Applies other processes' changes before a user operation (no-op outside shared mode)
      */
-    public UserManager(String userFilePath) {
-        this.userFilePath = userFilePath;
-        this.users = new HashMap<>();
+    private void syncShared() {
+        if (sharedLock != null) {
+            refresh();
+        }
     }
 
     /**
-     * Loads all user data from CSV file
-     * Compatible with old format (4 fields) and new format (5 fields)
-     * @return true if loaded successfully, false otherwise
+     * Like syncShared(), for read-only operations: the lock is only taken when the store
+     * generation or the journal size shows that another process changed something
      */
-    public boolean loadUsers() {
+    private void syncSharedForRead() {
+        if (sharedLock == null) {
+            return;
+        }
         try {
-            if (!FileHandler.fileExists(userFilePath)) {
-                System.out.println("User file does not exist: " + userFilePath);
-                return false;
+            if (sharedLock.peekGeneration() == sharedGeneration && journal.getSizeBytes() == journalOffset) {
+                return;
             }
+        } catch (IOException e) {
+            // Falls back to the locked refresh, which reports the error
+        }
+        refresh();
+    }
 
-            ArrayList<String> lines = FileHandler.readCSV(userFilePath);
-            
-            if (lines.isEmpty()) {
-                System.out.println("User file is empty.");
-                return false;
-            }
+    /**
+     * Enables group commit: mutations are marked dirty and a background flusher writes
+     * everything changed within the window (or after maxMutations changes) in one write
+     * @param windowMillis the group-commit window in milliseconds
+     * @param maxMutations the number of pending mutations that triggers an early flush
+     */
+    public synchronized void enableGroupCommit(long windowMillis, int maxMutations) {
+        if (groupCommitter != null || sharedLock != null) {
+            return;
+        }
+        groupCommitter = new GroupCommitter(this::flushPending, windowMillis, maxMutations);
+        groupCommitter.start();
+    }
+
+    /**
+     * Checks if group commit is enabled
+     * @return true if enabled
+     */
+    public boolean isGroupCommitEnabled() {
+        return groupCommitter != null;
+    }
+
+    /**
+     * Synchronously writes all pending mutations (no-op without group commit)
+     * @return true if all mutations are durable
+     */
+    public boolean flush() {
+        if (groupCommitter == null) {
+            return true;
+        }
+        return groupCommitter.flush();
+    }
+
+    /**
+     * Waits until all mutations made so far have been written by the background flusher
+     * @return true if all mutations are durable
+     */
+    public boolean awaitDurable() {
+        if (groupCommitter == null) {
+            return true;
+        }
+        return groupCommitter.awaitDurable();
+    }
+
+    /**
+     * Enables background checkpointing, which replaces the inline journal compaction
+     * Requires the journal; the checkpoint triggers on whichever limit is reached first
+     * @param maxLogBytes the active journal size that triggers a checkpoint
+     * @param maxRecords the number of journal records that triggers a checkpoint
+     * @param idleMillis the time without mutations after which a non-empty journal is checkpointed
+     */
+    public synchronized void enableCheckpointing(long maxLogBytes, int maxRecords, long idleMillis) {
+        if (journal == null || checkpointer != null || sharedLock != null) {
+            return;
+        }
+        checkpointer = new Checkpointer(this::checkpoint, journal, maxLogBytes, maxRecords, idleMillis);
+        checkpointer.start();
+    }
+
+    /**
+     * Gets the background checkpointer (for its metrics)
+     * @return the checkpointer, or null if checkpointing is not enabled
+     */
+    public Checkpointer getCheckpointer() {
+        return checkpointer;
+    }
 
-            String header = lines.get(0);
-            boolean isNewFormat = header.contains("usertype");
+    /**
+     * Gets how long the last loadUsers() took, including the journal replay
+     * @return the recovery time in milliseconds
+     */
+    public synchronized long getLastRecoveryMillis() {
+        return lastRecoveryMillis;
+    }
 
-            for (int i = 1; i < lines.size(); i++) {
-                String line = lines.get(i);
-                if (line.trim().isEmpty()) {
-                    continue;
+    /**
+     * Writes a checkpoint while mutations continue
+     * The journal is sealed and the user records are captured under the lock; the snapshot
+     * is then written to a temporary file without holding the lock, swapped in atomically,
+     * and the sealed journal segments are deleted. If saveUsers() replaced the user file in
+     * the meantime, that newer snapshot already covers everything and this one is discarded.
+     * A crash before the segments are deleted only replays them again, which is harmless
+     * because every journal record sets a value rather than changing it relatively
+     * (a watch record is skipped when the history already has that watch).
+     * Sharded, shared and compressed user files are checkpointed with saveUsers()
+     * @return true if the checkpoint succeeded
+     */
+    public boolean checkpoint() {
+        if (journal == null || shardCount > 0 || sharedLock != null || FileHandler.isCompressed(userFilePath)) {
+            return saveUsers();
+        }
+        int sealedSegment;
+        long generation;
+        ArrayList<String> lines = new ArrayList<>();
+        ArrayList<String> lineUsers = new ArrayList<>();
+        ArrayList<Map.Entry<String, Long>> rawEntries = new ArrayList<>();
+        boolean convertRaw = false;
+        RandomAccessFile oldFile = null;
+        synchronized (this) {
+            try {
+                journal.writePending();
+                sealedSegment = journal.rotate();
+                if (lazyIndex != null && lazyIndex.size() > 0) {
+                    // Opened under the lock so the offsets match the file we read
+                    oldFile = new RandomAccessFile(userFilePath, "r");
+                    rawEntries = lazyIndex.entriesInFileOrder();
+                    convertRaw = !lazyIndex.isNewFormat();
                 }
+            } catch (IOException e) {
+                System.out.println("Error starting checkpoint: " + e.getMessage());
+                return false;
+            }
+            for (User user : users.values()) {
+                lines.add(user.toCSV());
+                lineUsers.add(user.getUsername());
+            }
+            generation = snapshotGeneration;
+            if (tiers != null) {
+                // Until the swap, users stay hot and changes are tracked so stale lines are not trusted
+                changedDuringCheckpoint = new HashSet<>();
+            }
+        }
 
-                String[] fields = FileHandler.parseCSVLine(line);
-                User user = null;
-                
-                if (isNewFormat && fields.length >= 5) {
-                    String username = fields[0].trim();
-                    String password = fields[1].trim();
-                    String userType = fields[2].trim();
-                    String watchlistData = fields[3].trim();
-                    String historyData = fields[4].trim();
-                    
-                    user = createUserByType(username, password, userType);
-                    
-                    if (!watchlistData.isEmpty()) {
-                        user.getWatchlist().loadFromCSV(watchlistData);
-                    }
-                    if (!historyData.isEmpty()) {
-                        user.getHistory().loadFromCSV(historyData);
-                    }
-                    
-                } else if (fields.length >= 4) {
-                    String username = fields[0].trim();
-                    String password = fields[1].trim();
-                    String watchlistData = fields[2].trim();
-                    String historyData = fields[3].trim();
-                    
-                    user = new BasicUser(username, password);
-                    
-                    if (!watchlistData.isEmpty()) {
-                        user.getWatchlist().loadFromCSV(watchlistData);
-                    }
-                    if (!historyData.isEmpty()) {
-                        user.getHistory().loadFromCSV(historyData);
-                    }
+        File tempFile = new File(userFilePath + ".checkpoint");
+        HashMap<String, Long> newOffsets;
+        HashMap<String, Long> lineOffsets = new HashMap<>();
+        try {
+            newOffsets = writeUserFile(tempFile, lines, lineUsers, lineOffsets, oldFile, rawEntries, convertRaw);
+        } catch (IOException e) {
+            tempFile.delete();
+            System.out.println("Error writing checkpoint: " + e.getMessage());
+            synchronized (this) {
+                changedDuringCheckpoint = null;
+            }
+            return false;
+        }
+
+        synchronized (this) {
+            HashSet<String> changed = changedDuringCheckpoint;
+            changedDuringCheckpoint = null;
+            if (generation != snapshotGeneration) {
+                tempFile.delete();
+                return true;
+            }
+            try {
+                Files.move(tempFile.toPath(), new File(userFilePath).toPath(),
+                        StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+                snapshotGeneration++;
+                if (tiers != null) {
+                    savedOffsets = offsetsInCheckpoint(lineOffsets, newOffsets, changed);
                 }
-                
-                if (user != null) {
-                    users.put(user.getUsername(), user);
+                if (lazyIndex != null) {
+                    // Users hydrated or deleted since the capture are no longer indexed
+                    newOffsets.keySet().retainAll(lazyIndex.usernames());
+                    lazyIndex.reset(newOffsets);
                 }
+                journal.deleteSegments(sealedSegment);
+            } catch (IOException e) {
+                tempFile.delete();
+                System.out.println("Error finishing checkpoint: " + e.getMessage());
+                return false;
             }
+            if (tiers != null) {
+                enforceHotBudget(null);
+            }
+        }
+        return true;
+    }
 
-            System.out.println("Loaded " + users.size() + " users.");
-            return true;
+    /**
+     * Gets the offsets in a new checkpoint file of the hot users whose line there is current
+     * @param lineOffsets the offsets of the users serialized at the capture
+     * @param rawOffsets the offsets of the lines copied from the old file (users hydrated since are among them)
+     * @param changed the users changed since the capture
+     */
+    private HashMap<String, Long> offsetsInCheckpoint(HashMap<String, Long> lineOffsets,
+                                                      HashMap<String, Long> rawOffsets, HashSet<String> changed) {
+        HashMap<String, Long> offsets = new HashMap<>();
+        for (String username : users.keySet()) {
+            if (changed.contains(username)) {
+                continue;
+            }
+            Long offset = lineOffsets.containsKey(username) ? lineOffsets.get(username) : rawOffsets.get(username);
+            if (offset != null) {
+                offsets.put(username, offset);
+            }
+        }
+        return offsets;
+    }
 
+    /**
+     * Enables the change feed: every persisted mutation gets the next version and is
+     * kept on disk in a bounded window that changesSince() streams from.
+     * Not available in shared mode, where several processes write the user file
+     * @param feedPath the path prefix of the feed segments
+     * @param segmentRecords the number of changes per segment
+     * @param maxSegments the number of segments kept
+     */
+    public synchronized void enableChangeFeed(String feedPath, int segmentRecords, int maxSegments) {
+        if (changeFeed != null || sharedLock != null) {
+            return;
+        }
+        try {
+            changeFeed = new ChangeFeed(feedPath, segmentRecords, maxSegments);
         } catch (IOException e) {
-            System.out.println("Error loading users: " + e.getMessage());
+            System.out.println("Error opening change feed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Gets the version of the latest mutation
+     * @return the version, 0 if there has been none (or the change feed is not enabled)
+     */
+    public long getChangeVersion() {
+        ChangeFeed feed = getChangeFeed();
+        return feed == null ? 0 : feed.getVersion();
+    }
+
+    /**
+     * Streams the durable mutations made after a version, oldest first
+     * Does not hold the manager lock, so mutations continue while a reader catches up
+     * @param version the last version the reader has applied (0 for everything retained)
+     * @param visitor the visitor receiving each change
+     * @return the number of changes visited, or -1 if the feed no longer covers the version
+     *         (or is not enabled) and the reader must start from a copy of the user file
+     */
+    public long changesSince(long version, ChangeVisitor visitor) {
+        ChangeFeed feed = getChangeFeed();
+        if (feed == null) {
+            return -1;
+        }
+        try {
+            return feed.changesSince(version, visitor);
+        } catch (IOException e) {
+            System.out.println("Error reading change feed: " + e.getMessage());
+            return -1;
+        }
+    }
+
+    public synchronized ChangeFeed getChangeFeed() {
+        return changeFeed;
+    }
+
+    /**
+     * Sets the store that receives every watch event recorded through markAsWatched
+     * @param watchEventStore the event store, or null to stop recording events
+     */
+    public synchronized void setWatchEventStore(WatchEventStore watchEventStore) {
+        this.watchEventStore = watchEventStore;
+    }
+
+    public synchronized WatchEventStore getWatchEventStore() {
+        return watchEventStore;
+    }
+
+    /**
+     * Flushes pending mutations and stops background persistence
+     */
+    public void close() {
+        if (groupCommitter != null) {
+            groupCommitter.stop();
+        }
+        if (checkpointer != null) {
+            checkpointer.stop();
+        }
+        WatchEventStore events = getWatchEventStore();
+        if (events != null) {
+            try {
+                events.flush();
+            } catch (IOException e) {
+                System.out.println("Error writing watch events: " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * Writes everything marked dirty since the last flush (called by the group committer)
+     * @return true if written successfully
+     */
+    private boolean flushPending() {
+        if (journal == null) {
+            return saveUsers();
+        }
+        try {
+            journal.writePending();
+        } catch (IOException e) {
+            System.out.println("Error writing journal: " + e.getMessage());
             return false;
         }
+        publishPendingChanges();
+        if (checkpointer == null && journal.getRecordCount() >= compactionThreshold) {
+            return saveUsers();
+        }
+        return true;
     }
-    
+
     /**
-     * Creates user object by type
+     * Converts a user to the given type, keeping its watchlist and history
      */
-    private User createUserByType(String username, String password, String userType) {
-        if (User.TYPE_PREMIUM.equals(userType)) {
-            return new PremiumUser(username, password);
+    private User convertUserType(User user, String userType) {
+        if (userType.equals(user.getUserType())) {
+            return user;
         }
-        return new BasicUser(username, password);
+        User converted = User.createByType(user.getUsername(), user.getPassword(), userType);
+        converted.setWatchlist(user.getWatchlist());
+        converted.setHistory(user.getHistory());
+        return converted;
     }
 
     /**
      * Saves all user data to CSV file (using new format)
+     * In sharded mode only shards with changed users are rewritten.
+     * When journaling is enabled this is the snapshot step and clears the journal
      * @return true if saved successfully, false otherwise
      */
-    public boolean saveUsers() {
+    public synchronized boolean saveUsers() {
+        if (sharedLock != null) {
+            return saveShared();
+        }
         try {
-            ArrayList<String> lines = new ArrayList<String>();
-            
-            lines.add("username,password,usertype,watchlist,history");
-            
-            for (User user : users.values()) {
-                lines.add(user.toCSV());
+            ArrayList<String> folded = new ArrayList<String>();
+            if (journal != null) {
+                // Buffered records are already reflected in this snapshot
+                folded = journal.takePending();
             }
 
-            FileHandler.writeCSV(userFilePath, lines);
+            try {
+                if (shardCount > 0) {
+                    saveDirtyShards();
+                } else {
+                    saveUserFile();
+                }
+                snapshotGeneration++;
+                if (journal != null) {
+                    journal.truncate();
+                }
+            } catch (IOException e) {
+                if (journal != null) {
+                    journal.restorePending(folded);
+                }
+                throw e;
+            }
+            publishPendingChanges();
             return true;
 
         } catch (IOException e) {
@@ -138,6 +1397,114 @@ public class UserManager {
         }
     }
 
+    /**
+     * Writes every user through the store (for CSV, rewrites the single user file)
+     * @throws IOException if writing fails
+     */
+    private void saveUserFile() throws IOException {
+        if (lazyIndex != null && (lazyIndex.size() > 0 || (tiers != null && FileHandler.fileExists(userFilePath)))) {
+            saveLazyUserFile();
+            return;
+        }
+        if (tiers != null) {
+            savedOffsets.clear();
+        }
+        store.saveAll(users.values());
+        for (User user : users.values()) {
+            user.clearDirty();
+        }
+    }
+
+    /**
+     * Rewrites the user file in lazy mode: hydrated users are serialized, and the raw
+     * lines of users never accessed are copied from the old file without parsing them.
+     * The new file replaces the old one atomically and the offset index is rebuilt
+     * @throws IOException if writing fails
+     */
+    private void saveLazyUserFile() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        ArrayList<String> lineUsers = new ArrayList<>();
+        for (User user : users.values()) {
+            lines.add(user.toCSV());
+            lineUsers.add(user.getUsername());
+        }
+        File tempFile = new File(userFilePath + ".tmp");
+        RandomAccessFile oldFile = new RandomAccessFile(userFilePath, "r");
+        HashMap<String, Long> newOffsets;
+        HashMap<String, Long> lineOffsets = new HashMap<>();
+        try {
+            newOffsets = writeUserFile(tempFile, lines, lineUsers, lineOffsets, oldFile,
+                    lazyIndex.entriesInFileOrder(), !lazyIndex.isNewFormat());
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+
+        Files.move(tempFile.toPath(), new File(userFilePath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        lazyIndex.reset(newOffsets);
+        for (User user : users.values()) {
+            user.clearDirty();
+        }
+        if (tiers != null) {
+            savedOffsets = lineOffsets;
+            enforceHotBudget(null);
+        }
+    }
+
+    /**
+     * Writes a user file from serialized users followed by raw lines copied from the old file
+     * @param tempFile the file to write
+     * @param lines the serialized users
+     * @param lineUsers the usernames of the serialized users
+     * @param lineOffsets receives the offsets of the serialized users in the new file
+     * @param oldFile the old user file (closed by this method), or null if there are no raw lines
+     * @param rawEntries the usernames and offsets of the lines to copy, in file order
+     * @param convertRaw true if the raw lines are in the old format and must be converted
+     * @return the offsets of the copied lines in the new file
+     * @throws IOException if reading or writing fails
+     */
+    private HashMap<String, Long> writeUserFile(File tempFile, ArrayList<String> lines, ArrayList<String> lineUsers,
+                                                HashMap<String, Long> lineOffsets, RandomAccessFile oldFile,
+                                                ArrayList<Map.Entry<String, Long>> rawEntries,
+                                                boolean convertRaw) throws IOException {
+        HashMap<String, Long> newOffsets = new HashMap<>();
+        OutputStream out = new BufferedOutputStream(new FileOutputStream(tempFile));
+        try {
+            long position = writeLine(out, CsvUserStore.USER_FILE_HEADER);
+            for (int i = 0; i < lines.size(); i++) {
+                lineOffsets.put(lineUsers.get(i), position);
+                position += writeLine(out, lines.get(i));
+            }
+            for (Map.Entry<String, Long> entry : rawEntries) {
+                String line = UserOffsetIndex.readLineAt(oldFile, entry.getValue());
+                if (convertRaw) {
+                    // Old-format lines are converted so the new file has a single format
+                    User user = CsvUserStore.parseUser(FileHandler.parseCSVLine(line), 0, false);
+                    line = user.toCSV();
+                }
+                newOffsets.put(entry.getKey(), position);
+                position += writeLine(out, line);
+            }
+        } finally {
+            out.close();
+            if (oldFile != null) {
+                oldFile.close();
+            }
+        }
+        return newOffsets;
+    }
+
+    /**
+     * Writes one line as UTF-8
+     * @return the number of bytes written
+     */
+    private static long writeLine(OutputStream out, String line) throws IOException {
+        byte[] bytes = (line + "\n").getBytes(StandardCharsets.UTF_8);
+        out.write(bytes);
+        return bytes.length;
+    }
+
     /**
      * User login
      * Supports automatic password upgrade (plain text to hash)
@@ -145,8 +1512,9 @@ public class UserManager {
      * @param password the password
      * @return the User object if login successful, null otherwise
      */
-    public User login(String username, String password) {
-        User user = users.get(username);
+    public synchronized User login(String username, String password) {
+        syncShared();
+        User user = findUser(username);
         if (user == null) {
             return null;
         }
@@ -157,7 +1525,7 @@ public class UserManager {
             if (PasswordUtils.needsUpgrade(storedPassword)) {
                 String hashedPassword = PasswordUtils.hashPassword(password);
                 user.setPassword(hashedPassword);
-                saveUsers();
+                persist(UserJournal.OP_PASSWORD, username, hashedPassword);
                 System.out.println("Password has been upgraded to secure hash format.");
             }
             return user;
@@ -173,8 +1541,9 @@ public class UserManager {
      * @param userType the user type (basic or premium)
      * @return the new user if registration successful, null otherwise
      */
-    public User register(String username, String password, String userType) {
-        if (users.containsKey(username)) {
+    public synchronized User register(String username, String password, String userType) {
+        syncShared();
+        if (hasUser(username)) {
             return null;
         }
         
@@ -188,14 +1557,16 @@ public class UserManager {
 
         String hashedPassword = PasswordUtils.hashPassword(password);
         
-        User newUser = createUserByType(username, hashedPassword, userType);
-        users.put(username, newUser);
+        User newUser = User.createByType(username, hashedPassword, userType);
+        putUser(newUser);
 
-        if (saveUsers()) {
+        if (persistUser(newUser)) {
             return newUser;
         }
         
-        users.remove(username);
+        if (users.get(username) == newUser) {
+            removeUser(username);
+        }
         return null;
     }
     
@@ -205,6 +1576,183 @@ public class UserManager {
     public User register(String username, String password) {
         return register(username, password, User.TYPE_BASIC);
     }
+
+    /**
+     * Imports users from a file of "username,password[,type]" lines with a single save
+     * Unlike calling register() per user, nothing is written until the end: rows are
+     * validated and checked against existing and earlier usernames while the file is
+     * streamed, passwords are hashed in parallel batches, and the users are saved once.
+     * If that save fails the imported users are removed again. A first line starting
+     * with "username" is skipped as a header; compressed input is read on the fly.
+     * In shared mode the store lock is held from the duplicate check until the save, so
+     * other processes cannot add the same usernames or start a new generation meanwhile
+     * @param inputPath the input file path
+     * @param parallelism the number of hashing threads
+     * @param listener receives the progress after every batch (or null)
+     * @return the import counters, or null if the input could not be read or the users could not be saved
+     */
+    public synchronized UserImportResult importUsers(String inputPath, int parallelism, UserImportListener listener) {
+        if (sharedLock == null) {
+            return runImport(inputPath, parallelism, listener);
+        }
+        try {
+            sharedLock.lock();
+        } catch (IOException e) {
+            System.out.println("Error importing users: " + e.getMessage());
+            return null;
+        }
+        try {
+            return runImport(inputPath, parallelism, listener);
+        } finally {
+            sharedLock.unlock();
+        }
+    }
+
+    /**
+     * Imports users with one hashing thread per core and no progress reporting
+     * @param inputPath the input file path
+     * @return the import counters, or null if the import failed
+     */
+    public UserImportResult importUsers(String inputPath) {
+        return importUsers(inputPath, Runtime.getRuntime().availableProcessors(), null);
+    }
+
+    /**
+     * Streams, validates, hashes and saves the users of an import file (see importUsers)
+     */
+    private UserImportResult runImport(String inputPath, int parallelism, UserImportListener listener) {
+        syncShared();
+        long start = System.nanoTime();
+        UserImportResult result = new UserImportResult();
+        HashSet<String> seen = new HashSet<>();
+        ArrayList<User> imported = new ArrayList<>();
+        ArrayList<String[]> batch = new ArrayList<>();
+        ForkJoinPool pool = parallelism > 1 ? new ForkJoinPool(parallelism) : null;
+        try {
+            BufferedReader reader = FileHandler.openReader(inputPath);
+            try {
+                String line;
+                boolean firstLine = true;
+                while ((line = reader.readLine()) != null) {
+                    String[] fields = FileHandler.parseCSVLine(line);
+                    boolean header = firstLine && fields.length > 0 && fields[0].trim().equalsIgnoreCase(IMPORT_HEADER);
+                    firstLine = false;
+                    if (fields.length == 0 || header) {
+                        continue;
+                    }
+                    result.rowsRead++;
+                    String username = fields[0];
+                    if (fields.length < 2 || username.trim().isEmpty() || username.length() < 3
+                            || PasswordUtils.getPasswordError(fields[1]) != null) {
+                        result.invalid++;
+                        continue;
+                    }
+                    if (hasUser(username) || !seen.add(username)) {
+                        result.duplicates++;
+                        continue;
+                    }
+                    batch.add(fields);
+                    if (batch.size() >= IMPORT_BATCH_ROWS) {
+                        importBatch(batch, pool, imported);
+                        batch.clear();
+                        reportImport(result, imported, start, listener);
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+            importBatch(batch, pool, imported);
+        } catch (IOException e) {
+            System.out.println("Error importing users: " + e.getMessage());
+            rollBackImport(imported);
+            return null;
+        } finally {
+            if (pool != null) {
+                pool.shutdown();
+            }
+        }
+
+        if (!imported.isEmpty()) {
+            if (!saveUsers()) {
+                rollBackImport(imported);
+                return null;
+            }
+            if (changeFeed != null) {
+                for (User user : imported) {
+                    changeFeed.buffer(UserJournal.OP_PUT, user.toCSV());
+                }
+                publishPendingChanges();
+            }
+            if (tiers != null) {
+                enforceHotBudget(null);
+            }
+        }
+        reportImport(result, imported, start, listener);
+        return result;
+    }
+
+    /**
+     * Hashes the passwords of a batch of validated rows in parallel and adds the users
+     * @param batch the rows (username, password[, type])
+     * @param pool the hashing pool, or null to hash on the calling thread
+     * @param imported receives the added users
+     * @throws IOException if hashing was interrupted or failed
+     */
+    private void importBatch(ArrayList<String[]> batch, ForkJoinPool pool, ArrayList<User> imported)
+            throws IOException {
+        User[] created = new User[batch.size()];
+        if (pool == null) {
+            createImportedUsers(batch, created, 0, created.length);
+        } else {
+            // More chunks than threads so uneven chunks still balance out
+            int chunks = pool.getParallelism() * 4;
+            ArrayList<ForkJoinTask<?>> tasks = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                int from = (int) ((long) created.length * i / chunks);
+                int to = (int) ((long) created.length * (i + 1) / chunks);
+                tasks.add(pool.submit(() -> createImportedUsers(batch, created, from, to)));
+            }
+            try {
+                for (ForkJoinTask<?> task : tasks) {
+                    task.get();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IOException("Interrupted while importing users");
+            } catch (ExecutionException e) {
+                throw new IOException("Error hashing passwords: " + e.getCause().getMessage());
+            }
+        }
+        for (User user : created) {
+            putUser(user);
+            imported.add(user);
+        }
+    }
+
+    private static void createImportedUsers(ArrayList<String[]> batch, User[] created, int from, int to) {
+        for (int i = from; i < to; i++) {
+            String[] fields = batch.get(i);
+            String userType = fields.length > 2 ? fields[2].trim() : User.TYPE_BASIC;
+            created[i] = User.createByType(fields[0], PasswordUtils.hashPassword(fields[1]), userType);
+        }
+    }
+
+    private void rollBackImport(ArrayList<User> imported) {
+        for (User user : imported) {
+            if (users.get(user.getUsername()) == user) {
+                removeUser(user.getUsername());
+            }
+        }
+    }
+
+    private static void reportImport(UserImportResult result, ArrayList<User> imported, long start,
+                                     UserImportListener listener) {
+        result.imported = imported.size();
+        result.elapsedMillis = (System.nanoTime() - start) / 1000000;
+        if (listener != null) {
+            listener.importProgress(result);
+        }
+    }
     
     /**
      * Changes password
@@ -213,7 +1761,9 @@ public class UserManager {
      * @param newPassword the new password
      * @return true if changed successfully, false otherwise
      */
-    public boolean changePassword(User user, String oldPassword, String newPassword) {
+    public synchronized boolean changePassword(User user, String oldPassword, String newPassword) {
+        syncShared();
+        adoptUser(user);
         if (!PasswordUtils.verifyPassword(oldPassword, user.getPassword())) {
             return false;
         }
@@ -229,7 +1779,7 @@ public class UserManager {
         String hashedPassword = PasswordUtils.hashPassword(newPassword);
         user.setPassword(hashedPassword);
         
-        return saveUsers();
+        return persist(UserJournal.OP_PASSWORD, user.getUsername(), hashedPassword);
     }
     
     /**
@@ -237,17 +1787,16 @@ public class UserManager {
      * @param user the user object
      * @return the upgraded user object
      */
-    public User upgradeToPremiuim(User user) {
+    public synchronized User upgradeToPremiuim(User user) {
+        syncShared();
         if (User.TYPE_PREMIUM.equals(user.getUserType())) {
             return user;
         }
         
-        PremiumUser premiumUser = new PremiumUser(user.getUsername(), user.getPassword());
-        premiumUser.setWatchlist(user.getWatchlist());
-        premiumUser.setHistory(user.getHistory());
+        User premiumUser = convertUserType(user, User.TYPE_PREMIUM);
         
-        users.put(user.getUsername(), premiumUser);
-        saveUsers();
+        putUser(premiumUser);
+        persist(UserJournal.OP_TYPE, user.getUsername(), User.TYPE_PREMIUM);
         
         return premiumUser;
     }
@@ -257,8 +1806,9 @@ public class UserManager {
      * @param username the username
      * @return true if exists, false otherwise
      */
-    public boolean userExists(String username) {
-        return users.containsKey(username);
+    public synchronized boolean userExists(String username) {
+        syncSharedForRead();
+        return hasUser(username);
     }
 
     /**
@@ -266,29 +1816,109 @@ public class UserManager {
      * @param username the username
      * @return the User object, or null if not exists
      */
-    public User getUser(String username) {
-        return users.get(username);
+    public synchronized User getUser(String username) {
+        syncSharedForRead();
+        return findUser(username);
     }
 
     /**
      * Updates user data (saves to file)
+     * In shared mode an update made from an outdated copy of the user is rejected
      * @param user the user to update
      * @return true if updated successfully, false otherwise
      */
-    public boolean updateUser(User user) {
-        if (!users.containsKey(user.getUsername())) {
+    public synchronized boolean updateUser(User user) {
+        syncShared();
+        if (!hasUser(user.getUsername())) {
             return false;
         }
+        if (sharedLock != null) {
+            User current = findUser(user.getUsername());
+            if (current != user && current.getVersion() != user.getVersion()) {
+                System.out.println("User " + user.getUsername() + " was changed by another process.");
+                return false;
+            }
+        }
         
-        users.put(user.getUsername(), user);
-        return saveUsers();
+        putUser(user);
+        return persistUser(user);
+    }
+
+    /**
+     * Adds a movie to the user's watchlist and persists the change
+     * @param user the user
+     * @param movieId the movie ID
+     * @return true if added and persisted successfully
+     */
+    public synchronized boolean addToWatchlist(User user, String movieId) {
+        syncShared();
+        adoptUser(user);
+        if (!user.addToWatchlist(movieId)) {
+            return false;
+        }
+        return persist(UserJournal.OP_WATCHLIST_ADD, user.getUsername(), movieId);
+    }
+
+    /**
+     * Removes a movie from the user's watchlist and persists the change
+     * @param user the user
+     * @param movieId the movie ID
+     * @return true if removed and persisted successfully
+     */
+    public synchronized boolean removeFromWatchlist(User user, String movieId) {
+        syncShared();
+        adoptUser(user);
+        if (!user.removeFromWatchlist(movieId)) {
+            return false;
+        }
+        return persist(UserJournal.OP_WATCHLIST_REMOVE, user.getUsername(), movieId);
+    }
+
+    /**
+     * Marks a movie as watched by the user and persists the change
+     * Every watch is recorded, including rewatches on the same date. In shared mode the
+     * watch is added to the user under the store lock, after the other processes' changes
+     * @param user the user
+     * @param movieId the movie ID
+     * @param watchDate the watch date
+     * @return true if recorded and persisted successfully, false otherwise
+     */
+    public synchronized boolean markAsWatched(User user, String movieId, String watchDate) {
+        syncShared();
+        adoptUser(user);
+        String position = String.valueOf(user.getHistory().getEventCount());
+        if (sharedLock == null) {
+            user.markAsWatched(movieId, watchDate);
+        }
+        boolean persisted = persist(UserJournal.OP_WATCHED, user.getUsername(), movieId, watchDate, position);
+        if (persisted && watchEventStore != null) {
+            try {
+                watchEventStore.append(user.getUsername(), movieId, watchDate);
+            } catch (IOException e) {
+                System.out.println("Error recording watch event: " + e.getMessage());
+            }
+        }
+        return persisted;
     }
 
     /**
      * Gets all users
      * @return the list of users
      */
-    public ArrayList<User> getAllUsers() {
+    public synchronized ArrayList<User> getAllUsers() {
+        syncSharedForRead();
+        if (tiers != null) {
+            // Warm and cold users are read without promoting them, so the hot tier keeps its budget
+            ArrayList<User> all = new ArrayList<>(users.values());
+            for (Map.Entry<String, Long> entry : lazyIndex.entriesInFileOrder()) {
+                User user = readIndexedUser(entry.getKey(), false);
+                if (user != null) {
+                    all.add(user);
+                }
+            }
+            return all;
+        }
+        hydrateAll();
         return new ArrayList<>(users.values());
     }
 
@@ -297,21 +1927,23 @@ public class UserManager {
      * @param username the username
      * @return true if deleted successfully, false otherwise
      */
-    public boolean deleteUser(String username) {
-        if (!users.containsKey(username)) {
+    public synchronized boolean deleteUser(String username) {
+        syncShared();
+        if (!hasUser(username)) {
             return false;
         }
         
-        users.remove(username);
-        return saveUsers();
+        removeUser(username);
+        return persist(UserJournal.OP_DELETE, username);
     }
 
     /**
      * Gets the total number of users
      * @return the user count
      */
-    public int getUserCount() {
-        return users.size();
+    public synchronized int getUserCount() {
+        syncSharedForRead();
+        return users.size() + (lazyIndex != null ? lazyIndex.size() : 0);
     }
     
     /**
@@ -0,0 +1,161 @@
+package service;
+
+import util.CSVScanner;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * UserOffsetIndex class - Username to file offset index for lazy user loading
+ * Only the username of each line is read at startup; full records are read
+ * on demand with a seek to the indexed offset
+ */
+public class UserOffsetIndex {
+    private String filePath;
+    private HashMap<String, Long> offsets;
+    private boolean newFormat;
+
+    /**
+     * Constructor
+     * @param filePath the user CSV file path
+     */
+    public UserOffsetIndex(String filePath) {
+        this.filePath = filePath;
+        this.offsets = new HashMap<>();
+    }
+
+    /**
+     * Scans the user file and indexes the offset of every user line
+     * @return false if the file is empty
+     * @throws IOException if the file cannot be read
+     */
+    public boolean build() throws IOException {
+        offsets.clear();
+        ByteBuffer buffer = CSVScanner.map(filePath);
+        CSVScanner scanner = new CSVScanner(buffer);
+        if (!scanner.nextRow()) {
+            return false;
+        }
+        newFormat = scanner.getRowText().contains("usertype");
+        int minFields = newFormat ? 5 : 4;
+        while (scanner.nextRow()) {
+            if (scanner.getFieldCount() >= minFields) {
+                offsets.put(scanner.getString(0), (long) scanner.getRowStart());
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Reads the raw CSV line of an indexed user
+     * @param username the username
+     * @return the line, or null if the user is not indexed
+     * @throws IOException if the file cannot be read
+     */
+    public String readLine(String username) throws IOException {
+        Long offset = offsets.get(username);
+        if (offset == null) {
+            return null;
+        }
+        RandomAccessFile file = new RandomAccessFile(filePath, "r");
+        try {
+            return readLineAt(file, offset);
+        } finally {
+            file.close();
+        }
+    }
+
+    /**
+     * Reads the line starting at an offset
+     * @param file the open file
+     * @param offset the line offset
+     * @return the line without its terminator
+     * @throws IOException if reading fails
+     */
+    public static String readLineAt(RandomAccessFile file, long offset) throws IOException {
+        file.seek(offset);
+        ByteArrayOutputStream line = new ByteArrayOutputStream();
+        byte[] chunk = new byte[512];
+        int read;
+        outer:
+        while ((read = file.read(chunk)) > 0) {
+            for (int i = 0; i < read; i++) {
+                if (chunk[i] == '\n') {
+                    line.write(chunk, 0, i);
+                    break outer;
+                }
+            }
+            line.write(chunk, 0, read);
+        }
+        byte[] bytes = line.toByteArray();
+        int length = bytes.length;
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
+        }
+        return new String(bytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets the indexed users sorted by file offset (for sequential copying)
+     * @return the entries in file order
+     */
+    public ArrayList<Map.Entry<String, Long>> entriesInFileOrder() {
+        ArrayList<Map.Entry<String, Long>> entries = new ArrayList<>(offsets.entrySet());
+        entries.sort(Map.Entry.comparingByValue());
+        return entries;
+    }
+
+    /**
+     * Replaces the index content (after the file has been rewritten)
+     * @param newOffsets the new offsets
+     */
+    public void reset(HashMap<String, Long> newOffsets) {
+        this.offsets = newOffsets;
+        this.newFormat = true;
+    }
+
+    public boolean contains(String username) {
+        return offsets.containsKey(username);
+    }
+
+    /**
+     * Gets the offset of an indexed user
+     * @param username the username
+     * @return the offset, or null if the user is not indexed
+     */
+    public Long getOffset(String username) {
+        return offsets.get(username);
+    }
+
+    /**
+     * Indexes a user whose line in the current file is known (e.g. a user evicted from memory)
+     * @param username the username
+     * @param offset the line offset
+     */
+    public void put(String username, long offset) {
+        offsets.put(username, offset);
+    }
+
+    public void remove(String username) {
+        offsets.remove(username);
+    }
+
+    public int size() {
+        return offsets.size();
+    }
+
+    public Set<String> usernames() {
+        return offsets.keySet();
+    }
+
+    public boolean isNewFormat() {
+        return newFormat;
+    }
+}
@@ -0,0 +1,49 @@
+package service;
+
+import model.User;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+
+/**
+ * UserStore interface - Storage backend for user data
+ * UserManager keeps all users in memory and uses a store to load them at startup
+ * and to persist changes; implementations decide the on-disk (or in-memory) format
+ */
+public interface UserStore {
+
+    /**
+     * Loads every stored user
+     * @return the users, or null if the store holds no user data yet
+     * @throws IOException if reading fails
+     */
+    ArrayList<User> loadAll() throws IOException;
+
+    /**
+     * Replaces the stored data with the given users
+     * @param users all users
+     * @throws IOException if writing fails
+     */
+    void saveAll(Collection<User> users) throws IOException;
+
+    /**
+     * Stores one added or changed user
+     * @param user the user
+     * @throws IOException if writing fails
+     */
+    void saveUser(User user) throws IOException;
+
+    /**
+     * Removes one user from the store
+     * @param username the username
+     * @throws IOException if writing fails
+     */
+    void deleteUser(String username) throws IOException;
+
+    /**
+     * Gets a short description of the backend (for log messages)
+     * @return the description
+     */
+    String getDescription();
+}
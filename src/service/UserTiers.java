@@ -0,0 +1,155 @@
+package service;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * UserTiers class - Budgets and counters of the hot/warm/cold user tiers
+ * Hot users are full User objects in UserManager; warm users are kept here as the UTF-8
+ * bytes of their CSV line, least recently used first; cold users only have their offset
+ * in the user file. When the warm tier exceeds its byte budget the least recently used
+ * entries are dropped, which makes those users cold
+ */
+public class UserTiers {
+    private int maxHotUsers;
+    private long maxWarmBytes;
+    private LinkedHashMap<String, byte[]> warm;
+    private long warmBytes;
+    private long hotHits;
+    private long warmHits;
+    private long coldMisses;
+    private long demotions;
+    private long evictions;
+
+    /**
+     * Constructor
+     * @param maxHotUsers the number of User objects to keep before demoting the least recently used
+     * @param maxWarmBytes the heap budget of the warm tier in bytes
+     */
+    public UserTiers(int maxHotUsers, long maxWarmBytes) {
+        this.maxHotUsers = maxHotUsers;
+        this.maxWarmBytes = maxWarmBytes;
+        this.warm = new LinkedHashMap<>(16, 0.75f, true);
+    }
+
+    /**
+     * Keeps a demoted user in the warm tier, dropping least recently used entries over budget
+     * @param username the username
+     * @param csvLine the user's CSV line (new format)
+     */
+    void putWarm(String username, String csvLine) {
+        remove(username);
+        byte[] bytes = csvLine.getBytes(StandardCharsets.UTF_8);
+        warm.put(username, bytes);
+        warmBytes += bytes.length;
+        demotions++;
+        Iterator<Map.Entry<String, byte[]>> eldest = warm.entrySet().iterator();
+        while (warmBytes > maxWarmBytes && eldest.hasNext()) {
+            warmBytes -= eldest.next().getValue().length;
+            eldest.remove();
+            evictions++;
+        }
+    }
+
+    /**
+     * Removes a user from the warm tier
+     * @param username the username
+     * @return the user's CSV line, or null if the user is not warm
+     */
+    String takeWarm(String username) {
+        byte[] bytes = warm.remove(username);
+        if (bytes == null) {
+            return null;
+        }
+        warmBytes -= bytes.length;
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Gets a warm user's CSV line without removing it
+     * @return the line, or null if the user is not warm
+     */
+    String peekWarm(String username) {
+        byte[] bytes = warm.get(username);
+        return bytes == null ? null : new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    void remove(String username) {
+        takeWarm(username);
+    }
+
+    void clear() {
+        warm.clear();
+        warmBytes = 0;
+    }
+
+    void recordHotHit() {
+        hotHits++;
+    }
+
+    void recordWarmHit() {
+        warmHits++;
+    }
+
+    void recordColdMiss() {
+        coldMisses++;
+    }
+
+    public int getMaxHotUsers() {
+        return maxHotUsers;
+    }
+
+    public long getMaxWarmBytes() {
+        return maxWarmBytes;
+    }
+
+    public int getWarmCount() {
+        return warm.size();
+    }
+
+    public long getWarmBytes() {
+        return warmBytes;
+    }
+
+    /**
+     * Gets how often a requested user was already a full object
+     * @return the hot hit count
+     */
+    public long getHotHits() {
+        return hotHits;
+    }
+
+    /**
+     * Gets how often a requested user was rebuilt from the warm tier
+     * @return the warm hit count
+     */
+    public long getWarmHits() {
+        return warmHits;
+    }
+
+    /**
+     * Gets how often a requested user had to be read back from the user file
+     * @return the cold miss count
+     */
+    public long getColdMisses() {
+        return coldMisses;
+    }
+
+    /**
+     * Gets how many users were demoted from hot to warm
+     * @return the demotion count
+     */
+    public long getDemotions() {
+        return demotions;
+    }
+
+    /**
+     * Gets how many users were evicted from warm to cold
+     * @return the eviction count
+     */
+    public long getEvictions() {
+        return evictions;
+    }
+}
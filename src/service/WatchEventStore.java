@@ -0,0 +1,450 @@
+package service;
+
+import model.History;
+import model.User;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * WatchEventStore class - Append-only, day-partitioned columnar store of watch events
+ * Every event is (user, movie, day). Usernames and movie IDs are dictionary-encoded to
+ * ints (users.dict / movies.dict, one value per line, code = line number), and each day
+ * is a partition of two int column files (day-N.user, day-N.movie, N = epoch day); the
+ * day column itself is implied by the partition. Appends are buffered and written one
+ * block per column and partition; a scan only opens the partitions inside the date range
+ * and reads them through memory mappings. Dictionaries are written before the columns
+ * that use them, and columns torn by a crash are cut back to their common length on open
+ */
+public class WatchEventStore {
+    private static String USER_DICTIONARY = "users.dict";
+    private static String MOVIE_DICTIONARY = "movies.dict";
+    private static String PARTITION_PREFIX = "day-";
+    private static String USER_COLUMN = ".user";
+    private static String MOVIE_COLUMN = ".movie";
+    private static int FLUSH_ROWS = 65536;
+
+    private String directory;
+    private boolean opened;
+    private HashMap<String, Integer> userCodes;
+    private ArrayList<String> usernames;
+    private HashMap<String, Integer> movieCodes;
+    private ArrayList<String> movieIds;
+    private int flushedUsers;
+    private int flushedMovies;
+    private TreeMap<Integer, Long> partitionRows;
+    private TreeMap<Integer, PendingRows> pending;
+    private int pendingCount;
+    private long eventCount;
+
+    /**
+     * Constructor
+     * @param directory the directory holding the dictionaries and partitions (created on first write)
+     */
+    public WatchEventStore(String directory) {
+        this.directory = directory;
+        this.userCodes = new HashMap<>();
+        this.usernames = new ArrayList<>();
+        this.movieCodes = new HashMap<>();
+        this.movieIds = new ArrayList<>();
+        this.partitionRows = new TreeMap<>();
+        this.pending = new TreeMap<>();
+    }
+
+    /**
+     * Appends one watch event (written by the next flush)
+     * @param username the username
+     * @param movieId the movie ID
+     * @param epochDay the watch date as days since 1970-01-01
+     * @throws IOException if the store cannot be opened or a full buffer cannot be written
+     */
+    public synchronized void append(String username, String movieId, int epochDay) throws IOException {
+        ensureOpen();
+        PendingRows rows = pending.get(epochDay);
+        if (rows == null) {
+            rows = new PendingRows();
+            pending.put(epochDay, rows);
+        }
+        rows.add(encode(username, userCodes, usernames), encode(movieId, movieCodes, movieIds));
+        pendingCount++;
+        eventCount++;
+        if (pendingCount >= FLUSH_ROWS) {
+            flush();
+        }
+    }
+
+    /**
+     * Appends one watch event with a date in yyyy-MM-dd format
+     * @param username the username
+     * @param movieId the movie ID
+     * @param watchDate the watch date
+     * @return true if appended, false if the date is not valid
+     * @throws IOException if the store cannot be opened or a full buffer cannot be written
+     */
+    public boolean append(String username, String movieId, String watchDate) throws IOException {
+        int epochDay;
+        try {
+            epochDay = (int) LocalDate.parse(watchDate.trim()).toEpochDay();
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+        append(username, movieId, epochDay);
+        return true;
+    }
+
+    /**
+     * Appends the whole watch history of users (e.g. to fill a new store from the user file)
+     * Entries whose date cannot be parsed are skipped
+     * @param users the users
+     * @return the number of events appended
+     * @throws IOException if writing fails
+     */
+    public int appendHistories(Collection<User> users) throws IOException {
+        int appended = 0;
+        for (User user : users) {
+            History history = user.getHistory();
+            for (int i = 0; i < history.getEventCount(); i++) {
+                if (append(user.getUsername(), history.getEventMovieId(i), history.getEventDate(i))) {
+                    appended++;
+                }
+            }
+        }
+        flush();
+        return appended;
+    }
+
+    /**
+     * Writes all buffered events: new dictionary entries first, then one block per column and partition
+     * @throws IOException if writing fails
+     */
+    public synchronized void flush() throws IOException {
+        ensureOpen();
+        if (pendingCount == 0) {
+            return;
+        }
+        new File(directory).mkdirs();
+        flushedUsers = appendDictionary(USER_DICTIONARY, usernames, flushedUsers);
+        flushedMovies = appendDictionary(MOVIE_DICTIONARY, movieIds, flushedMovies);
+        for (Map.Entry<Integer, PendingRows> entry : pending.entrySet()) {
+            int day = entry.getKey();
+            PendingRows rows = entry.getValue();
+            appendColumn(getColumnPath(day, USER_COLUMN), rows.users, rows.size);
+            appendColumn(getColumnPath(day, MOVIE_COLUMN), rows.movies, rows.size);
+            Long existing = partitionRows.get(day);
+            partitionRows.put(day, (existing == null ? 0 : existing) + rows.size);
+        }
+        pending.clear();
+        pendingCount = 0;
+    }
+
+    /**
+     * Scans all events between two days (inclusive), partition by partition in day order
+     * Buffered events are flushed first. Only the rows present when the scan starts are
+     * visited, and appends are not blocked while the scan runs
+     * @param fromDay the first epoch day
+     * @param toDay the last epoch day
+     * @param visitor the visitor receiving each event
+     * @return the number of events visited
+     * @throws IOException if a partition cannot be read
+     */
+    public long scan(int fromDay, int toDay, WatchEventVisitor visitor) throws IOException {
+        TreeMap<Integer, Long> partitions;
+        synchronized (this) {
+            flush();
+            if (fromDay > toDay) {
+                return 0;
+            }
+            partitions = new TreeMap<>(partitionRows.subMap(fromDay, true, toDay, true));
+        }
+        long visited = 0;
+        for (Map.Entry<Integer, Long> entry : partitions.entrySet()) {
+            int day = entry.getKey();
+            int rows = (int) (long) entry.getValue();
+            ByteBuffer users = map(getColumnPath(day, USER_COLUMN), rows);
+            ByteBuffer movies = map(getColumnPath(day, MOVIE_COLUMN), rows);
+            for (int row = 0; row < rows; row++) {
+                visited++;
+                if (!visitor.visitEvent(users.getInt(row * 4), movies.getInt(row * 4), day)) {
+                    return visited;
+                }
+            }
+        }
+        return visited;
+    }
+
+    /**
+     * Scans all events between two dates (inclusive)
+     * @param from the first date
+     * @param to the last date
+     * @param visitor the visitor receiving each event
+     * @return the number of events visited
+     * @throws IOException if a partition cannot be read
+     */
+    public long scan(LocalDate from, LocalDate to, WatchEventVisitor visitor) throws IOException {
+        return scan((int) from.toEpochDay(), (int) to.toEpochDay(), visitor);
+    }
+
+    /**
+     * Counts how often each movie was watched between two dates (inclusive)
+     * @param from the first date
+     * @param to the last date
+     * @return the number of events per movie ID
+     * @throws IOException if a partition cannot be read
+     */
+    public HashMap<String, Integer> countByMovie(LocalDate from, LocalDate to) throws IOException {
+        int[][] counts = new int[1][0];
+        scan(from, to, (userCode, movieCode, epochDay) -> {
+            if (movieCode >= counts[0].length) {
+                counts[0] = Arrays.copyOf(counts[0], Math.max(movieCode + 1, counts[0].length * 2));
+            }
+            counts[0][movieCode]++;
+            return true;
+        });
+        HashMap<String, Integer> result = new HashMap<>();
+        for (int code = 0; code < counts[0].length; code++) {
+            if (counts[0][code] > 0) {
+                result.put(getMovieId(code), counts[0][code]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Gets the username of a dictionary code
+     * @param userCode the code
+     * @return the username
+     */
+    public synchronized String getUsername(int userCode) {
+        return usernames.get(userCode);
+    }
+
+    /**
+     * Gets the movie ID of a dictionary code
+     * @param movieCode the code
+     * @return the movie ID
+     */
+    public synchronized String getMovieId(int movieCode) {
+        return movieIds.get(movieCode);
+    }
+
+    /**
+     * Gets the days that have a partition (flushed events only)
+     * @return the epoch days in ascending order
+     * @throws IOException if the store cannot be opened
+     */
+    public synchronized ArrayList<Integer> getPartitionDays() throws IOException {
+        ensureOpen();
+        return new ArrayList<>(partitionRows.keySet());
+    }
+
+    /**
+     * Gets the total number of events, including buffered ones
+     * @return the event count
+     * @throws IOException if the store cannot be opened
+     */
+    public synchronized long getEventCount() throws IOException {
+        ensureOpen();
+        return eventCount;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    /**
+     * Loads the dictionaries and the partition sizes on first use, repairing torn writes
+     */
+    private void ensureOpen() throws IOException {
+        if (opened) {
+            return;
+        }
+        flushedUsers = readDictionary(USER_DICTIONARY, userCodes, usernames);
+        flushedMovies = readDictionary(MOVIE_DICTIONARY, movieCodes, movieIds);
+        String[] names = new File(directory).list();
+        if (names != null) {
+            for (String name : names) {
+                if (!name.startsWith(PARTITION_PREFIX) || !name.endsWith(USER_COLUMN)) {
+                    continue;
+                }
+                int day;
+                try {
+                    day = Integer.parseInt(name.substring(PARTITION_PREFIX.length(),
+                            name.length() - USER_COLUMN.length()));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                long rows = repairPartition(day);
+                if (rows > 0) {
+                    partitionRows.put(day, rows);
+                    eventCount += rows;
+                }
+            }
+        }
+        opened = true;
+    }
+
+    /**
+     * Cuts both columns of a partition back to the rows they both hold completely
+     * @return the number of rows
+     */
+    private long repairPartition(int day) throws IOException {
+        File users = new File(getColumnPath(day, USER_COLUMN));
+        File movies = new File(getColumnPath(day, MOVIE_COLUMN));
+        long rows = Math.min(users.length(), movies.length()) / 4;
+        for (File column : new File[] {users, movies}) {
+            if (column.exists() && column.length() != rows * 4) {
+                System.out.println("Repairing torn watch event column " + column.getPath());
+                RandomAccessFile file = new RandomAccessFile(column, "rw");
+                try {
+                    file.setLength(rows * 4);
+                } finally {
+                    file.close();
+                }
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Reads a dictionary file, ignoring a final line without terminator (a torn write)
+     * @return the number of entries
+     */
+    private int readDictionary(String name, HashMap<String, Integer> codes, ArrayList<String> values)
+            throws IOException {
+        File file = new File(directory, name);
+        if (!file.isFile()) {
+            return 0;
+        }
+        long complete = 0;
+        BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(file),
+                StandardCharsets.UTF_8));
+        try {
+            StringBuilder line = new StringBuilder();
+            long bytes = 0;
+            int c;
+            while ((c = reader.read()) >= 0) {
+                if (c == '\n') {
+                    String value = line.toString();
+                    bytes += value.getBytes(StandardCharsets.UTF_8).length + 1;
+                    codes.put(value, values.size());
+                    values.add(value);
+                    complete = bytes;
+                    line.setLength(0);
+                } else {
+                    line.append((char) c);
+                }
+            }
+        } finally {
+            reader.close();
+        }
+        if (complete != file.length()) {
+            RandomAccessFile torn = new RandomAccessFile(file, "rw");
+            try {
+                torn.setLength(complete);
+            } finally {
+                torn.close();
+            }
+        }
+        return values.size();
+    }
+
+    /**
+     * Appends the dictionary entries added since the last flush
+     * @return the number of entries now on disk
+     */
+    private int appendDictionary(String name, ArrayList<String> values, int flushed) throws IOException {
+        if (flushed == values.size()) {
+            return flushed;
+        }
+        BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(
+                new FileOutputStream(new File(directory, name), true), StandardCharsets.UTF_8));
+        try {
+            for (int i = flushed; i < values.size(); i++) {
+                writer.write(values.get(i));
+                writer.write('\n');
+            }
+        } finally {
+            writer.close();
+        }
+        return values.size();
+    }
+
+    private static void appendColumn(String path, int[] values, int size) throws IOException {
+        ByteBuffer bytes = ByteBuffer.allocate(size * 4);
+        for (int i = 0; i < size; i++) {
+            bytes.putInt(values[i]);
+        }
+        FileOutputStream out = new FileOutputStream(path, true);
+        try {
+            out.write(bytes.array());
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Maps the first rows of a column
+     */
+    private static ByteBuffer map(String path, int rows) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(path, "r");
+        try {
+            return file.getChannel().map(FileChannel.MapMode.READ_ONLY, 0, rows * 4L);
+        } finally {
+            file.close();
+        }
+    }
+
+    private String getColumnPath(int day, String column) {
+        return new File(directory, PARTITION_PREFIX + day + column).getPath();
+    }
+
+    private static int encode(String value, HashMap<String, Integer> codes, ArrayList<String> values) {
+        if (value.indexOf('\n') >= 0 || value.indexOf('\r') >= 0) {
+            throw new IllegalArgumentException("Line breaks are not allowed in watch event values");
+        }
+        Integer code = codes.get(value);
+        if (code == null) {
+            code = values.size();
+            codes.put(value, code);
+            values.add(value);
+        }
+        return code;
+    }
+
+    /**
+     * Events of one day waiting for the next flush
+     */
+    private static class PendingRows {
+        private int[] users = new int[16];
+        private int[] movies = new int[16];
+        private int size;
+
+        private void add(int userCode, int movieCode) {
+            if (size == users.length) {
+                users = Arrays.copyOf(users, size * 2);
+                movies = Arrays.copyOf(movies, size * 2);
+            }
+            users[size] = userCode;
+            movies[size] = movieCode;
+            size++;
+        }
+    }
+}
@@ -0,0 +1,18 @@
+package service;
+
+/**
+ * WatchEventVisitor interface - Callback for scanning watch events
+ * Receives dictionary codes and the epoch day instead of objects so scans over very
+ * many events do not allocate per event (see WatchEventStore.getUsername/getMovieId)
+ */
+public interface WatchEventVisitor {
+
+    /**
+     * Visits one watch event
+     * @param userCode the dictionary code of the username
+     * @param movieCode the dictionary code of the movie ID
+     * @param epochDay the watch date as days since 1970-01-01
+     * @return true to continue the scan, false to stop early
+     */
+    boolean visitEvent(int userCode, int movieCode, int epochDay);
+}
@@ -289,12 +289,11 @@ public class CommandLineInterface {
             return;
         }
 
-        if (currentUser.addToWatchlist(movieId)) {
+        if (userManager.addToWatchlist(currentUser, movieId)) {
             Movie movie = movieManager.getMovieById(movieId);
             System.out.println("Added to watchlist: " + movie.getTitle());
             System.out.println("Watchlist: " + currentUser.getWatchlist().size() + 
                              "/" + currentUser.getMaxWatchlistSize());
-            userManager.updateUser(currentUser);
         } else {
             System.out.println("Movie is already in your watchlist or watchlist is full.");
         }
@@ -314,14 +313,13 @@ public class CommandLineInterface {
         System.out.print("Enter movie ID: ");
         String movieId = scanner.nextLine().trim().toUpperCase();
 
-        if (currentUser.removeFromWatchlist(movieId)) {
+        if (userManager.removeFromWatchlist(currentUser, movieId)) {
             Movie movie = movieManager.getMovieById(movieId);
             if (movie != null) {
                 System.out.println("Removed from watchlist: " + movie.getTitle());
             } else {
                 System.out.println("Movie removed from watchlist.");
             }
-            userManager.updateUser(currentUser);
         } else {
             System.out.println("Movie not found in your watchlist.");
         }
@@ -364,22 +362,23 @@ public class CommandLineInterface {
             return;
         }
 
-        if (currentUser.getHistory().contains(movieId)) {
-            System.out.println("You have already marked this movie as watched.");
-            return;
-        }
-
         LocalDate today = LocalDate.now();
         DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyy-MM-dd");
         String dateStr = today.format(formatter);
 
-        currentUser.markAsWatched(movieId, dateStr);
+        if (!userManager.markAsWatched(currentUser, movieId, dateStr)) {
+            System.out.println("Failed to mark movie as watched. Please try again.");
+            return;
+        }
         
         Movie movie = movieManager.getMovieById(movieId);
-        System.out.println("Marked as watched: " + movie.getTitle());
+        int watchCount = currentUser.getHistory().watchCount(movieId);
+        if (watchCount > 1) {
+            System.out.println("Marked as rewatched: " + movie.getTitle() + " (watched " + watchCount + " times)");
+        } else {
+            System.out.println("Marked as watched: " + movie.getTitle());
+        }
         System.out.println("Watch date: " + dateStr);
-        
-        userManager.updateUser(currentUser);
     }
 
     /**
@@ -400,9 +399,14 @@ public class CommandLineInterface {
         
         for (String movieId : movieIds) {
             Movie movie = movieManager.getMovieById(movieId);
-            String watchDate = currentUser.getHistory().getWatchDate(movieId);
+            String watchDate = currentUser.getHistory().lastWatched(movieId);
+            int watchCount = currentUser.getHistory().watchCount(movieId);
             if (movie != null) {
-                System.out.println(movie + " | Watched on: " + watchDate);
+                if (watchCount > 1) {
+                    System.out.println(movie + " | Last watched on: " + watchDate + " | Watched " + watchCount + " times");
+                } else {
+                    System.out.println(movie + " | Watched on: " + watchDate);
+                }
             }
         }
     }
@@ -0,0 +1,429 @@
+package util;
+
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * CSVScanner class - Memory-mapped, zero-copy CSV scanner
+ * Walks rows and fields directly in a mapped byte buffer, parses numbers without
+ * creating intermediate strings, and only materializes the string fields the caller asks for.
+ * Supports RFC-4180 quoted fields (commas, doubled quotes and line breaks inside quotes)
+ */
+public class CSVScanner {
+    private static double[] POWERS_OF_TEN = {
+        1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10,
+        1e11, 1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+    };
+
+    private ByteBuffer buffer;
+    private int position;
+    private int end;
+    private int rowStart;
+    private int rowEnd;
+    private int lineNumber;
+    private int fieldCount;
+    private int[] fieldStart;
+    private int[] fieldEnd;
+    private boolean[] fieldQuoted;
+
+    /**
+     * Constructor - scans a region of a buffer
+     * @param buffer the buffer holding UTF-8 CSV data
+     * @param start the offset of the first byte to scan
+     * @param end the offset after the last byte to scan
+     */
+    public CSVScanner(ByteBuffer buffer, int start, int end) {
+        this.buffer = buffer;
+        this.position = start;
+        this.end = end;
+        this.lineNumber = -1;
+        this.fieldStart = new int[8];
+        this.fieldEnd = new int[8];
+        this.fieldQuoted = new boolean[8];
+    }
+
+    /**
+     * Constructor - scans a whole buffer
+     * @param buffer the buffer holding UTF-8 CSV data
+     */
+    public CSVScanner(ByteBuffer buffer) {
+        this(buffer, 0, buffer.limit());
+    }
+
+    /**
+     * Maps a file read-only and creates a scanner over it
+     * @param filePath the file path
+     * @return the scanner
+     * @throws IOException if the file cannot be mapped
+     */
+    public static CSVScanner open(String filePath) throws IOException {
+        return new CSVScanner(map(filePath));
+    }
+
+    /**
+     * Maps a whole file read-only
+     * @param filePath the file path
+     * @return the mapped buffer
+     * @throws IOException if the file cannot be mapped or is larger than 2 GB
+     */
+    public static ByteBuffer map(String filePath) throws IOException {
+        RandomAccessFile file = new RandomAccessFile(filePath, "r");
+        try {
+            FileChannel channel = file.getChannel();
+            long size = channel.size();
+            if (size > Integer.MAX_VALUE) {
+                throw new IOException("File too large to map: " + filePath);
+            }
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+        } finally {
+            // The mapping stays valid after the channel is closed
+            file.close();
+        }
+    }
+
+    /**
+     * Splits a region into roughly equal chunks that start and end on row boundaries,
+     * so each chunk can be scanned independently (e.g. in parallel).
+     * The region is walked row by row from its start with the same quote rules as nextRow(),
+     * so a newline inside a quoted field never becomes a chunk boundary
+     * @param buffer the buffer holding CSV data
+     * @param start the offset of the first byte (a row start)
+     * @param end the offset after the last byte
+     * @param chunks the desired number of chunks
+     * @return the chunk boundaries (chunk i covers [bounds[i], bounds[i + 1]))
+     */
+    public static int[] splitAtLineBoundaries(ByteBuffer buffer, int start, int end, int chunks) {
+        chunks = Math.max(1, chunks);
+        int[] bounds = new int[chunks + 1];
+        bounds[0] = start;
+        long length = end - start;
+        int p = start;
+        for (int i = 1; i < chunks; i++) {
+            long target = start + length * i / chunks;
+            while (p < target) {
+                p = skipRow(buffer, p, end);
+            }
+            bounds[i] = p;
+        }
+        bounds[chunks] = end;
+        return bounds;
+    }
+
+    /**
+     * Finds the end of the row starting at an offset, without collecting its fields
+     * @return the offset just after the row's terminating newline (or end)
+     */
+    private static int skipRow(ByteBuffer buffer, int p, int end) {
+        boolean inQuotes = false;
+        boolean fieldBlank = true;
+        while (p < end) {
+            byte b = buffer.get(p++);
+            if (inQuotes) {
+                if (b == '"') {
+                    if (p < end && buffer.get(p) == '"') {
+                        p++;
+                    } else {
+                        inQuotes = false;
+                    }
+                }
+            } else if (b == '"' && fieldBlank) {
+                inQuotes = true;
+                fieldBlank = false;
+            } else if (b == ',') {
+                fieldBlank = true;
+            } else if (b == '\n') {
+                return p;
+            } else if (b != ' ' && b != '\t') {
+                fieldBlank = false;
+            }
+        }
+        return end;
+    }
+
+    /**
+     * Gets the offset where the current row starts
+     * @return the offset
+     */
+    public int getRowStart() {
+        return rowStart;
+    }
+
+    /**
+     * Gets the offset just after the current row (where the next row starts)
+     * @return the offset
+     */
+    public int getPosition() {
+        return position;
+    }
+
+    /**
+     * Advances to the next non-blank row
+     * @return true if a row is available, false at the end of the data
+     */
+    public boolean nextRow() {
+        while (position < end) {
+            lineNumber++;
+            rowStart = position;
+            fieldCount = 0;
+            boolean blank = true;
+            int p = position;
+            int start = p;
+            boolean quoted = false;
+            boolean inQuotes = false;
+
+            while (p < end) {
+                byte b = buffer.get(p);
+                if (inQuotes) {
+                    if (b == '"') {
+                        if (p + 1 < end && buffer.get(p + 1) == '"') {
+                            p++;
+                        } else {
+                            inQuotes = false;
+                        }
+                    }
+                } else if (b == '"' && isBlank(start, p)) {
+                    inQuotes = true;
+                    quoted = true;
+                    blank = false;
+                } else if (b == ',') {
+                    addField(start, p, quoted);
+                    start = p + 1;
+                    quoted = false;
+                    blank = false;
+                } else if (b == '\n') {
+                    break;
+                } else if (b != ' ' && b != '\t' && b != '\r') {
+                    blank = false;
+                }
+                p++;
+            }
+
+            rowEnd = p;
+            position = p < end ? p + 1 : end;
+            if (!blank) {
+                addField(start, rowEnd, quoted);
+                return true;
+            }
+        }
+        fieldCount = 0;
+        return false;
+    }
+
+    /**
+     * Gets the number of fields in the current row
+     * @return the field count
+     */
+    public int getFieldCount() {
+        return fieldCount;
+    }
+
+    /**
+     * Gets the 0-based line number of the current row
+     * @return the line number
+     */
+    public int getLineNumber() {
+        return lineNumber;
+    }
+
+    /**
+     * Gets a field as a trimmed string (quotes removed and unescaped)
+     * @param index the field index
+     * @return the field value
+     */
+    public String getString(int index) {
+        int start = trimStart(index);
+        int stop = trimEnd(index, start);
+        if (fieldQuoted[index]) {
+            // Strip the surrounding quotes and collapse doubled quotes
+            int closing = stop - 1;
+            while (closing > start && buffer.get(closing) != '"') {
+                closing--;
+            }
+            String raw = decode(start + 1, closing);
+            return raw.replace("\"\"", "\"");
+        }
+        return decode(start, stop);
+    }
+
+    /**
+     * Checks if a field is empty (after trimming)
+     * @param index the field index
+     * @return true if empty
+     */
+    public boolean isEmpty(int index) {
+        int start = trimStart(index);
+        return trimEnd(index, start) == start;
+    }
+
+    /**
+     * Parses a field as an int directly from the buffer
+     * @param index the field index
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a valid int
+     */
+    public int getInt(int index) {
+        int start = trimStart(index);
+        int stop = trimEnd(index, start);
+        if (fieldQuoted[index] || start == stop) {
+            return Integer.parseInt(getString(index));
+        }
+        boolean negative = false;
+        int p = start;
+        byte first = buffer.get(p);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            p++;
+        }
+        if (p == stop) {
+            throw new NumberFormatException("For input string: \"" + decode(start, stop) + "\"");
+        }
+        long value = 0;
+        for (; p < stop; p++) {
+            int digit = buffer.get(p) - '0';
+            if (digit < 0 || digit > 9) {
+                throw new NumberFormatException("For input string: \"" + decode(start, stop) + "\"");
+            }
+            value = value * 10 + digit;
+            if (value > (long) Integer.MAX_VALUE + 1) {
+                throw new NumberFormatException("Value out of range: \"" + decode(start, stop) + "\"");
+            }
+        }
+        value = negative ? -value : value;
+        if (value > Integer.MAX_VALUE) {
+            throw new NumberFormatException("Value out of range: \"" + decode(start, stop) + "\"");
+        }
+        return (int) value;
+    }
+
+    /**
+     * Parses a field as a double directly from the buffer
+     * Plain decimals with up to 15 significant digits are parsed exactly without allocation;
+     * anything else (exponents, long mantissas) falls back to Double.parseDouble
+     * @param index the field index
+     * @return the parsed value
+     * @throws NumberFormatException if the field is not a valid number
+     */
+    public double getDouble(int index) {
+        int start = trimStart(index);
+        int stop = trimEnd(index, start);
+        if (fieldQuoted[index] || start == stop) {
+            return Double.parseDouble(getString(index));
+        }
+        boolean negative = false;
+        int p = start;
+        byte first = buffer.get(p);
+        if (first == '-' || first == '+') {
+            negative = first == '-';
+            p++;
+        }
+        long mantissa = 0;
+        int digits = 0;
+        int fractionDigits = 0;
+        boolean seenPoint = false;
+        for (; p < stop; p++) {
+            byte b = buffer.get(p);
+            if (b >= '0' && b <= '9') {
+                mantissa = mantissa * 10 + (b - '0');
+                digits++;
+                if (seenPoint) {
+                    fractionDigits++;
+                }
+            } else if (b == '.' && !seenPoint) {
+                seenPoint = true;
+            } else {
+                return Double.parseDouble(decode(start, stop));
+            }
+        }
+        if (digits == 0) {
+            throw new NumberFormatException("For input string: \"" + decode(start, stop) + "\"");
+        }
+        if (digits > 15 || fractionDigits >= POWERS_OF_TEN.length) {
+            return Double.parseDouble(decode(start, stop));
+        }
+        // Both operands are exact doubles, so one division is correctly rounded
+        double value = mantissa / POWERS_OF_TEN[fractionDigits];
+        return negative ? -value : value;
+    }
+
+    /**
+     * Gets the raw text of the current row (for error messages)
+     * @return the row text
+     */
+    public String getRowText() {
+        int stop = rowEnd;
+        if (stop > rowStart && buffer.get(stop - 1) == '\r') {
+            stop--;
+        }
+        return decode(rowStart, stop);
+    }
+
+    /**
+     * Records a field boundary, growing the field arrays when needed
+     */
+    private void addField(int start, int stop, boolean quoted) {
+        if (fieldCount == fieldStart.length) {
+            int[] newStart = new int[fieldCount * 2];
+            int[] newEnd = new int[fieldCount * 2];
+            boolean[] newQuoted = new boolean[fieldCount * 2];
+            System.arraycopy(fieldStart, 0, newStart, 0, fieldCount);
+            System.arraycopy(fieldEnd, 0, newEnd, 0, fieldCount);
+            System.arraycopy(fieldQuoted, 0, newQuoted, 0, fieldCount);
+            fieldStart = newStart;
+            fieldEnd = newEnd;
+            fieldQuoted = newQuoted;
+        }
+        fieldStart[fieldCount] = start;
+        fieldEnd[fieldCount] = stop;
+        fieldQuoted[fieldCount] = quoted;
+        fieldCount++;
+    }
+
+    /**
+     * Checks if the bytes in [start, stop) are only spaces or tabs
+     */
+    private boolean isBlank(int start, int stop) {
+        for (int p = start; p < stop; p++) {
+            byte b = buffer.get(p);
+            if (b != ' ' && b != '\t') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private int trimStart(int index) {
+        if (index < 0 || index >= fieldCount) {
+            throw new IndexOutOfBoundsException("Field " + index + " of " + fieldCount);
+        }
+        int p = fieldStart[index];
+        int stop = fieldEnd[index];
+        while (p < stop && isWhitespace(buffer.get(p))) {
+            p++;
+        }
+        return p;
+    }
+
+    private int trimEnd(int index, int start) {
+        int p = fieldEnd[index];
+        while (p > start && isWhitespace(buffer.get(p - 1))) {
+            p--;
+        }
+        return p;
+    }
+
+    private static boolean isWhitespace(byte b) {
+        return b == ' ' || b == '\t' || b == '\r' || b == '\n';
+    }
+
+    /**
+     * Decodes bytes [start, stop) as UTF-8
+     */
+    private String decode(int start, int stop) {
+        byte[] bytes = new byte[stop - start];
+        buffer.get(start, bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -1,13 +1,27 @@
 package util;
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
 
 /**
  * FileHandler class - File handling utility class
- * Handles CSV file reading and writing with exception handling
+ * Handles CSV file reading and writing with exception handling.
+ * Files ending in COMPRESSED_EXTENSION, or starting with the gzip magic bytes,
+ * are transparently decompressed and compressed while streaming
  */
 public class FileHandler {
+    public static String COMPRESSED_EXTENSION = ".gz";
+    public static int COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+    public static int BUFFER_SIZE = 64 * 1024;
 
     /**
      * Reads all lines from CSV file
@@ -21,7 +35,7 @@ public class FileHandler {
         IOException readException = null;
         
         try {
-            reader = new BufferedReader(new FileReader(filePath));
+            reader = openReader(filePath);
             String line;
             while ((line = reader.readLine()) != null) {
                 lines.add(line);
@@ -47,6 +61,8 @@ public class FileHandler {
 
     /**
      * Writes to CSV file
+     * The sidecar line index is deleted, since the new content may keep the old size
+     * and modification time
      * @param filePath the file path
      * @param lines the lines to write
      * @throws IOException if file writing fails
@@ -56,7 +72,7 @@ public class FileHandler {
         IOException writeException = null;
         
         try {
-            writer = new BufferedWriter(new FileWriter(filePath));
+            writer = openWriter(filePath, false);
             for (int i = 0; i < lines.size(); i++) {
                 writer.write(lines.get(i));
                 writer.newLine();
@@ -72,14 +88,49 @@ public class FileHandler {
                 System.out.println("Error closing file: " + e.getMessage());
             }
         }
+        LineOffsetIndex.delete(filePath);
         
         if (writeException != null) {
             throw writeException;
         }
     }
 
+    /**
+     * Writes buffers to a file in order with gathering writes
+     * The buffers go to a temporary file that then replaces the file atomically, so
+     * readers see either the old or the complete new content
+     * @param filePath the file path
+     * @param buffers the content, in order (consumed by the write)
+     * @throws IOException if writing fails
+     */
+    public static void writeBuffers(String filePath, ByteBuffer[] buffers) throws IOException {
+        File tempFile = new File(filePath + ".tmp");
+        long remaining = 0;
+        for (ByteBuffer buffer : buffers) {
+            remaining += buffer.remaining();
+        }
+        try {
+            FileChannel channel = new FileOutputStream(tempFile).getChannel();
+            try {
+                // A gathering write may stop early; repeat until every buffer is drained
+                while (remaining > 0) {
+                    remaining -= channel.write(buffers);
+                }
+            } finally {
+                channel.close();
+            }
+        } catch (IOException e) {
+            tempFile.delete();
+            throw e;
+        }
+        Files.move(tempFile.toPath(), new File(filePath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LineOffsetIndex.delete(filePath);
+    }
+
     /**
      * Parses CSV line into field array
+     * Quoted fields follow RFC-4180: they may contain commas, and doubled quotes stand for one quote
      * @param line the CSV line
      * @return the field array
      */
@@ -87,8 +138,48 @@ public class FileHandler {
         if (line == null || line.trim().isEmpty()) {
             return new String[0];
         }
-        // return line.split(",");
-        return line.split(",", -1);
+        if (line.indexOf('"') < 0) {
+            return line.split(",", -1);
+        }
+
+        ArrayList<String> fields = new ArrayList<>();
+        StringBuilder field = new StringBuilder();
+        boolean inQuotes = false;
+        for (int i = 0; i < line.length(); i++) {
+            char c = line.charAt(i);
+            if (inQuotes) {
+                if (c == '"' && i + 1 < line.length() && line.charAt(i + 1) == '"') {
+                    field.append('"');
+                    i++;
+                } else if (c == '"') {
+                    inQuotes = false;
+                } else {
+                    field.append(c);
+                }
+            } else if (c == '"' && field.toString().trim().isEmpty()) {
+                field.setLength(0);
+                inQuotes = true;
+            } else if (c == ',') {
+                fields.add(field.toString());
+                field.setLength(0);
+            } else {
+                field.append(c);
+            }
+        }
+        fields.add(field.toString());
+        return fields.toArray(new String[0]);
+    }
+
+    /**
+     * Computes the CRC32 checksum of a file's content
+     * @param filePath the file path
+     * @return the checksum
+     * @throws IOException if the file cannot be read
+     */
+    public static long checksum(String filePath) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(CSVScanner.map(filePath));
+        return crc.getValue();
     }
 
     /**
@@ -101,48 +192,330 @@ public class FileHandler {
         return file.exists() && file.isFile();
     }
 
+    /**
+     * Streams a file line by line without loading it into memory
+     * @param filePath the file path
+     * @param visitor the visitor receiving each line; returning false stops the read
+     * @throws IOException if file reading fails
+     */
+    public static void forEachLine(String filePath, LineVisitor visitor) throws IOException {
+        BufferedReader reader = openReader(filePath);
+        try {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                if (!visitor.visitLine(lineNumber, line)) {
+                    break;
+                }
+                lineNumber++;
+            }
+        } finally {
+            reader.close();
+        }
+    }
+
     /**
      * Reads a specific line from file
+     * Plain files are read with a seek to the offset found in the sidecar line index
+     * and decoded as UTF-8; compressed files are streamed until the line is found
      * @param filePath the file path
      * @param lineNumber the line number (0-based)
      * @return the line content, or null if not exists
      */
     public static String readLine(String filePath, int lineNumber) {
+        if (lineNumber < 0) {
+            return null;
+        }
         try {
-            ArrayList<String> lines = readCSV(filePath);
-            if (lineNumber >= 0 && lineNumber < lines.size()) {
-                return lines.get(lineNumber);
+            if (!isCompressed(filePath)) {
+                long[] bounds = LineOffsetIndex.getLineBounds(filePath, lineNumber);
+                if (bounds == null) {
+                    return null;
+                }
+                RandomAccessFile file = new RandomAccessFile(filePath, "r");
+                try {
+                    byte[] bytes = new byte[(int) (bounds[1] - bounds[0])];
+                    file.seek(bounds[0]);
+                    file.readFully(bytes);
+                    return new String(bytes, 0, contentLength(bytes, bytes.length), StandardCharsets.UTF_8);
+                } finally {
+                    file.close();
+                }
             }
+
+            String[] found = new String[1];
+            forEachLine(filePath, (number, line) -> {
+                if (number == lineNumber) {
+                    found[0] = line;
+                    return false;
+                }
+                return true;
+            });
+            return found[0];
         } catch (IOException e) {
             System.out.println("Error reading line: " + e.getMessage());
+            return null;
         }
-        return null;
     }
 
     /**
      * Updates a specific line in file
+     * A line of the same UTF-8 byte length is overwritten in place; otherwise the file is
+     * streamed into a temporary copy with the line replaced, which is then swapped in
      * @param filePath the file path
      * @param lineNumber the line number (0-based)
      * @param newLine the new line content
      * @throws IOException file operation exception
      */
     public static void updateLine(String filePath, int lineNumber, String newLine) throws IOException {
-        ArrayList<String> lines = readCSV(filePath);
-        if (lineNumber >= 0 && lineNumber < lines.size()) {
-            lines.set(lineNumber, newLine);
-            writeCSV(filePath, lines);
+        updateLine(filePath, lineNumber, newLine, false);
+    }
+
+    /**
+     * Updates a specific line in a file of padded records
+     * A shorter line is overwritten in place and padded with trailing spaces to the old
+     * length, so it only suits formats whose readers trim fields (like the CSV parsers here)
+     * @param filePath the file path
+     * @param lineNumber the line number (0-based)
+     * @param newLine the new line content
+     * @throws IOException file operation exception
+     */
+    public static void updateLinePadded(String filePath, int lineNumber, String newLine) throws IOException {
+        updateLine(filePath, lineNumber, newLine, true);
+    }
+
+    private static void updateLine(String filePath, int lineNumber, String newLine, boolean padded)
+            throws IOException {
+        if (lineNumber < 0) {
+            return;
+        }
+        if (!isCompressed(filePath)) {
+            long[] bounds = LineOffsetIndex.getLineBounds(filePath, lineNumber);
+            if (bounds == null) {
+                return;
+            }
+            if (updateLineInPlace(filePath, bounds, newLine.getBytes(StandardCharsets.UTF_8), padded)) {
+                return;
+            }
+        }
+        File tempFile = new File(filePath + ".tmp");
+        BufferedWriter writer = openWriter(tempFile.getPath(), false, isCompressed(filePath));
+        int[] lineCount = new int[1];
+        try {
+            IOException[] writeException = new IOException[1];
+            forEachLine(filePath, (number, line) -> {
+                try {
+                    writer.write(number == lineNumber ? newLine : line);
+                    writer.newLine();
+                    lineCount[0]++;
+                    return true;
+                } catch (IOException e) {
+                    writeException[0] = e;
+                    return false;
+                }
+            });
+            if (writeException[0] != null) {
+                throw writeException[0];
+            }
+        } catch (IOException e) {
+            writer.close();
+            tempFile.delete();
+            throw e;
+        }
+        writer.close();
+
+        if (lineNumber >= lineCount[0]) {
+            tempFile.delete();
+            return;
+        }
+        Files.move(tempFile.toPath(), new File(filePath).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        LineOffsetIndex.delete(filePath);
+    }
+
+    /**
+     * Overwrites a line with a positional write if the new content fits its slot
+     * @return true if the line was written, false if a rewrite is needed
+     */
+    private static boolean updateLineInPlace(String filePath, long[] bounds, byte[] newBytes, boolean padded)
+            throws IOException {
+        int slotLength = (int) (bounds[1] - bounds[0]);
+        RandomAccessFile file = new RandomAccessFile(filePath, "rw");
+        try {
+            byte[] slot = new byte[slotLength];
+            file.seek(bounds[0]);
+            file.readFully(slot);
+            int oldLength = contentLength(slot, slotLength);
+            if (newBytes.length > oldLength || (!padded && newBytes.length != oldLength)) {
+                return false;
+            }
+            ByteBuffer replacement = ByteBuffer.allocate(oldLength);
+            replacement.put(newBytes);
+            while (replacement.hasRemaining()) {
+                replacement.put((byte) ' ');
+            }
+            replacement.flip();
+            FileChannel channel = file.getChannel();
+            while (replacement.hasRemaining()) {
+                channel.write(replacement, bounds[0] + replacement.position());
+            }
+        } finally {
+            file.close();
+        }
+        LineOffsetIndex.touch(filePath);
+        return true;
+    }
+
+    /**
+     * Gets the length of a line without its line terminator
+     */
+    private static int contentLength(byte[] bytes, int length) {
+        if (length > 0 && bytes[length - 1] == '\n') {
+            length--;
+        }
+        if (length > 0 && bytes[length - 1] == '\r') {
+            length--;
         }
+        return length;
     }
 
     /**
      * Appends a line to file
+     * Opens the file in append mode, so the cost does not depend on the file size.
+     * Compressed files get a new gzip member, which readers decode as a continuation.
+     * A line index that matched the file before the append is extended with the new
+     * line; any other index is deleted
      * @param filePath the file path
      * @param line the line to append
      * @throws IOException file operation exception
      */
     public static void appendLine(String filePath, String line) throws IOException {
-        ArrayList<String> lines = readCSV(filePath);
-        lines.add(line);
-        writeCSV(filePath, lines);
+        boolean needsNewLine = false;
+        File file = new File(filePath);
+        boolean compressed = isCompressed(filePath);
+        boolean indexed = !compressed && LineOffsetIndex.isFresh(filePath);
+        long lineStart = file.length();
+        if (file.length() > 0 && !compressed) {
+            RandomAccessFile existing = new RandomAccessFile(file, "r");
+            try {
+                existing.seek(existing.length() - 1);
+                needsNewLine = existing.read() != '\n';
+            } finally {
+                existing.close();
+            }
+        }
+
+        BufferedWriter writer = openWriter(filePath, true);
+        try {
+            if (needsNewLine) {
+                writer.newLine();
+                lineStart += System.lineSeparator().length();
+            }
+            writer.write(line);
+            writer.newLine();
+        } catch (IOException e) {
+            writer.close();
+            LineOffsetIndex.delete(filePath);
+            throw e;
+        }
+        writer.close();
+
+        if (indexed) {
+            LineOffsetIndex.addLine(filePath, lineStart);
+        } else {
+            LineOffsetIndex.delete(filePath);
+        }
+    }
+
+    /**
+     * Checks if a file is gzip compressed, by extension or by its magic bytes
+     * @param filePath the file path
+     * @return true if compressed
+     */
+    public static boolean isCompressed(String filePath) {
+        if (filePath.endsWith(COMPRESSED_EXTENSION)) {
+            return true;
+        }
+        File file = new File(filePath);
+        if (file.length() < 2) {
+            return false;
+        }
+        try {
+            InputStream in = new FileInputStream(file);
+            try {
+                int first = in.read();
+                int second = in.read();
+                return (first | (second << 8)) == GZIPInputStream.GZIP_MAGIC;
+            } finally {
+                in.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Opens a buffered reader, decompressing on the fly if the file is compressed
+     * @param filePath the file path
+     * @return the reader
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedReader openReader(String filePath) throws IOException {
+        if (!isCompressed(filePath)) {
+            return new BufferedReader(new FileReader(filePath), BUFFER_SIZE);
+        }
+        InputStream in = new GZIPInputStream(new FileInputStream(filePath), BUFFER_SIZE);
+        return new BufferedReader(new InputStreamReader(in), BUFFER_SIZE);
+    }
+
+    /**
+     * Opens a buffered writer, compressing on the fly if the file is compressed
+     * (see isCompressed, so an existing gzip file stays gzip whatever its name)
+     * @param filePath the file path
+     * @param append true to append to an existing file
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedWriter openWriter(String filePath, boolean append) throws IOException {
+        return openWriter(filePath, append, isCompressed(filePath));
+    }
+
+    /**
+     * Opens a buffered writer with explicit compression (e.g. for a temporary copy of a compressed file)
+     * @param filePath the file path
+     * @param append true to append to an existing file
+     * @param compress true to gzip the output
+     * @return the writer
+     * @throws IOException if the file cannot be opened
+     */
+    public static BufferedWriter openWriter(String filePath, boolean append, boolean compress) throws IOException {
+        if (!compress) {
+            return new BufferedWriter(new FileWriter(filePath, append), BUFFER_SIZE);
+        }
+        OutputStream out = new GZIPOutputStream(new FileOutputStream(filePath, append), BUFFER_SIZE) {
+            {
+                def.setLevel(COMPRESSION_LEVEL);
+            }
+        };
+        return new BufferedWriter(new OutputStreamWriter(out), BUFFER_SIZE);
+    }
+
+    /**
+     * Gets a file's content as a buffer: plain files are memory-mapped,
+     * compressed files are decompressed into a heap buffer
+     * @param filePath the file path
+     * @return the buffer with the (decompressed) content
+     * @throws IOException if the file cannot be read
+     */
+    public static ByteBuffer readBuffer(String filePath) throws IOException {
+        if (!isCompressed(filePath)) {
+            return CSVScanner.map(filePath);
+        }
+        InputStream in = new GZIPInputStream(new FileInputStream(filePath), BUFFER_SIZE);
+        try {
+            return ByteBuffer.wrap(in.readAllBytes());
+        } finally {
+            in.close();
+        }
     }
 }
@@ -0,0 +1,54 @@
+package util;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * FileStamp class - Size, modification time and CRC32 checksum of a file
+ * Files derived from a source file (snapshots, indexes) record the stamp of the content
+ * they were built from. The stamp must be taken before the source is parsed: if the file
+ * is edited during the load, the derived file then describes the old content and is
+ * rejected on the next check instead of being trusted for content it does not contain
+ */
+public class FileStamp {
+    private long size;
+    private long lastModified;
+    private long checksum;
+
+    /**
+     * Constructor
+     * @param size the file size in bytes
+     * @param lastModified the modification time in milliseconds
+     * @param checksum the CRC32 checksum of the content
+     */
+    public FileStamp(long size, long lastModified, long checksum) {
+        this.size = size;
+        this.lastModified = lastModified;
+        this.checksum = checksum;
+    }
+
+    /**
+     * Takes the current stamp of a file
+     * @param filePath the file path
+     * @return the stamp
+     * @throws IOException if the file cannot be read for its checksum
+     */
+    public static FileStamp of(String filePath) throws IOException {
+        File file = new File(filePath);
+        long size = file.length();
+        long lastModified = file.lastModified();
+        return new FileStamp(size, lastModified, FileHandler.checksum(filePath));
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public long getLastModified() {
+        return lastModified;
+    }
+
+    public long getChecksum() {
+        return checksum;
+    }
+}
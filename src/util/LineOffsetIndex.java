@@ -0,0 +1,229 @@
+package util;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * LineOffsetIndex class - Persistent sidecar index of line start offsets
+ * The sidecar stores the size and modification time of the file it was built from,
+ * followed by the start offset of every line and the file length. It is rebuilt
+ * lazily whenever the file no longer matches, and single entries are read with
+ * positional reads so a lookup does not load the whole index
+ */
+public class LineOffsetIndex {
+    public static String INDEX_EXTENSION = ".idx";
+    private static int MAGIC = 0x4C494458;
+    private static int VERSION = 1;
+    private static int HEADER_SIZE = 32;
+
+    /**
+     * Gets the sidecar index path of a file
+     * @param filePath the indexed file path
+     * @return the index path
+     */
+    public static String getIndexPath(String filePath) {
+        return filePath + INDEX_EXTENSION;
+    }
+
+    /**
+     * Gets the byte range of a line, rebuilding the index first if it is missing or stale
+     * @param filePath the indexed file path
+     * @param lineNumber the line number (0-based)
+     * @return {start, end} where end includes the line terminator, or null if there is no such line
+     * @throws IOException if the file or the index cannot be read
+     */
+    public static long[] getLineBounds(String filePath, int lineNumber) throws IOException {
+        if (lineNumber < 0) {
+            return null;
+        }
+        File file = new File(filePath);
+        if (!file.isFile()) {
+            throw new IOException("File not found: " + filePath);
+        }
+        if (!isFresh(filePath)) {
+            build(filePath);
+        }
+
+        RandomAccessFile index = new RandomAccessFile(getIndexPath(filePath), "r");
+        try {
+            FileChannel channel = index.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            if (lineNumber >= header.getLong(24)) {
+                return null;
+            }
+            ByteBuffer entry = ByteBuffer.allocate(16);
+            readFully(channel, entry, HEADER_SIZE + 8L * lineNumber);
+            return new long[] {entry.getLong(0), entry.getLong(8)};
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Checks if the sidecar index matches the current file size and modification time
+     * @param filePath the indexed file path
+     * @return true if the index can be used
+     */
+    public static boolean isFresh(String filePath) {
+        File file = new File(filePath);
+        File indexFile = new File(getIndexPath(filePath));
+        if (!indexFile.isFile() || indexFile.length() < HEADER_SIZE) {
+            return false;
+        }
+        try {
+            RandomAccessFile index = new RandomAccessFile(indexFile, "r");
+            try {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                readFully(index.getChannel(), header, 0);
+                return header.getInt(0) == MAGIC
+                        && header.getInt(4) == VERSION
+                        && header.getLong(8) == file.length()
+                        && header.getLong(16) == file.lastModified()
+                        && indexFile.length() == HEADER_SIZE + 8 * (header.getLong(24) + 1);
+            } finally {
+                index.close();
+            }
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * Scans the file and writes its sidecar index
+     * @param filePath the file path
+     * @return the number of lines indexed
+     * @throws IOException if the file cannot be read or the index cannot be written
+     */
+    public static long build(String filePath) throws IOException {
+        File file = new File(filePath);
+        long lastModified = file.lastModified();
+        ByteBuffer buffer = CSVScanner.map(filePath);
+        int size = buffer.limit();
+
+        long lineCount = 0;
+        for (int p = 0; p < size; p++) {
+            if (buffer.get(p) == '\n') {
+                lineCount++;
+            }
+        }
+        if (size > 0 && buffer.get(size - 1) != '\n') {
+            lineCount++;
+        }
+
+        // Streamed rather than assembled in one buffer, whose int size would overflow
+        // past about 268M lines
+        File tempFile = new File(getIndexPath(filePath) + ".tmp");
+        DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tempFile),
+                FileHandler.BUFFER_SIZE));
+        try {
+            out.writeInt(MAGIC);
+            out.writeInt(VERSION);
+            out.writeLong(size);
+            out.writeLong(lastModified);
+            out.writeLong(lineCount);
+            if (size > 0) {
+                out.writeLong(0);
+            }
+            for (int p = 0; p < size - 1; p++) {
+                if (buffer.get(p) == '\n') {
+                    out.writeLong(p + 1);
+                }
+            }
+            out.writeLong(size);
+        } catch (IOException e) {
+            out.close();
+            tempFile.delete();
+            throw e;
+        }
+        out.close();
+
+        Files.move(tempFile.toPath(), new File(getIndexPath(filePath)).toPath(),
+                StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        return lineCount;
+    }
+
+    /**
+     * Records the current modification time of the file in its index after an
+     * in-place update that did not move any line
+     * @param filePath the indexed file path
+     * @throws IOException if the index cannot be written
+     */
+    public static void touch(String filePath) throws IOException {
+        File indexFile = new File(getIndexPath(filePath));
+        if (!indexFile.isFile()) {
+            return;
+        }
+        RandomAccessFile index = new RandomAccessFile(indexFile, "rw");
+        try {
+            ByteBuffer mtime = ByteBuffer.allocate(8);
+            mtime.putLong(0, new File(filePath).lastModified());
+            index.getChannel().write(mtime, 16);
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Extends the index with a line appended to the file
+     * The index must have matched the file before the append. The header is written
+     * last, so an interrupted update leaves an index that fails the freshness check
+     * @param filePath the indexed file path
+     * @param lineStart the offset of the appended line
+     * @throws IOException if the index cannot be written
+     */
+    public static void addLine(String filePath, long lineStart) throws IOException {
+        File file = new File(filePath);
+        RandomAccessFile index = new RandomAccessFile(getIndexPath(filePath), "rw");
+        try {
+            FileChannel channel = index.getChannel();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            readFully(channel, header, 0);
+            long lineCount = header.getLong(24);
+
+            // The old end entry becomes the start of the new line
+            ByteBuffer entries = ByteBuffer.allocate(16);
+            entries.putLong(lineStart);
+            entries.putLong(file.length());
+            entries.flip();
+            while (entries.hasRemaining()) {
+                channel.write(entries, HEADER_SIZE + 8 * lineCount + entries.position());
+            }
+
+            header.putLong(8, file.length());
+            header.putLong(16, file.lastModified());
+            header.putLong(24, lineCount + 1);
+            header.rewind();
+            while (header.hasRemaining()) {
+                channel.write(header, header.position());
+            }
+        } finally {
+            index.close();
+        }
+    }
+
+    /**
+     * Deletes the sidecar index of a file
+     * @param filePath the indexed file path
+     */
+    public static void delete(String filePath) {
+        new File(getIndexPath(filePath)).delete();
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position + buffer.position());
+            if (read < 0) {
+                throw new IOException("Truncated line index");
+            }
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package util;
+
+/**
+ * LineVisitor interface - Callback for streaming file reads
+ * Receives one line at a time so callers can process files with constant memory
+ */
+public interface LineVisitor {
+
+    /**
+     * Visits one line of the file
+     * @param lineNumber the line number (0-based)
+     * @param line the line content, without the line terminator
+     * @return true to continue reading, false to stop early
+     */
+    boolean visitLine(int lineNumber, String line);
+}
@@ -79,15 +79,27 @@ public class PasswordUtils {
      * @return true if meets requirements
      */
     public static boolean isValidPassword(String password) {
-        if (password == null || password.length() < 6) {
-            System.out.println("Password must be at least 6 characters long.");
+        String error = getPasswordError(password);
+        if (error != null) {
+            System.out.println(error);
             return false;
         }
+        return true;
+    }
+
+    /**
+     * Validates password strength without printing (for bulk imports)
+     * @param password the password
+     * @return the reason the password is rejected, or null if it meets the requirements
+     */
+    public static String getPasswordError(String password) {
+        if (password == null || password.length() < 6) {
+            return "Password must be at least 6 characters long.";
+        }
         if (password.startsWith(HASH_PREFIX)) {
-            System.out.println("Password cannot start with reserved prefix: " + HASH_PREFIX);
-            return false;
+            return "Password cannot start with reserved prefix: " + HASH_PREFIX;
         }
-        return true;
+        return null;
     }
 
     /**
@@ -0,0 +1,60 @@
+package test.bench;
+
+import service.BulkCatalog;
+import service.BulkCatalogBuilder;
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * BulkCatalogBenchmark - Bounded-memory catalog build (external sort) and lookups on the result
+ * Run with: java -cp "bin:lib/*" test.bench.BulkCatalogBenchmark [rows] [runRows]
+ */
+public class BulkCatalogBenchmark {
+    private static String SOURCE_FILE = "data/bench_bulk_source.csv";
+    private static String CATALOG_FILE = "data/bench_bulk_movies.csv";
+    private static String WORK_DIRECTORY = "data/bench_bulk_work";
+    private static String[] INDEX_EXTENSIONS = {".ids", ".genre", ".year", ".rating", ".genres"};
+    private static int LOOKUPS = 100000;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        int runRows = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        try {
+            MovieLoadBenchmark.generateCatalog(SOURCE_FILE, rows);
+            System.gc();
+            Runtime runtime = Runtime.getRuntime();
+            long heapBefore = runtime.totalMemory() - runtime.freeMemory();
+
+            BulkCatalogBuilder builder = new BulkCatalogBuilder(WORK_DIRECTORY, runRows);
+            long start = System.nanoTime();
+            int count = builder.build(SOURCE_FILE, CATALOG_FILE);
+            long buildMillis = (System.nanoTime() - start) / 1000000;
+            long heapAfter = runtime.totalMemory() - runtime.freeMemory();
+            System.out.printf("build: %d movies in %d ms (%.0f rows/s), %d runs, %d extra passes, heap delta %d MB%n",
+                    count, buildMillis, count * 1000.0 / Math.max(1, buildMillis), builder.getSpilledRuns(),
+                    builder.getMergePasses(), (heapAfter - heapBefore) / (1024 * 1024));
+
+            BulkCatalog catalog = new BulkCatalog(CATALOG_FILE);
+            start = System.nanoTime();
+            for (int i = 0; i < LOOKUPS; i++) {
+                catalog.getMovie("M" + (i * 7919L % rows));
+            }
+            System.out.printf("id lookup: %.2f us%n", (System.nanoTime() - start) / 1000.0 / LOOKUPS);
+
+            start = System.nanoTime();
+            int genre = catalog.getGenrePositions("Drama").length;
+            int years = catalog.getYearPositions(1990, 1999).length;
+            int rated = catalog.getPositionsByMinRating(9.0).length;
+            System.out.printf("genre=%d years=%d rated=%d positions in %d us%n", genre, years, rated,
+                    (System.nanoTime() - start) / 1000);
+            catalog.close();
+        } finally {
+            new File(SOURCE_FILE).delete();
+            new File(CATALOG_FILE).delete();
+            for (String extension : INDEX_EXTENSIONS) {
+                new File(CATALOG_FILE + extension).delete();
+            }
+            new File(WORK_DIRECTORY).delete();
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package test.bench;
+
+import model.Movie;
+import service.CatalogIndex;
+import service.CsvCatalogStore;
+import util.FileStamp;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * CatalogIndexBenchmark - Time to first indexed query: building the indexes vs mapping saved ones
+ * Run with: java -cp "bin:lib/*" test.bench.CatalogIndexBenchmark [rows]
+ */
+public class CatalogIndexBenchmark {
+    private static String BENCH_FILE = "data/bench_index_movies.csv";
+    private static String INDEX_FILE = "data/bench_movies.index";
+    private static int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        try {
+            MovieLoadBenchmark.generateCatalog(BENCH_FILE, rows);
+            ArrayList<Movie> movies = new CsvCatalogStore(BENCH_FILE).loadAll();
+            CatalogIndex.build(movies, FileStamp.of(BENCH_FILE)).write(INDEX_FILE);
+            System.out.println("Catalog: " + rows + " rows, index " + new File(INDEX_FILE).length() + " bytes");
+
+            long buildBest = Long.MAX_VALUE;
+            long mapBest = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                CatalogIndex built = CatalogIndex.build(movies);
+                built.getTitleCandidates("title 4242");
+                buildBest = Math.min(buildBest, (System.nanoTime() - start) / 1000);
+
+                start = System.nanoTime();
+                CatalogIndex mapped = CatalogIndex.loadIfFresh(INDEX_FILE, BENCH_FILE, movies.size());
+                mapped.getTitleCandidates("title 4242");
+                mapBest = Math.min(mapBest, (System.nanoTime() - start) / 1000);
+            }
+            System.out.printf("first query: build=%d us  mapped=%d us%n", buildBest, mapBest);
+        } finally {
+            new File(BENCH_FILE).delete();
+            new File(INDEX_FILE).delete();
+        }
+    }
+}
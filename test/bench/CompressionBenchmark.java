@@ -0,0 +1,67 @@
+package test.bench;
+
+import service.MovieManager;
+import service.UserManager;
+import util.FileHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.zip.Deflater;
+
+/**
+ * CompressionBenchmark - Compares load time and bytes read for plain and gzip files
+ * Run with: java -cp "bin:lib/*" test.bench.CompressionBenchmark [movies] [users]
+ */
+public class CompressionBenchmark {
+    private static String MOVIE_FILE = "data/bench_movies.csv";
+    private static String USER_FILE = "data/bench_users.csv";
+    private static int[] LEVELS = {Deflater.BEST_SPEED, Deflater.DEFAULT_COMPRESSION, Deflater.BEST_COMPRESSION};
+    private static int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int movieCount = args.length > 0 ? Integer.parseInt(args[0]) : 500000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 20000;
+        ArrayList<String> created = new ArrayList<>();
+        try {
+            MovieLoadBenchmark.generateCatalog(MOVIE_FILE, movieCount);
+            UserCodecBenchmark.generateUsers(USER_FILE, userCount, 20, 50);
+            created.add(MOVIE_FILE);
+            created.add(USER_FILE);
+            report("plain", MOVIE_FILE, USER_FILE);
+
+            for (int level : LEVELS) {
+                FileHandler.COMPRESSION_LEVEL = level;
+                String movieFile = MOVIE_FILE + ".gz";
+                String userFile = USER_FILE + ".gz";
+                created.add(movieFile);
+                created.add(userFile);
+                long start = System.nanoTime();
+                FileHandler.writeCSV(movieFile, FileHandler.readCSV(MOVIE_FILE));
+                FileHandler.writeCSV(userFile, FileHandler.readCSV(USER_FILE));
+                System.out.printf("level %d: compress %d ms%n", level, (System.nanoTime() - start) / 1000000);
+                report("gzip level " + level, movieFile, userFile);
+            }
+        } finally {
+            FileHandler.COMPRESSION_LEVEL = Deflater.DEFAULT_COMPRESSION;
+            for (String path : created) {
+                new File(path).delete();
+            }
+        }
+    }
+
+    private static void report(String label, String movieFile, String userFile) {
+        long movieBest = Long.MAX_VALUE;
+        long userBest = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            long start = System.nanoTime();
+            new MovieManager(movieFile).loadMovies();
+            movieBest = Math.min(movieBest, (System.nanoTime() - start) / 1000000);
+
+            start = System.nanoTime();
+            new UserManager(userFile).loadUsers();
+            userBest = Math.min(userBest, (System.nanoTime() - start) / 1000000);
+        }
+        System.out.printf("%-16s movies: %10d bytes %6d ms   users: %10d bytes %6d ms%n", label,
+                new File(movieFile).length(), movieBest, new File(userFile).length(), userBest);
+    }
+}
@@ -0,0 +1,68 @@
+package test.bench;
+
+import model.History;
+import service.HistorySegment;
+import java.util.ArrayList;
+
+/**
+ * MappedHistoryBenchmark - Heap use of heap-backed vs memory-mapped watch histories
+ * Fills the same histories both ways and reports the heap retained after a GC, the
+ * build time and the time to read every history back through getMovieIds()
+ * Run with: java -cp "bin:lib/*" test.bench.MappedHistoryBenchmark [users] [events per user]
+ */
+public class MappedHistoryBenchmark {
+    private static String SEGMENT_FILE = "data/bench_history.segment";
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 10000;
+        int eventsPerUser = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        String[] movieIds = new String[5000];
+        for (int i = 0; i < movieIds.length; i++) {
+            movieIds[i] = String.format("M%05d", i);
+        }
+
+        run("heap", null, userCount, eventsPerUser, movieIds);
+        HistorySegment segment = new HistorySegment(SEGMENT_FILE);
+        try {
+            run("mapped", segment, userCount, eventsPerUser, movieIds);
+            System.out.printf("segment file %.1f MB%n", segment.getMappedBytes() / 1e6);
+        } finally {
+            segment.close();
+        }
+    }
+
+    private static void run(String name, HistorySegment segment, int userCount, int eventsPerUser,
+                            String[] movieIds) {
+        long before = usedHeap();
+        long start = System.nanoTime();
+        ArrayList<History> histories = new ArrayList<>();
+        for (int u = 0; u < userCount; u++) {
+            History history = segment == null ? new History() : segment.createHistory();
+            for (int e = 0; e < eventsPerUser; e++) {
+                String date = String.format("2024-%02d-%02d", 1 + e % 12, 1 + e % 28);
+                history.addMovie(movieIds[(u * 31 + e * 7) % movieIds.length], date);
+            }
+            histories.add(history);
+        }
+        long buildNanos = System.nanoTime() - start;
+        long retained = usedHeap() - before;
+
+        start = System.nanoTime();
+        long total = 0;
+        for (History history : histories) {
+            total += history.getMovieIds().size();
+        }
+        long readNanos = System.nanoTime() - start;
+        System.out.printf("%-7s heap=%7.1f MB  build=%7.1f ms  read=%6.1f ms  events=%d%n",
+                name, retained / 1e6, buildNanos / 1e6, readNanos / 1e6, total);
+        histories.clear();
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,76 @@
+package test.bench;
+
+import service.MovieManager;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * MovieLoadBenchmark - Measures catalog load time from 1 to N parsing threads
+ * Run with: java -cp "bin:lib/*" test.bench.MovieLoadBenchmark [rows]
+ */
+public class MovieLoadBenchmark {
+    private static String BENCH_FILE = "data/bench_movies.csv";
+    private static String[] GENRES = {"Drama", "Crime", "Action", "Comedy", "Sci-Fi", "Horror", "Romance"};
+    private static int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int rows = args.length > 0 ? Integer.parseInt(args[0]) : 1000000;
+        generateCatalog(BENCH_FILE, rows);
+        System.out.println("Catalog: " + rows + " rows, " + new File(BENCH_FILE).length() + " bytes");
+
+        try {
+            int cores = Runtime.getRuntime().availableProcessors();
+            long baseline = 0;
+            for (int threads = 1; ; threads = Math.min(threads * 2, cores)) {
+                long best = timeLoad(threads);
+                if (threads == 1) {
+                    baseline = best;
+                }
+                System.out.printf("threads=%-3d best=%6d ms  speedup=%.2fx%n",
+                        threads, best, (double) baseline / Math.max(1, best));
+                if (threads == cores) {
+                    break;
+                }
+            }
+        } finally {
+            new File(BENCH_FILE).delete();
+        }
+    }
+
+    /**
+     * Generates a synthetic catalog
+     * @param filePath the output path
+     * @param rows the number of movie rows
+     */
+    public static void generateCatalog(String filePath, int rows) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(filePath));
+        try {
+            writer.write("id,title,genre,year,rating");
+            writer.newLine();
+            for (int i = 0; i < rows; i++) {
+                writer.write("M" + i + ",Movie Title " + i + "," + GENRES[i % GENRES.length] + ","
+                        + (1950 + i % 75) + "," + (i % 100) / 10.0);
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+
+    /**
+     * Loads the catalog RUNS times with the given parallelism
+     * @return the best load time in milliseconds
+     */
+    private static long timeLoad(int threads) {
+        long best = Long.MAX_VALUE;
+        for (int run = 0; run < RUNS; run++) {
+            MovieManager manager = new MovieManager(BENCH_FILE);
+            long start = System.nanoTime();
+            manager.loadMoviesParallel(threads);
+            best = Math.min(best, (System.nanoTime() - start) / 1000000);
+        }
+        return best;
+    }
+}
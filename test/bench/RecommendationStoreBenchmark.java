@@ -0,0 +1,73 @@
+package test.bench;
+
+import model.BasicUser;
+import model.PremiumUser;
+import model.User;
+import service.MovieManager;
+import service.RecommendationEngine;
+import service.RecommendationStore;
+import service.RecommendationStoreBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * RecommendationStoreBenchmark - Serving recommendations live vs from the precomputed store
+ * Run with: java -cp "bin:lib/*" test.bench.RecommendationStoreBenchmark [users] [requests]
+ */
+public class RecommendationStoreBenchmark {
+    private static String STORE_FILE = "data/bench_users.recs";
+
+    public static void main(String[] args) throws IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        int requests = args.length > 1 ? Integer.parseInt(args[1]) : 200000;
+        MovieManager movieManager = new MovieManager("data/movies.csv");
+        movieManager.loadMovies();
+        RecommendationEngine engine = new RecommendationEngine(movieManager);
+
+        ArrayList<User> users = new ArrayList<>(userCount);
+        for (int i = 0; i < userCount; i++) {
+            User user = i % 10 == 0 ? new PremiumUser("user" + i, "pass") : new BasicUser("user" + i, "pass");
+            for (int j = 0; j < 5; j++) {
+                user.markAsWatched(String.format("M%03d", (i * 7 + j * 13) % 100 + 1), "2024-01-0" + (j + 1));
+            }
+            users.add(user);
+        }
+
+        try {
+            long start = System.nanoTime();
+            RecommendationStoreBuilder builder = new RecommendationStoreBuilder(engine, 20,
+                    Runtime.getRuntime().availableProcessors());
+            builder.build(users, STORE_FILE);
+            System.out.printf("build: %d users, %d entries in %d ms (%d KB)%n", userCount, builder.getEntries(),
+                    (System.nanoTime() - start) / 1000000, new File(STORE_FILE).length() / 1024);
+
+            for (int strategy = 0; strategy < engine.getAvailableStrategies().size(); strategy++) {
+                engine.setRecommendationStore(null);
+                long liveNanos = serve(engine, users, requests, strategy);
+                engine.setRecommendationStore(new RecommendationStore(STORE_FILE));
+                long storedNanos = serve(engine, users, requests, strategy);
+                System.out.printf("%-12s live %6d ms, stored %6d ms (%.1fx), hits %d%n",
+                        engine.getAvailableStrategies().get(strategy).getName(), liveNanos / 1000000,
+                        storedNanos / 1000000, (double) liveNanos / Math.max(1, storedNanos), engine.getStoreHits());
+            }
+        } finally {
+            new File(STORE_FILE).delete();
+            new File(STORE_FILE + ".users").delete();
+            new File(STORE_FILE + ".movies").delete();
+        }
+    }
+
+    private static long serve(RecommendationEngine engine, ArrayList<User> users, int requests, int strategy) {
+        long start = System.nanoTime();
+        int served = 0;
+        for (int i = 0; i < requests; i++) {
+            User user = users.get((int) ((i * 2654435761L) % users.size()));
+            served += engine.getRecommendations(user, 5, strategy).size();
+        }
+        if (served == 0) {
+            System.out.println("nothing served");
+        }
+        return System.nanoTime() - start;
+    }
+}
@@ -0,0 +1,94 @@
+package test.bench;
+
+import model.User;
+import service.UserManager;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * SharedStoreBenchmark - Several JVMs updating one user file at the same time
+ * Each worker process marks movies as watched for random users. The "rewrite" mode is
+ * the plain UserManager (every process rewrites the whole file from its own copy), the
+ * "shared" mode uses the file lock, journal and per-user versions. Reports wall time
+ * and how many of the updates survived
+ * Run with: java -cp "bin:lib/*" test.bench.SharedStoreBenchmark [processes] [updates] [users]
+ */
+public class SharedStoreBenchmark {
+    private static String USER_FILE = "data/bench_shared_users.csv";
+    private static String WORKER_OPTION = "--worker";
+
+    public static void main(String[] args) throws Exception {
+        if (args.length > 0 && args[0].equals(WORKER_OPTION)) {
+            runWorker(args[1], Integer.parseInt(args[2]), Integer.parseInt(args[3]), Boolean.parseBoolean(args[4]));
+            return;
+        }
+        int processes = args.length > 0 ? Integer.parseInt(args[0]) : 4;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        int userCount = args.length > 2 ? Integer.parseInt(args[2]) : 2000;
+        try {
+            run("rewrite", false, processes, updates, userCount);
+            run("shared", true, processes, updates, userCount);
+        } finally {
+            cleanUp();
+        }
+    }
+
+    private static void run(String name, boolean shared, int processes, int updates, int userCount)
+            throws Exception {
+        cleanUp();
+        UserCodecBenchmark.generateUsers(USER_FILE, userCount, 5, 0);
+
+        long start = System.nanoTime();
+        ArrayList<Process> workers = new ArrayList<>();
+        for (int i = 0; i < processes; i++) {
+            ProcessBuilder builder = new ProcessBuilder(
+                    System.getProperty("java.home") + File.separator + "bin" + File.separator + "java",
+                    "-cp", System.getProperty("java.class.path"), SharedStoreBenchmark.class.getName(),
+                    WORKER_OPTION, "P" + i, String.valueOf(updates), String.valueOf(userCount), String.valueOf(shared));
+            builder.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+            builder.redirectError(ProcessBuilder.Redirect.INHERIT);
+            workers.add(builder.start());
+        }
+        for (Process worker : workers) {
+            worker.waitFor();
+        }
+        long wallMillis = (System.nanoTime() - start) / 1000000;
+
+        UserManager manager = new UserManager(USER_FILE);
+        manager.enableJournal();
+        manager.loadUsers();
+        int survived = 0;
+        for (User user : manager.getAllUsers()) {
+            survived += user.getHistory().size();
+        }
+        System.out.printf("%-8s processes=%d  wall=%6d ms  updates kept=%d/%d%n",
+                name, processes, wallMillis, survived, processes * updates);
+    }
+
+    private static void runWorker(String workerId, int updates, int userCount, boolean shared) {
+        UserManager manager = new UserManager(USER_FILE);
+        if (shared) {
+            manager.enableSharedMode();
+        }
+        manager.loadUsers();
+        Random random = new Random(workerId.hashCode());
+        for (int i = 0; i < updates; i++) {
+            User user = manager.getUser("user" + random.nextInt(userCount));
+            if (shared) {
+                manager.markAsWatched(user, workerId + "-" + i, "2025-01-01");
+            } else {
+                user.markAsWatched(workerId + "-" + i, "2025-01-01");
+                manager.saveUsers();
+            }
+        }
+        manager.close();
+    }
+
+    private static void cleanUp() throws IOException {
+        new File(USER_FILE).delete();
+        new File(USER_FILE + ".lock").delete();
+        new File(USER_FILE + ".journal").delete();
+    }
+}
@@ -0,0 +1,67 @@
+package test.bench;
+
+import model.User;
+import service.CsvUserStore;
+import service.InMemoryUserStore;
+import service.LogUserStore;
+import service.UserManager;
+import service.UserStore;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Random;
+
+/**
+ * StorageBenchmark - Runs the same user workload against every UserStore backend
+ * Workload: bulk save, full load, single-user updates, reload
+ * Run with: java -cp "bin:lib/*" test.bench.StorageBenchmark [users] [updates]
+ */
+public class StorageBenchmark {
+    private static String SEED_FILE = "data/bench_users.csv";
+    private static String CSV_FILE = "data/bench_store_users.csv";
+    private static String LOG_FILE = "data/bench_store_users.log";
+
+    public static void main(String[] args) throws IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 20000;
+        int updates = args.length > 1 ? Integer.parseInt(args[1]) : 200;
+        try {
+            UserCodecBenchmark.generateUsers(SEED_FILE, userCount, 10, 20);
+            ArrayList<User> seed = new CsvUserStore(SEED_FILE).loadAll();
+
+            run("csv", new CsvUserStore(CSV_FILE), seed, updates);
+            run("binary-log", new LogUserStore(LOG_FILE), seed, updates);
+            run("memory", new InMemoryUserStore(), seed, updates);
+        } finally {
+            new File(SEED_FILE).delete();
+            new File(CSV_FILE).delete();
+            new File(LOG_FILE).delete();
+        }
+    }
+
+    private static void run(String name, UserStore store, ArrayList<User> seed, int updates) throws IOException {
+        long start = System.nanoTime();
+        store.saveAll(seed);
+        long saveMillis = (System.nanoTime() - start) / 1000000;
+
+        start = System.nanoTime();
+        UserManager manager = new UserManager(store);
+        manager.loadUsers();
+        long loadMillis = (System.nanoTime() - start) / 1000000;
+
+        Random random = new Random(7);
+        ArrayList<User> users = manager.getAllUsers();
+        start = System.nanoTime();
+        for (int i = 0; i < updates; i++) {
+            User user = users.get(random.nextInt(users.size()));
+            manager.addToWatchlist(user, "M9" + i);
+        }
+        long updateMicros = (System.nanoTime() - start) / 1000 / Math.max(1, updates);
+
+        start = System.nanoTime();
+        new UserManager(store).loadUsers();
+        long reloadMillis = (System.nanoTime() - start) / 1000000;
+
+        System.out.printf("%-11s save=%6d ms  load=%6d ms  update=%8d us/op  reload=%6d ms%n",
+                name, saveMillis, loadMillis, updateMicros, reloadMillis);
+    }
+}
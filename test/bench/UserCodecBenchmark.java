@@ -0,0 +1,85 @@
+package test.bench;
+
+import model.User;
+import service.BinaryUserCodec;
+import service.UserManager;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * UserCodecBenchmark - Compares size and parse speed of the CSV and binary user formats
+ * Run with: java -cp "bin:lib/*" test.bench.UserCodecBenchmark [users]
+ */
+public class UserCodecBenchmark {
+    private static String CSV_FILE = "data/bench_users.csv";
+    private static String BINARY_FILE = "data/bench_users.bin";
+    private static int RUNS = 3;
+
+    public static void main(String[] args) throws IOException {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 100000;
+        try {
+            generateUsers(CSV_FILE, userCount, 20, 50);
+            BinaryUserCodec.csvToBinary(CSV_FILE, BINARY_FILE);
+
+            long csvSize = new File(CSV_FILE).length();
+            long binarySize = new File(BINARY_FILE).length();
+            System.out.printf("users=%d  csv=%d bytes  binary=%d bytes  ratio=%.2f%n",
+                    userCount, csvSize, binarySize, (double) binarySize / csvSize);
+
+            long csvBest = Long.MAX_VALUE;
+            long binaryBest = Long.MAX_VALUE;
+            for (int run = 0; run < RUNS; run++) {
+                long start = System.nanoTime();
+                new UserManager(CSV_FILE).loadUsers();
+                csvBest = Math.min(csvBest, (System.nanoTime() - start) / 1000000);
+
+                start = System.nanoTime();
+                BinaryUserCodec.readFile(BINARY_FILE);
+                binaryBest = Math.min(binaryBest, (System.nanoTime() - start) / 1000000);
+            }
+            System.out.printf("parse csv=%d ms  binary=%d ms%n", csvBest, binaryBest);
+        } finally {
+            new File(CSV_FILE).delete();
+            new File(BINARY_FILE).delete();
+        }
+    }
+
+    /**
+     * Generates a synthetic user file
+     * @param filePath the output path
+     * @param userCount the number of users
+     * @param watchlistSize the watchlist entries per user
+     * @param historySize the history entries per user
+     */
+    public static void generateUsers(String filePath, int userCount, int watchlistSize, int historySize)
+            throws IOException {
+        Random random = new Random(42);
+        LocalDate base = LocalDate.of(2020, 1, 1);
+        BufferedWriter writer = new BufferedWriter(new FileWriter(filePath));
+        try {
+            writer.write("username,password,usertype,watchlist,history");
+            writer.newLine();
+            for (int i = 0; i < userCount; i++) {
+                StringBuilder line = new StringBuilder();
+                line.append("user").append(i).append(",$HASH$").append(Integer.toHexString(i * 31))
+                        .append(",").append(i % 5 == 0 ? User.TYPE_PREMIUM : User.TYPE_BASIC).append(",");
+                for (int j = 0; j < watchlistSize; j++) {
+                    line.append(j > 0 ? ";" : "").append(String.format("M%05d", random.nextInt(20000)));
+                }
+                line.append(",");
+                for (int j = 0; j < historySize; j++) {
+                    line.append(j > 0 ? ";" : "").append(String.format("M%05d", random.nextInt(20000)))
+                            .append("@").append(base.plusDays(random.nextInt(2000)));
+                }
+                writer.write(line.toString());
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
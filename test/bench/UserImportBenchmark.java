@@ -0,0 +1,59 @@
+package test.bench;
+
+import service.UserImportResult;
+import service.UserManager;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+/**
+ * UserImportBenchmark - Onboarding users with register() per user vs one importUsers() call
+ * Run with: java -cp "bin:lib/*" test.bench.UserImportBenchmark [registerUsers] [importUsers]
+ */
+public class UserImportBenchmark {
+    private static String USER_FILE = "data/bench_import_users.csv";
+    private static String IMPORT_FILE = "data/bench_import_input.csv";
+
+    public static void main(String[] args) throws IOException {
+        int registerUsers = args.length > 0 ? Integer.parseInt(args[0]) : 2000;
+        int importUsers = args.length > 1 ? Integer.parseInt(args[1]) : 500000;
+        try {
+            UserManager manager = new UserManager(USER_FILE);
+            long start = System.nanoTime();
+            for (int i = 0; i < registerUsers; i++) {
+                manager.register("user" + i, "password" + i);
+            }
+            long registerMillis = (System.nanoTime() - start) / 1000000;
+            System.out.printf("register: %d users in %d ms (%.0f users/s)%n", registerUsers, registerMillis,
+                    registerUsers * 1000.0 / Math.max(1, registerMillis));
+            new File(USER_FILE).delete();
+
+            for (int users : new int[] {registerUsers, importUsers}) {
+                writeInput(users);
+                manager = new UserManager(USER_FILE);
+                UserImportResult result = manager.importUsers(IMPORT_FILE, Runtime.getRuntime().availableProcessors(),
+                        null);
+                System.out.println("importUsers: " + result);
+                new File(USER_FILE).delete();
+            }
+        } finally {
+            new File(USER_FILE).delete();
+            new File(IMPORT_FILE).delete();
+        }
+    }
+
+    private static void writeInput(int users) throws IOException {
+        BufferedWriter writer = new BufferedWriter(new FileWriter(IMPORT_FILE));
+        try {
+            writer.write("username,password,type");
+            writer.newLine();
+            for (int i = 0; i < users; i++) {
+                writer.write("user" + i + ",password" + i + "," + (i % 10 == 0 ? "premium" : "basic"));
+                writer.newLine();
+            }
+        } finally {
+            writer.close();
+        }
+    }
+}
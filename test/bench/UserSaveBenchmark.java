@@ -0,0 +1,58 @@
+package test.bench;
+
+import model.User;
+import service.CsvUserStore;
+import util.FileHandler;
+import java.io.File;
+import java.util.ArrayList;
+
+/**
+ * UserSaveBenchmark - Sequential vs parallel serialization when saving all users
+ * "lines" is the previous path (toCSV strings written through a BufferedWriter),
+ * the other rows use CsvUserStore.saveAll with 1..N serializing threads and one
+ * gathering write. Reports the best of several runs
+ * Run with: java -cp "bin:lib/*" test.bench.UserSaveBenchmark [users] [runs]
+ */
+public class UserSaveBenchmark {
+    private static String USER_FILE = "data/bench_save_users.csv";
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int runs = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        try {
+            UserCodecBenchmark.generateUsers(USER_FILE, userCount, 10, 20);
+            CsvUserStore store = new CsvUserStore(USER_FILE);
+            ArrayList<User> users = store.loadAll();
+            System.out.println("users=" + users.size() + "  cores=" + Runtime.getRuntime().availableProcessors());
+
+            long best = Long.MAX_VALUE;
+            for (int run = 0; run < runs; run++) {
+                long start = System.nanoTime();
+                ArrayList<String> lines = new ArrayList<>();
+                lines.add(CsvUserStore.USER_FILE_HEADER);
+                for (User user : users) {
+                    lines.add(user.toCSV());
+                }
+                FileHandler.writeCSV(USER_FILE, lines);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            report("lines", best);
+
+            for (int threads = 1; threads <= Runtime.getRuntime().availableProcessors(); threads *= 2) {
+                best = Long.MAX_VALUE;
+                for (int run = 0; run < runs; run++) {
+                    long start = System.nanoTime();
+                    store.saveAll(users, threads);
+                    best = Math.min(best, System.nanoTime() - start);
+                }
+                report("threads=" + threads, best);
+            }
+        } finally {
+            new File(USER_FILE).delete();
+        }
+    }
+
+    private static void report(String name, long nanos) {
+        System.out.printf("%-12s %8.1f ms%n", name, nanos / 1e6);
+    }
+}
@@ -0,0 +1,65 @@
+package test.bench;
+
+import service.UserManager;
+import service.UserTiers;
+import java.io.File;
+import java.util.Random;
+
+/**
+ * UserTierBenchmark - Skewed user access with and without hot/warm/cold tiering
+ * Most accesses go to a small set of active users, the rest are spread over the whole
+ * user base. Reports the heap retained after the run, the access time and the tier counters
+ * Run with: java -cp "bin:lib/*" test.bench.UserTierBenchmark [users] [accesses] [hot users]
+ */
+public class UserTierBenchmark {
+    private static String USER_FILE = "data/bench_tier_users.csv";
+
+    public static void main(String[] args) throws Exception {
+        int userCount = args.length > 0 ? Integer.parseInt(args[0]) : 200000;
+        int accesses = args.length > 1 ? Integer.parseInt(args[1]) : 400000;
+        int hotUsers = args.length > 2 ? Integer.parseInt(args[2]) : 5000;
+        try {
+            UserCodecBenchmark.generateUsers(USER_FILE, userCount, 10, 20);
+            run("lazy", userCount, accesses, 0);
+            run("tiered", userCount, accesses, hotUsers);
+        } finally {
+            new File(USER_FILE).delete();
+        }
+    }
+
+    private static void run(String name, int userCount, int accesses, int hotUsers) {
+        long before = usedHeap();
+        UserManager manager = new UserManager(USER_FILE);
+        manager.enableLazyLoading();
+        if (hotUsers > 0) {
+            manager.enableTiering(hotUsers, 4L * 1024 * 1024);
+        }
+        manager.loadUsers();
+        Random random = new Random(7);
+        int active = Math.max(1, userCount / 100);
+        long start = System.nanoTime();
+        for (int i = 0; i < accesses; i++) {
+            // 90% of the accesses go to 1% of the users
+            int user = random.nextInt(10) < 9 ? random.nextInt(active) : random.nextInt(userCount);
+            manager.getUser("user" + user);
+        }
+        long nanos = System.nanoTime() - start;
+        long retained = usedHeap() - before;
+        System.out.printf("%-7s hydrated=%7d  heap=%7.1f MB  access=%6.2f us%n", name,
+                manager.getHydratedUserCount(), retained / 1e6, nanos / 1e3 / accesses);
+        UserTiers tiers = manager.getTiers();
+        if (tiers != null) {
+            System.out.printf("        hot hits=%d  warm hits=%d  cold misses=%d  demotions=%d  evictions=%d%n",
+                    tiers.getHotHits(), tiers.getWarmHits(), tiers.getColdMisses(),
+                    tiers.getDemotions(), tiers.getEvictions());
+        }
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        Runtime runtime = Runtime.getRuntime();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
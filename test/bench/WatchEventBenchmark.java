@@ -0,0 +1,80 @@
+package test.bench;
+
+import service.WatchEventStore;
+import java.io.File;
+import java.time.LocalDate;
+import java.util.Random;
+
+/**
+ * WatchEventBenchmark - Appending and scanning a day-partitioned watch event store
+ * Appends random events spread over a year, then times a full scan and a one-week scan
+ * (partition pruning) and reports events per second
+ * Run with: java -cp "bin:lib/*" test.bench.WatchEventBenchmark [events] [users] [movies]
+ */
+public class WatchEventBenchmark {
+    private static String EVENT_DIRECTORY = "data/bench_events";
+    private static int DAYS = 365;
+
+    public static void main(String[] args) throws Exception {
+        int eventCount = args.length > 0 ? Integer.parseInt(args[0]) : 5000000;
+        int userCount = args.length > 1 ? Integer.parseInt(args[1]) : 100000;
+        int movieCount = args.length > 2 ? Integer.parseInt(args[2]) : 20000;
+        LocalDate first = LocalDate.parse("2025-01-01");
+        int firstDay = (int) first.toEpochDay();
+        String[] usernames = new String[userCount];
+        for (int i = 0; i < userCount; i++) {
+            usernames[i] = "user" + i;
+        }
+        String[] movieIds = new String[movieCount];
+        for (int i = 0; i < movieCount; i++) {
+            movieIds[i] = String.format("M%06d", i);
+        }
+
+        cleanUp();
+        try {
+            WatchEventStore store = new WatchEventStore(EVENT_DIRECTORY);
+            Random random = new Random(42);
+            long start = System.nanoTime();
+            for (int i = 0; i < eventCount; i++) {
+                store.append(usernames[random.nextInt(userCount)], movieIds[random.nextInt(movieCount)],
+                        firstDay + random.nextInt(DAYS));
+            }
+            store.flush();
+            report("append", eventCount, System.nanoTime() - start);
+
+            WatchEventStore reopened = new WatchEventStore(EVENT_DIRECTORY);
+            long[] checksum = new long[1];
+            start = System.nanoTime();
+            long visited = reopened.scan(first, first.plusDays(DAYS - 1), (userCode, movieCode, epochDay) -> {
+                checksum[0] += userCode ^ movieCode;
+                return true;
+            });
+            report("full scan", visited, System.nanoTime() - start);
+
+            start = System.nanoTime();
+            visited = reopened.scan(first.plusDays(100), first.plusDays(106), (userCode, movieCode, epochDay) -> {
+                checksum[0] += userCode ^ movieCode;
+                return true;
+            });
+            report("week scan", visited, System.nanoTime() - start);
+            System.out.println("checksum " + checksum[0]);
+        } finally {
+            cleanUp();
+        }
+    }
+
+    private static void report(String name, long events, long nanos) {
+        System.out.printf("%-10s events=%9d  time=%7.1f ms  %6.1f M events/s%n",
+                name, events, nanos / 1e6, events / (nanos / 1e3));
+    }
+
+    private static void cleanUp() {
+        File[] files = new File(EVENT_DIRECTORY).listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        new File(EVENT_DIRECTORY).delete();
+    }
+}
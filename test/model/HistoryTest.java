@@ -169,4 +169,85 @@ public class HistoryTest {
         assertTrue(history.contains("M002"));
         assertTrue(history.contains("M003"));
     }
+
+    @Test
+    public void testRewatchKeepsEveryEvent() {
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M002", "2024-01-02");
+        history.addMovie("M001", "2024-03-01");
+
+        assertEquals(2, history.size());
+        assertEquals(3, history.getEventCount());
+        assertEquals(2, history.watchCount("M001"));
+        assertEquals(1, history.watchCount("M002"));
+        assertEquals(0, history.watchCount("M003"));
+        assertEquals("2024-03-01", history.lastWatched("M001"));
+        assertNull(history.lastWatched("M003"));
+        assertEquals("M001", history.getEventMovieId(2));
+        assertEquals("2024-01-01", history.getEventDate(0));
+        assertEquals("M001", history.getMovieIds().get(0));
+        assertEquals("2024-03-01", history.getMovieHistory().get("M001"));
+    }
+
+    @Test
+    public void testSameDayRewatchKept() {
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M001", "2024-01-01");
+
+        assertEquals(2, history.getEventCount());
+        assertEquals(2, history.watchCount("M001"));
+        assertEquals("M001@2024-01-01;M001@2024-01-01", history.toCSV());
+    }
+
+    @Test
+    public void testRewatchCSVRoundTrip() {
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M001", "2024-02-01");
+        history.addMovie("M002", "someday");
+        String csv = history.toCSV();
+        assertEquals("M001@2024-01-01;M001@2024-02-01;M002@someday", csv);
+
+        History loaded = new History();
+        loaded.loadFromCSV(csv);
+        assertEquals(3, loaded.getEventCount());
+        assertEquals(2, loaded.watchCount("M001"));
+        assertEquals("someday", loaded.lastWatched("M002"));
+        assertEquals(csv, loaded.toCSV());
+    }
+
+    @Test
+    public void testLoadFromCSVOneEventPerMovie() {
+        history.loadFromCSV("M001@2024-01-01;M002@2024-01-02");
+
+        assertEquals(2, history.getEventCount());
+        assertEquals(1, history.watchCount("M001"));
+        assertEquals("2024-01-02", history.lastWatched("M002"));
+    }
+
+    @Test
+    public void testManyMovies() {
+        for (int i = 0; i < 1000; i++) {
+            history.addMovie("M" + i, "2024-01-01");
+        }
+        history.addMovie("M500", "2024-06-01");
+
+        assertEquals(1000, history.size());
+        assertEquals(1001, history.getEventCount());
+        assertEquals(2, history.watchCount("M500"));
+        assertEquals("2024-06-01", history.lastWatched("M500"));
+        assertEquals("M999", history.getMovieIds().get(999));
+        assertFalse(history.contains("M1000"));
+    }
+
+    @Test
+    public void testClearAfterRewatch() {
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M001", "2024-01-02");
+        history.clear();
+
+        assertEquals(0, history.getEventCount());
+        assertEquals(0, history.watchCount("M001"));
+        history.addMovie("M001", "2024-01-03");
+        assertEquals(1, history.watchCount("M001"));
+    }
 }
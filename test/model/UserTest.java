@@ -4,6 +4,8 @@ import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
+import model.BasicUser;
+import model.PremiumUser;
 import model.User;
 
 /**
@@ -127,4 +129,62 @@ public class UserTest {
         assertTrue(str.contains("testuser"));
         assertTrue(str.contains("Basic"));
     }
+
+    @Test
+    public void testNewUserIsNotDirty() {
+        User user = new User("testuser", "password");
+        assertFalse(user.isDirty());
+    }
+    
+    @Test
+    public void testMutationsMarkUserDirty() {
+        User user = new User("testuser", "password");
+        user.addToWatchlist("M001");
+        assertTrue(user.isDirty());
+        
+        user.clearDirty();
+        user.markAsWatched("M001", "2024-01-01");
+        assertTrue(user.isDirty());
+        
+        user.clearDirty();
+        user.setPassword("newpassword");
+        assertTrue(user.isDirty());
+    }
+    
+    @Test
+    public void testFailedMutationsKeepUserClean() {
+        User user = new User("testuser", "password");
+        user.addToWatchlist("M001");
+        user.clearDirty();
+        
+        assertFalse(user.addToWatchlist("M001"));
+        assertFalse(user.removeFromWatchlist("M999"));
+        assertFalse(user.isDirty());
+    }
+    
+    @Test
+    public void testCopyFrom() {
+        User stored = new User("testuser", "newhash");
+        stored.addToWatchlist("M001");
+        stored.markAsWatched("M002", "2024-01-01");
+        stored.setVersion(42);
+        
+        user.copyFrom(stored);
+        assertEquals("testuser", user.getUsername());
+        assertEquals("newhash", user.getPassword());
+        assertTrue(user.getWatchlist().contains("M001"));
+        assertEquals("2024-01-01", user.getHistory().lastWatched("M002"));
+        assertEquals(42, user.getVersion());
+    }
+    
+    @Test
+    public void testCreateByType() {
+        User premium = User.createByType("alice", "hash", User.TYPE_PREMIUM);
+        assertTrue(premium instanceof PremiumUser);
+        assertEquals(User.TYPE_PREMIUM, premium.getUserType());
+        assertEquals("alice", premium.getUsername());
+        
+        assertTrue(User.createByType("bob", "hash", User.TYPE_BASIC) instanceof BasicUser);
+        assertTrue(User.createByType("carol", "hash", "unknown") instanceof BasicUser);
+    }
 }
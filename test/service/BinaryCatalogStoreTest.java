@@ -0,0 +1,44 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.BinaryCatalogStore;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for BinaryCatalogStore class
+ */
+public class BinaryCatalogStoreTest {
+
+    private static String TEST_CATALOG_FILE = "data/test_catalog.bin";
+
+    @After
+    public void tearDown() {
+        new File(TEST_CATALOG_FILE).delete();
+    }
+
+    @Test
+    public void testMissingFile() throws IOException {
+        assertNull(new BinaryCatalogStore(TEST_CATALOG_FILE).loadAll());
+    }
+
+    @Test
+    public void testSaveAndLoadAll() throws IOException {
+        ArrayList<Movie> movies = new ArrayList<>();
+        movies.add(new Movie("M001", "Alpha", "Drama", 2001, 7.5));
+        movies.add(new Movie("M002", "Beta", "Comedy", 2002, 6.0, Movie.TYPE_SHORT, 20));
+        BinaryCatalogStore store = new BinaryCatalogStore(TEST_CATALOG_FILE);
+        store.saveAll(movies);
+
+        ArrayList<Movie> loaded = store.loadAll();
+        assertEquals(2, loaded.size());
+        assertEquals("Beta", loaded.get(1).getTitle());
+        assertEquals(Movie.TYPE_SHORT, loaded.get(1).getMovieType());
+        assertEquals(20, loaded.get(1).getDuration());
+    }
+}
@@ -0,0 +1,120 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.PremiumUser;
+import model.User;
+import service.BinaryUserCodec;
+import service.UserManager;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for BinaryUserCodec class
+ */
+public class BinaryUserCodecTest {
+
+    private static String TEST_CSV_FILE = "data/test_codec_users.csv";
+    private static String TEST_BINARY_FILE = "data/test_codec_users.bin";
+    private static String TEST_CSV_COPY = "data/test_codec_users_copy.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_CSV_FILE).delete();
+        new File(TEST_BINARY_FILE).delete();
+        new File(TEST_CSV_COPY).delete();
+    }
+
+    private ArrayList<User> sampleUsers() {
+        ArrayList<User> users = new ArrayList<>();
+        User alice = new BasicUser("alice", "$HASH$abc");
+        alice.addToWatchlist("M010");
+        alice.addToWatchlist("M002");
+        alice.markAsWatched("M050", "2025-07-12");
+        alice.markAsWatched("M001", "2024-01-31");
+        alice.markAsWatched("M050", "2025-08-02");
+        users.add(alice);
+
+        User bob = new PremiumUser("bob", "plain");
+        bob.markAsWatched("M003", "yesterday");
+        users.add(bob);
+
+        users.add(new BasicUser("carol", "pw"));
+        return users;
+    }
+
+    private ArrayList<User> roundTrip(ArrayList<User> users) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryUserCodec.write(users, out);
+        return BinaryUserCodec.read(new ByteArrayInputStream(out.toByteArray()));
+    }
+
+    @Test
+    public void testRoundTrip() throws IOException {
+        ArrayList<User> users = sampleUsers();
+        ArrayList<User> decoded = roundTrip(users);
+
+        assertEquals(users.size(), decoded.size());
+        for (int i = 0; i < users.size(); i++) {
+            assertEquals(users.get(i).toCSV(), decoded.get(i).toCSV());
+            assertEquals(users.get(i).getClass(), decoded.get(i).getClass());
+        }
+    }
+
+    @Test
+    public void testRoundTripEmpty() throws IOException {
+        assertTrue(roundTrip(new ArrayList<User>()).isEmpty());
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidData() throws IOException {
+        BinaryUserCodec.read(new ByteArrayInputStream("username,password".getBytes()));
+    }
+
+    @Test
+    public void testVarintAndZigzag() throws IOException {
+        long[] values = {0, 1, 127, 128, 300, 1L << 40, Long.MAX_VALUE};
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        for (long value : values) {
+            BinaryUserCodec.writeVarint(out, value);
+        }
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(bytes.toByteArray()));
+        for (long value : values) {
+            assertEquals(value, BinaryUserCodec.readVarint(in));
+        }
+
+        assertEquals(0, BinaryUserCodec.zigzag(0));
+        assertEquals(1, BinaryUserCodec.zigzag(-1));
+        assertEquals(2, BinaryUserCodec.zigzag(1));
+        assertEquals(-5, BinaryUserCodec.unzigzag(BinaryUserCodec.zigzag(-5)));
+    }
+
+    @Test
+    public void testCsvBinaryConversion() throws IOException {
+        UserManager manager = new UserManager(TEST_CSV_FILE);
+        for (User user : sampleUsers()) {
+            manager.register(user.getUsername() + "x", "password123", user.getUserType());
+        }
+        User registered = manager.getUser("alicex");
+        manager.markAsWatched(registered, "M007", "2025-01-01");
+
+        BinaryUserCodec.csvToBinary(TEST_CSV_FILE, TEST_BINARY_FILE);
+        assertTrue(new File(TEST_BINARY_FILE).length() < new File(TEST_CSV_FILE).length());
+
+        BinaryUserCodec.binaryToCSV(TEST_BINARY_FILE, TEST_CSV_COPY);
+        UserManager copy = new UserManager(TEST_CSV_COPY);
+        assertTrue(copy.loadUsers());
+        assertEquals(3, copy.getUserCount());
+        assertEquals("2025-01-01", copy.getUser("alicex").getHistory().getWatchDate("M007"));
+        assertNotNull(copy.login("bobx", "password123"));
+    }
+}
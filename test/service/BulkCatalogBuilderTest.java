@@ -0,0 +1,159 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.BulkCatalog;
+import service.BulkCatalogBuilder;
+import service.CsvCatalogStore;
+import util.FileHandler;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for BulkCatalogBuilder class
+ */
+public class BulkCatalogBuilderTest {
+
+    private static String TEST_SOURCE_FILE = "data/test_bulk_source.csv";
+    private static String TEST_CATALOG_FILE = "data/test_bulk_movies.csv";
+    private static String TEST_WORK_DIRECTORY = "data/test_bulk_work";
+    private static String[] INDEX_EXTENSIONS = {".ids", ".genre", ".year", ".rating", ".genres"};
+
+    @Before
+    public void setUp() {
+        tearDown();
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_SOURCE_FILE).delete();
+        new File(TEST_SOURCE_FILE + ".gz").delete();
+        new File(TEST_CATALOG_FILE).delete();
+        for (String extension : INDEX_EXTENSIONS) {
+            new File(TEST_CATALOG_FILE + extension).delete();
+        }
+        File[] runs = new File(TEST_WORK_DIRECTORY).listFiles();
+        if (runs != null) {
+            for (File run : runs) {
+                run.delete();
+            }
+        }
+        new File(TEST_WORK_DIRECTORY).delete();
+    }
+
+    private void writeSource(String... rows) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(CsvCatalogStore.MOVIE_FILE_HEADER);
+        for (String row : rows) {
+            lines.add(row);
+        }
+        FileHandler.writeCSV(TEST_SOURCE_FILE, lines);
+    }
+
+    @Test
+    public void testCatalogIsSortedById() throws IOException {
+        writeSource("M003,Gamma,Drama,2001,7.0",
+                "M001,Alpha,Action,1999,8.0",
+                "M004,\"Delta, the Sequel\",Drama,2003,6.5",
+                "M002,Beta,Comedy,2010,5.5");
+        BulkCatalogBuilder builder = new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 2);
+
+        assertEquals(4, builder.build(TEST_SOURCE_FILE, TEST_CATALOG_FILE));
+        assertTrue(builder.getSpilledRuns() >= 2);
+
+        ArrayList<Movie> movies = new CsvCatalogStore(TEST_CATALOG_FILE).loadAll();
+        assertEquals(4, movies.size());
+        assertEquals("M001", movies.get(0).getId());
+        assertEquals("M002", movies.get(1).getId());
+        assertEquals("M003", movies.get(2).getId());
+        assertEquals("Delta, the Sequel", movies.get(3).getTitle());
+        assertEquals(6.5, movies.get(3).getRating(), 0.001);
+    }
+
+    @Test
+    public void testDuplicateIdsKeepFirstRow() throws IOException {
+        writeSource("M002,First,Drama,2001,7.0",
+                "M001,Alpha,Action,1999,8.0",
+                "M002,Second,Drama,2002,6.0",
+                "M002,Third,Drama,2003,5.0");
+        assertEquals(2, new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 1).build(TEST_SOURCE_FILE, TEST_CATALOG_FILE));
+
+        ArrayList<Movie> movies = new CsvCatalogStore(TEST_CATALOG_FILE).loadAll();
+        assertEquals("First", movies.get(1).getTitle());
+    }
+
+    @Test
+    public void testSkipsInvalidRows() throws IOException {
+        writeSource("M001,Alpha,Action,1999,8.0",
+                "M002,Beta,Comedy,not-a-year,5.5",
+                "M003,Short row",
+                "",
+                "M004,Delta,Drama,2003,6.5");
+        assertEquals(2, new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 10).build(TEST_SOURCE_FILE, TEST_CATALOG_FILE));
+    }
+
+    @Test
+    public void testManyRunsNeedIntermediatePasses() throws IOException {
+        ArrayList<String> rows = new ArrayList<>();
+        for (int i = 199; i >= 0; i--) {
+            rows.add(String.format("M%04d,Movie %d,Genre%d,%d,%d.0", i, i, i % 3, 1950 + i % 50, i % 10));
+        }
+        writeSource(rows.toArray(new String[0]));
+        BulkCatalogBuilder builder = new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 1);
+
+        assertEquals(200, builder.build(TEST_SOURCE_FILE, TEST_CATALOG_FILE));
+        assertTrue(builder.getMergePasses() > 0);
+        ArrayList<Movie> movies = new CsvCatalogStore(TEST_CATALOG_FILE).loadAll();
+        for (int i = 0; i < 200; i++) {
+            assertEquals(String.format("M%04d", i), movies.get(i).getId());
+        }
+
+        BulkCatalog catalog = new BulkCatalog(TEST_CATALOG_FILE);
+        assertEquals(200, catalog.getMovieCount());
+        assertEquals(67, catalog.getGenrePositions("genre0").length);
+        catalog.close();
+    }
+
+    @Test
+    public void testRemovesRuns() throws IOException {
+        writeSource("M002,Beta,Comedy,2010,5.5", "M001,Alpha,Action,1999,8.0");
+        new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 1).build(TEST_SOURCE_FILE, TEST_CATALOG_FILE);
+        assertEquals(0, new File(TEST_WORK_DIRECTORY).listFiles().length);
+    }
+
+    @Test
+    public void testReadsCompressedUtf8Source() throws IOException {
+        String content = CsvCatalogStore.MOVIE_FILE_HEADER + "\nM001,Caf\u00e9 Society,Drama,2016,7.6\n";
+        java.util.zip.GZIPOutputStream out = new java.util.zip.GZIPOutputStream(
+                new java.io.FileOutputStream(TEST_SOURCE_FILE + ".gz"));
+        out.write(content.getBytes(StandardCharsets.UTF_8));
+        out.close();
+
+        assertEquals(1, new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 10).build(TEST_SOURCE_FILE + ".gz",
+                TEST_CATALOG_FILE));
+        String written = new String(Files.readAllBytes(new File(TEST_CATALOG_FILE).toPath()), StandardCharsets.UTF_8);
+        assertTrue(written.contains("Caf\u00e9 Society"));
+    }
+
+    @Test
+    public void testEmptySource() throws IOException {
+        writeSource();
+        assertEquals(0, new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 10).build(TEST_SOURCE_FILE, TEST_CATALOG_FILE));
+        BulkCatalog catalog = new BulkCatalog(TEST_CATALOG_FILE);
+        assertEquals(0, catalog.getMovieCount());
+        assertNull(catalog.getMovie("M001"));
+        catalog.close();
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingSource() throws IOException {
+        new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 10).build(TEST_SOURCE_FILE, TEST_CATALOG_FILE);
+    }
+}
@@ -0,0 +1,104 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.BulkCatalog;
+import service.BulkCatalogBuilder;
+import util.FileHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for BulkCatalog class
+ */
+public class BulkCatalogTest {
+
+    private static String TEST_SOURCE_FILE = "data/test_bulk_catalog_source.csv";
+    private static String TEST_CATALOG_FILE = "data/test_bulk_catalog.csv";
+    private static String TEST_WORK_DIRECTORY = "data/test_bulk_catalog_work";
+    private static String[] INDEX_EXTENSIONS = {".ids", ".genre", ".year", ".rating", ".genres"};
+    private BulkCatalog catalog;
+
+    @Before
+    public void setUp() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("id,title,genre,year,rating");
+        lines.add("T004,Cafe Society,Drama,2016,7.6");
+        lines.add("T002,Dark City,Sci-Fi,1998,7.6");
+        lines.add("T003,Knight and Day,action,2010,6.3");
+        lines.add("T001,The Dark Knight,Action,2008,9.0");
+        lines.add("T005,Bad Day,Comedy,2010,-1.0");
+        FileHandler.writeCSV(TEST_SOURCE_FILE, lines);
+        new BulkCatalogBuilder(TEST_WORK_DIRECTORY, 2).build(TEST_SOURCE_FILE, TEST_CATALOG_FILE);
+        catalog = new BulkCatalog(TEST_CATALOG_FILE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        catalog.close();
+        new File(TEST_SOURCE_FILE).delete();
+        new File(TEST_CATALOG_FILE).delete();
+        for (String extension : INDEX_EXTENSIONS) {
+            new File(TEST_CATALOG_FILE + extension).delete();
+        }
+        new File(TEST_WORK_DIRECTORY).delete();
+    }
+
+    @Test
+    public void testGetMovieById() throws IOException {
+        assertEquals(5, catalog.getMovieCount());
+        Movie movie = catalog.getMovie("T003");
+        assertEquals("Knight and Day", movie.getTitle());
+        assertEquals(2010, movie.getYear());
+        assertEquals("T001", catalog.getMovie("T001").getId());
+        assertEquals("T005", catalog.getMovie("T005").getId());
+        assertNull(catalog.getMovie("T000"));
+        assertNull(catalog.getMovie("T999"));
+    }
+
+    @Test
+    public void testGetMovieByPosition() throws IOException {
+        assertEquals("T001", catalog.getMovie(0).getId());
+        assertEquals("T005", catalog.getMovie(4).getId());
+        assertNull(catalog.getMovie(5));
+        assertNull(catalog.getMovie(-1));
+    }
+
+    @Test
+    public void testGenrePositionsIgnoreCase() {
+        assertArrayEquals(new int[] {0, 2}, catalog.getGenrePositions("ACTION"));
+        assertArrayEquals(new int[] {3}, catalog.getGenrePositions("drama"));
+        assertEquals(0, catalog.getGenrePositions("Western").length);
+        assertEquals(4, catalog.getGenres().size());
+        assertEquals("Action", catalog.getGenres().get(0));
+    }
+
+    @Test
+    public void testYearPositions() {
+        assertArrayEquals(new int[] {0, 2, 4}, catalog.getYearPositions(2008, 2010));
+        assertArrayEquals(new int[] {1, 0, 2, 4, 3}, catalog.getYearPositions(1900, 2100));
+        assertEquals(0, catalog.getYearPositions(2011, 2015).length);
+        assertEquals(0, catalog.getYearPositions(2010, 2008).length);
+    }
+
+    @Test
+    public void testRatingOrder() throws IOException {
+        // Ties keep ID order
+        assertArrayEquals(new int[] {0, 1, 3}, catalog.getPositionsByMinRating(7.6));
+        assertArrayEquals(new int[] {0, 1, 3, 2, 4}, catalog.getPositionsByMinRating(-5.0));
+        assertEquals(0, catalog.getPositionsByMinRating(9.5).length);
+        assertEquals(4, catalog.getRatingOrderPosition(4));
+        assertEquals("The Dark Knight", catalog.getMovies(catalog.getPositionsByMinRating(8.0)).get(0).getTitle());
+    }
+
+    @Test(expected = IOException.class)
+    public void testRejectsChangedCatalog() throws IOException {
+        FileHandler.appendLine(TEST_CATALOG_FILE, "T006,Added Later,Drama,2020,5.0");
+        new BulkCatalog(TEST_CATALOG_FILE);
+    }
+}
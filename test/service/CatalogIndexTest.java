@@ -0,0 +1,146 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.CatalogIndex;
+import util.FileHandler;
+import util.FileStamp;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for CatalogIndex class
+ */
+public class CatalogIndexTest {
+
+    private static String TEST_SOURCE_FILE = "data/test_index_movies.csv";
+    private static String TEST_INDEX_FILE = "data/test_movies.index";
+    private ArrayList<Movie> movies;
+
+    @Before
+    public void setUp() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("id,title,genre,year,rating");
+        lines.add("T001,The Dark Knight,Action,2008,9.0");
+        lines.add("T002,Dark City,Sci-Fi,1998,7.6");
+        lines.add("T003,Knight and Day,action,2010,6.3");
+        lines.add("T004,Cafe Society,Drama,2016,7.6");
+        FileHandler.writeCSV(TEST_SOURCE_FILE, lines);
+
+        movies = new ArrayList<>();
+        movies.add(new Movie("T001", "The Dark Knight", "Action", 2008, 9.0));
+        movies.add(new Movie("T002", "Dark City", "Sci-Fi", 1998, 7.6));
+        movies.add(new Movie("T003", "Knight and Day", "action", 2010, 6.3));
+        movies.add(new Movie("T004", "Caf\u00e9 Society", "Drama", 2016, 7.6));
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_SOURCE_FILE).delete();
+        new File(TEST_INDEX_FILE).delete();
+    }
+
+    @Test
+    public void testRatingOrderIsStable() {
+        CatalogIndex index = CatalogIndex.build(movies);
+        assertEquals(4, index.getMovieCount());
+        assertEquals(0, index.getRatingOrderPosition(0));
+        assertEquals(1, index.getRatingOrderPosition(1));
+        assertEquals(3, index.getRatingOrderPosition(2));
+        assertEquals(2, index.getRatingOrderPosition(3));
+    }
+
+    @Test
+    public void testGenrePositions() {
+        CatalogIndex index = CatalogIndex.build(movies);
+        assertArrayEquals(new int[] {0, 2}, index.getGenrePositions("ACTION"));
+        assertArrayEquals(new int[] {1}, index.getGenrePositions("sci-fi"));
+        assertEquals(0, index.getGenrePositions("Western").length);
+        assertEquals(3, index.getGenres().size());
+        assertEquals("Action", index.getGenres().get(0));
+    }
+
+    @Test
+    public void testTitleCandidates() {
+        CatalogIndex index = CatalogIndex.build(movies);
+        assertArrayEquals(new int[] {0, 1}, index.getTitleCandidates("dark"));
+        assertArrayEquals(new int[] {0, 2}, index.getTitleCandidates("knight"));
+        assertArrayEquals(new int[] {3}, index.getTitleCandidates("caf\u00e9"));
+        assertEquals(0, index.getTitleCandidates("zzz").length);
+        assertNull(index.getTitleCandidates("da"));
+    }
+
+    @Test
+    public void testWriteAndLoadMapped() throws IOException {
+        CatalogIndex.build(movies, FileStamp.of(TEST_SOURCE_FILE)).write(TEST_INDEX_FILE);
+        CatalogIndex loaded = CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size());
+        assertNotNull(loaded);
+        assertArrayEquals(new int[] {0, 2}, loaded.getGenrePositions("action"));
+        assertArrayEquals(new int[] {0, 1}, loaded.getTitleCandidates("dark"));
+        assertEquals(2, loaded.getRatingOrderPosition(3));
+        assertFalse(new File(TEST_INDEX_FILE + ".tmp").exists());
+    }
+
+    @Test
+    public void testStaleIndexRejected() throws IOException {
+        CatalogIndex.build(movies, FileStamp.of(TEST_SOURCE_FILE)).write(TEST_INDEX_FILE);
+        assertNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size() + 1));
+
+        ArrayList<String> lines = FileHandler.readCSV(TEST_SOURCE_FILE);
+        lines.add("T005,Extra,Drama,2001,5.0");
+        FileHandler.writeCSV(TEST_SOURCE_FILE, lines);
+        assertNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size()));
+    }
+
+    @Test
+    public void testTouchedSourceAcceptedByChecksum() throws IOException {
+        CatalogIndex.build(movies, FileStamp.of(TEST_SOURCE_FILE)).write(TEST_INDEX_FILE);
+        new File(TEST_SOURCE_FILE).setLastModified(new File(TEST_SOURCE_FILE).lastModified() + 5000);
+        assertNotNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size()));
+    }
+
+    @Test
+    public void testTouchedSourceStoresNewTime() throws IOException {
+        CatalogIndex.build(movies, FileStamp.of(TEST_SOURCE_FILE)).write(TEST_INDEX_FILE);
+        new File(TEST_SOURCE_FILE).setLastModified(1000L);
+
+        assertNotNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size()));
+        // The index took the new time, so the next load does not hash the source
+        assertEquals(1000L, ByteBuffer.wrap(Files.readAllBytes(new File(TEST_INDEX_FILE).toPath())).getLong(16));
+        assertNotNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size()));
+    }
+
+    @Test
+    public void testSourceEditedDuringLoadIsStale() throws IOException {
+        FileStamp before = FileStamp.of(TEST_SOURCE_FILE);
+        // Edited after the stamp was taken, while the movies were being parsed
+        ArrayList<String> lines = FileHandler.readCSV(TEST_SOURCE_FILE);
+        lines.set(1, "T001,The Dark Knight,Action,2008,8.0");
+        FileHandler.writeCSV(TEST_SOURCE_FILE, lines);
+        new File(TEST_SOURCE_FILE).setLastModified(before.getLastModified() + 5000);
+
+        CatalogIndex.build(movies, before).write(TEST_INDEX_FILE);
+        assertNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size()));
+    }
+
+    @Test
+    public void testCorruptIndexRejected() throws IOException {
+        CatalogIndex.build(movies, FileStamp.of(TEST_SOURCE_FILE)).write(TEST_INDEX_FILE);
+        RandomAccessFile file = new RandomAccessFile(TEST_INDEX_FILE, "rw");
+        try {
+            file.setLength(file.length() - 4);
+        } finally {
+            file.close();
+        }
+        assertNull(CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_SOURCE_FILE, movies.size()));
+        assertNull(CatalogIndex.loadIfFresh("data/missing.index", TEST_SOURCE_FILE, movies.size()));
+    }
+}
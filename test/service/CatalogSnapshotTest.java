@@ -0,0 +1,113 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.CatalogSnapshot;
+import util.FileHandler;
+import util.FileStamp;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for CatalogSnapshot class
+ */
+public class CatalogSnapshotTest {
+
+    private static String TEST_SOURCE_FILE = "data/test_snapshot_movies.csv";
+    private static String TEST_SNAPSHOT_FILE = "data/test_movies.snapshot";
+    private ArrayList<Movie> movies;
+
+    @Before
+    public void setUp() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("id,title,genre,year,rating");
+        lines.add("T001,One,Drama,1999,8.5");
+        lines.add("T002,Two,Comedy,2005,6.1");
+        FileHandler.writeCSV(TEST_SOURCE_FILE, lines);
+
+        movies = new ArrayList<>();
+        movies.add(new Movie("T001", "One", "Drama", 1999, 8.5));
+        movies.add(new Movie("T002", "Two", "Comedy", 2005, 6.1, Movie.TYPE_SHORT, 25));
+        movies.add(new Movie("T003", "Caf\u00e9, Three", "Drama", 2010, 7.3));
+    }
+
+    @After
+    public void tearDown() {
+        new File(TEST_SOURCE_FILE).delete();
+        new File(TEST_SNAPSHOT_FILE).delete();
+    }
+
+    @Test
+    public void testWriteAndRead() throws IOException {
+        CatalogSnapshot.write(TEST_SNAPSHOT_FILE, FileStamp.of(TEST_SOURCE_FILE), movies);
+        ArrayList<Movie> loaded = CatalogSnapshot.read(TEST_SNAPSHOT_FILE);
+
+        assertEquals(3, loaded.size());
+        for (int i = 0; i < movies.size(); i++) {
+            Movie expected = movies.get(i);
+            Movie actual = loaded.get(i);
+            assertEquals(expected.getId(), actual.getId());
+            assertEquals(expected.getTitle(), actual.getTitle());
+            assertEquals(expected.getGenre(), actual.getGenre());
+            assertEquals(expected.getYear(), actual.getYear());
+            assertEquals(expected.getRating(), actual.getRating(), 0.0);
+            assertEquals(expected.getMovieType(), actual.getMovieType());
+            assertEquals(expected.getDuration(), actual.getDuration());
+        }
+    }
+
+    @Test
+    public void testWriteAndReadEmptyCatalog() throws IOException {
+        CatalogSnapshot.write(TEST_SNAPSHOT_FILE, FileStamp.of(TEST_SOURCE_FILE), new ArrayList<Movie>());
+        assertTrue(CatalogSnapshot.read(TEST_SNAPSHOT_FILE).isEmpty());
+    }
+
+    @Test
+    public void testIsFresh() throws IOException {
+        assertFalse(CatalogSnapshot.isFresh(TEST_SNAPSHOT_FILE, TEST_SOURCE_FILE));
+
+        CatalogSnapshot.write(TEST_SNAPSHOT_FILE, FileStamp.of(TEST_SOURCE_FILE), movies);
+        assertTrue(CatalogSnapshot.isFresh(TEST_SNAPSHOT_FILE, TEST_SOURCE_FILE));
+    }
+
+    @Test
+    public void testTouchedSourceStaysFresh() throws IOException {
+        CatalogSnapshot.write(TEST_SNAPSHOT_FILE, FileStamp.of(TEST_SOURCE_FILE), movies);
+        new File(TEST_SOURCE_FILE).setLastModified(1000L);
+
+        assertTrue(CatalogSnapshot.isFresh(TEST_SNAPSHOT_FILE, TEST_SOURCE_FILE));
+        // The snapshot took the new time, so the next check does not hash the source
+        assertEquals(1000L, ByteBuffer.wrap(Files.readAllBytes(new File(TEST_SNAPSHOT_FILE).toPath())).getLong(16));
+        assertTrue(CatalogSnapshot.isFresh(TEST_SNAPSHOT_FILE, TEST_SOURCE_FILE));
+    }
+
+    @Test
+    public void testChangedSourceIsStale() throws IOException {
+        CatalogSnapshot.write(TEST_SNAPSHOT_FILE, FileStamp.of(TEST_SOURCE_FILE), movies);
+        FileHandler.appendLine(TEST_SOURCE_FILE, "T004,Four,Drama,2020,5.0");
+
+        assertFalse(CatalogSnapshot.isFresh(TEST_SNAPSHOT_FILE, TEST_SOURCE_FILE));
+    }
+
+    @Test
+    public void testSourceEditedDuringLoadIsStale() throws IOException {
+        FileStamp source = FileStamp.of(TEST_SOURCE_FILE);
+        // The CSV changes while the movies are being parsed, before the snapshot is written
+        FileHandler.appendLine(TEST_SOURCE_FILE, "T004,Four,Drama,2020,5.0");
+        CatalogSnapshot.write(TEST_SNAPSHOT_FILE, source, movies);
+
+        assertFalse(CatalogSnapshot.isFresh(TEST_SNAPSHOT_FILE, TEST_SOURCE_FILE));
+    }
+
+    @Test(expected = IOException.class)
+    public void testReadInvalidSnapshot() throws IOException {
+        CatalogSnapshot.read(TEST_SOURCE_FILE);
+    }
+}
@@ -0,0 +1,154 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import service.ChangeFeed;
+import service.UserJournal;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for ChangeFeed class
+ */
+public class ChangeFeedTest {
+
+    private static String TEST_FEED = "data/test_users.changes";
+    private ChangeFeed feed;
+
+    @Before
+    public void setUp() throws IOException {
+        deleteSegments();
+        feed = new ChangeFeed(TEST_FEED, 4, 2);
+    }
+
+    @After
+    public void tearDown() {
+        deleteSegments();
+    }
+
+    private void deleteSegments() {
+        File[] files = new File("data").listFiles();
+        if (files != null) {
+            for (File file : files) {
+                if (file.getName().startsWith("test_users.changes.")) {
+                    file.delete();
+                }
+            }
+        }
+    }
+
+    /**
+     * Collects the changes after a version as "version:op:username:args" strings
+     */
+    private ArrayList<String> collect(ChangeFeed changes, long since) throws IOException {
+        ArrayList<String> visited = new ArrayList<>();
+        long count = changes.changesSince(since, (version, op, username, args) -> {
+            visited.add(version + ":" + op + ":" + username + ":" + String.join("|", args));
+            return true;
+        });
+        assertEquals(visited.size(), count);
+        return visited;
+    }
+
+    @Test
+    public void testVersionsIncrease() throws IOException {
+        assertEquals(0, feed.getVersion());
+        assertEquals(1, feed.append(UserJournal.OP_WATCHLIST_ADD, "alice", "M001"));
+        assertEquals(2, feed.append(UserJournal.OP_DELETE, "bob"));
+        assertEquals(2, feed.getVersion());
+    }
+
+    @Test
+    public void testChangesSince() throws IOException {
+        feed.append(UserJournal.OP_WATCHLIST_ADD, "alice", "M001");
+        feed.append(UserJournal.OP_WATCHED, "alice", "M002", "2025-05-01");
+        feed.append(UserJournal.OP_DELETE, "bob");
+
+        ArrayList<String> all = collect(feed, 0);
+        assertEquals(3, all.size());
+        assertEquals("1:" + UserJournal.OP_WATCHLIST_ADD + ":alice:M001", all.get(0));
+        assertEquals("2:" + UserJournal.OP_WATCHED + ":alice:M002|2025-05-01", all.get(1));
+
+        ArrayList<String> latest = collect(feed, 2);
+        assertEquals(1, latest.size());
+        assertTrue(latest.get(0).startsWith("3:"));
+        assertEquals(0, feed.changesSince(3, (version, op, username, args) -> true));
+    }
+
+    @Test
+    public void testPutSplitsUserLine() throws IOException {
+        feed.append(UserJournal.OP_PUT, "carol,secret,basic");
+        ArrayList<String> all = collect(feed, 0);
+        assertEquals("1:" + UserJournal.OP_PUT + ":carol:secret|basic", all.get(0));
+    }
+
+    @Test
+    public void testVisitorCanStopEarly() throws IOException {
+        for (int i = 0; i < 3; i++) {
+            feed.append(UserJournal.OP_DELETE, "user" + i);
+        }
+        long count = feed.changesSince(0, (version, op, username, args) -> version < 2);
+        assertEquals(2, count);
+    }
+
+    @Test
+    public void testRetentionDropsOldSegments() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            feed.append(UserJournal.OP_DELETE, "user" + i);
+        }
+        // Segments of 4 changes, 2 kept: versions 5-10 remain
+        assertEquals(2, feed.getSegments().size());
+        assertEquals(5, feed.getOldestVersion());
+        assertEquals(-1, feed.changesSince(0, (version, op, username, args) -> true));
+        assertEquals(-1, feed.changesSince(3, (version, op, username, args) -> true));
+
+        ArrayList<String> retained = collect(feed, 4);
+        assertEquals(6, retained.size());
+        assertTrue(retained.get(0).startsWith("5:"));
+        assertTrue(retained.get(5).startsWith("10:"));
+    }
+
+    @Test
+    public void testBufferedChangesInvisibleUntilWritten() throws IOException {
+        feed.append(UserJournal.OP_DELETE, "durable");
+        assertEquals(2, feed.buffer(UserJournal.OP_DELETE, "pending"));
+        assertEquals(2, feed.getVersion());
+        assertEquals(1, collect(feed, 0).size());
+        assertEquals(0, feed.changesSince(1, (version, op, username, args) -> true));
+
+        assertEquals(1, feed.writePending());
+        assertEquals(2, collect(feed, 0).size());
+    }
+
+    @Test
+    public void testReopenRecoversVersion() throws IOException {
+        for (int i = 0; i < 6; i++) {
+            feed.append(UserJournal.OP_DELETE, "user" + i);
+        }
+        ChangeFeed reopened = new ChangeFeed(TEST_FEED, 4, 2);
+        assertEquals(6, reopened.getVersion());
+        assertEquals(7, reopened.append(UserJournal.OP_DELETE, "next"));
+        assertEquals(7, collect(reopened, 0).size());
+    }
+
+    @Test
+    public void testReopenCutsTornRecord() throws IOException {
+        feed.append(UserJournal.OP_DELETE, "alice");
+        feed.append(UserJournal.OP_DELETE, "bob");
+        FileWriter writer = new FileWriter(feed.getSegmentPath(1), true);
+        writer.write("3," + UserJournal.OP_DELETE + ",car");
+        writer.close();
+
+        ChangeFeed reopened = new ChangeFeed(TEST_FEED, 4, 2);
+        assertEquals(2, reopened.getVersion());
+        assertEquals(3, reopened.append(UserJournal.OP_DELETE, "carol"));
+        ArrayList<String> all = collect(reopened, 0);
+        assertEquals(3, all.size());
+        assertEquals("3:" + UserJournal.OP_DELETE + ":carol:", all.get(2));
+    }
+}
@@ -0,0 +1,111 @@
+package test.service;
+
+import org.junit.Before;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import service.Checkpointer;
+import service.UserJournal;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for Checkpointer class
+ */
+public class CheckpointerTest {
+
+    private UserJournal journal;
+    private AtomicInteger runs;
+    private Checkpointer checkpointer;
+    private static String TEST_JOURNAL_FILE = "data/test_checkpoint.csv.journal";
+
+    @Before
+    public void setUp() throws IOException {
+        journal = new UserJournal(TEST_JOURNAL_FILE);
+        journal.truncate();
+        runs = new AtomicInteger();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        if (checkpointer != null) {
+            checkpointer.stop();
+        }
+        journal.truncate();
+    }
+
+    private boolean foldJournal() {
+        runs.incrementAndGet();
+        try {
+            journal.truncate();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    private void waitForCheckpoints(int expected) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + 5000;
+        while (checkpointer.getCheckpointCount() < expected && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testNotDueWhenJournalEmpty() {
+        checkpointer = new Checkpointer(this::foldJournal, journal, 1, 1, 1);
+        assertFalse(checkpointer.isCheckpointDue());
+    }
+
+    @Test
+    public void testDueOnRecordCountAndSize() throws IOException {
+        checkpointer = new Checkpointer(this::foldJournal, journal, Long.MAX_VALUE, 2, 60000);
+        checkpointer.markMutation();
+        journal.append("WADD,alice,M001");
+        assertFalse(checkpointer.isCheckpointDue());
+        journal.append("WADD,alice,M002");
+        assertTrue(checkpointer.isCheckpointDue());
+
+        Checkpointer bySize = new Checkpointer(this::foldJournal, journal, 10, 1000, 60000);
+        bySize.markMutation();
+        assertTrue(bySize.isCheckpointDue());
+    }
+
+    @Test
+    public void testBackgroundCheckpointWhenIdle() throws Exception {
+        checkpointer = new Checkpointer(this::foldJournal, journal, Long.MAX_VALUE, 1000, 20);
+        checkpointer.start();
+        journal.append("WADD,alice,M001");
+        checkpointer.markMutation();
+
+        waitForCheckpoints(1);
+        assertEquals(1, runs.get());
+        assertEquals(1, checkpointer.getCheckpointCount());
+        assertEquals(0, journal.getRecordCount());
+        assertFalse(checkpointer.isCheckpointDue());
+    }
+
+    @Test
+    public void testMetrics() {
+        checkpointer = new Checkpointer(() -> false, journal, 1, 1, 1);
+        assertFalse(checkpointer.checkpoint());
+        assertEquals(1, checkpointer.getFailedCount());
+        assertEquals(0, checkpointer.getAverageDurationMillis());
+
+        Checkpointer succeeding = new Checkpointer(this::foldJournal, journal, 1, 1, 1);
+        assertTrue(succeeding.checkpoint());
+        assertTrue(succeeding.checkpoint());
+        assertEquals(2, succeeding.getCheckpointCount());
+        assertTrue(succeeding.getMaxDurationMillis() >= succeeding.getLastDurationMillis());
+    }
+
+    @Test
+    public void testStartStop() {
+        checkpointer = new Checkpointer(this::foldJournal, journal, 1, 1, 1);
+        checkpointer.start();
+        assertTrue(checkpointer.isRunning());
+        checkpointer.stop();
+        assertFalse(checkpointer.isRunning());
+    }
+}
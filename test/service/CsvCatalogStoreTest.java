@@ -0,0 +1,90 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.CsvCatalogStore;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for CsvCatalogStore class
+ */
+public class CsvCatalogStoreTest {
+
+    private static String TEST_MOVIE_FILE = "data/test_csv_catalog_store.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_MOVIE_FILE).delete();
+    }
+
+    private ArrayList<Movie> sampleMovies(int count) {
+        ArrayList<Movie> movies = new ArrayList<>();
+        for (int i = 0; i < count; i++) {
+            movies.add(new Movie("M" + i, "Title, \"" + i + "\"", "Drama", 1990 + i % 30, 5 + (i % 50) / 10.0));
+        }
+        return movies;
+    }
+
+    @Test
+    public void testSaveAndLoadAll() throws IOException {
+        CsvCatalogStore store = new CsvCatalogStore(TEST_MOVIE_FILE);
+        store.saveAll(sampleMovies(3));
+
+        ArrayList<Movie> loaded = store.loadAll();
+        assertEquals(3, loaded.size());
+        assertEquals("Title, \"1\"", loaded.get(1).getTitle());
+        assertEquals(1991, loaded.get(1).getYear());
+        assertEquals(5.1, loaded.get(1).getRating(), 0.0001);
+    }
+
+    @Test
+    public void testParallelLoadKeepsOrder() throws IOException {
+        CsvCatalogStore store = new CsvCatalogStore(TEST_MOVIE_FILE);
+        store.saveAll(sampleMovies(1000));
+
+        ArrayList<Movie> loaded = store.loadAll(4);
+        assertEquals(1000, loaded.size());
+        for (int i = 0; i < 1000; i++) {
+            assertEquals("M" + i, loaded.get(i).getId());
+        }
+    }
+
+    @Test
+    public void testParallelLoadWithMultiLineTitles() throws IOException {
+        CsvCatalogStore store = new CsvCatalogStore(TEST_MOVIE_FILE);
+        ArrayList<Movie> movies = sampleMovies(1000);
+        for (int i = 0; i < movies.size(); i += 7) {
+            Movie movie = movies.get(i);
+            movies.set(i, new Movie(movie.getId(), "Part one\nPart two\n\nM9999,Fake,Drama,2000,1.0",
+                    "Drama", movie.getYear(), movie.getRating()));
+        }
+        store.saveAll(movies);
+
+        ArrayList<Movie> sequential = store.loadAll(1);
+        for (int parallelism = 2; parallelism <= 16; parallelism *= 2) {
+            ArrayList<Movie> loaded = store.loadAll(parallelism);
+            assertEquals(1000, loaded.size());
+            for (int i = 0; i < 1000; i++) {
+                assertEquals("M" + i, loaded.get(i).getId());
+                assertEquals(sequential.get(i).getTitle(), loaded.get(i).getTitle());
+            }
+        }
+        assertEquals("Part one\nPart two\n\nM9999,Fake,Drama,2000,1.0", sequential.get(7).getTitle());
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        new File(TEST_MOVIE_FILE).createNewFile();
+        assertNull(new CsvCatalogStore(TEST_MOVIE_FILE).loadAll());
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException {
+        new CsvCatalogStore(TEST_MOVIE_FILE).loadAll();
+    }
+}
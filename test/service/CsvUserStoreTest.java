@@ -0,0 +1,143 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.PremiumUser;
+import model.User;
+import service.CsvUserStore;
+import util.FileHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for CsvUserStore class
+ */
+public class CsvUserStoreTest {
+
+    private static String TEST_USER_FILE = "data/test_csv_user_store.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_USER_FILE).delete();
+    }
+
+    @Test
+    public void testRewriteCompressedWithoutExtension() throws IOException {
+        String gzFile = TEST_USER_FILE + FileHandler.COMPRESSED_EXTENSION;
+        ArrayList<User> users = new ArrayList<>();
+        users.add(new BasicUser("alice", "pw"));
+        users.add(new BasicUser("bob", "pw"));
+        new CsvUserStore(gzFile).saveAll(users);
+        assertTrue(new File(gzFile).renameTo(new File(TEST_USER_FILE)));
+
+        CsvUserStore store = new CsvUserStore(TEST_USER_FILE);
+        User alice = new PremiumUser("alice", "pw");
+        alice.addToWatchlist("M001");
+        store.saveUser(alice);
+        store.deleteUser("bob");
+        assertTrue(FileHandler.isCompressed(TEST_USER_FILE));
+        ArrayList<User> loaded = store.loadAll();
+        assertEquals(1, loaded.size());
+        assertEquals(alice.toCSV(), loaded.get(0).toCSV());
+
+        users.add(new BasicUser("carol", "pw"));
+        store.saveAll(users);
+        assertTrue(FileHandler.isCompressed(TEST_USER_FILE));
+        assertEquals(3, store.loadAll().size());
+    }
+
+    @Test
+    public void testLoadMissingFile() throws IOException {
+        assertNull(new CsvUserStore(TEST_USER_FILE).loadAll());
+    }
+
+    @Test
+    public void testSaveAndLoadAll() throws IOException {
+        CsvUserStore store = new CsvUserStore(TEST_USER_FILE);
+        ArrayList<User> users = new ArrayList<>();
+        User alice = new BasicUser("alice", "pw");
+        alice.addToWatchlist("M001");
+        users.add(alice);
+        users.add(new PremiumUser("bob", "pw"));
+        store.saveAll(users);
+
+        ArrayList<User> loaded = store.loadAll();
+        assertEquals(2, loaded.size());
+        assertEquals(alice.toCSV(), loaded.get(0).toCSV());
+        assertTrue(loaded.get(1) instanceof PremiumUser);
+    }
+
+    @Test
+    public void testParallelSaveMatchesSequential() throws IOException {
+        CsvUserStore store = new CsvUserStore(TEST_USER_FILE);
+        ArrayList<User> users = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            User user = i % 3 == 0 ? new PremiumUser("user" + i, "pw" + i) : new BasicUser("user" + i, "pw" + i);
+            user.addToWatchlist("M" + (i % 50));
+            user.markAsWatched("M" + (i % 70), "2025-01-01");
+            users.add(user);
+        }
+        store.saveAll(users, 1);
+        ArrayList<String> sequential = FileHandler.readCSV(TEST_USER_FILE);
+        store.saveAll(users, 4);
+        ArrayList<String> parallel = FileHandler.readCSV(TEST_USER_FILE);
+
+        assertEquals(5001, parallel.size());
+        assertEquals(sequential, parallel);
+        assertEquals(CsvUserStore.USER_FILE_HEADER, parallel.get(0));
+        assertEquals(users.get(4999).toCSV(), parallel.get(5000));
+        assertFalse(new File(TEST_USER_FILE + ".tmp").exists());
+    }
+
+    @Test
+    public void testParallelSaveEmpty() throws IOException {
+        CsvUserStore store = new CsvUserStore(TEST_USER_FILE);
+        store.saveAll(new ArrayList<User>(), 4);
+        assertEquals(0, store.loadAll().size());
+    }
+
+    @Test
+    public void testSaveAndDeleteUser() throws IOException {
+        CsvUserStore store = new CsvUserStore(TEST_USER_FILE);
+        store.saveUser(new BasicUser("alice", "pw"));
+        store.saveUser(new BasicUser("bob", "pw"));
+        User changed = new BasicUser("alice", "pw");
+        changed.markAsWatched("M002", "2025-01-01");
+        store.saveUser(changed);
+        store.deleteUser("bob");
+
+        ArrayList<User> loaded = store.loadAll();
+        assertEquals(1, loaded.size());
+        assertEquals("2025-01-01", loaded.get(0).getHistory().getWatchDate("M002"));
+    }
+
+    @Test
+    public void testOldFormatConvertedOnRewrite() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("username,password,watchlist,history");
+        lines.add("carol,pw,M003,");
+        FileHandler.writeCSV(TEST_USER_FILE, lines);
+
+        CsvUserStore store = new CsvUserStore(TEST_USER_FILE);
+        store.saveUser(new PremiumUser("dave", "pw"));
+
+        assertEquals(CsvUserStore.USER_FILE_HEADER, FileHandler.readLine(TEST_USER_FILE, 0));
+        ArrayList<User> loaded = store.loadAll();
+        assertEquals(2, loaded.size());
+        assertTrue(loaded.get(0).getWatchlist().contains("M003"));
+    }
+
+    @Test
+    public void testParseUser() {
+        String[] fields = {"PUT", "eve", "pw", User.TYPE_PREMIUM, "M001;M002", "M003@2024-01-01"};
+        User user = CsvUserStore.parseUser(fields, 1, true);
+        assertEquals("eve", user.getUsername());
+        assertTrue(user instanceof PremiumUser);
+        assertEquals(2, user.getWatchlist().size());
+        assertNull(CsvUserStore.parseUser(new String[] {"a", "b"}, 0, true));
+    }
+}
@@ -0,0 +1,77 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import service.GroupCommitter;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Unit tests for GroupCommitter class
+ */
+public class GroupCommitterTest {
+
+    private GroupCommitter committer;
+    private AtomicInteger flushCount = new AtomicInteger();
+
+    @After
+    public void tearDown() {
+        if (committer != null) {
+            committer.stop();
+        }
+    }
+
+    @Test
+    public void testFlushWithoutPendingDoesNothing() {
+        committer = new GroupCommitter(() -> flushCount.incrementAndGet() > 0, 5, 10);
+        assertTrue(committer.flush());
+        assertEquals(0, flushCount.get());
+    }
+
+    @Test
+    public void testFlushCoalescesMutations() {
+        committer = new GroupCommitter(() -> flushCount.incrementAndGet() > 0, 10000, 1000);
+        committer.markDirty();
+        committer.markDirty();
+        committer.markDirty();
+        assertEquals(3, committer.getPendingCount());
+
+        assertTrue(committer.flush());
+        assertEquals(1, flushCount.get());
+        assertEquals(0, committer.getPendingCount());
+    }
+
+    @Test
+    public void testBackgroundFlusherMakesMutationsDurable() {
+        committer = new GroupCommitter(() -> flushCount.incrementAndGet() > 0, 5, 1000);
+        committer.start();
+        committer.markDirty();
+        committer.markDirty();
+
+        assertTrue(committer.awaitDurable());
+        assertEquals(0, committer.getPendingCount());
+        assertTrue(flushCount.get() >= 1);
+    }
+
+    @Test
+    public void testFailedFlushKeepsMutationsPending() {
+        committer = new GroupCommitter(() -> false, 5, 10);
+        committer.markDirty();
+
+        assertFalse(committer.flush());
+        assertEquals(1, committer.getPendingCount());
+    }
+
+    @Test
+    public void testStopFlushesPendingMutations() {
+        committer = new GroupCommitter(() -> flushCount.incrementAndGet() > 0, 10000, 1000);
+        committer.start();
+        committer.markDirty();
+        committer.stop();
+
+        assertFalse(committer.isRunning());
+        assertEquals(0, committer.getPendingCount());
+        assertEquals(1, flushCount.get());
+    }
+}
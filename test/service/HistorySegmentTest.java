@@ -0,0 +1,100 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.History;
+import service.HistorySegment;
+import service.MappedHistory;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for HistorySegment class
+ */
+public class HistorySegmentTest {
+
+    private static String TEST_SEGMENT_FILE = "data/test_history.segment";
+    private HistorySegment segment;
+
+    @Before
+    public void setUp() throws IOException {
+        segment = new HistorySegment(TEST_SEGMENT_FILE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        segment.close();
+    }
+
+    @Test
+    public void testCopyOf() {
+        History heap = new History();
+        heap.addMovie("M002", "2024-01-02");
+        heap.addMovie("M001", "2024-01-01");
+        MappedHistory copy = segment.copyOf(heap);
+
+        assertEquals(heap.toCSV(), copy.toCSV());
+        assertSame(segment, copy.getSegment());
+    }
+
+    @Test
+    public void testHistoriesDoNotOverlap() {
+        ArrayList<MappedHistory> histories = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            histories.add(segment.createHistory());
+        }
+        // Interleaved appends make every history move to larger extents several times
+        for (int round = 0; round < 40; round++) {
+            for (int i = 0; i < histories.size(); i++) {
+                histories.get(i).addMovie("U" + i + "-" + round, "2024-01-01");
+            }
+        }
+        for (int i = 0; i < histories.size(); i++) {
+            ArrayList<String> movieIds = histories.get(i).getMovieIds();
+            assertEquals(40, movieIds.size());
+            for (int round = 0; round < 40; round++) {
+                assertEquals("U" + i + "-" + round, movieIds.get(round));
+            }
+        }
+    }
+
+    @Test
+    public void testReleasedExtentsReused() {
+        MappedHistory first = segment.createHistory();
+        for (int i = 0; i < 5; i++) {
+            first.addMovie("M" + i, "2024-01-01");
+        }
+        // 4 records, then moved to 8: the first extent is free again
+        int allocated = segment.getAllocatedRecords();
+        MappedHistory second = segment.createHistory();
+        second.addMovie("M0", "2024-01-01");
+        assertEquals(allocated, segment.getAllocatedRecords());
+        assertEquals(5, first.size());
+    }
+
+    @Test
+    public void testSegmentGrows() {
+        long initial = segment.getMappedBytes();
+        MappedHistory history = segment.createHistory();
+        int count = (int) (initial / 8) + 10;
+        for (int i = 0; i < count; i++) {
+            history.addMovie("M" + (i % 100), "2024-01-01");
+            segment.createHistory().addMovie("X" + i, "2024-01-01");
+        }
+        assertTrue(segment.getMappedBytes() > initial);
+        assertEquals(100, history.size());
+        assertTrue(new File(TEST_SEGMENT_FILE).length() >= segment.getMappedBytes());
+    }
+
+    @Test
+    public void testCloseDeletesFile() throws IOException {
+        assertTrue(new File(TEST_SEGMENT_FILE).exists());
+        segment.close();
+        assertFalse(new File(TEST_SEGMENT_FILE).exists());
+        segment = new HistorySegment(TEST_SEGMENT_FILE);
+    }
+}
@@ -0,0 +1,34 @@
+package test.service;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.Movie;
+import service.InMemoryCatalogStore;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for InMemoryCatalogStore class
+ */
+public class InMemoryCatalogStoreTest {
+
+    @Test
+    public void testEmptyStore() {
+        assertNull(new InMemoryCatalogStore().loadAll());
+    }
+
+    @Test
+    public void testStoresCopies() {
+        ArrayList<Movie> movies = new ArrayList<>();
+        Movie movie = new Movie("M001", "Alpha", "Drama", 2001, 7.5);
+        movies.add(movie);
+        InMemoryCatalogStore store = new InMemoryCatalogStore();
+        store.saveAll(movies);
+        movie.setTitle("Changed");
+
+        ArrayList<Movie> loaded = store.loadAll();
+        assertEquals(1, loaded.size());
+        assertEquals("Alpha", loaded.get(0).getTitle());
+        assertNotSame(movie, loaded.get(0));
+    }
+}
@@ -0,0 +1,51 @@
+package test.service;
+
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.User;
+import service.InMemoryUserStore;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for InMemoryUserStore class
+ */
+public class InMemoryUserStoreTest {
+
+    @Test
+    public void testEmptyStore() {
+        assertNull(new InMemoryUserStore().loadAll());
+    }
+
+    @Test
+    public void testStoresCopies() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        User alice = new BasicUser("alice", "pw");
+        store.saveUser(alice);
+        alice.addToWatchlist("M001");
+
+        User loaded = store.loadAll().get(0);
+        assertNotSame(alice, loaded);
+        assertTrue(loaded.getWatchlist().isEmpty());
+
+        store.saveUser(alice);
+        store.saveUser(new BasicUser("bob", "pw"));
+        store.deleteUser("bob");
+        ArrayList<User> users = store.loadAll();
+        assertEquals(1, users.size());
+        assertTrue(users.get(0).getWatchlist().contains("M001"));
+    }
+
+    @Test
+    public void testSaveAllReplaces() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        store.saveUser(new BasicUser("alice", "pw"));
+        ArrayList<User> users = new ArrayList<>();
+        users.add(new BasicUser("bob", "pw"));
+        store.saveAll(users);
+
+        assertEquals(1, store.loadAll().size());
+        assertEquals("bob", store.loadAll().get(0).getUsername());
+    }
+}
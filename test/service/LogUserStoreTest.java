@@ -0,0 +1,84 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.PremiumUser;
+import model.User;
+import service.LogUserStore;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for LogUserStore class
+ */
+public class LogUserStoreTest {
+
+    private static String TEST_LOG_FILE = "data/test_users.log";
+
+    @After
+    public void tearDown() {
+        new File(TEST_LOG_FILE).delete();
+    }
+
+    @Test
+    public void testLoadMissingLog() throws IOException {
+        assertNull(new LogUserStore(TEST_LOG_FILE).loadAll());
+    }
+
+    @Test
+    public void testAppendAndReplay() throws IOException {
+        LogUserStore store = new LogUserStore(TEST_LOG_FILE);
+        User alice = new BasicUser("alice", "pw");
+        store.saveUser(alice);
+        store.saveUser(new PremiumUser("bob", "pw"));
+        alice.addToWatchlist("M001");
+        alice.markAsWatched("M002", "2025-02-02");
+        store.saveUser(alice);
+        store.deleteUser("bob");
+        assertEquals(4, store.getRecordCount());
+
+        ArrayList<User> loaded = new LogUserStore(TEST_LOG_FILE).loadAll();
+        assertEquals(1, loaded.size());
+        assertEquals(alice.toCSV(), loaded.get(0).toCSV());
+    }
+
+    @Test
+    public void testSaveAllCompacts() throws IOException {
+        LogUserStore store = new LogUserStore(TEST_LOG_FILE);
+        User alice = new BasicUser("alice", "pw");
+        for (int i = 0; i < 5; i++) {
+            alice.addToWatchlist("M00" + i);
+            store.saveUser(alice);
+        }
+        store.compact();
+
+        assertEquals(1, store.getRecordCount());
+        assertEquals(5, store.loadAll().get(0).getWatchlist().size());
+    }
+
+    @Test
+    public void testTornRecordDiscarded() throws IOException {
+        LogUserStore store = new LogUserStore(TEST_LOG_FILE);
+        store.saveUser(new BasicUser("alice", "pw"));
+        store.saveUser(new BasicUser("bob", "pw"));
+        RandomAccessFile file = new RandomAccessFile(TEST_LOG_FILE, "rw");
+        file.setLength(file.length() - 3);
+        file.close();
+
+        LogUserStore reopened = new LogUserStore(TEST_LOG_FILE);
+        assertEquals(1, reopened.loadAll().size());
+        reopened.saveUser(new BasicUser("carol", "pw"));
+        assertEquals(2, new LogUserStore(TEST_LOG_FILE).loadAll().size());
+    }
+
+    @Test(expected = IOException.class)
+    public void testNotALog() throws IOException {
+        java.nio.file.Files.write(new File(TEST_LOG_FILE).toPath(), "username,password\n".getBytes());
+        new LogUserStore(TEST_LOG_FILE).loadAll();
+    }
+}
@@ -0,0 +1,133 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.History;
+import service.HistorySegment;
+import service.MappedHistory;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Unit tests for MappedHistory class
+ */
+public class MappedHistoryTest {
+
+    private static String TEST_SEGMENT_FILE = "data/test_mapped_history.segment";
+    private HistorySegment segment;
+    private MappedHistory history;
+
+    @Before
+    public void setUp() throws IOException {
+        segment = new HistorySegment(TEST_SEGMENT_FILE);
+        history = segment.createHistory();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        segment.close();
+    }
+
+    @Test
+    public void testAddAndLookup() {
+        assertTrue(history.isEmpty());
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M002", "2024-02-29");
+
+        assertEquals(2, history.size());
+        assertTrue(history.contains("M002"));
+        assertFalse(history.contains("M003"));
+        assertEquals("2024-02-29", history.getWatchDate("M002"));
+        assertNull(history.getWatchDate("M003"));
+    }
+
+    @Test
+    public void testAddMovieUpdatesDateInPlace() {
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M002", "2024-01-02");
+        history.addMovie("M001", "2024-01-15");
+
+        assertEquals(2, history.size());
+        assertEquals("2024-01-15", history.getWatchDate("M001"));
+        assertEquals("M001", history.getMovieIds().get(0));
+    }
+
+    @Test
+    public void testGrowsPastFirstExtent() {
+        for (int i = 0; i < 100; i++) {
+            history.addMovie(String.format("M%03d", i), "2024-01-01");
+        }
+        assertEquals(100, history.size());
+        ArrayList<String> movieIds = history.getMovieIds();
+        assertEquals("M000", movieIds.get(0));
+        assertEquals("M099", movieIds.get(99));
+        assertTrue(history.contains("M050"));
+    }
+
+    @Test
+    public void testNonIsoDatesKeptAsStrings() {
+        history.addMovie("M001", "yesterday");
+        history.addMovie("M002", "2024-13-01");
+        history.addMovie("M003", "2024-01-01");
+
+        assertEquals("yesterday", history.getWatchDate("M001"));
+        assertEquals("2024-13-01", history.getWatchDate("M002"));
+        history.addMovie("M001", "2024-03-01");
+        assertEquals("2024-03-01", history.getWatchDate("M001"));
+    }
+
+    @Test
+    public void testCSVRoundTripMatchesHistory() {
+        String csv = "M001@2024-01-01;M002@2024-01-02;M003@someday";
+        History heap = new History();
+        heap.loadFromCSV(csv);
+        history.addMovie("M009", "2020-01-01");
+        history.loadFromCSV(csv);
+
+        assertEquals(heap.toCSV(), history.toCSV());
+        assertEquals(heap.getMovieIds(), history.getMovieIds());
+        assertEquals(heap.getMovieHistory(), history.getMovieHistory());
+        assertFalse(history.contains("M009"));
+    }
+
+    @Test
+    public void testClear() {
+        history.addMovie("M001", "2024-01-01");
+        history.clear();
+        assertTrue(history.isEmpty());
+        assertEquals("", history.toCSV());
+        assertEquals(new HashMap<String, String>(), history.getMovieHistory());
+    }
+
+    @Test
+    public void testRewatchKeepsEveryEvent() {
+        history.addMovie("M001", "2024-01-01");
+        history.addMovie("M002", "2024-01-02");
+        history.addMovie("M001", "2024-03-01");
+
+        assertEquals(2, history.size());
+        assertEquals(3, history.getEventCount());
+        assertEquals(2, history.watchCount("M001"));
+        assertEquals(0, history.watchCount("M003"));
+        assertEquals("2024-03-01", history.lastWatched("M001"));
+        assertEquals("M001@2024-01-01;M002@2024-01-02;M001@2024-03-01", history.toCSV());
+        assertEquals("2024-03-01", history.getMovieHistory().get("M001"));
+    }
+
+    @Test
+    public void testCopyOfKeepsRewatches() {
+        History heap = new History();
+        heap.addMovie("M001", "2024-01-01");
+        heap.addMovie("M001", "2024-01-09");
+        heap.addMovie("M002", "later");
+
+        MappedHistory copy = segment.copyOf(heap);
+        assertEquals(heap.toCSV(), copy.toCSV());
+        assertEquals(2, copy.watchCount("M001"));
+        assertEquals("later", copy.lastWatched("M002"));
+    }
+}
@@ -1,11 +1,16 @@
 package test.service;
 
+import org.junit.After;
 import org.junit.Before;
 import org.junit.Test;
 import static org.junit.Assert.*;
 
 import model.Movie;
+import service.InMemoryCatalogStore;
 import service.MovieManager;
+import util.FileHandler;
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 
 /**
@@ -15,12 +20,31 @@ public class MovieManagerTest {
     
     private MovieManager movieManager;
     private static String TEST_DATA_PATH = "data/movies.csv";
+    private static String TEST_MOVIE_FILE = "data/test_movies.csv";
+    private static String TEST_SNAPSHOT_FILE = "data/test_movies.snapshot";
+    private static String TEST_INDEX_FILE = "data/test_manager_movies.index";
     
     @Before
     public void setUp() {
         movieManager = new MovieManager(TEST_DATA_PATH);
     }
     
+    @After
+    public void tearDown() {
+        new File(TEST_MOVIE_FILE).delete();
+        new File(TEST_SNAPSHOT_FILE).delete();
+        new File(TEST_INDEX_FILE).delete();
+    }
+    
+    private void writeTestMovies(String... rows) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("id,title,genre,year,rating");
+        for (String row : rows) {
+            lines.add(row);
+        }
+        FileHandler.writeCSV(TEST_MOVIE_FILE, lines);
+    }
+    
     @Test
     public void testConstructor() {
         assertNotNull(movieManager);
@@ -328,4 +352,279 @@ public class MovieManagerTest {
         assertNotNull(result);
         assertEquals(0, result.size());
     }
+
+    @Test
+    public void testLoadMoviesWithQuotedTitle() throws IOException {
+        writeTestMovies("T001,\"Crouching Tiger, Hidden Dragon\",Action,2000,7.9");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        
+        assertTrue(manager.loadMovies());
+        Movie movie = manager.getMovieById("T001");
+        assertNotNull(movie);
+        assertEquals("Crouching Tiger, Hidden Dragon", movie.getTitle());
+        assertEquals("Action", movie.getGenre());
+        assertEquals(2000, movie.getYear());
+        assertEquals(7.9, movie.getRating(), 0.0);
+    }
+    
+    @Test
+    public void testLoadMoviesSkipsInvalidRows() throws IOException {
+        writeTestMovies("T001,Good,Drama,1999,8.0", "T002,Bad Year,Drama,19x9,8.0", "", "T003,Short");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        
+        assertTrue(manager.loadMovies());
+        assertEquals(1, manager.getMovieCount());
+        assertTrue(manager.movieExists("T001"));
+    }
+    
+    @Test
+    public void testLoadMoviesEmptyFile() throws IOException {
+        FileHandler.writeCSV(TEST_MOVIE_FILE, new ArrayList<String>());
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        
+        assertFalse(manager.loadMovies());
+    }
+    
+    @Test
+    public void testLoadMoviesMissingFile() {
+        MovieManager manager = new MovieManager("nonexistent/movies.csv");
+        assertFalse(manager.loadMovies());
+    }
+
+    @Test
+    public void testLoadMoviesParallelMatchesSequential() {
+        movieManager.loadMovies();
+        MovieManager parallelManager = new MovieManager(TEST_DATA_PATH);
+        
+        assertTrue(parallelManager.loadMoviesParallel(4));
+        assertEquals(movieManager.getMovieCount(), parallelManager.getMovieCount());
+        
+        ArrayList<Movie> expected = movieManager.getAllMovies();
+        ArrayList<Movie> actual = parallelManager.getAllMovies();
+        assertEquals(expected.size(), actual.size());
+        for (int i = 0; i < expected.size(); i++) {
+            assertEquals(expected.get(i).getId(), actual.get(i).getId());
+            assertEquals(expected.get(i).getTitle(), actual.get(i).getTitle());
+        }
+    }
+    
+    @Test
+    public void testLoadMoviesParallelMoreThreadsThanRows() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Drama,2000,7.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        
+        assertTrue(manager.loadMoviesParallel(16));
+        assertEquals(2, manager.getMovieCount());
+        assertEquals("T001", manager.getAllMovies().get(0).getId());
+        assertEquals("T002", manager.getAllMovies().get(1).getId());
+    }
+    
+    @Test
+    public void testLoadMoviesParallelMissingFile() {
+        MovieManager manager = new MovieManager("nonexistent/movies.csv");
+        assertFalse(manager.loadMoviesParallel(4));
+    }
+
+    @Test
+    public void testSnapshotWrittenAndUsed() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        manager.enableSnapshot(TEST_SNAPSHOT_FILE);
+        
+        assertTrue(manager.loadMovies());
+        assertTrue(new File(TEST_SNAPSHOT_FILE).exists());
+        
+        MovieManager reloaded = new MovieManager(TEST_MOVIE_FILE);
+        reloaded.enableSnapshot(TEST_SNAPSHOT_FILE);
+        assertTrue(reloaded.loadMovies());
+        assertEquals(2, reloaded.getMovieCount());
+        assertEquals("Two", reloaded.getMovieById("T002").getTitle());
+    }
+    
+    @Test
+    public void testStaleSnapshotFallsBackToCSV() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        manager.enableSnapshot(TEST_SNAPSHOT_FILE);
+        manager.loadMovies();
+        
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.0");
+        MovieManager reloaded = new MovieManager(TEST_MOVIE_FILE);
+        reloaded.enableSnapshot(TEST_SNAPSHOT_FILE);
+        assertTrue(reloaded.loadMovies());
+        assertEquals(2, reloaded.getMovieCount());
+    }
+
+    @Test
+    public void testLoadCompressedMovies() throws IOException {
+        String compressedFile = TEST_MOVIE_FILE + ".gz";
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("id,title,genre,year,rating");
+        lines.add("Z001,Zipped,Drama,2001,8.1");
+        lines.add("Z002,Packed,Comedy,2002,6.4");
+        try {
+            FileHandler.writeCSV(compressedFile, lines);
+            MovieManager manager = new MovieManager(compressedFile);
+            
+            assertTrue(manager.loadMovies());
+            assertEquals(2, manager.getMovieCount());
+            assertEquals("Packed", manager.getMovieById("Z002").getTitle());
+        } finally {
+            new File(compressedFile).delete();
+        }
+    }
+
+    @Test
+    public void testLoadFromInMemoryStore() {
+        InMemoryCatalogStore store = new InMemoryCatalogStore();
+        MovieManager empty = new MovieManager(store);
+        assertFalse(empty.loadMovies());
+        
+        assertTrue(movieManager.loadMovies());
+        ArrayList<Movie> movies = movieManager.getAllMovies();
+        store.saveAll(movies);
+        
+        MovieManager manager = new MovieManager(store);
+        manager.enableSnapshot("data/test_unused.snapshot");
+        assertTrue(manager.loadMoviesParallel(2));
+        assertEquals(movies.size(), manager.getMovieCount());
+        assertFalse(new File("data/test_unused.snapshot").exists());
+    }
+
+    @Test
+    public void testReloadAppliesDelta() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.0", "T003,Three,Horror,2001,6.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        assertTrue(manager.loadMovies());
+        long version = manager.getCatalogVersion();
+        Movie unchanged = manager.getMovieById("T001");
+        
+        assertEquals(0, manager.reloadMovies());
+        assertEquals(version, manager.getCatalogVersion());
+        
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.5", "T004,Four,Action,2003,9.0");
+        assertEquals(3, manager.reloadMovies());
+        assertEquals(version + 1, manager.getCatalogVersion());
+        assertEquals(1, manager.getReloadCount());
+        assertSame(unchanged, manager.getMovieById("T001"));
+        assertEquals(7.5, manager.getMovieById("T002").getRating(), 0.0);
+        assertFalse(manager.movieExists("T003"));
+        assertTrue(manager.movieExists("T004"));
+        assertEquals("T004", manager.getAllMovies().get(2).getId());
+        assertEquals(3, manager.getMovieCount());
+    }
+    
+    @Test
+    public void testReloadKeepsCatalogOnError() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        assertTrue(manager.loadMovies());
+        
+        new File(TEST_MOVIE_FILE).delete();
+        assertEquals(-1, manager.reloadMovies());
+        assertTrue(manager.movieExists("T001"));
+    }
+    
+    @Test
+    public void testReloadKeepsCatalogWhenFileIsEmpty() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        assertTrue(manager.loadMovies());
+        long version = manager.getCatalogVersion();
+        
+        // A truncated or half-written file with only the header
+        writeTestMovies();
+        assertEquals(-1, manager.reloadMovies());
+        assertEquals(1, manager.getMovieCount());
+        assertTrue(manager.movieExists("T001"));
+        assertEquals(version, manager.getCatalogVersion());
+    }
+    
+    @Test
+    public void testPinnedVersionIgnoresReload() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        assertTrue(manager.loadMovies());
+        MovieManager pinned = manager.pinVersion();
+        
+        writeTestMovies("T001,One,Drama,1999,8.0");
+        assertEquals(1, manager.reloadMovies());
+        assertFalse(manager.movieExists("T002"));
+        assertTrue(pinned.movieExists("T002"));
+        assertEquals(2, pinned.getAllMovies().size());
+        assertEquals(manager.getCatalogVersion() - 1, pinned.getCatalogVersion());
+        assertFalse(pinned.loadMovies());
+        assertEquals(-1, pinned.reloadMovies());
+    }
+    
+    @Test
+    public void testWatcherReloadsChangedFile() throws Exception {
+        writeTestMovies("T001,One,Drama,1999,8.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        assertTrue(manager.loadMovies());
+        assertTrue(manager.startWatching());
+        assertFalse(manager.startWatching());
+        try {
+            writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.0");
+            long deadline = System.currentTimeMillis() + 10000;
+            while (!manager.movieExists("T002") && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+            }
+            assertTrue(manager.movieExists("T002"));
+        } finally {
+            manager.stopWatching();
+        }
+        assertFalse(new MovieManager(new InMemoryCatalogStore()).startWatching());
+    }
+
+    @Test
+    public void testIndexedQueriesMatchScan() {
+        assertTrue(movieManager.loadMovies());
+        ArrayList<Movie> all = movieManager.getAllMovies();
+        for (String genre : movieManager.getAllGenres()) {
+            int expected = 0;
+            for (Movie movie : all) {
+                if (movie.getGenre().equalsIgnoreCase(genre)) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, movieManager.getMoviesByGenre(genre.toUpperCase()).size());
+        }
+        for (String keyword : new String[] {"the", "Of", "a", "xyz"}) {
+            int expected = 0;
+            for (Movie movie : all) {
+                if (movie.getTitle().toLowerCase().contains(keyword.toLowerCase())) {
+                    expected++;
+                }
+            }
+            assertEquals(expected, movieManager.searchMoviesByTitle(keyword).size());
+        }
+        ArrayList<Movie> byRating = movieManager.getMoviesByRating();
+        assertEquals(all.size(), byRating.size());
+        for (int i = 1; i < byRating.size(); i++) {
+            assertTrue(byRating.get(i - 1).getRating() >= byRating.get(i).getRating());
+        }
+    }
+    
+    @Test
+    public void testIndexSnapshotWrittenAndReused() throws IOException {
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,7.0");
+        MovieManager manager = new MovieManager(TEST_MOVIE_FILE);
+        manager.enableIndexSnapshot(TEST_INDEX_FILE);
+        assertTrue(manager.loadMovies());
+        assertTrue(new File(TEST_INDEX_FILE).exists());
+        long written = new File(TEST_INDEX_FILE).lastModified();
+        
+        MovieManager restarted = new MovieManager(TEST_MOVIE_FILE);
+        restarted.enableIndexSnapshot(TEST_INDEX_FILE);
+        assertTrue(restarted.loadMovies());
+        assertEquals(written, new File(TEST_INDEX_FILE).lastModified());
+        assertEquals("T002", restarted.getMoviesByGenre("comedy").get(0).getId());
+        assertEquals("T001", restarted.getMoviesByRating().get(0).getId());
+        
+        writeTestMovies("T001,One,Drama,1999,8.0", "T002,Two,Comedy,2000,9.0");
+        assertEquals(1, restarted.reloadMovies());
+        assertEquals("T002", restarted.getMoviesByRating().get(0).getId());
+        assertNotNull(service.CatalogIndex.loadIfFresh(TEST_INDEX_FILE, TEST_MOVIE_FILE, 2));
+    }
 }
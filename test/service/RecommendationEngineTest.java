@@ -153,4 +153,44 @@ public class RecommendationEngineTest {
             assertTrue(topRated.get(i).getRating() >= topRated.get(i + 1).getRating());
         }
     }
+
+    @Test
+    public void testServesPrecomputedRecommendations() throws java.io.IOException {
+        String storeFile = "data/test_engine.recs";
+        basicUser.markAsWatched("M001", "2024-01-01");
+        ArrayList<User> users = new ArrayList<User>();
+        users.add(basicUser);
+        try {
+            new service.RecommendationStoreBuilder(engine, 20, 1).build(users, storeFile);
+            ArrayList<Movie> live = engine.getRecommendations(basicUser, 5, 1);
+            engine.setRecommendationStore(new service.RecommendationStore(storeFile));
+
+            assertEquals(live, engine.getRecommendations(basicUser, 5, 1));
+            assertEquals(1, engine.getStoreHits());
+
+            // Users missing from the store are computed live
+            assertEquals(engine.computeRecommendations(premiumUser, 5, 1), engine.getRecommendations(premiumUser, 5, 1));
+            assertEquals(1, engine.getStoreMisses());
+
+            // A watch makes the entry stale
+            basicUser.markAsWatched(live.get(0).getId(), "2024-02-01");
+            ArrayList<Movie> fresh = engine.getRecommendations(basicUser, 5, 1);
+            assertFalse(fresh.contains(live.get(0)));
+            assertEquals(2, engine.getStoreMisses());
+
+            // So does a movie added to the watchlist since
+            User other = new BasicUser("other", "pass");
+            users.set(0, other);
+            new service.RecommendationStoreBuilder(engine, 20, 1).build(users, storeFile);
+            engine.setRecommendationStore(new service.RecommendationStore(storeFile));
+            String first = engine.getRecommendations(other, 5, 1).get(0).getId();
+            other.addToWatchlist(first);
+            assertEquals(engine.computeRecommendations(other, 5, 1), engine.getRecommendations(other, 5, 1));
+            assertEquals(3, engine.getStoreMisses());
+        } finally {
+            new java.io.File(storeFile).delete();
+            new java.io.File(storeFile + ".users").delete();
+            new java.io.File(storeFile + ".movies").delete();
+        }
+    }
 }
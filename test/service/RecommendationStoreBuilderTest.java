@@ -0,0 +1,111 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.Movie;
+import model.PremiumUser;
+import model.User;
+import service.MovieManager;
+import service.RecommendationEngine;
+import service.RecommendationStore;
+import service.RecommendationStoreBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for RecommendationStoreBuilder class
+ */
+public class RecommendationStoreBuilderTest {
+
+    private static String TEST_STORE_FILE = "data/test_builder.recs";
+    private static String TEST_COPY_FILE = "data/test_builder_copy.recs";
+    private static String[] EXTENSIONS = {"", ".users", ".movies"};
+
+    private RecommendationEngine engine;
+    private ArrayList<User> users;
+
+    @Before
+    public void setUp() {
+        tearDown();
+        MovieManager movieManager = new MovieManager("data/movies.csv");
+        movieManager.loadMovies();
+        engine = new RecommendationEngine(movieManager);
+
+        users = new ArrayList<>();
+        for (int i = 0; i < 2500; i++) {
+            User user = i % 3 == 0 ? new PremiumUser("user" + i, "pass") : new BasicUser("user" + i, "pass");
+            user.markAsWatched(String.format("M%03d", i % 100 + 1), "2024-01-01");
+            users.add(user);
+        }
+    }
+
+    @After
+    public void tearDown() {
+        for (String extension : EXTENSIONS) {
+            new File(TEST_STORE_FILE + extension).delete();
+            new File(TEST_COPY_FILE + extension).delete();
+        }
+    }
+
+    @Test
+    public void testBuildStoresEveryUserAndStrategy() throws IOException {
+        RecommendationStoreBuilder builder = new RecommendationStoreBuilder(engine, 20, 1);
+        assertEquals(users.size(), builder.build(users, TEST_STORE_FILE));
+        int strategyCount = engine.getAvailableStrategies().size();
+        assertEquals(users.size() * strategyCount, builder.getEntries());
+
+        RecommendationStore store = new RecommendationStore(TEST_STORE_FILE);
+        assertEquals(users.size(), store.getUserCount());
+        assertEquals(strategyCount, store.getStrategyCount());
+        assertEquals(20, store.getSlotMovies());
+        assertEquals(1234, store.getUserId("user1234"));
+        assertFalse(new File(TEST_STORE_FILE + ".tmp").exists());
+    }
+
+    @Test
+    public void testStoredEntriesMatchLiveComputation() throws IOException {
+        new RecommendationStoreBuilder(engine, 20, 1).build(users, TEST_STORE_FILE);
+        RecommendationStore store = new RecommendationStore(TEST_STORE_FILE);
+        for (int i = 0; i < users.size(); i += 97) {
+            User user = users.get(i);
+            for (int strategy = 0; strategy < store.getStrategyCount(); strategy++) {
+                int limit = user.getMaxRecommendations();
+                ArrayList<String> expected = new ArrayList<>();
+                for (Movie movie : engine.computeRecommendations(user, limit, strategy)) {
+                    expected.add(movie.getId());
+                }
+                assertEquals(expected, store.getMovieIds(user.getUsername(), strategy, user.getHistory(), limit));
+            }
+        }
+    }
+
+    @Test
+    public void testParallelBuildWritesSameFile() throws IOException {
+        new RecommendationStoreBuilder(engine, 10, 1).build(users, TEST_STORE_FILE);
+        new RecommendationStoreBuilder(engine, 10, 4).build(users, TEST_COPY_FILE);
+
+        // The build time in the header differs; everything after it must not
+        byte[] sequential = Files.readAllBytes(new File(TEST_STORE_FILE).toPath());
+        byte[] parallel = Files.readAllBytes(new File(TEST_COPY_FILE).toPath());
+        assertEquals(sequential.length, parallel.length);
+        for (int i = 32; i < sequential.length; i++) {
+            assertEquals(sequential[i], parallel[i]);
+        }
+        assertArrayEquals(Files.readAllBytes(new File(TEST_STORE_FILE + ".movies").toPath()),
+                Files.readAllBytes(new File(TEST_COPY_FILE + ".movies").toPath()));
+    }
+
+    @Test
+    public void testBuildEmpty() throws IOException {
+        assertEquals(0, new RecommendationStoreBuilder(engine, 20, 1).build(new ArrayList<User>(), TEST_STORE_FILE));
+        RecommendationStore store = new RecommendationStore(TEST_STORE_FILE);
+        assertEquals(0, store.getUserCount());
+        assertEquals(-1, store.getUserId("user0"));
+    }
+}
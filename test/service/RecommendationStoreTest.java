@@ -0,0 +1,122 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.History;
+import model.PremiumUser;
+import model.User;
+import service.MovieManager;
+import service.RecommendationEngine;
+import service.RecommendationStore;
+import service.RecommendationStoreBuilder;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for RecommendationStore class
+ */
+public class RecommendationStoreTest {
+
+    private static String TEST_STORE_FILE = "data/test_store.recs";
+    private static String[] EXTENSIONS = {"", ".users", ".movies"};
+
+    private RecommendationEngine engine;
+    private User basic;
+    private User premium;
+    private RecommendationStore store;
+
+    @Before
+    public void setUp() throws IOException {
+        tearDown();
+        MovieManager movieManager = new MovieManager("data/movies.csv");
+        movieManager.loadMovies();
+        engine = new RecommendationEngine(movieManager);
+
+        basic = new BasicUser("basic", "pass");
+        basic.markAsWatched("M003", "2024-01-01");
+        premium = new PremiumUser("premium", "pass");
+        ArrayList<User> users = new ArrayList<>();
+        users.add(basic);
+        users.add(premium);
+        new RecommendationStoreBuilder(engine, 20, 1).build(users, TEST_STORE_FILE);
+        store = new RecommendationStore(TEST_STORE_FILE);
+    }
+
+    @After
+    public void tearDown() {
+        for (String extension : EXTENSIONS) {
+            new File(TEST_STORE_FILE + extension).delete();
+        }
+    }
+
+    @Test
+    public void testDenseUserIds() {
+        assertEquals(0, store.getUserId("basic"));
+        assertEquals(1, store.getUserId("premium"));
+        assertEquals(-1, store.getUserId("nobody"));
+        assertTrue(store.getBuiltAt() > 0);
+    }
+
+    @Test
+    public void testGetMovieIds() {
+        ArrayList<String> ids = store.getMovieIds("premium", 1, premium.getHistory(), 20);
+        assertEquals(20, ids.size());
+        assertEquals(ids.subList(0, 3), store.getMovieIds("premium", 1, premium.getHistory(), 3));
+    }
+
+    @Test
+    public void testMissingEntries() {
+        assertNull(store.getMovieIds("nobody", 0, new History(), 5));
+        assertNull(store.getMovieIds("basic", -1, basic.getHistory(), 5));
+        assertNull(store.getMovieIds("basic", store.getStrategyCount(), basic.getHistory(), 5));
+    }
+
+    @Test
+    public void testStaleAfterHistoryChange() {
+        assertNotNull(store.getMovieIds("basic", 0, basic.getHistory(), 5));
+        basic.markAsWatched("M001", "2024-02-01");
+        assertNull(store.getMovieIds("basic", 0, basic.getHistory(), 5));
+    }
+
+    @Test
+    public void testLargerRequestThanComputedLimit() {
+        // The basic user's lists were cut at 5, so 6 movies cannot be served
+        assertEquals(5, store.getMovieIds("basic", 1, basic.getHistory(), 5).size());
+        assertNull(store.getMovieIds("basic", 1, basic.getHistory(), 6));
+    }
+
+    @Test
+    public void testHistoryStamp() {
+        History history = new History();
+        assertEquals(0, RecommendationStore.historyStamp(history));
+        history.addMovie("M001", "2024-01-01");
+        long stamp = RecommendationStore.historyStamp(history);
+        History same = new History();
+        same.loadFromCSV(history.toCSV());
+        assertEquals(stamp, RecommendationStore.historyStamp(same));
+        history.addMovie("M001", "2024-01-02");
+        assertNotEquals(stamp, RecommendationStore.historyStamp(history));
+    }
+
+    @Test(expected = IOException.class)
+    public void testTruncatedFile() throws IOException {
+        RandomAccessFile file = new RandomAccessFile(TEST_STORE_FILE, "rw");
+        try {
+            file.setLength(file.length() - 1);
+        } finally {
+            file.close();
+        }
+        new RecommendationStore(TEST_STORE_FILE);
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException {
+        new RecommendationStore("data/no_such_store.recs");
+    }
+}
@@ -0,0 +1,84 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import service.SharedStoreLock;
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Unit tests for SharedStoreLock class
+ */
+public class SharedStoreLockTest {
+
+    private static String TEST_LOCK_FILE = "data/test_users.csv.lock";
+
+    @After
+    public void tearDown() {
+        new File(TEST_LOCK_FILE).delete();
+    }
+
+    @Test
+    public void testGenerationRoundTrip() throws IOException {
+        SharedStoreLock lock = new SharedStoreLock(TEST_LOCK_FILE);
+        lock.lock();
+        try {
+            assertEquals(0, lock.readGeneration());
+            lock.writeGeneration(42);
+        } finally {
+            lock.unlock();
+        }
+        SharedStoreLock other = new SharedStoreLock(TEST_LOCK_FILE);
+        other.lock();
+        try {
+            assertEquals(42, other.readGeneration());
+        } finally {
+            other.unlock();
+        }
+        assertEquals(1, lock.getAcquireCount());
+    }
+
+    @Test
+    public void testReentrant() throws IOException {
+        SharedStoreLock lock = new SharedStoreLock(TEST_LOCK_FILE);
+        lock.lock();
+        lock.lock();
+        lock.unlock();
+        assertTrue(lock.isHeldByCurrentThread());
+        assertEquals(0, lock.readGeneration());
+        lock.unlock();
+        assertFalse(lock.isHeldByCurrentThread());
+        assertEquals(1, lock.getAcquireCount());
+    }
+
+    @Test(expected = IOException.class)
+    public void testGenerationRequiresLock() throws IOException {
+        new SharedStoreLock(TEST_LOCK_FILE).readGeneration();
+    }
+
+    @Test
+    public void testExcludesOtherHolders() throws Exception {
+        SharedStoreLock first = new SharedStoreLock(TEST_LOCK_FILE);
+        SharedStoreLock second = new SharedStoreLock(TEST_LOCK_FILE);
+        AtomicBoolean acquired = new AtomicBoolean(false);
+        first.lock();
+        Thread thread = new Thread(() -> {
+            try {
+                second.lock();
+                acquired.set(true);
+                second.unlock();
+            } catch (IOException e) {
+                fail(e.getMessage());
+            }
+        });
+        thread.start();
+        thread.join(200);
+        assertFalse(acquired.get());
+        first.unlock();
+        thread.join(5000);
+        assertTrue(acquired.get());
+    }
+}
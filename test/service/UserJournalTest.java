@@ -0,0 +1,140 @@
+package test.service;
+
+import org.junit.Before;
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import service.UserJournal;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for UserJournal class
+ */
+public class UserJournalTest {
+
+    private UserJournal journal;
+    private static String TEST_JOURNAL_FILE = "data/test_users.csv.journal";
+
+    @Before
+    public void setUp() {
+        new File(TEST_JOURNAL_FILE).delete();
+        journal = new UserJournal(TEST_JOURNAL_FILE);
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        journal.truncate();
+    }
+
+    @Test
+    public void testBuildRecord() {
+        assertEquals("WATCHED,alice,M001,2025-01-01",
+                UserJournal.buildRecord(UserJournal.OP_WATCHED, "alice", "M001", "2025-01-01"));
+        assertEquals("DELETE,bob", UserJournal.buildRecord(UserJournal.OP_DELETE, "bob"));
+    }
+
+    @Test
+    public void testReadRecordsWhenMissing() throws IOException {
+        assertTrue(journal.readRecords().isEmpty());
+        assertEquals(0, journal.getRecordCount());
+    }
+
+    @Test
+    public void testAppendAndReadRecords() throws IOException {
+        journal.append("WADD,alice,M001");
+        journal.append("WREMOVE,alice,M001");
+        assertEquals(2, journal.getRecordCount());
+
+        UserJournal reopened = new UserJournal(TEST_JOURNAL_FILE);
+        ArrayList<String> records = reopened.readRecords();
+        assertEquals(2, records.size());
+        assertEquals("WADD,alice,M001", records.get(0));
+        assertEquals("WREMOVE,alice,M001", records.get(1));
+        assertEquals(2, reopened.getRecordCount());
+    }
+
+    @Test
+    public void testTruncate() throws IOException {
+        journal.append("DELETE,alice");
+        journal.truncate();
+
+        assertEquals(0, journal.getRecordCount());
+        assertFalse(new File(TEST_JOURNAL_FILE).exists());
+        assertTrue(journal.readRecords().isEmpty());
+    }
+
+    @Test
+    public void testForEachRecord() throws IOException {
+        journal.append("WADD,alice,M001");
+        journal.append("WADD,alice,M002");
+
+        UserJournal reopened = new UserJournal(TEST_JOURNAL_FILE);
+        ArrayList<String> visited = new ArrayList<>();
+        int count = reopened.forEachRecord((lineNumber, record) -> visited.add(record));
+
+        assertEquals(2, count);
+        assertEquals(2, reopened.getRecordCount());
+        assertEquals("WADD,alice,M002", visited.get(1));
+    }
+
+    @Test
+    public void testRotateSealsSegments() throws IOException {
+        journal.append("WADD,alice,M001");
+        assertEquals(1, journal.rotate());
+        assertEquals(0, journal.getRecordCount());
+        assertFalse(new File(TEST_JOURNAL_FILE).exists());
+        assertTrue(new File(journal.getSegmentPath(1)).exists());
+
+        // An empty active journal is not sealed
+        assertEquals(1, journal.rotate());
+
+        journal.append("WADD,alice,M002");
+        assertEquals(2, journal.rotate());
+        journal.append("WADD,alice,M003");
+        assertEquals(2, journal.getSegmentNumbers().size());
+
+        ArrayList<String> visited = new ArrayList<>();
+        int count = journal.forEachRecord((lineNumber, record) -> visited.add(record));
+        assertEquals(3, count);
+        assertEquals("WADD,alice,M001", visited.get(0));
+        assertEquals("WADD,alice,M003", visited.get(2));
+    }
+
+    @Test
+    public void testDeleteSegments() throws IOException {
+        journal.append("WADD,alice,M001");
+        journal.rotate();
+        journal.append("WADD,alice,M002");
+        journal.rotate();
+        journal.append("WADD,alice,M003");
+
+        journal.deleteSegments(1);
+        assertEquals(1, journal.getSegmentNumbers().size());
+        assertEquals(2, (int) journal.getSegmentNumbers().get(0));
+
+        journal.truncate();
+        assertTrue(journal.getSegmentNumbers().isEmpty());
+        assertFalse(new File(TEST_JOURNAL_FILE).exists());
+        assertEquals(0, journal.getSizeBytes());
+    }
+
+    @Test
+    public void testForEachRecordFromOffset() throws IOException {
+        journal.append("WADD,alice,M001");
+        long offset = journal.forEachRecordFrom(0, (lineNumber, record) -> true);
+        assertEquals(new File(TEST_JOURNAL_FILE).length(), offset);
+        
+        journal.append("WADD,bob,M002");
+        journal.append("DELETE,carol");
+        ArrayList<String> records = new ArrayList<>();
+        long end = journal.forEachRecordFrom(offset, (lineNumber, record) -> records.add(record));
+        assertEquals(2, records.size());
+        assertEquals("WADD,bob,M002", records.get(0));
+        assertEquals("DELETE,carol", records.get(1));
+        assertEquals(new File(TEST_JOURNAL_FILE).length(), end);
+        assertEquals(end, journal.forEachRecordFrom(end, (lineNumber, record) -> false));
+    }
+}
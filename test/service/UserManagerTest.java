@@ -8,7 +8,12 @@ import static org.junit.Assert.*;
 import model.User;
 import model.BasicUser;
 import model.PremiumUser;
+import service.InMemoryUserStore;
+import service.LogUserStore;
+import service.UserImportResult;
+import service.UserJournal;
 import service.UserManager;
+import service.WatchEventStore;
 import java.io.File;
 
 /**
@@ -18,6 +23,7 @@ public class UserManagerTest {
     
     private UserManager userManager;
     private static String TEST_USER_FILE = "data/test_users.csv";
+    private static int TEST_SHARDS = 4;
     
     @Before
     public void setUp() {
@@ -26,10 +32,38 @@ public class UserManagerTest {
     
     @After
     public void tearDown() {
+        userManager.close();
         File file = new File(TEST_USER_FILE);
         if (file.exists()) {
             file.delete();
         }
+        File journal = new File(TEST_USER_FILE + ".journal");
+        if (journal.exists()) {
+            journal.delete();
+        }
+        try {
+            new UserJournal(TEST_USER_FILE + ".journal").truncate();
+        } catch (java.io.IOException e) {
+            fail("Cannot delete journal segments: " + e.getMessage());
+        }
+        for (int i = 0; i < TEST_SHARDS; i++) {
+            new File(String.format("data/test_users-%02d.csv", i)).delete();
+        }
+        new File(TEST_USER_FILE + ".lock").delete();
+    }
+    
+    /**
+     * Creates a user file and two shared-mode managers on it (standing in for two processes)
+     */
+    private UserManager[] createSharedManagers() {
+        userManager.saveUsers();
+        UserManager[] managers = new UserManager[2];
+        for (int i = 0; i < managers.length; i++) {
+            managers[i] = new UserManager(TEST_USER_FILE);
+            managers[i].enableSharedMode();
+            assertTrue(managers[i].loadUsers());
+        }
+        return managers;
     }
     
     @Test
@@ -458,4 +492,915 @@ public class UserManagerTest {
         assertEquals(1, loadedUser1.getWatchlist().size());
         assertEquals(1, loadedUser1.getHistory().size());
     }
+
+    @Test
+    public void testJournalReplaysMutations() {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        User user = userManager.register("journaled", "password123", User.TYPE_BASIC);
+        userManager.addToWatchlist(user, "M001");
+        userManager.addToWatchlist(user, "M002");
+        userManager.removeFromWatchlist(user, "M001");
+        userManager.markAsWatched(user, "M003", "2024-01-01");
+        
+        assertTrue(new File(TEST_USER_FILE + ".journal").exists());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        assertTrue(newManager.loadUsers());
+        
+        User loaded = newManager.getUser("journaled");
+        assertNotNull(loaded);
+        assertEquals(1, loaded.getWatchlist().size());
+        assertTrue(loaded.getWatchlist().contains("M002"));
+        assertEquals("2024-01-01", loaded.getHistory().getWatchDate("M003"));
+    }
+    
+    @Test
+    public void testSameDayRewatchesRecorded() {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        User user = userManager.register("samedayer", "password123", User.TYPE_BASIC);
+        assertTrue(userManager.markAsWatched(user, "M003", "2024-01-01"));
+        assertTrue(userManager.markAsWatched(user, "M003", "2024-01-01"));
+        assertTrue(userManager.markAsWatched(user, "M003", "2024-01-02"));
+        assertEquals(3, user.getHistory().getEventCount());
+
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        assertTrue(newManager.loadUsers());
+        assertEquals(user.getHistory().toCSV(), newManager.getUser("samedayer").getHistory().toCSV());
+    }
+
+    @Test
+    public void testReplayedSameDayWatchesNotAddedTwice() throws Exception {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        User user = userManager.register("replayer", "password123", User.TYPE_BASIC);
+        userManager.saveUsers();
+        assertTrue(userManager.markAsWatched(user, "M003", "2024-01-01"));
+        assertTrue(userManager.markAsWatched(user, "M003", "2024-01-01"));
+        java.nio.file.Path journalPath = new File(TEST_USER_FILE + ".journal").toPath();
+        byte[] journalBytes = java.nio.file.Files.readAllBytes(journalPath);
+
+        // A crash after the snapshot but before the journal is removed leaves both behind
+        assertTrue(userManager.saveUsers());
+        java.nio.file.Files.write(journalPath, journalBytes);
+
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        assertTrue(newManager.loadUsers());
+        assertEquals(2, newManager.getUser("replayer").getHistory().getEventCount());
+        assertTrue(newManager.markAsWatched(newManager.getUser("replayer"), "M004", "2024-01-02"));
+        assertEquals(3, newManager.getUser("replayer").getHistory().getEventCount());
+    }
+
+    @Test
+    public void testJournalReplaysRewatches() throws Exception {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        User user = userManager.register("rewatcher", "password123", User.TYPE_BASIC);
+        userManager.saveUsers();
+        userManager.markAsWatched(user, "M003", "2024-01-01");
+        userManager.markAsWatched(user, "M003", "2024-02-01");
+        java.nio.file.Path journal = java.nio.file.Paths.get(TEST_USER_FILE + ".journal");
+        byte[] records = java.nio.file.Files.readAllBytes(journal);
+        userManager.saveUsers();
+        // Simulates a crash that left the records behind after the snapshot already had them
+        java.nio.file.Files.write(journal, records);
+        userManager.markAsWatched(user, "M003", "2024-03-01");
+
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        assertTrue(newManager.loadUsers());
+        User loaded = newManager.getUser("rewatcher");
+        assertEquals(3, loaded.getHistory().watchCount("M003"));
+        assertEquals("2024-03-01", loaded.getHistory().lastWatched("M003"));
+    }
+    
+    @Test
+    public void testMappedHistoryKeepsUserFileFormat() throws java.io.IOException {
+        userManager.register("heavy", "password123");
+        userManager.saveUsers();
+
+        UserManager mapped = new UserManager(TEST_USER_FILE);
+        mapped.enableMappedHistory("data/test_users.segment");
+        try {
+            assertTrue(mapped.loadUsers());
+            User user = mapped.getUser("heavy");
+            assertTrue(user.getHistory() instanceof service.MappedHistory);
+            assertTrue(mapped.markAsWatched(user, "M001", "2025-01-01"));
+            assertTrue(mapped.markAsWatched(user, "M002", "2025-01-02"));
+            User registered = mapped.register("newcomer", "password123");
+            assertTrue(registered.getHistory() instanceof service.MappedHistory);
+
+            UserManager reloaded = new UserManager(TEST_USER_FILE);
+            assertTrue(reloaded.loadUsers());
+            assertEquals(user.getHistory().toCSV(), reloaded.getUser("heavy").getHistory().toCSV());
+            assertEquals("2025-01-02", reloaded.getUser("heavy").getHistory().getWatchDate("M002"));
+        } finally {
+            mapped.getHistorySegment().close();
+        }
+    }
+    
+    @Test
+    public void testMarkAsWatchedFeedsWatchEventStore() throws java.io.IOException {
+        WatchEventStore events = new WatchEventStore("data/test_manager_events");
+        userManager.setWatchEventStore(events);
+        try {
+            User user = userManager.register("watcher", "password123");
+            assertTrue(userManager.markAsWatched(user, "M001", "2025-05-01"));
+            assertTrue(userManager.markAsWatched(user, "M002", "2025-05-03"));
+            userManager.close();
+
+            WatchEventStore reopened = new WatchEventStore("data/test_manager_events");
+            assertEquals(2, reopened.getEventCount());
+            java.util.HashMap<String, Integer> counts = reopened.countByMovie(
+                    java.time.LocalDate.parse("2025-05-02"), java.time.LocalDate.parse("2025-05-31"));
+            assertEquals(1, counts.size());
+            assertEquals(Integer.valueOf(1), counts.get("M002"));
+        } finally {
+            File[] files = new File("data/test_manager_events").listFiles();
+            if (files != null) {
+                for (File file : files) {
+                    file.delete();
+                }
+            }
+            new File("data/test_manager_events").delete();
+        }
+    }
+    
+    @Test
+    public void testChangeFeedStreamsMutations() {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        userManager.enableChangeFeed("data/test_manager.changes", 100, 2);
+        try {
+            User user = userManager.register("follower", "password123");
+            userManager.addToWatchlist(user, "M001");
+            assertEquals(2, userManager.getChangeVersion());
+
+            java.util.ArrayList<String> changes = new java.util.ArrayList<>();
+            assertEquals(1, userManager.changesSince(1, (version, op, username, args) -> {
+                changes.add(op + ":" + username + ":" + String.join("|", args));
+                return true;
+            }));
+            assertEquals(UserJournal.OP_WATCHLIST_ADD + ":follower:M001", changes.get(0));
+
+            userManager.enableGroupCommit(10000, 1000);
+            userManager.removeFromWatchlist(user, "M001");
+            assertEquals(3, userManager.getChangeVersion());
+            assertEquals(0, userManager.changesSince(2, (version, op, username, args) -> true));
+            assertTrue(userManager.flush());
+            assertEquals(1, userManager.changesSince(2, (version, op, username, args) -> true));
+        } finally {
+            new File("data/test_manager.changes.1").delete();
+        }
+    }
+
+    @Test
+    public void testChangeFeedDisabledInSharedMode() {
+        userManager.saveUsers();
+        userManager.enableSharedMode();
+        userManager.enableChangeFeed("data/test_manager.changes", 100, 2);
+        assertNull(userManager.getChangeFeed());
+        assertEquals(-1, userManager.changesSince(0, (version, op, username, args) -> true));
+    }
+
+    /**
+     * Writes a bulk import file
+     */
+    private void writeImportFile(String path, String... lines) {
+        java.util.ArrayList<String> content = new java.util.ArrayList<>();
+        for (String line : lines) {
+            content.add(line);
+        }
+        try {
+            util.FileHandler.writeCSV(path, content);
+        } catch (java.io.IOException e) {
+            fail("Cannot write import file: " + e.getMessage());
+        }
+    }
+
+    @Test
+    public void testImportUsers() {
+        String importFile = "data/test_import_users.csv";
+        userManager.register("existing", "password123");
+        writeImportFile(importFile, "username,password,type",
+                "alice,password123,basic",
+                "bob,secret99,premium",
+                "alice,another123,basic",
+                "existing,password123",
+                "xy,password123",
+                "carol,short",
+                "no-password",
+                "",
+                "dave,password456");
+        try {
+            int[] reports = new int[1];
+            UserImportResult result = userManager.importUsers(importFile, 2, progress -> reports[0]++);
+
+            assertNotNull(result);
+            assertEquals(8, result.getRowsRead());
+            assertEquals(3, result.getImported());
+            assertEquals(2, result.getDuplicates());
+            assertEquals(3, result.getInvalid());
+            assertTrue(reports[0] >= 1);
+            assertNotNull(userManager.login("alice", "password123"));
+            assertTrue(userManager.getUser("bob") instanceof PremiumUser);
+
+            UserManager newManager = new UserManager(TEST_USER_FILE);
+            assertTrue(newManager.loadUsers());
+            assertEquals(4, newManager.getAllUsers().size());
+            assertNotNull(newManager.login("dave", "password456"));
+        } finally {
+            new File(importFile).delete();
+        }
+    }
+
+    @Test
+    public void testImportUsersInBatches() {
+        String importFile = "data/test_import_users.csv";
+        String[] lines = new String[20000];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "bulk" + i + ",password" + i;
+        }
+        writeImportFile(importFile, lines);
+        try {
+            int[] reports = new int[1];
+            UserImportResult result = userManager.importUsers(importFile, 4, progress -> reports[0]++);
+            assertEquals(20000, result.getImported());
+            assertTrue(reports[0] >= 3);
+            assertNotNull(userManager.login("bulk19999", "password19999"));
+        } finally {
+            new File(importFile).delete();
+        }
+    }
+
+    @Test
+    public void testSharedImportKeepsOtherProcessesOut() throws Exception {
+        String importFile = "data/test_import_users.csv";
+        String[] lines = new String[8200];
+        for (int i = 0; i < lines.length; i++) {
+            lines[i] = "shared" + i + ",password" + i;
+        }
+        writeImportFile(importFile, lines);
+        UserManager[] managers = createSharedManagers();
+        Thread[] other = new Thread[1];
+        boolean[] saved = new boolean[1];
+        try {
+            UserImportResult result = managers[0].importUsers(importFile, 2, progress -> {
+                if (other[0] == null) {
+                    // Another process starting a new generation in the middle of the import
+                    other[0] = new Thread(() -> {
+                        managers[1].register("outsider", "password123");
+                        saved[0] = managers[1].saveUsers();
+                    });
+                    other[0].start();
+                }
+            });
+            assertNotNull(result);
+            assertEquals(8200, result.getImported());
+            other[0].join(10000);
+            assertTrue(saved[0]);
+
+            UserManager reloaded = new UserManager(TEST_USER_FILE);
+            assertTrue(reloaded.loadUsers());
+            assertEquals(8201, reloaded.getUserCount());
+            assertNotNull(reloaded.getUser("shared8199"));
+            assertNotNull(reloaded.getUser("outsider"));
+        } finally {
+            new File(importFile).delete();
+        }
+    }
+
+    @Test
+    public void testImportUsersMissingFile() {
+        assertNull(userManager.importUsers("data/no_such_import.csv"));
+        assertEquals(0, userManager.getAllUsers().size());
+    }
+
+    @Test
+    public void testImportUsersPublishesChanges() {
+        String importFile = "data/test_import_users.csv";
+        writeImportFile(importFile, "erin,password123", "frank,password123");
+        userManager.enableJournal();
+        userManager.saveUsers();
+        userManager.enableChangeFeed("data/test_manager.changes", 100, 2);
+        try {
+            assertEquals(2, userManager.importUsers(importFile).getImported());
+            assertEquals(2, userManager.getChangeVersion());
+            java.util.ArrayList<String> names = new java.util.ArrayList<>();
+            userManager.changesSince(0, (version, op, username, args) -> names.add(op + ":" + username));
+            assertEquals(UserJournal.OP_PUT + ":erin", names.get(0));
+            assertEquals(UserJournal.OP_PUT + ":frank", names.get(1));
+        } finally {
+            new File(importFile).delete();
+            new File("data/test_manager.changes.1").delete();
+        }
+    }
+
+    @Test
+    public void testJournalReplaysPasswordTypeAndDelete() {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        User user = userManager.register("changer", "password123", User.TYPE_BASIC);
+        userManager.register("removed", "password123", User.TYPE_BASIC);
+        userManager.changePassword(user, "password123", "newpassword");
+        userManager.upgradeToPremiuim(user);
+        userManager.deleteUser("removed");
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        newManager.loadUsers();
+        
+        assertNotNull(newManager.login("changer", "newpassword"));
+        assertTrue(newManager.getUser("changer") instanceof PremiumUser);
+        assertFalse(newManager.userExists("removed"));
+    }
+    
+    @Test
+    public void testJournalCompaction() {
+        userManager.enableJournal(3);
+        userManager.saveUsers();
+        User user = userManager.register("compact", "password123", User.TYPE_BASIC);
+        userManager.addToWatchlist(user, "M001");
+        assertTrue(new File(TEST_USER_FILE + ".journal").exists());
+        
+        userManager.addToWatchlist(user, "M002");
+        assertFalse(new File(TEST_USER_FILE + ".journal").exists());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.loadUsers();
+        assertEquals(2, newManager.getUser("compact").getWatchlist().size());
+    }
+
+    @Test
+    public void testGroupCommitFlushesJournal() {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        userManager.enableGroupCommit(10000, 1000);
+        User user = userManager.register("grouped", "password123", User.TYPE_BASIC);
+        userManager.addToWatchlist(user, "M001");
+        
+        assertFalse(new File(TEST_USER_FILE + ".journal").exists());
+        assertTrue(userManager.flush());
+        assertTrue(new File(TEST_USER_FILE + ".journal").exists());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        newManager.loadUsers();
+        assertTrue(newManager.getUser("grouped").getWatchlist().contains("M001"));
+    }
+    
+    @Test
+    public void testGroupCommitWithoutJournalSavesOnAwait() {
+        userManager.enableGroupCommit(5, 1000);
+        userManager.register("awaited", "password123", User.TYPE_PREMIUM);
+        
+        assertTrue(userManager.awaitDurable());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        assertTrue(newManager.loadUsers());
+        assertTrue(newManager.getUser("awaited") instanceof PremiumUser);
+    }
+
+    @Test
+    public void testShardFilePath() {
+        userManager.enableSharding(TEST_SHARDS);
+        assertEquals("data/test_users-00.csv", userManager.getShardFilePath(0));
+        assertEquals("data/test_users-03.csv", userManager.getShardFilePath(3));
+    }
+    
+    @Test
+    public void testShardedSaveAndLoad() {
+        userManager.enableSharding(TEST_SHARDS);
+        for (int i = 0; i < 20; i++) {
+            userManager.register("sharded" + i, "password123", User.TYPE_BASIC);
+        }
+        User user = userManager.getUser("sharded7");
+        userManager.addToWatchlist(user, "M001");
+        
+        assertFalse(new File(TEST_USER_FILE).exists());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableSharding(TEST_SHARDS);
+        assertTrue(newManager.loadUsers());
+        assertEquals(20, newManager.getUserCount());
+        assertTrue(newManager.getUser("sharded7").getWatchlist().contains("M001"));
+    }
+    
+    @Test
+    public void testShardedSaveOnlyRewritesDirtyShards() throws Exception {
+        userManager.enableSharding(TEST_SHARDS);
+        for (int i = 0; i < 20; i++) {
+            userManager.register("sharded" + i, "password123", User.TYPE_BASIC);
+        }
+        File[] shards = new File[TEST_SHARDS];
+        for (int i = 0; i < TEST_SHARDS; i++) {
+            shards[i] = new File(userManager.getShardFilePath(i));
+            shards[i].setLastModified(1000L);
+        }
+        
+        User user = userManager.getUser("sharded3");
+        user.addToWatchlist("M002");
+        assertTrue(userManager.saveUsers());
+        assertFalse(user.isDirty());
+        
+        int rewritten = 0;
+        for (int i = 0; i < TEST_SHARDS; i++) {
+            if (shards[i].lastModified() != 1000L) {
+                rewritten++;
+            }
+        }
+        assertEquals(1, rewritten);
+    }
+    
+    @Test
+    public void testShardedSaveKeepsReplayedJournalChanges() {
+        userManager.enableSharding(TEST_SHARDS);
+        userManager.register("replayed", "password123", User.TYPE_BASIC);
+        
+        UserManager journaled = new UserManager(TEST_USER_FILE);
+        journaled.enableSharding(TEST_SHARDS);
+        journaled.enableJournal(1000);
+        assertTrue(journaled.loadUsers());
+        assertTrue(journaled.addToWatchlist(journaled.getUser("replayed"), "M001"));
+        journaled.close();
+        
+        UserManager replaying = new UserManager(TEST_USER_FILE);
+        replaying.enableSharding(TEST_SHARDS);
+        replaying.enableJournal(1000);
+        assertTrue(replaying.loadUsers());
+        assertTrue(replaying.getUser("replayed").getWatchlist().contains("M001"));
+        assertTrue(replaying.saveUsers());
+        replaying.close();
+        
+        UserManager reloaded = new UserManager(TEST_USER_FILE);
+        reloaded.enableSharding(TEST_SHARDS);
+        reloaded.enableJournal(1000);
+        assertTrue(reloaded.loadUsers());
+        assertTrue(reloaded.getUser("replayed").getWatchlist().contains("M001"));
+        reloaded.close();
+    }
+    
+    @Test
+    public void testShardingMigratesSingleFile() {
+        userManager.register("legacy", "password123", User.TYPE_BASIC);
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableSharding(TEST_SHARDS);
+        assertTrue(newManager.loadUsers());
+        assertTrue(newManager.saveUsers());
+        
+        UserManager shardedManager = new UserManager(TEST_USER_FILE);
+        shardedManager.enableSharding(TEST_SHARDS);
+        new File(TEST_USER_FILE).delete();
+        assertTrue(shardedManager.loadUsers());
+        assertTrue(shardedManager.userExists("legacy"));
+    }
+
+    private void writeLazyTestUsers() throws Exception {
+        java.io.FileWriter writer = new java.io.FileWriter(TEST_USER_FILE);
+        writer.write("username,password,usertype,watchlist,history\n");
+        writer.write("alice,password123,basic,M001;M002,M003@2024-01-01\n");
+        writer.write("bob,password123,premium,M004,\n");
+        writer.write("carol,password123,basic,,\n");
+        writer.close();
+    }
+    
+    @Test
+    public void testLazyLoadingHydratesOnAccess() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableLazyLoading();
+        assertTrue(userManager.loadUsers());
+        
+        assertEquals(3, userManager.getUserCount());
+        assertEquals(0, userManager.getHydratedUserCount());
+        assertTrue(userManager.userExists("bob"));
+        assertEquals(0, userManager.getHydratedUserCount());
+        
+        User bob = userManager.login("bob", "password123");
+        assertNotNull(bob);
+        assertTrue(bob instanceof PremiumUser);
+        assertEquals(1, userManager.getHydratedUserCount());
+        assertSame(bob, userManager.getUser("bob"));
+        assertEquals(3, userManager.getUserCount());
+    }
+    
+    @Test
+    public void testLazySaveKeepsUnaccessedUsers() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableLazyLoading();
+        userManager.loadUsers();
+        
+        User carol = userManager.getUser("carol");
+        userManager.addToWatchlist(carol, "M010");
+        userManager.deleteUser("bob");
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableLazyLoading();
+        assertTrue(newManager.loadUsers());
+        assertEquals(2, newManager.getUserCount());
+        assertTrue(newManager.getUser("carol").getWatchlist().contains("M010"));
+        assertEquals("2024-01-01", newManager.getUser("alice").getHistory().getWatchDate("M003"));
+        assertNull(newManager.getUser("bob"));
+    }
+    
+    @Test
+    public void testLazyGetAllUsersHydratesEveryone() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableLazyLoading();
+        userManager.loadUsers();
+        
+        assertEquals(3, userManager.getAllUsers().size());
+        assertEquals(3, userManager.getHydratedUserCount());
+    }
+    
+    @Test
+    public void testTieringDemotesAndRehydrates() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(2, 1024);
+        assertTrue(userManager.loadUsers());
+        service.UserTiers tiers = userManager.getTiers();
+        
+        User alice = userManager.getUser("alice");
+        userManager.getUser("bob");
+        userManager.getUser("carol");
+        assertEquals(2, userManager.getHydratedUserCount());
+        assertEquals(3, userManager.getUserCount());
+        assertEquals(3, tiers.getColdMisses());
+        assertEquals(1, tiers.getDemotions());
+        assertEquals(1, tiers.getWarmCount());
+        
+        User again = userManager.getUser("alice");
+        assertNotSame(alice, again);
+        assertEquals(alice.toCSV(), again.toCSV());
+        assertEquals(1, tiers.getWarmHits());
+        userManager.getUser("alice");
+        assertEquals(1, tiers.getHotHits());
+    }
+    
+    @Test
+    public void testTieringWarmBudgetEvictsToCold() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(1, 0);
+        userManager.loadUsers();
+        
+        userManager.getUser("alice");
+        userManager.getUser("bob");
+        assertEquals(0, userManager.getTiers().getWarmCount());
+        assertEquals(1, userManager.getTiers().getEvictions());
+        assertEquals("2024-01-01", userManager.getUser("alice").getHistory().getWatchDate("M003"));
+        assertEquals(3, userManager.getTiers().getColdMisses());
+    }
+    
+    @Test
+    public void testTieringKeepsUnsavedUsersHot() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableJournal();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(1, 1024);
+        userManager.loadUsers();
+        
+        User alice = userManager.getUser("alice");
+        assertTrue(userManager.markAsWatched(alice, "M009", "2025-01-01"));
+        userManager.getUser("bob");
+        userManager.getUser("carol");
+        // Alice's change is only in the journal, so she cannot leave the hot tier yet
+        assertSame(alice, userManager.getUser("alice"));
+        
+        assertTrue(userManager.saveUsers());
+        userManager.getUser("bob");
+        assertEquals(1, userManager.getHydratedUserCount());
+        assertEquals("2025-01-01", userManager.getUser("alice").getHistory().getWatchDate("M009"));
+    }
+    
+    @Test
+    public void testTieringCheckpointMakesUsersEvictable() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableJournal();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(1, 0);
+        userManager.loadUsers();
+        
+        User bob = userManager.getUser("bob");
+        assertTrue(userManager.addToWatchlist(bob, "M020"));
+        userManager.getUser("carol");
+        assertEquals(2, userManager.getHydratedUserCount());
+        
+        assertTrue(userManager.checkpoint());
+        assertEquals(1, userManager.getHydratedUserCount());
+        assertTrue(userManager.getUser("bob").getWatchlist().contains("M020"));
+        assertTrue(userManager.getUser("carol").getWatchlist().isEmpty());
+    }
+    
+    @Test
+    public void testTieringAdoptsDemotedUserOnChange() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableJournal();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(1, 1024);
+        userManager.loadUsers();
+        
+        User alice = userManager.getUser("alice");
+        userManager.getUser("bob");
+        assertTrue(userManager.addToWatchlist(alice, "M030"));
+        assertSame(alice, userManager.getUser("alice"));
+        assertTrue(userManager.saveUsers());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableLazyLoading();
+        assertTrue(newManager.loadUsers());
+        assertTrue(newManager.getUser("alice").getWatchlist().contains("M030"));
+        assertEquals(3, newManager.getUserCount());
+    }
+    
+    @Test
+    public void testTieringDemotesUpdatedUserWithNewRecord() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableJournal();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(1, 1024);
+        userManager.loadUsers();
+        
+        User alice = userManager.getUser("alice");
+        alice.addToWatchlist("M040");
+        assertTrue(userManager.updateUser(alice));
+        // The update is only in the journal, so alice must not be demoted to her file record
+        userManager.getUser("bob");
+        assertTrue(userManager.getUser("alice").getWatchlist().contains("M040"));
+        
+        assertTrue(userManager.checkpoint());
+        userManager.getUser("bob");
+        assertEquals(1, userManager.getHydratedUserCount());
+        assertTrue(userManager.getUser("alice").getWatchlist().contains("M040"));
+    }
+    
+    @Test
+    public void testTieringGetAllUsersKeepsBudget() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableLazyLoading();
+        userManager.enableTiering(1, 1024);
+        userManager.loadUsers();
+        userManager.getUser("bob");
+        
+        assertEquals(3, userManager.getAllUsers().size());
+        assertEquals(1, userManager.getHydratedUserCount());
+    }
+    
+    @Test
+    public void testLazyLoadingWithJournal() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableJournal();
+        userManager.enableLazyLoading();
+        userManager.loadUsers();
+        userManager.markAsWatched(userManager.getUser("alice"), "M001", "2024-02-02");
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        newManager.enableLazyLoading();
+        newManager.loadUsers();
+        
+        assertEquals(1, newManager.getHydratedUserCount());
+        assertEquals("2024-02-02", newManager.getUser("alice").getHistory().getWatchDate("M001"));
+    }
+    
+    @Test
+    public void testCheckpointFoldsJournal() {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        User user = userManager.register("ckpt", "password123", User.TYPE_BASIC);
+        userManager.addToWatchlist(user, "M001");
+        userManager.markAsWatched(user, "M002", "2025-03-03");
+        assertTrue(new File(TEST_USER_FILE + ".journal").exists());
+        
+        assertTrue(userManager.checkpoint());
+        assertFalse(new File(TEST_USER_FILE + ".journal").exists());
+        assertTrue(new UserJournal(TEST_USER_FILE + ".journal").getSegmentNumbers().isEmpty());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        assertTrue(newManager.loadUsers());
+        User loaded = newManager.getUser("ckpt");
+        assertTrue(loaded.getWatchlist().contains("M001"));
+        assertEquals("2025-03-03", loaded.getHistory().getWatchDate("M002"));
+    }
+    
+    @Test
+    public void testCheckpointInLazyMode() throws Exception {
+        writeLazyTestUsers();
+        userManager.enableJournal();
+        userManager.enableLazyLoading();
+        userManager.loadUsers();
+        userManager.markAsWatched(userManager.getUser("alice"), "M009", "2024-05-05");
+        
+        assertTrue(userManager.checkpoint());
+        assertEquals(1, userManager.getHydratedUserCount());
+        assertTrue(userManager.getUser("bob").getWatchlist().contains("M004"));
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        newManager.enableLazyLoading();
+        newManager.loadUsers();
+        assertEquals(3, newManager.getUserCount());
+        assertEquals("2024-05-05", newManager.getUser("alice").getHistory().getWatchDate("M009"));
+        assertTrue(newManager.getUser("bob").getWatchlist().contains("M004"));
+    }
+    
+    @Test
+    public void testBackgroundCheckpointOnRecordCount() throws Exception {
+        userManager.enableJournal();
+        userManager.enableCheckpointing(Long.MAX_VALUE, 3, 60000);
+        userManager.register("bg1", "password123");
+        userManager.register("bg2", "password123");
+        userManager.register("bg3", "password123");
+        
+        long deadline = System.currentTimeMillis() + 5000;
+        while (userManager.getCheckpointer().getCheckpointCount() == 0 && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        assertEquals(1, userManager.getCheckpointer().getCheckpointCount());
+        assertFalse(new File(TEST_USER_FILE + ".journal").exists());
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        assertTrue(newManager.loadUsers());
+        assertEquals(3, newManager.getUserCount());
+    }
+    
+    @Test
+    public void testRecoveryReplaysSealedSegments() throws Exception {
+        userManager.enableJournal();
+        userManager.saveUsers();
+        userManager.register("before", "password123");
+        // Simulates a crash after the journal was sealed but before the checkpoint finished
+        new UserJournal(TEST_USER_FILE + ".journal").rotate();
+        userManager.register("after", "password123");
+        
+        UserManager newManager = new UserManager(TEST_USER_FILE);
+        newManager.enableJournal();
+        assertTrue(newManager.loadUsers());
+        assertTrue(newManager.userExists("before"));
+        assertTrue(newManager.userExists("after"));
+        assertTrue(newManager.getLastRecoveryMillis() >= 0);
+    }
+    
+    @Test
+    public void testInMemoryStore() {
+        InMemoryUserStore store = new InMemoryUserStore();
+        UserManager manager = new UserManager(store);
+        assertFalse(manager.loadUsers());
+        User user = manager.register("mem", "password123", User.TYPE_BASIC);
+        manager.addToWatchlist(user, "M001");
+        manager.upgradeToPremiuim(user);
+        
+        UserManager reloaded = new UserManager(store);
+        assertTrue(reloaded.loadUsers());
+        User loaded = reloaded.getUser("mem");
+        assertTrue(loaded instanceof PremiumUser);
+        assertTrue(loaded.getWatchlist().contains("M001"));
+        
+        assertTrue(reloaded.deleteUser("mem"));
+        assertEquals(0, new UserManager(store).getUserCount());
+    }
+    
+    @Test
+    public void testLogStoreWithGroupCommit() {
+        String logFile = "data/test_users_manager.log";
+        try {
+            UserManager manager = new UserManager(new LogUserStore(logFile));
+            manager.enableJournal();
+            assertFalse(manager.isJournalEnabled());
+            manager.enableGroupCommit(5, 64);
+            User user = manager.register("logged", "password123", User.TYPE_BASIC);
+            manager.markAsWatched(user, "M005", "2025-05-05");
+            assertTrue(manager.awaitDurable());
+            manager.close();
+            
+            UserManager reloaded = new UserManager(new LogUserStore(logFile));
+            assertTrue(reloaded.loadUsers());
+            assertEquals("2025-05-05", reloaded.getUser("logged").getHistory().getWatchDate("M005"));
+        } finally {
+            new File(logFile).delete();
+        }
+    }
+    
+    @Test
+    public void testSharedModeMergesChanges() {
+        UserManager[] managers = createSharedManagers();
+        assertTrue(managers[0].isSharedMode());
+        assertTrue(managers[0].isJournalEnabled());
+        User alice = managers[0].register("alice", "password123", User.TYPE_BASIC);
+        assertNotNull(alice);
+        
+        User aliceInSecond = managers[1].getUser("alice");
+        assertNotNull(aliceInSecond);
+        assertEquals(alice.getVersion(), aliceInSecond.getVersion());
+        
+        assertTrue(managers[0].addToWatchlist(alice, "M001"));
+        assertTrue(managers[1].addToWatchlist(aliceInSecond, "M002"));
+        assertTrue(managers[1].markAsWatched(aliceInSecond, "M003", "2025-03-03"));
+        
+        assertTrue(managers[0].refresh());
+        assertFalse(managers[0].refresh());
+        assertTrue(alice.getWatchlist().contains("M001"));
+        assertTrue(alice.getWatchlist().contains("M002"));
+        assertEquals("2025-03-03", alice.getHistory().getWatchDate("M003"));
+        assertEquals(alice.getVersion(), managers[1].getUser("alice").getVersion());
+        
+        UserManager reloaded = new UserManager(TEST_USER_FILE);
+        reloaded.enableJournal();
+        assertTrue(reloaded.loadUsers());
+        assertEquals(2, reloaded.getUser("alice").getWatchlist().size());
+    }
+    
+    @Test
+    public void testSharedWatchesRecordedOnceInJournalOrder() {
+        UserManager[] managers = createSharedManagers();
+        User first = managers[0].register("watcher", "password123", User.TYPE_BASIC);
+        User second = managers[1].getUser("watcher");
+        
+        assertTrue(managers[0].markAsWatched(first, "M001", "2025-03-03"));
+        assertTrue(managers[1].markAsWatched(second, "M001", "2025-03-03"));
+        assertTrue(managers[0].markAsWatched(first, "M002", "2025-03-04"));
+        assertEquals(3, first.getHistory().getEventCount());
+        assertEquals(first.getHistory().toCSV(), managers[1].getUser("watcher").getHistory().toCSV());
+        
+        UserManager reloaded = new UserManager(TEST_USER_FILE);
+        reloaded.enableJournal();
+        assertTrue(reloaded.loadUsers());
+        assertEquals(first.getHistory().toCSV(), reloaded.getUser("watcher").getHistory().toCSV());
+    }
+    
+    @Test
+    public void testSharedModeRejectsConflicts() {
+        UserManager[] managers = createSharedManagers();
+        assertNotNull(managers[0].register("bob", "password123", User.TYPE_BASIC));
+        // The second process sees the registration and cannot register the name again
+        assertNull(managers[1].register("bob", "password456", User.TYPE_BASIC));
+        
+        User staleCopy = new BasicUser("bob", managers[1].getUser("bob").getPassword());
+        staleCopy.setVersion(managers[1].getUser("bob").getVersion());
+        assertTrue(managers[0].addToWatchlist(managers[0].getUser("bob"), "M001"));
+        assertFalse(managers[1].updateUser(staleCopy));
+        assertTrue(managers[1].getUser("bob").getWatchlist().contains("M001"));
+        
+        User bob = managers[1].getUser("bob");
+        assertTrue(managers[0].deleteUser("bob"));
+        assertFalse(managers[1].addToWatchlist(bob, "M002"));
+        assertFalse(managers[1].userExists("bob"));
+    }
+    
+    @Test
+    public void testSharedModeReloadsAfterSnapshot() {
+        UserManager[] managers = createSharedManagers();
+        User carol = managers[0].register("carol", "password123", User.TYPE_BASIC);
+        managers[1].getUser("carol");
+        assertTrue(managers[0].addToWatchlist(carol, "M001"));
+        assertTrue(managers[0].saveUsers());
+        assertEquals(0, new File(TEST_USER_FILE + ".journal").length());
+        
+        // The second process has not read the folded journal record and must reload
+        User reloaded = managers[1].getUser("carol");
+        assertTrue(reloaded.getWatchlist().contains("M001"));
+        assertEquals(carol.getVersion(), reloaded.getVersion());
+        assertTrue(managers[1].addToWatchlist(reloaded, "M002"));
+        assertTrue(managers[0].getUser("carol").getWatchlist().contains("M002"));
+    }
+    
+    @Test
+    public void testSharedReloadKeepsHeldUsersCurrent() {
+        UserManager[] managers = createSharedManagers();
+        User carol = managers[0].register("carol", "password123", User.TYPE_BASIC);
+        User held = managers[1].getUser("carol");
+        assertTrue(managers[0].addToWatchlist(carol, "M001"));
+        assertTrue(managers[0].saveUsers());
+        
+        // The reload after the snapshot updates the object the second process holds
+        assertSame(held, managers[1].getUser("carol"));
+        assertTrue(held.getWatchlist().contains("M001"));
+        assertTrue(managers[1].addToWatchlist(held, "M002"));
+        assertTrue(managers[0].getUser("carol").getWatchlist().contains("M002"));
+    }
+    
+    @Test
+    public void testSharedReadsSkipLockWhenUnchanged() {
+        UserManager[] managers = createSharedManagers();
+        managers[0].register("carol", "password123", User.TYPE_BASIC);
+        assertTrue(managers[1].userExists("carol"));
+        int acquired = managers[1].getSharedLock().getAcquireCount();
+        
+        assertTrue(managers[1].userExists("carol"));
+        assertNotNull(managers[1].getUser("carol"));
+        managers[1].getUserCount();
+        managers[1].getAllUsers();
+        assertEquals(acquired, managers[1].getSharedLock().getAcquireCount());
+        
+        // A change by the other process is still picked up
+        managers[0].register("dave", "password123", User.TYPE_BASIC);
+        assertTrue(managers[1].userExists("dave"));
+        assertEquals(acquired + 1, managers[1].getSharedLock().getAcquireCount());
+    }
 }
@@ -0,0 +1,83 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import service.UserOffsetIndex;
+import util.FileHandler;
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Unit tests for UserOffsetIndex class
+ */
+public class UserOffsetIndexTest {
+
+    private static String TEST_USER_FILE = "data/test_offset_users.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_USER_FILE).delete();
+    }
+
+    private void writeUsers(String header, String... rows) throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add(header);
+        for (String row : rows) {
+            lines.add(row);
+        }
+        FileHandler.writeCSV(TEST_USER_FILE, lines);
+    }
+
+    @Test
+    public void testBuildAndReadLine() throws IOException {
+        writeUsers("username,password,usertype,watchlist,history",
+                "alice,pass1,basic,M001,",
+                "",
+                "bob,pass2,premium,,M002@2024-01-01");
+        UserOffsetIndex index = new UserOffsetIndex(TEST_USER_FILE);
+
+        assertTrue(index.build());
+        assertTrue(index.isNewFormat());
+        assertEquals(2, index.size());
+        assertTrue(index.contains("alice"));
+        assertEquals("bob,pass2,premium,,M002@2024-01-01", index.readLine("bob"));
+        assertEquals("alice,pass1,basic,M001,", index.readLine("alice"));
+        assertNull(index.readLine("nobody"));
+    }
+
+    @Test
+    public void testOldFormatAndInvalidRows() throws IOException {
+        writeUsers("username,password,watchlist,history", "alice,pass1,M001,", "broken,row");
+        UserOffsetIndex index = new UserOffsetIndex(TEST_USER_FILE);
+
+        assertTrue(index.build());
+        assertFalse(index.isNewFormat());
+        assertEquals(1, index.size());
+    }
+
+    @Test
+    public void testBuildEmptyFile() throws IOException {
+        FileHandler.writeCSV(TEST_USER_FILE, new ArrayList<String>());
+        assertFalse(new UserOffsetIndex(TEST_USER_FILE).build());
+    }
+
+    @Test
+    public void testEntriesInFileOrderAndReset() throws IOException {
+        writeUsers("username,password,usertype,watchlist,history", "zed,p,basic,,", "amy,p,basic,,");
+        UserOffsetIndex index = new UserOffsetIndex(TEST_USER_FILE);
+        index.build();
+
+        assertEquals("zed", index.entriesInFileOrder().get(0).getKey());
+        assertEquals("amy", index.entriesInFileOrder().get(1).getKey());
+
+        index.remove("zed");
+        assertFalse(index.contains("zed"));
+
+        index.reset(new HashMap<String, Long>());
+        assertEquals(0, index.size());
+    }
+}
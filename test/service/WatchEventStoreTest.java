@@ -0,0 +1,167 @@
+package test.service;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import model.BasicUser;
+import model.User;
+import service.WatchEventStore;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+
+/**
+ * Unit tests for WatchEventStore class
+ */
+public class WatchEventStoreTest {
+
+    private static String TEST_DIRECTORY = "data/test_events";
+    private WatchEventStore store;
+
+    @Before
+    public void setUp() {
+        deleteDirectory();
+        store = new WatchEventStore(TEST_DIRECTORY);
+    }
+
+    @After
+    public void tearDown() {
+        deleteDirectory();
+    }
+
+    private void deleteDirectory() {
+        File directory = new File(TEST_DIRECTORY);
+        File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                file.delete();
+            }
+        }
+        directory.delete();
+    }
+
+    /**
+     * Collects the scanned events as "username,movieId,date" strings
+     */
+    private ArrayList<String> scanAll(WatchEventStore events, String from, String to) throws IOException {
+        ArrayList<String> visited = new ArrayList<>();
+        events.scan(LocalDate.parse(from), LocalDate.parse(to), (userCode, movieCode, epochDay) -> {
+            visited.add(events.getUsername(userCode) + "," + events.getMovieId(movieCode) + ","
+                    + LocalDate.ofEpochDay(epochDay));
+            return true;
+        });
+        return visited;
+    }
+
+    @Test
+    public void testAppendAndScanInDayOrder() throws IOException {
+        assertTrue(store.append("alice", "M002", "2025-03-02"));
+        assertTrue(store.append("bob", "M001", "2025-03-01"));
+        assertTrue(store.append("alice", "M001", "2025-03-01"));
+
+        ArrayList<String> events = scanAll(store, "2025-03-01", "2025-03-02");
+        assertEquals(3, events.size());
+        assertEquals("bob,M001,2025-03-01", events.get(0));
+        assertEquals("alice,M001,2025-03-01", events.get(1));
+        assertEquals("alice,M002,2025-03-02", events.get(2));
+        assertEquals(3, store.getEventCount());
+    }
+
+    @Test
+    public void testInvalidDateRejected() throws IOException {
+        assertFalse(store.append("alice", "M001", "not-a-date"));
+        assertEquals(0, store.getEventCount());
+    }
+
+    @Test
+    public void testScanPrunesPartitionsByDate() throws IOException {
+        store.append("alice", "M001", "2025-01-10");
+        store.append("alice", "M002", "2025-02-10");
+        store.append("bob", "M003", "2025-03-10");
+
+        ArrayList<String> events = scanAll(store, "2025-02-01", "2025-02-28");
+        assertEquals(1, events.size());
+        assertEquals("alice,M002,2025-02-10", events.get(0));
+        assertEquals(3, store.getPartitionDays().size());
+        assertEquals(0, scanAll(store, "2025-03-11", "2025-03-01").size());
+    }
+
+    @Test
+    public void testScanStopsWhenVisitorReturnsFalse() throws IOException {
+        for (int i = 0; i < 10; i++) {
+            store.append("user" + i, "M001", "2025-01-01");
+        }
+        long visited = store.scan(LocalDate.parse("2025-01-01"), LocalDate.parse("2025-01-01"),
+                (userCode, movieCode, epochDay) -> false);
+        assertEquals(1, visited);
+    }
+
+    @Test
+    public void testEventsSurviveReopen() throws IOException {
+        store.append("alice", "M001", "2025-01-01");
+        store.append("bob", "M002", "2025-01-02");
+        store.flush();
+
+        WatchEventStore reopened = new WatchEventStore(TEST_DIRECTORY);
+        assertEquals(2, reopened.getEventCount());
+        reopened.append("carol", "M001", "2025-01-02");
+        ArrayList<String> events = scanAll(reopened, "2025-01-01", "2025-01-31");
+        assertEquals(3, events.size());
+        assertEquals("carol,M001,2025-01-02", events.get(2));
+    }
+
+    @Test
+    public void testTornColumnRepairedOnOpen() throws IOException {
+        store.append("alice", "M001", "2025-01-01");
+        store.append("bob", "M002", "2025-01-01");
+        store.flush();
+        int day = (int) LocalDate.parse("2025-01-01").toEpochDay();
+        RandomAccessFile movies = new RandomAccessFile(new File(TEST_DIRECTORY, "day-" + day + ".movie"), "rw");
+        try {
+            movies.setLength(6);
+        } finally {
+            movies.close();
+        }
+
+        WatchEventStore reopened = new WatchEventStore(TEST_DIRECTORY);
+        assertEquals(1, reopened.getEventCount());
+        assertEquals(4, new File(TEST_DIRECTORY, "day-" + day + ".user").length());
+        ArrayList<String> events = scanAll(reopened, "2025-01-01", "2025-01-01");
+        assertEquals(1, events.size());
+        assertEquals("alice,M001,2025-01-01", events.get(0));
+    }
+
+    @Test
+    public void testCountByMovie() throws IOException {
+        store.append("alice", "M001", "2025-01-01");
+        store.append("bob", "M001", "2025-01-02");
+        store.append("bob", "M002", "2025-01-02");
+        store.append("carol", "M003", "2025-02-01");
+
+        HashMap<String, Integer> counts = store.countByMovie(LocalDate.parse("2025-01-01"),
+                LocalDate.parse("2025-01-31"));
+        assertEquals(2, counts.size());
+        assertEquals(Integer.valueOf(2), counts.get("M001"));
+        assertEquals(Integer.valueOf(1), counts.get("M002"));
+    }
+
+    @Test
+    public void testAppendHistories() throws IOException {
+        User alice = new BasicUser("alice", "pass");
+        alice.markAsWatched("M001", "2025-01-01");
+        alice.markAsWatched("M002", "2025-01-05");
+        User bob = new BasicUser("bob", "pass");
+        bob.markAsWatched("M001", "2025-01-03");
+        ArrayList<User> users = new ArrayList<>();
+        users.add(alice);
+        users.add(bob);
+
+        assertEquals(3, store.appendHistories(users));
+        assertEquals(3, scanAll(store, "2025-01-01", "2025-01-31").size());
+    }
+}
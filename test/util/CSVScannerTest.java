@@ -0,0 +1,199 @@
+package test.util;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import util.CSVScanner;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+
+/**
+ * Unit tests for CSVScanner class
+ */
+public class CSVScannerTest {
+
+    private static String TEST_FILE = "data/test_csv_scanner.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_FILE).delete();
+    }
+
+    private CSVScanner scannerFor(String text) {
+        return new CSVScanner(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    public void testSimpleRows() {
+        CSVScanner scanner = scannerFor("a,b,c\n1,2,3\n");
+
+        assertTrue(scanner.nextRow());
+        assertEquals(3, scanner.getFieldCount());
+        assertEquals("a", scanner.getString(0));
+        assertEquals("c", scanner.getString(2));
+
+        assertTrue(scanner.nextRow());
+        assertEquals(1, scanner.getInt(0));
+        assertEquals(3, scanner.getInt(2));
+
+        assertFalse(scanner.nextRow());
+    }
+
+    @Test
+    public void testSkipsBlankLinesAndTrimsFields() {
+        CSVScanner scanner = scannerFor("x\r\n\n   \n  M001 , Title ,Drama\r\n");
+
+        assertTrue(scanner.nextRow());
+        assertEquals("x", scanner.getString(0));
+        assertTrue(scanner.nextRow());
+        assertEquals(3, scanner.getLineNumber());
+        assertEquals("M001", scanner.getString(0));
+        assertEquals("Title", scanner.getString(1));
+        assertEquals("Drama", scanner.getString(2));
+        assertFalse(scanner.nextRow());
+    }
+
+    @Test
+    public void testQuotedFields() {
+        CSVScanner scanner = scannerFor("M001,\"Good, Bad and \"\"Ugly\"\"\",Western\n"
+                + "M002,\"Two\nLines\",Drama");
+
+        assertTrue(scanner.nextRow());
+        assertEquals(3, scanner.getFieldCount());
+        assertEquals("Good, Bad and \"Ugly\"", scanner.getString(1));
+        assertEquals("Western", scanner.getString(2));
+
+        assertTrue(scanner.nextRow());
+        assertEquals("Two\nLines", scanner.getString(1));
+        assertEquals("Drama", scanner.getString(2));
+        assertFalse(scanner.nextRow());
+    }
+
+    @Test
+    public void testEmptyFields() {
+        CSVScanner scanner = scannerFor("a,,c,");
+
+        assertTrue(scanner.nextRow());
+        assertEquals(4, scanner.getFieldCount());
+        assertTrue(scanner.isEmpty(1));
+        assertTrue(scanner.isEmpty(3));
+        assertFalse(scanner.isEmpty(0));
+    }
+
+    @Test
+    public void testParseNumbers() {
+        CSVScanner scanner = scannerFor("1994,9.3,-12,+7,0.1,8,1.5e2");
+
+        assertTrue(scanner.nextRow());
+        assertEquals(1994, scanner.getInt(0));
+        assertEquals(9.3, scanner.getDouble(1), 0.0);
+        assertEquals(-12, scanner.getInt(2));
+        assertEquals(7, scanner.getInt(3));
+        assertEquals(0.1, scanner.getDouble(4), 0.0);
+        assertEquals(8.0, scanner.getDouble(5), 0.0);
+        assertEquals(150.0, scanner.getDouble(6), 0.0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidInt() {
+        CSVScanner scanner = scannerFor("19x4");
+        scanner.nextRow();
+        scanner.getInt(0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testIntOutOfRange() {
+        CSVScanner scanner = scannerFor("99999999999");
+        scanner.nextRow();
+        scanner.getInt(0);
+    }
+
+    @Test(expected = NumberFormatException.class)
+    public void testInvalidDouble() {
+        CSVScanner scanner = scannerFor("abc");
+        scanner.nextRow();
+        scanner.getDouble(0);
+    }
+
+    @Test
+    public void testRowText() {
+        CSVScanner scanner = scannerFor("a,b\r\nbad,row\r\n");
+        scanner.nextRow();
+        scanner.nextRow();
+        assertEquals("bad,row", scanner.getRowText());
+    }
+
+    @Test
+    public void testScanRegion() {
+        String text = "skip\nkeep,1\nafter\n";
+        CSVScanner scanner = new CSVScanner(ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8)), 5, 12);
+
+        assertTrue(scanner.nextRow());
+        assertEquals("keep", scanner.getString(0));
+        assertFalse(scanner.nextRow());
+    }
+
+    @Test
+    public void testOpenMappedFile() throws IOException {
+        Files.write(Paths.get(TEST_FILE), "id,title\nM001,Am\u00e9lie\n".getBytes(StandardCharsets.UTF_8));
+
+        CSVScanner scanner = CSVScanner.open(TEST_FILE);
+        assertTrue(scanner.nextRow());
+        assertTrue(scanner.nextRow());
+        assertEquals("Am\u00e9lie", scanner.getString(1));
+        assertFalse(scanner.nextRow());
+    }
+
+    @Test(expected = IOException.class)
+    public void testOpenMissingFile() throws IOException {
+        CSVScanner.open("nonexistent/file.csv");
+    }
+
+    @Test
+    public void testSplitAtLineBoundaries() {
+        String text = "r0,a\nr1,b\nr2,c\nr3,d\n";
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        int[] bounds = CSVScanner.splitAtLineBoundaries(buffer, 0, buffer.limit(), 3);
+
+        assertEquals(4, bounds.length);
+        assertEquals(0, bounds[0]);
+        assertEquals(buffer.limit(), bounds[3]);
+        int rows = 0;
+        for (int i = 0; i < 3; i++) {
+            assertTrue(bounds[i] == 0 || text.charAt(bounds[i] - 1) == '\n');
+            CSVScanner scanner = new CSVScanner(buffer, bounds[i], bounds[i + 1]);
+            while (scanner.nextRow()) {
+                rows++;
+            }
+        }
+        assertEquals(4, rows);
+    }
+
+    @Test
+    public void testSplitSkipsNewlinesInQuotes() {
+        String text = "r0,a\nr1,\"x\ny\nz\n\"\"w\"\"\nv\nu\",b\nr2,c\n";
+        ByteBuffer buffer = ByteBuffer.wrap(text.getBytes(StandardCharsets.UTF_8));
+        for (int chunks = 2; chunks <= 8; chunks++) {
+            int[] bounds = CSVScanner.splitAtLineBoundaries(buffer, 0, buffer.limit(), chunks);
+            ArrayList<String> ids = new ArrayList<>();
+            ArrayList<String> values = new ArrayList<>();
+            for (int i = 0; i < chunks; i++) {
+                CSVScanner scanner = new CSVScanner(buffer, bounds[i], bounds[i + 1]);
+                while (scanner.nextRow()) {
+                    ids.add(scanner.getString(0));
+                    values.add(scanner.getString(1));
+                }
+            }
+            assertEquals(3, ids.size());
+            assertEquals("r1", ids.get(1));
+            assertEquals("x\ny\nz\n\"w\"\nv\nu", values.get(1));
+            assertEquals("c", values.get(2));
+        }
+    }
+}
@@ -6,6 +6,7 @@ import org.junit.Test;
 import static org.junit.Assert.*;
 
 import util.FileHandler;
+import util.LineOffsetIndex;
 import java.io.File;
 import java.io.IOException;
 import java.util.ArrayList;
@@ -18,6 +19,7 @@ public class FileHandlerTest {
     private static String TEST_FILE = "data/test_file_handler.csv";
     private static String TEST_DIR = "data/test_subdir";
     private static String TEST_FILE_IN_DIR = TEST_DIR + "/test.csv";
+    private static String TEST_GZ_FILE = "data/test_file_handler.csv.gz";
     
     @Before
     public void setUp() {
@@ -32,6 +34,9 @@ public class FileHandlerTest {
     }
     
     private void cleanUpTestFiles() {
+        new File(TEST_GZ_FILE).delete();
+        LineOffsetIndex.delete(TEST_FILE);
+        LineOffsetIndex.delete(TEST_FILE_IN_DIR);
         File file = new File(TEST_FILE);
         if (file.exists()) {
             file.delete();
@@ -316,4 +321,270 @@ public class FileHandlerTest {
         assertEquals("a", fields[0]);
         assertEquals("j", fields[9]);
     }
+
+    @Test
+    public void testParseCSVLineWithQuotedFields() {
+        String[] fields = FileHandler.parseCSVLine("M001,\"Good, Bad and \"\"Ugly\"\"\",Western");
+        
+        assertEquals(3, fields.length);
+        assertEquals("M001", fields[0]);
+        assertEquals("Good, Bad and \"Ugly\"", fields[1]);
+        assertEquals("Western", fields[2]);
+    }
+    
+    @Test
+    public void testParseCSVLineWithEmptyQuotedField() {
+        String[] fields = FileHandler.parseCSVLine("a,\"\",c");
+        
+        assertEquals(3, fields.length);
+        assertEquals("", fields[1]);
+    }
+
+    @Test
+    public void testForEachLine() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("line0");
+        lines.add("line1");
+        lines.add("line2");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        
+        ArrayList<String> visited = new ArrayList<>();
+        FileHandler.forEachLine(TEST_FILE, (lineNumber, line) -> {
+            visited.add(lineNumber + ":" + line);
+            return true;
+        });
+        
+        assertEquals(3, visited.size());
+        assertEquals("0:line0", visited.get(0));
+        assertEquals("2:line2", visited.get(2));
+    }
+    
+    @Test
+    public void testForEachLineStopsEarly() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("line0");
+        lines.add("line1");
+        lines.add("line2");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        
+        ArrayList<String> visited = new ArrayList<>();
+        FileHandler.forEachLine(TEST_FILE, (lineNumber, line) -> {
+            visited.add(line);
+            return lineNumber < 1;
+        });
+        
+        assertEquals(2, visited.size());
+    }
+    
+    @Test(expected = IOException.class)
+    public void testForEachLineFileNotFound() throws IOException {
+        FileHandler.forEachLine("nonexistent/file.csv", (lineNumber, line) -> true);
+    }
+    
+    @Test
+    public void testAppendLineWithoutTrailingNewline() throws IOException {
+        java.nio.file.Files.write(new File(TEST_FILE).toPath(), "line0".getBytes());
+        
+        FileHandler.appendLine(TEST_FILE, "line1");
+        
+        ArrayList<String> readLines = FileHandler.readCSV(TEST_FILE);
+        assertEquals(2, readLines.size());
+        assertEquals("line0", readLines.get(0));
+        assertEquals("line1", readLines.get(1));
+    }
+    
+    @Test
+    public void testAppendLineCreatesFile() throws IOException {
+        FileHandler.appendLine(TEST_FILE, "first_line");
+        
+        assertEquals("first_line", FileHandler.readLine(TEST_FILE, 0));
+    }
+    
+    @Test(expected = IOException.class)
+    public void testUpdateLineFileNotFound() throws IOException {
+        FileHandler.updateLine("data/nonexistent_update.csv", 0, "line");
+    }
+
+    @Test
+    public void testWriteAndReadCompressed() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("id,title,genre,year,rating");
+        for (int i = 0; i < 500; i++) {
+            lines.add("M" + i + ",Title " + i + ",Drama,2000,7.5");
+        }
+        FileHandler.writeCSV(TEST_GZ_FILE, lines);
+        
+        assertTrue(FileHandler.isCompressed(TEST_GZ_FILE));
+        assertTrue(new File(TEST_GZ_FILE).length() < 500 * 20);
+        assertEquals(lines, FileHandler.readCSV(TEST_GZ_FILE));
+        assertEquals("M42,Title 42,Drama,2000,7.5", FileHandler.readLine(TEST_GZ_FILE, 43));
+    }
+    
+    @Test
+    public void testCompressedDetectedByMagicBytes() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("a,b");
+        FileHandler.writeCSV(TEST_GZ_FILE, lines);
+        new File(TEST_GZ_FILE).renameTo(new File(TEST_FILE));
+        
+        assertTrue(FileHandler.isCompressed(TEST_FILE));
+        assertEquals(lines, FileHandler.readCSV(TEST_FILE));
+        
+        // Rewriting keeps the file compressed even without the extension
+        FileHandler.writeCSV(TEST_FILE, lines);
+        assertTrue(FileHandler.isCompressed(TEST_FILE));
+        assertEquals(lines, FileHandler.readCSV(TEST_FILE));
+    }
+
+    @Test
+    public void testAppendAndUpdateCompressedWithoutExtension() throws IOException {
+        FileHandler.appendLine(TEST_GZ_FILE, "line0");
+        new File(TEST_GZ_FILE).renameTo(new File(TEST_FILE));
+        FileHandler.appendLine(TEST_FILE, "line1");
+        FileHandler.updateLine(TEST_FILE, 0, "changed");
+
+        assertTrue(FileHandler.isCompressed(TEST_FILE));
+        ArrayList<String> readLines = FileHandler.readCSV(TEST_FILE);
+        assertEquals(2, readLines.size());
+        assertEquals("changed", readLines.get(0));
+        assertEquals("line1", readLines.get(1));
+    }
+    
+    @Test
+    public void testAppendAndUpdateCompressed() throws IOException {
+        FileHandler.appendLine(TEST_GZ_FILE, "line0");
+        FileHandler.appendLine(TEST_GZ_FILE, "line1");
+        FileHandler.updateLine(TEST_GZ_FILE, 0, "changed");
+        
+        assertTrue(FileHandler.isCompressed(TEST_GZ_FILE));
+        ArrayList<String> readLines = FileHandler.readCSV(TEST_GZ_FILE);
+        assertEquals(2, readLines.size());
+        assertEquals("changed", readLines.get(0));
+        assertEquals("line1", readLines.get(1));
+    }
+    
+    @Test
+    public void testReadBufferCompressed() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("x,y");
+        FileHandler.writeCSV(TEST_GZ_FILE, lines);
+        FileHandler.writeCSV(TEST_FILE, lines);
+        
+        assertEquals(FileHandler.readBuffer(TEST_FILE), FileHandler.readBuffer(TEST_GZ_FILE));
+    }
+
+    @Test
+    public void testUpdateLineSameLengthInPlace() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("line0");
+        lines.add("line1");
+        lines.add("line2");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        long size = new File(TEST_FILE).length();
+        
+        FileHandler.updateLine(TEST_FILE, 1, "LINE1");
+        
+        assertEquals(size, new File(TEST_FILE).length());
+        assertTrue(LineOffsetIndex.isFresh(TEST_FILE));
+        assertEquals("LINE1", FileHandler.readLine(TEST_FILE, 1));
+        assertEquals("line2", FileHandler.readLine(TEST_FILE, 2));
+    }
+    
+    @Test
+    public void testUpdateLinePadded() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("alice,pw,BASIC,M001;M002,");
+        lines.add("bob,pw,BASIC,,");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        long size = new File(TEST_FILE).length();
+        
+        FileHandler.updateLinePadded(TEST_FILE, 0, "alice,pw,BASIC,M001,");
+        assertEquals(size, new File(TEST_FILE).length());
+        assertEquals("alice,pw,BASIC,M001,", FileHandler.readLine(TEST_FILE, 0).trim());
+        
+        // Longer lines do not fit and fall back to a rewrite
+        FileHandler.updateLinePadded(TEST_FILE, 1, "bob,pw,PREMIUM,M009,");
+        assertEquals("bob,pw,PREMIUM,M009,", FileHandler.readLine(TEST_FILE, 1));
+        assertEquals("alice,pw,BASIC,M001,", FileHandler.readLine(TEST_FILE, 0).trim());
+    }
+    
+    @Test
+    public void testReadLineAfterFileChanged() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("line0");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        assertEquals("line0", FileHandler.readLine(TEST_FILE, 0));
+        assertNull(FileHandler.readLine(TEST_FILE, 1));
+        
+        FileHandler.appendLine(TEST_FILE, "line1");
+        
+        assertEquals("line1", FileHandler.readLine(TEST_FILE, 1));
+    }
+
+    @Test
+    public void testWriteCSVDropsIndexOfSameSizeFile() throws IOException {
+        ArrayList<String> lines = new ArrayList<>();
+        lines.add("aa");
+        lines.add("bbbb");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        assertEquals("bbbb", FileHandler.readLine(TEST_FILE, 1));
+        long lastModified = new File(TEST_FILE).lastModified();
+
+        // Same length and (as within the mtime granularity) the same modification time
+        lines.set(0, "aaaa");
+        lines.set(1, "bb");
+        FileHandler.writeCSV(TEST_FILE, lines);
+        new File(TEST_FILE).setLastModified(lastModified);
+
+        assertEquals("bb", FileHandler.readLine(TEST_FILE, 1));
+        FileHandler.updateLine(TEST_FILE, 0, "cccc");
+        assertEquals("cccc", FileHandler.readLine(TEST_FILE, 0));
+        assertEquals("bb", FileHandler.readLine(TEST_FILE, 1));
+    }
+
+    @Test
+    public void testAppendLineExtendsIndex() throws IOException {
+        java.nio.file.Files.write(new File(TEST_FILE).toPath(), "line0".getBytes());
+        assertEquals("line0", FileHandler.readLine(TEST_FILE, 0));
+
+        FileHandler.appendLine(TEST_FILE, "line1");
+        FileHandler.appendLine(TEST_FILE, "line2");
+
+        assertTrue(LineOffsetIndex.isFresh(TEST_FILE));
+        assertEquals("line0", FileHandler.readLine(TEST_FILE, 0));
+        assertEquals("line1", FileHandler.readLine(TEST_FILE, 1));
+        assertEquals("line2", FileHandler.readLine(TEST_FILE, 2));
+        assertNull(FileHandler.readLine(TEST_FILE, 3));
+    }
+
+    @Test
+    public void testReadAndUpdateLineAsUtf8() throws IOException {
+        java.nio.file.Files.write(new File(TEST_FILE).toPath(),
+                "id,title\nM001,Caf\u00e9\nM002,Na\u00efve\n".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        assertEquals("M001,Caf\u00e9", FileHandler.readLine(TEST_FILE, 1));
+        long size = new File(TEST_FILE).length();
+
+        // Same UTF-8 length as the old line, so it is written in place
+        FileHandler.updateLine(TEST_FILE, 1, "M001,Cr\u00e8m");
+        assertEquals(size, new File(TEST_FILE).length());
+        assertEquals("M001,Cr\u00e8m", FileHandler.readLine(TEST_FILE, 1));
+        assertEquals("M002,Na\u00efve", FileHandler.readLine(TEST_FILE, 2));
+    }
+
+    @Test
+    public void testWriteBuffersInOrder() throws IOException {
+        FileHandler.writeCSV(TEST_FILE, new ArrayList<String>());
+        java.nio.ByteBuffer[] buffers = new java.nio.ByteBuffer[3];
+        buffers[0] = java.nio.ByteBuffer.wrap("id,name\n".getBytes());
+        buffers[1] = java.nio.ByteBuffer.allocateDirect(0);
+        buffers[2] = java.nio.ByteBuffer.wrap("1,one\n2,two\n".getBytes());
+        FileHandler.writeBuffers(TEST_FILE, buffers);
+
+        ArrayList<String> lines = FileHandler.readCSV(TEST_FILE);
+        assertEquals(3, lines.size());
+        assertEquals("id,name", lines.get(0));
+        assertEquals("2,two", lines.get(2));
+        assertFalse(new File(TEST_FILE + ".tmp").exists());
+    }
 }
@@ -0,0 +1,68 @@
+package test.util;
+
+import org.junit.After;
+import org.junit.Test;
+import static org.junit.Assert.*;
+
+import util.LineOffsetIndex;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+/**
+ * Unit tests for LineOffsetIndex class
+ */
+public class LineOffsetIndexTest {
+
+    private static String TEST_FILE = "data/test_line_index.csv";
+
+    @After
+    public void tearDown() {
+        new File(TEST_FILE).delete();
+        LineOffsetIndex.delete(TEST_FILE);
+    }
+
+    private void writeFile(String content) throws IOException {
+        Files.write(new File(TEST_FILE).toPath(), content.getBytes());
+    }
+
+    @Test
+    public void testBuildAndBounds() throws IOException {
+        writeFile("ab\r\ncde\nf");
+
+        assertEquals(3, LineOffsetIndex.build(TEST_FILE));
+        assertTrue(LineOffsetIndex.isFresh(TEST_FILE));
+        assertArrayEquals(new long[] {0, 4}, LineOffsetIndex.getLineBounds(TEST_FILE, 0));
+        assertArrayEquals(new long[] {4, 8}, LineOffsetIndex.getLineBounds(TEST_FILE, 1));
+        assertArrayEquals(new long[] {8, 9}, LineOffsetIndex.getLineBounds(TEST_FILE, 2));
+        assertNull(LineOffsetIndex.getLineBounds(TEST_FILE, 3));
+        assertNull(LineOffsetIndex.getLineBounds(TEST_FILE, -1));
+    }
+
+    @Test
+    public void testEmptyFile() throws IOException {
+        writeFile("");
+
+        assertEquals(0, LineOffsetIndex.build(TEST_FILE));
+        assertNull(LineOffsetIndex.getLineBounds(TEST_FILE, 0));
+    }
+
+    @Test
+    public void testBuiltLazilyAndRebuiltWhenStale() throws IOException {
+        writeFile("a\nb\n");
+        assertFalse(LineOffsetIndex.isFresh(TEST_FILE));
+
+        assertArrayEquals(new long[] {2, 4}, LineOffsetIndex.getLineBounds(TEST_FILE, 1));
+        assertTrue(new File(LineOffsetIndex.getIndexPath(TEST_FILE)).exists());
+
+        writeFile("a\nb\nccc\n");
+        assertFalse(LineOffsetIndex.isFresh(TEST_FILE));
+        assertArrayEquals(new long[] {4, 8}, LineOffsetIndex.getLineBounds(TEST_FILE, 2));
+        assertTrue(LineOffsetIndex.isFresh(TEST_FILE));
+    }
+
+    @Test(expected = IOException.class)
+    public void testMissingFile() throws IOException {
+        LineOffsetIndex.getLineBounds("data/nonexistent_line_index.csv", 0);
+    }
+}
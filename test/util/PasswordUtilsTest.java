@@ -157,6 +157,14 @@ public class PasswordUtilsTest {
         assertFalse(PasswordUtils.isValidPassword("$HASH$invalid"));
     }
 
+    @Test
+    public void testGetPasswordError() {
+        assertNull(PasswordUtils.getPasswordError("validPass123"));
+        assertNotNull(PasswordUtils.getPasswordError("short"));
+        assertNotNull(PasswordUtils.getPasswordError(null));
+        assertTrue(PasswordUtils.getPasswordError("$HASH$invalid").contains("reserved prefix"));
+    }
+
     @Test
     public void testGetPasswordStrengthWeak() {
         // Weak passwords (score <= 2)